@@ -0,0 +1,1028 @@
+package com.bw.jtools.examples;
+
+import com.bw.jtools.shape.AbstractPainterBase;
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.DisplayList;
+import com.bw.jtools.shape.DisplayListPainter;
+import com.bw.jtools.shape.LayeredShapePainter;
+import com.bw.jtools.shape.RenderState;
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.ShapePainter;
+import com.bw.jtools.shape.StyledShape;
+import com.bw.jtools.shape.animation.AnimationType;
+import com.bw.jtools.shape.animation.Animator;
+import com.bw.jtools.shape.animation.FillMode;
+import com.bw.jtools.shape.animation.Rotation;
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.Merge;
+import com.bw.jtools.shape.filter.Offset;
+import com.bw.jtools.shape.filter.ImageBufferPool;
+import com.bw.jtools.shape.filter.PainterBuffers;
+import com.bw.jtools.shape.io.ShapeReader;
+import com.bw.jtools.shape.io.ShapeWriter;
+import com.bw.jtools.svg.ConversionResult;
+import com.bw.jtools.svg.ElementCache;
+import com.bw.jtools.svg.SVGConverter;
+import com.bw.jtools.svg.SVGConverterEngine;
+import com.bw.jtools.svg.css.CSSParser;
+import com.bw.jtools.svg.css.CssStyleSelector;
+import com.bw.jtools.svg.css.Lexer;
+import com.bw.jtools.svg.css.LexerSymbolType;
+import com.bw.jtools.ui.IconCache;
+import com.bw.jtools.ui.ShapeIcon;
+import com.bw.jtools.ui.TileCache;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.swing.JComponent;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command-line tool to measure conversion and rendering times.<br>
+ * Usage: <i>SVGBenchmark &lt;scenario&gt; [svg-files or directories]</i><br>
+ * If no files are given, the svg icon of the examples is used.
+ * Each scenario prints the average time per operation after a warm-up phase.
+ * The number of iterations can be set by the system properties "SVGBenchmark.warmUp" and "SVGBenchmark.iterations".
+ * This is not a replacement for a real micro-benchmark harness, but good enough to compare
+ * different approaches on the same machine.
+ */
+public class SVGBenchmark
+{
+	/**
+	 * A benchmark scenario.
+	 */
+	protected interface Scenario
+	{
+		void run(List<byte[]> files) throws Exception;
+	}
+
+	/**
+	 * A measured operation.
+	 */
+	protected interface Operation
+	{
+		void run() throws Exception;
+	}
+
+	protected static final Map<String, Scenario> scenarios_ = new LinkedHashMap<>();
+
+	/**
+	 * Stream for results. System.out is muted during measurements to suppress svg warnings.
+	 */
+	protected static final PrintStream out_ = System.out;
+
+	private static final PrintStream mute_ = new PrintStream(new OutputStream()
+	{
+		@Override
+		public void write(int b)
+		{
+		}
+	});
+
+	protected static int warmUpIterations_ = Integer.getInteger("SVGBenchmark.warmUp", 200);
+	protected static int iterations_ = Integer.getInteger("SVGBenchmark.iterations", 1000);
+
+	static
+	{
+		scenarios_.put("convert", SVGBenchmark::convert);
+		scenarios_.put("binary", SVGBenchmark::binaryFormat);
+		scenarios_.put("pathparser", SVGBenchmark::pathParser);
+		scenarios_.put("css", SVGBenchmark::css);
+		scenarios_.put("style", SVGBenchmark::style);
+		scenarios_.put("noids", SVGBenchmark::noIds);
+		scenarios_.put("batch", SVGBenchmark::batch);
+		scenarios_.put("displaylist", SVGBenchmark::displayList);
+		scenarios_.put("culling", SVGBenchmark::culling);
+		scenarios_.put("lod", SVGBenchmark::levelOfDetail);
+		scenarios_.put("tiles", SVGBenchmark::tiles);
+		scenarios_.put("animation", SVGBenchmark::animation);
+		scenarios_.put("icons", SVGBenchmark::icons);
+		scenarios_.put("filter", SVGBenchmark::filter);
+		scenarios_.put("blur", SVGBenchmark::blur);
+		scenarios_.put("filter4k", SVGBenchmark::filter4k);
+		scenarios_.put("pool", SVGBenchmark::pool);
+		scenarios_.put("sourcealpha", SVGBenchmark::sourceAlpha);
+		scenarios_.put("footprint", SVGBenchmark::footprint);
+	}
+
+	/**
+	 * Measures the conversion with and without the parser pool of {@link SVGConverterEngine}.
+	 */
+	protected static void convert(List<byte[]> files) throws Exception
+	{
+		SVGConverterEngine engine = new SVGConverterEngine();
+		measure("SVGConverter.convert", () ->
+		{
+			for (byte[] f : files)
+				SVGConverter.convert(new ByteArrayInputStream(f));
+		});
+		measure("SVGConverterEngine.convert", () ->
+		{
+			for (byte[] f : files)
+				engine.convert(new ByteArrayInputStream(f));
+		});
+	}
+
+	/**
+	 * Compares {@link SVGConverter#convert(InputStream)} with loading the precompiled binary format.
+	 */
+	protected static void binaryFormat(List<byte[]> files) throws Exception
+	{
+		List<byte[]> binaries = new ArrayList<>(files.size());
+		long svgBytes = 0;
+		long binBytes = 0;
+		for (byte[] svg : files)
+		{
+			byte[] bin = ShapeWriter.toBytes(SVGConverter.convert(new ByteArrayInputStream(svg)));
+			binaries.add(bin);
+			svgBytes += svg.length;
+			binBytes += bin.length;
+		}
+		out_.printf("Size: svg %d bytes, binary %d bytes%n", svgBytes, binBytes);
+
+		double svg = measure("SVGConverter.convert", () ->
+		{
+			for (byte[] f : files)
+				SVGConverter.convert(new ByteArrayInputStream(f));
+		});
+		double bin = measure("ShapeReader.read", () ->
+		{
+			for (byte[] f : binaries)
+				ShapeReader.fromBytes(f);
+		});
+		out_.printf("Speedup: %.1fx%n", svg / bin);
+	}
+
+	/**
+	 * Parses a generated path similar to a detailed map outline with lines, curves and arcs.
+	 * The svg files are not used.
+	 */
+	protected static void pathParser(List<byte[]> files) throws Exception
+	{
+		final int commands = 100000;
+		Random r = new Random(42);
+		StringBuilder sb = new StringBuilder(commands * 24);
+		sb.append("M1000.5 1000.25");
+		for (int i = 0; i < commands; ++i)
+		{
+			switch (r.nextInt(10))
+			{
+				case 0:
+					sb.append(String.format(Locale.ROOT, "c%.4f,%.4f %.4f,%.4f %.4f,%.4f",
+							r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), r.nextGaussian()));
+					break;
+				case 1:
+					sb.append(String.format(Locale.ROOT, "a%.3f %.3f %d %d %d %.4f %.4f",
+							1 + r.nextDouble() * 5, 1 + r.nextDouble() * 5, r.nextInt(90), r.nextInt(2), r.nextInt(2), r.nextGaussian(), r.nextGaussian()));
+					break;
+				default:
+					// Implicit repeated "l" as in most exported outlines.
+					sb.append(String.format(Locale.ROOT, i % 7 == 0 ? "l%.5f %.5f" : " %.5f %.5f", r.nextGaussian(), r.nextGaussian()));
+					break;
+			}
+		}
+		sb.append('z');
+		final String d = sb.toString();
+		out_.printf("Path: %d commands, %d characters%n", commands, d.length());
+
+		double us = measure("Path", 10, 50, () -> new com.bw.jtools.svg.Path(d).getPath());
+		out_.printf("%.1f ns/command%n", us * 1000d / commands);
+	}
+
+	/**
+	 * Applies a generated style sheet with 1000 class rules (as in exported icon sets) and some
+	 * tag and descendant rules to a generated document with 10000 elements.
+	 * The svg files are not used.
+	 */
+	protected static void css(List<byte[]> files) throws Exception
+	{
+		final int rules = 1000;
+		final int elements = 10000;
+		Random r = new Random(42);
+		StringBuilder css = new StringBuilder();
+		for (int i = 0; i < rules; ++i)
+			css.append(String.format(Locale.ROOT, ".cls-%d{fill:#%06x;stroke-width:%d}%n", i, r.nextInt(0x1000000), r.nextInt(5)));
+		css.append("rect{stroke:black} g .cls-1 path{opacity:0.5} #e5 circle{fill:red}\n");
+
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\">");
+		String[] tags = {"path", "rect", "circle"};
+		for (int i = 0; i < elements; i += 10)
+		{
+			svg.append("<g id=\"e").append(i).append("\" class=\"cls-").append(r.nextInt(rules)).append("\">");
+			for (int k = 1; k < 10; ++k)
+				svg.append('<').append(tags[r.nextInt(tags.length)]).append(" class=\"cls-").append(r.nextInt(rules)).append("\"/>");
+			svg.append("</g>");
+		}
+		svg.append("</svg>");
+
+		final Document doc = DocumentBuilderFactory.newInstance()
+												  .newDocumentBuilder()
+												  .parse(new ByteArrayInputStream(svg.toString()
+																					  .getBytes(StandardCharsets.UTF_8)));
+		final CssStyleSelector selector = CSSParser.parse(css.toString(), "text/css");
+		out_.printf("%d rules, %d elements%n", selector.rules_.size(), elements);
+
+		measure("CssStyleSelector.apply", () ->
+		{
+			ElementCache cache = new ElementCache(false);
+			cache.scanForIds(doc);
+			selector.apply(doc.getDocumentElement(), cache);
+		});
+	}
+
+	/**
+	 * Generates a diagram with the given number of nodes, laid out on a grid of 2000x2000 pixels.
+	 * Each node is a group with a transform, a box, a label ellipse and a connector path.
+	 * Every tenth node has a clip path.
+	 */
+	protected static AbstractShape diagram(int nodes) throws Exception
+	{
+		Random r = new Random(7);
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 2000 2000\">");
+		svg.append("<defs><clipPath id=\"clip\"><rect width=\"30\" height=\"20\"/></clipPath></defs>");
+		final int columns = (int) Math.ceil(Math.sqrt(nodes / 3d));
+		final double cell = 2000d / columns;
+		for (int i = 0; i < nodes; i += 3)
+		{
+			svg.append(String.format(Locale.ROOT, "<g transform=\"translate(%.1f %.1f)\"%s>",
+					(i / 3 % columns) * cell, (i / 3 / columns) * cell, (i % 30 == 0) ? " clip-path=\"url(#clip)\"" : ""));
+			svg.append(String.format(Locale.ROOT, "<rect width=\"%.1f\" height=\"%.1f\" rx=\"3\" fill=\"#%06x\" stroke=\"black\"/>",
+					cell * 0.6, cell * 0.4, r.nextInt(0x1000000)));
+			svg.append(String.format(Locale.ROOT, "<ellipse cx=\"%.1f\" cy=\"%.1f\" rx=\"%.1f\" ry=\"%.1f\" fill=\"white\"/>",
+					cell * 0.3, cell * 0.2, cell * 0.2, cell * 0.1));
+			svg.append(String.format(Locale.ROOT, "<path d=\"M%.1f %.1fC%.1f %.1f %.1f %.1f %.1f %.1f\" fill=\"none\" stroke=\"#333\" stroke-width=\"2\"/>",
+					cell * 0.6, cell * 0.2, cell * 0.8, cell * 0.2, cell * 0.8, cell * 0.7, cell, cell * 0.7));
+			svg.append("</g>");
+		}
+		svg.append("</svg>");
+		return SVGConverter.convert(svg.toString());
+	}
+
+	/**
+	 * Compares painting of a diagram with 2000 nodes by {@link ShapePainter} and {@link DisplayListPainter}.
+	 */
+	protected static void displayList(List<byte[]> files) throws Exception
+	{
+		final AbstractShape shape = diagram(2000);
+		final ShapePainter tree = new ShapePainter(shape);
+		final DisplayListPainter list = new DisplayListPainter(shape);
+		out_.printf("%d operations%n", list.getDisplayList()
+										   .size());
+
+		// Full size is dominated by rasterization, the thumbnail shows the overhead of the painter.
+		for (double scale : new double[]{0.5, 0.05})
+		{
+			final BufferedImage image = new BufferedImage((int) (2000 * scale), (int) (2000 * scale), BufferedImage.TYPE_INT_ARGB);
+			tree.setScale(scale, scale);
+			list.setScale(scale, scale);
+			out_.printf("Scale %.2f%n", scale);
+			double treeUs = measure("ShapePainter", warmUpIterations_ / 10, iterations_ / 10, () -> tree.paintShapeToBuffer(image, false));
+			report(allocation(() -> tree.paintShapeToBuffer(image, false)));
+			double listUs = measure("DisplayListPainter", warmUpIterations_ / 10, iterations_ / 10, () -> list.paintShapeToBuffer(image, false));
+			report(allocation(() -> list.paintShapeToBuffer(image, false)));
+			out_.printf("%-40s %12.2fx%n", "speed-up", treeUs / listUs);
+		}
+		measure("DisplayList.compile", () -> DisplayList.compile(shape));
+	}
+
+	/**
+	 * Paints a zoomed viewport of a diagram with 40000 nodes, with and without culling.
+	 */
+	protected static void culling(List<byte[]> files) throws Exception
+	{
+		final AbstractShape shape = diagram(40000);
+		final BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+		for (AbstractPainterBase painter : new AbstractPainterBase[]{new ShapePainter(shape), new DisplayListPainter(shape)})
+		{
+			// 8000x8000 pixels in total, the viewport shows a detail in the middle.
+			painter.setScale(4, 4);
+			final RenderState rs = painter.getRenderState();
+			final Operation paint = () ->
+			{
+				Graphics2D g = image.createGraphics();
+				Context.initGraphics(g);
+				g.setClip(0, 0, image.getWidth(), image.getHeight());
+				g.translate(-3600, -3700);
+				painter.paint(g, Color.BLACK, Color.WHITE, false);
+				g.dispose();
+			};
+			final String name = painter.getClass()
+									   .getSimpleName();
+			double[] us = new double[2];
+			for (int i = 0; i < 2; ++i)
+			{
+				final boolean culling = i == 1;
+				rs.setCullingEnabled(culling);
+				us[i] = measure(name + (culling ? " culling" : ""), warmUpIterations_ / 10, iterations_ / 10, paint);
+				out_.printf("%-40s %12d painted %d culled%n", "", rs.getPaintedShapes(), rs.getCulledShapes());
+			}
+			out_.printf("%-40s %12.2fx%n", "speed-up", us[0] / us[1]);
+		}
+		// Hit test on the spatial index of the root group.
+		final ShapePainter painter = new ShapePainter(shape);
+		painter.setScale(4, 4);
+		final Point2D.Double p = new Point2D.Double(3700, 3800);
+		measure("findShapeAt", () -> painter.findShapeAt(p));
+	}
+
+	/**
+	 * Generates a map with the given number of regions, each a densely sampled closed path.
+	 */
+	protected static AbstractShape map(int regions, int points) throws Exception
+	{
+		Random r = new Random(5);
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 2000 2000\">");
+		for (int i = 0; i < regions; ++i)
+		{
+			final double cx = r.nextDouble() * 2000, cy = r.nextDouble() * 2000, radius = 5 + r.nextDouble() * 60;
+			svg.append(String.format(Locale.ROOT, "<path fill=\"#%06x\" stroke=\"black\" stroke-width=\"0.5\" d=\"", r.nextInt(0x1000000)));
+			for (int p = 0; p < points; ++p)
+			{
+				final double a = 2 * Math.PI * p / points;
+				final double d = radius * (1 + 0.15 * Math.sin(5 * a) + 0.01 * r.nextDouble());
+				svg.append(String.format(Locale.ROOT, "%s%.2f %.2f", p == 0 ? "M" : "L", cx + Math.cos(a) * d, cy + Math.sin(a) * d));
+			}
+			svg.append("Z\"/>");
+		}
+		svg.append("</svg>");
+		return SVGConverter.convert(svg.toString());
+	}
+
+	/**
+	 * Thumbnail throughput with full and reduced level of detail.
+	 */
+	protected static void levelOfDetail(List<byte[]> files) throws Exception
+	{
+		final Map<String, AbstractShape> documents = new LinkedHashMap<>();
+		documents.put("diagram 40000 nodes", diagram(40000));
+		documents.put("map 5000 regions", map(5000, 200));
+		final BufferedImage image = new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB);
+		for (Map.Entry<String, AbstractShape> e : documents.entrySet())
+		{
+			final ShapePainter painter = new ShapePainter(e.getValue());
+			painter.setScale(image.getWidth() / 2000d, image.getHeight() / 2000d);
+			out_.println(e.getKey());
+			double full = measure("full detail", warmUpIterations_ / 10, iterations_ / 10, () -> painter.paintShapeToBuffer(image, false));
+			painter.setLevelOfDetail(1, true, 0.5);
+			double reduced = measure("reduced detail", warmUpIterations_ / 10, iterations_ / 10, () -> painter.paintShapeToBuffer(image, false));
+			out_.printf("%-40s %12.2fx%n", "speed-up", full / reduced);
+		}
+	}
+
+	/**
+	 * Pans a viewport over a zoomed diagram, painted directly and from the tile cache.
+	 */
+	protected static void tiles(List<byte[]> files) throws Exception
+	{
+		final AbstractShape shape = diagram(40000);
+		final BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+		final ShapePainter painter = new ShapePainter(shape);
+		painter.setScale(4, 4);
+		final TileCache cache = new TileCache(256L * 1024 * 1024);
+		final int[] frame = new int[1];
+		final Operation pan = () ->
+		{
+			Graphics2D g = image.createGraphics();
+			Context.initGraphics(g);
+			g.setClip(0, 0, image.getWidth(), image.getHeight());
+			// Moves in a circle of 400 pixels around the middle.
+			final double a = (frame[0]++ % 64) * Math.PI / 32;
+			final int x = 3600 + (int) (400 * Math.cos(a)), y = 3700 + (int) (400 * Math.sin(a));
+			g.translate(-x, -y);
+			cache.paint(g, painter, Color.BLACK, Color.WHITE, false, false, null);
+			g.dispose();
+		};
+		// Fill the cache with all tiles along the path.
+		for (int i = 0; i < 64; ++i)
+		{
+			pan.run();
+			while (cache.hasPendingTiles())
+				Thread.sleep(10);
+		}
+		painter.getRenderState()
+			   .setCullingEnabled(true);
+		final Operation direct = () ->
+		{
+			Graphics2D g = image.createGraphics();
+			Context.initGraphics(g);
+			g.setClip(0, 0, image.getWidth(), image.getHeight());
+			final double a = (frame[0]++ % 64) * Math.PI / 32;
+			g.translate(-(3600 + (int) (400 * Math.cos(a))), -(3700 + (int) (400 * Math.sin(a))));
+			painter.paint(g, Color.BLACK, Color.WHITE, false);
+			g.dispose();
+		};
+		double full = measure("direct paint (culling)", warmUpIterations_ / 10, iterations_ / 10, direct);
+		double cached = measure("tile cache", warmUpIterations_ / 10, iterations_ / 10, pan);
+		out_.printf("%-40s %12d bytes%n", "cached tiles", cache.getMemoryUsage());
+		out_.printf("%-40s %12.2fx%n", "speed-up", full / cached);
+	}
+
+	/**
+	 * Generates a clock with a detailed dial and a seconds hand with id "Seconds", rotating around 400,400.
+	 */
+	protected static AbstractShape clock() throws Exception
+	{
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 800 800\">");
+		svg.append("<circle cx=\"400\" cy=\"400\" r=\"390\" fill=\"#eee\" stroke=\"black\" stroke-width=\"8\"/>");
+		Random r = new Random(3);
+		for (int i = 0; i < 2000; ++i)
+			svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"%.1f\" fill=\"#%06x\" fill-opacity=\"0.3\"/>",
+					100 + r.nextDouble() * 600, 100 + r.nextDouble() * 600, 2 + r.nextDouble() * 10, r.nextInt(0x1000000)));
+		for (int i = 0; i < 60; ++i)
+			svg.append(String.format(Locale.ROOT, "<rect x=\"397\" y=\"20\" width=\"6\" height=\"%d\" transform=\"rotate(%d 400 400)\"/>",
+					i % 5 == 0 ? 40 : 15, i * 6));
+		svg.append("<g id=\"Seconds\"><rect x=\"398\" y=\"60\" width=\"4\" height=\"380\" fill=\"red\"/></g>");
+		svg.append("</svg>");
+		return SVGConverter.convert(svg.toString());
+	}
+
+	/**
+	 * Runs a seconds hand animation for some seconds, with full and with dirty-region repaints and
+	 * with cached static layers. The component paints into an image, the process cpu time is reported per second.
+	 */
+	protected static void animation(List<byte[]> files) throws Exception
+	{
+		final java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		for (int variant = 0; variant < 3; ++variant)
+		{
+			final boolean dirtyRegions = variant > 0;
+			final AbstractShape shape = clock();
+			final AbstractPainterBase painter = variant == 2 ? new LayeredShapePainter(shape, null) : new ShapePainter(shape);
+			final BufferedImage image = new BufferedImage(800, 800, BufferedImage.TYPE_INT_ARGB);
+			final long[] stats = new long[2];
+			final JComponent component = new JComponent()
+			{
+				@Override
+				public void paintImmediately(Rectangle r)
+				{
+					Graphics2D g = image.createGraphics();
+					Context.initGraphics(g);
+					g.setClip(r);
+					painter.paint(g, Color.BLACK, Color.WHITE, true);
+					g.dispose();
+					++stats[0];
+					stats[1] += (long) r.width * r.height;
+				}
+			};
+			component.setSize(image.getWidth(), image.getHeight());
+			final Animator animator = dirtyRegions ? new Animator(component, painter) : new Animator(component, shape);
+			final Rotation rotation = new Rotation(AnimationType.Linear, 400, 400);
+			animator.addAnimation("Seconds", rotation);
+			if (painter instanceof LayeredShapePainter)
+				((LayeredShapePainter) painter).setAnimatedIds(animator.getAnimatedIds());
+			animator.start();
+			rotation.setAnimation(10000, 20 * Math.PI, FillMode.Freeze);
+
+			final long cpu = os instanceof com.sun.management.OperatingSystemMXBean ?
+					((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime() : 0;
+			final long start = System.nanoTime();
+			Thread.sleep(10000);
+			animator.stop();
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			final String name = variant == 2 ? "dirty region, layered" : dirtyRegions ? "dirty region" : "full repaint";
+			if (cpu > 0)
+				out_.printf("%-40s %12.1f ms cpu/s%n", name,
+						(((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime() - cpu) / 1e6 / seconds);
+			out_.printf("%-40s %12d frames %d pixels/frame%n", "", stats[0], stats[1] / Math.max(1, stats[0]));
+		}
+	}
+
+	/**
+	 * Paints the icons of a table with 1000 visible rows, each with the icon of the first file.
+	 */
+	protected static void icons(List<byte[]> files) throws Exception
+	{
+		final ShapeIcon icon = new ShapeIcon(SVGConverter.convert(new ByteArrayInputStream(files.get(0))));
+		icon.setScale(16d / icon.getIconWidth(), 16d / icon.getIconHeight());
+		final JComponent cell = new JComponent()
+		{
+		};
+		cell.setForeground(Color.BLACK);
+		cell.setBackground(Color.WHITE);
+		final BufferedImage image = new BufferedImage(100, 1000 * 18, BufferedImage.TYPE_INT_ARGB);
+		final Operation table = () ->
+		{
+			Graphics2D g = image.createGraphics();
+			for (int row = 0; row < 1000; ++row)
+				icon.paintIcon(cell, g, 2, row * 18);
+			g.dispose();
+		};
+		double direct = measure("1000 icons", warmUpIterations_ / 10, iterations_ / 10, table);
+		final IconCache cache = new IconCache(1024 * 1024);
+		icon.setRasterCache(cache);
+		double cached = measure("1000 icons, cached", warmUpIterations_ / 10, iterations_ / 10, table);
+		out_.printf("%-40s %12.4f hit rate, %d bytes%n", "", cache.getHitRate(), cache.getMemoryUsage());
+		out_.printf("%-40s %12.2fx%n", "speed-up", direct / cached);
+	}
+
+	/**
+	 * Repaints an icon with a drop shadow (blur, offset and merge) with the same painter.
+	 */
+	protected static void filter(List<byte[]> files) throws Exception
+	{
+		// Filters are experimental and not created by the converter.
+		ShapeGroup shadow = new ShapeGroup("shadow", new FilterChain(Arrays.asList(
+				new GaussianBlur(FilterBase.SOURCE, "blur", 4, 4),
+				new Offset("blur", "offset", 4, 4),
+				new Merge("result", "offset", FilterBase.SOURCE))), null, null);
+		shadow.units_ = new Point2D.Double(1, 1);
+		shadow.shapes_.add(SVGConverter.convert(new ByteArrayInputStream(files.get(0))));
+		final ShapePainter painter = new ShapePainter(shadow);
+		painter.setScale(128 / painter.getAreaWidth(), 128 / painter.getAreaHeight());
+		final BufferedImage image = new BufferedImage(160, 160, BufferedImage.TYPE_INT_ARGB);
+		measure("repaint 128x128 icon with shadow", () ->
+		{
+			Graphics2D g = image.createGraphics();
+			painter.paint(g, Color.BLACK, Color.WHITE, false);
+			g.dispose();
+		});
+	}
+
+	/**
+	 * Measures {@link GaussianBlur} for different deviations on a 256x256 image.
+	 * The svg files are not used.
+	 */
+	protected static void blur(List<byte[]> files) throws Exception
+	{
+		final BufferedImage src = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g = src.createGraphics();
+		final PainterBuffers buffers = new PainterBuffers();
+		buffers.setConfiguration(g.getDeviceConfiguration());
+		Context.initGraphics(g);
+		Random r = new Random(5);
+		for (int i = 0; i < 50; ++i)
+		{
+			g.setColor(new Color(r.nextInt(), true));
+			g.fillOval(r.nextInt(256), r.nextInt(256), r.nextInt(64), r.nextInt(64));
+		}
+		g.dispose();
+		buffers.addBuffer(FilterBase.SOURCE, src);
+
+		for (double deviation : new double[]{1, 2, 4, 8, 16, 32})
+		{
+			final GaussianBlur blur = new GaussianBlur(FilterBase.SOURCE, "blur", deviation, deviation);
+			measure(String.format(Locale.ROOT, "blur 256x256, deviation %.0f", deviation), warmUpIterations_ / 10, iterations_ / 10,
+					() -> blur.render(buffers, 1, 1));
+		}
+	}
+
+	/**
+	 * Measures a drop shadow on a 3840x2160 image, the filters split the pixel work into bands.
+	 * The svg files are not used.
+	 */
+	protected static void filter4k(List<byte[]> files) throws Exception
+	{
+		final BufferedImage src = new BufferedImage(3840, 2160, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g = src.createGraphics();
+		final PainterBuffers buffers = new PainterBuffers();
+		buffers.setConfiguration(g.getDeviceConfiguration());
+		Context.initGraphics(g);
+		Random r = new Random(5);
+		for (int i = 0; i < 200; ++i)
+		{
+			g.setColor(new Color(r.nextInt(), true));
+			g.fillRoundRect(r.nextInt(3840), r.nextInt(2160), r.nextInt(400), r.nextInt(300), 20, 20);
+		}
+		g.dispose();
+		buffers.addBuffer(FilterBase.SOURCE, src);
+		out_.printf("%d processors%n", Runtime.getRuntime()
+											  .availableProcessors());
+
+		for (double deviation : new double[]{1, 6})
+		{
+			final FilterChain shadow = new FilterChain(Arrays.asList(
+					new GaussianBlur(FilterBase.SOURCE, "blur", deviation, deviation),
+					new Offset("blur", "offset", 4, 4),
+					new Merge("result", "offset", FilterBase.SOURCE)));
+			measure(String.format(Locale.ROOT, "shadow 3840x2160, deviation %.0f", deviation), warmUpIterations_ / 40, iterations_ / 100,
+					() -> shadow.render(buffers, 1, 1));
+		}
+	}
+
+	/**
+	 * Measures drop shadows of 200 icons with 48x48 pixel, each with its own buffers, with and without
+	 * reuse of the images by {@link ImageBufferPool}.
+	 * The svg files are not used.
+	 */
+	protected static void pool(List<byte[]> files) throws Exception
+	{
+		final BufferedImage src = new BufferedImage(48, 48, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g = src.createGraphics();
+		final GraphicsConfiguration cfg = g.getDeviceConfiguration();
+		Context.initGraphics(g);
+		g.setColor(Color.BLUE);
+		g.fillOval(4, 4, 36, 36);
+		g.dispose();
+		final FilterChain shadow = new FilterChain(Arrays.asList(
+				new GaussianBlur(FilterBase.SOURCE_ALPHA, "blur", 2, 2),
+				new Offset("blur", "offset", 2, 2),
+				new Merge("result", "offset", FilterBase.SOURCE)));
+
+		for (long maxBytes : new long[]{0, 64L * 1024 * 1024})
+		{
+			final ImageBufferPool pool = new ImageBufferPool(maxBytes);
+			measure(String.format(Locale.ROOT, "200 shadows 48x48, pool %d MB", maxBytes / (1024 * 1024)), warmUpIterations_ / 10, iterations_ / 10,
+					() ->
+					{
+						for (int i = 0; i < 200; ++i)
+						{
+							PainterBuffers buffers = new PainterBuffers();
+							buffers.setConfiguration(cfg);
+							buffers.setPool(pool);
+							buffers.getTargetBuffer(FilterBase.SOURCE, 48, 48)
+								   .getRaster()
+								   .setRect(src.getRaster());
+							shadow.render(buffers, 1, 1);
+							buffers.clear();
+						}
+					});
+			out_.printf("%-40s %12d created, %d reused%n", "", pool.getCreated(), pool.getReused());
+		}
+	}
+
+	/**
+	 * Measures the extraction of SourceAlpha from a 1024x1024 image.
+	 * The svg files are not used.
+	 */
+	protected static void sourceAlpha(List<byte[]> files) throws Exception
+	{
+		final BufferedImage src = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g = src.createGraphics();
+		final PainterBuffers buffers = new PainterBuffers();
+		buffers.setConfiguration(g.getDeviceConfiguration());
+		Context.initGraphics(g);
+		Random r = new Random(5);
+		for (int i = 0; i < 50; ++i)
+		{
+			g.setColor(new Color(r.nextInt(), true));
+			g.fillOval(r.nextInt(1024), r.nextInt(1024), r.nextInt(256), r.nextInt(256));
+		}
+		g.dispose();
+		buffers.addBuffer(FilterBase.SOURCE, src);
+
+		measure("SourceAlpha 1024x1024", warmUpIterations_ / 10, iterations_ / 10, () ->
+		{
+			buffers.getSourceAlphaBuffer(FilterBase.SOURCE);
+			buffers.release(FilterBase.SOURCE_ALPHA);
+		});
+	}
+
+	private static void report(long bytes)
+	{
+		out_.printf("%-40s %12d bytes/op%n", "", bytes);
+	}
+
+	/**
+	 * Compares serial conversion of all files with {@link SVGConverterEngine#convertAll(java.util.Collection, java.util.concurrent.Executor)}.
+	 */
+	protected static void batch(List<byte[]> files) throws Exception
+	{
+		final SVGConverterEngine engine = new SVGConverterEngine();
+		final List<byte[]> sources = new ArrayList<>();
+		while (sources.size() < 200)
+			sources.addAll(files);
+		out_.printf("%d documents, %d processors%n", sources.size(), Runtime.getRuntime()
+																		   .availableProcessors());
+
+		double serial = measure("serial", warmUpIterations_ / 10, iterations_ / 10, () ->
+		{
+			for (byte[] data : sources)
+				engine.convert(new ByteArrayInputStream(data));
+		});
+		ExecutorService executor = SVGConverterEngine.newBatchExecutor();
+		try
+		{
+			double parallel = measure("convertAll", warmUpIterations_ / 10, iterations_ / 10, () ->
+			{
+				for (CompletableFuture<ConversionResult<byte[]>> f : engine.convertAll(sources, executor))
+					f.get();
+			});
+			out_.printf("%-40s %12.1fx%n", "speed-up", serial / parallel);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Measures the conversion of a generated document with 10000 elements without ids.
+	 * The svg files are not used.
+	 */
+	protected static void noIds(List<byte[]> files) throws Exception
+	{
+		final int elements = 10000;
+		Random r = new Random(42);
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 1000 1000\">");
+		for (int i = 0; i < elements; i += 10)
+		{
+			svg.append("<g fill=\"#").append(String.format(Locale.ROOT, "%06x", r.nextInt(0x1000000))).append("\">");
+			for (int k = 1; k < 10; ++k)
+				svg.append(String.format(Locale.ROOT, "<rect x=\"%d\" y=\"%d\" width=\"5\" height=\"5\"/>", r.nextInt(1000), r.nextInt(1000)));
+			svg.append("</g>");
+		}
+		svg.append("</svg>");
+		final byte[] data = svg.toString()
+							   .getBytes(StandardCharsets.UTF_8);
+		final SVGConverterEngine engine = new SVGConverterEngine();
+		out_.printf("%d elements, %d bytes%n", elements, data.length);
+
+		double us = measure("SVGConverterEngine.convert", () -> engine.convert(new ByteArrayInputStream(data)));
+		out_.printf("%-40s %12.0f elements/s%n", "", elements * 1e6 / us);
+		report(data.length, us, allocation(() -> engine.convert(new ByteArrayInputStream(data))));
+	}
+
+	/**
+	 * Measures throughput and allocations of the css tokenizer and of the parser for inline "style" attributes.
+	 * The style attributes are collected from the svg files, a typical inkscape style is added.
+	 */
+	protected static void style(List<byte[]> files) throws Exception
+	{
+		final List<String> styles = new ArrayList<>();
+		styles.add("fill:#ff0000;fill-opacity:1;fill-rule:evenodd;stroke:#000000;stroke-width:1.5px;stroke-linecap:butt;" +
+				"stroke-linejoin:miter;stroke-opacity:1;opacity:0.8;font-family:sans-serif;inkscape-specific:none");
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		for (byte[] data : files)
+		{
+			NodeList nodes = dbf.newDocumentBuilder()
+								.parse(new ByteArrayInputStream(data))
+								.getElementsByTagName("*");
+			for (int i = 0; i < nodes.getLength(); ++i)
+			{
+				String style = ((Element) nodes.item(i)).getAttribute("style");
+				if (!style.isEmpty())
+					styles.add(style);
+			}
+		}
+		long chars = 0;
+		for (String style : styles)
+			chars += style.length();
+		out_.printf("%d style attributes, %d characters%n", styles.size(), chars);
+
+		final int[] count = new int[1];
+		report(chars, measure("CSSParser.parseStyle, map", () ->
+		{
+			for (String style : styles)
+				count[0] += CSSParser.parseStyle(style).size();
+		}), allocation(() ->
+		{
+			for (String style : styles)
+				count[0] += CSSParser.parseStyle(style).size();
+		}));
+		report(chars, measure("CSSParser.parseStyle, consumer", () ->
+		{
+			for (String style : styles)
+				CSSParser.parseStyle(style, (attr, value) -> ++count[0]);
+		}), allocation(() ->
+		{
+			for (String style : styles)
+				CSSParser.parseStyle(style, (attr, value) -> ++count[0]);
+		}));
+		report(chars, measure("Lexer", () ->
+		{
+			for (String style : styles)
+			{
+				Lexer lexer = new Lexer(style, true);
+				while (lexer.nextSymbol().type_ != LexerSymbolType.EOF)
+					++count[0];
+			}
+		}), allocation(() ->
+		{
+			for (String style : styles)
+			{
+				Lexer lexer = new Lexer(style, true);
+				while (lexer.nextSymbol().type_ != LexerSymbolType.EOF)
+					++count[0];
+			}
+		}));
+	}
+
+	private static void report(long chars, double us, long bytes)
+	{
+		out_.printf("%-40s %12.1f MB/s %8d bytes/op%n", "", chars / us, bytes);
+	}
+
+	/**
+	 * Gets the bytes allocated by one call of the operation.
+	 * Needs a JVM that supports {@link com.sun.management.ThreadMXBean}, otherwise -1 is returned.
+	 */
+	protected static long allocation(Operation op) throws Exception
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+		final long id = Thread.currentThread()
+							  .getId();
+		final int iterations = 100;
+		op.run();
+		long start = sunBean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < iterations; ++i)
+			op.run();
+		return (sunBean.getThreadAllocatedBytes(id) - start) / iterations;
+	}
+
+	/**
+	 * Compares the retained heap of converted shapes with and without {@link SVGConverterEngine#setCompactGeometry(boolean)}.
+	 * The shapes of all files are converted several times and kept, the heap is measured after garbage collection.
+	 * The report shows the complete shape trees and the geometry alone.
+	 */
+	protected static void footprint(List<byte[]> files) throws Exception
+	{
+		for (boolean geometryOnly : new boolean[]{false, true})
+		{
+			long plain = retainedHeap(files, false, geometryOnly);
+			long compact = retainedHeap(files, true, geometryOnly);
+			out_.printf("%-40s reduction %.1fx%n", geometryOnly ? "Geometry" : "Shape trees", plain / (double) compact);
+		}
+	}
+
+	private static long retainedHeap(List<byte[]> files, boolean compactGeometry, boolean geometryOnly) throws Exception
+	{
+		final int copies = Math.max(1, 2000 / files.size());
+		SVGConverterEngine engine = new SVGConverterEngine();
+		engine.setCompactGeometry(compactGeometry);
+		List<Object> retained = new ArrayList<>();
+		PrintStream org = System.out;
+		System.setOut(mute_);
+		long before;
+		long after;
+		try
+		{
+			before = usedHeap();
+			for (int i = 0; i < copies; ++i)
+				for (byte[] f : files)
+				{
+					AbstractShape shape = engine.convert(new ByteArrayInputStream(f));
+					if (geometryOnly)
+						collectGeometry(shape, retained);
+					else
+						retained.add(shape);
+				}
+			after = usedHeap();
+		}
+		finally
+		{
+			System.setOut(org);
+		}
+		long perCopy = (after - before) / copies;
+		out_.printf("%-40s %12d bytes per file set%n", (compactGeometry ? "CompactPath" : "Path2D.Double") + (geometryOnly ? ", geometry" : ""), perCopy);
+		return perCopy;
+	}
+
+	private static void collectGeometry(AbstractShape shape, List<Object> geometry)
+	{
+		if (shape instanceof StyledShape)
+		{
+			StyledShape s = (StyledShape) shape;
+			geometry.add(s.shape_);
+			if (s.clipping_ != null)
+				geometry.add(s.clipping_);
+		}
+		else if (shape instanceof ShapeGroup)
+		{
+			ShapeGroup g = (ShapeGroup) shape;
+			if (g.getClipping() != null)
+				geometry.add(g.getClipping());
+			for (AbstractShape child : g.shapes_)
+				collectGeometry(child, geometry);
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException
+	{
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; ++i)
+		{
+			System.gc();
+			Thread.sleep(50);
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	/**
+	 * Measures an operation with the default number of iterations.
+	 *
+	 * @return Average time per call in microseconds.
+	 */
+	protected static double measure(String name, Operation op) throws Exception
+	{
+		return measure(name, warmUpIterations_, iterations_, op);
+	}
+
+	/**
+	 * Measures an operation.
+	 *
+	 * @return Average time per call in microseconds.
+	 */
+	protected static double measure(String name, int warmUpIterations, int iterations, Operation op) throws Exception
+	{
+		PrintStream org = System.out;
+		System.setOut(mute_);
+		try
+		{
+			for (int i = 0; i < warmUpIterations; ++i)
+				op.run();
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; ++i)
+				op.run();
+			double us = (System.nanoTime() - start) / (iterations * 1000d);
+			out_.printf("%-40s %12.2f us/op%n", name, us);
+			return us;
+		}
+		finally
+		{
+			System.setOut(org);
+		}
+	}
+
+	/**
+	 * Loads the svg files.
+	 */
+	protected static List<byte[]> loadFiles(List<String> names) throws IOException
+	{
+		List<byte[]> files = new ArrayList<>();
+		if (names.isEmpty())
+		{
+			try (InputStream is = SVGBenchmark.class.getResourceAsStream("SVGIcon.svg"))
+			{
+				files.add(is.readAllBytes());
+			}
+		}
+		for (String name : names)
+		{
+			Path p = Paths.get(name);
+			if (Files.isDirectory(p))
+			{
+				try (Stream<Path> s = Files.walk(p))
+				{
+					for (Path f : s.filter(f -> f.toString()
+												.toLowerCase()
+												.endsWith(".svg"))
+								   .collect(Collectors.toList()))
+						files.add(Files.readAllBytes(f));
+				}
+			}
+			else
+				files.add(Files.readAllBytes(p));
+		}
+		return files;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 1 || !(scenarios_.containsKey(args[0]) || "all".equals(args[0])))
+		{
+			System.err.println("Usage: SVGBenchmark <scenario> [svg-files or directories]");
+			System.err.println("Scenarios: all " + String.join(" ", scenarios_.keySet()));
+			System.exit(1);
+		}
+		List<String> names = new ArrayList<>();
+		for (int i = 1; i < args.length; ++i)
+			names.add(args[i]);
+		List<byte[]> files = loadFiles(names);
+		out_.printf("%d file(s)%n", files.size());
+
+		for (Map.Entry<String, Scenario> scenario : scenarios_.entrySet())
+		{
+			if ("all".equals(args[0]) || scenario.getKey()
+												 .equals(args[0]))
+			{
+				out_.printf("--- %s ---%n", scenario.getKey());
+				scenario.getValue()
+						.run(files);
+			}
+		}
+	}
+}
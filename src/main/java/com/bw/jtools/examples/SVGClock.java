@@ -2,6 +2,7 @@ package com.bw.jtools.examples;
 
 import com.bw.jtools.shape.AbstractPainterBase;
 import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.LayeredShapePainter;
 import com.bw.jtools.shape.animation.Animator;
 import com.bw.jtools.svg.SVGException;
 import com.bw.jtools.ui.ShapePane;
@@ -32,6 +33,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.geom.Rectangle2D;
 import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Path;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
@@ -114,6 +116,8 @@ public class SVGClock extends SVGAppBase
 		gc.fill = GridBagConstraints.NONE;
 
 		pane_ = new ShapePane();
+		// Only the hands are painted for each frame, the dial is cached.
+		pane_.setPainter(new LayeredShapePainter());
 		// ScrollPane viewport will clear on paint. No need to do it twice.
 		pane_.setOpaque(false);
 		// Let us zoom by ctrl-mouse-wheel...
@@ -337,7 +341,9 @@ public class SVGClock extends SVGAppBase
 			double scale = Math.min(s.width / area.width, s.height / area.height);
 			pane_.setScale(scale, scale);
 
-			animator_ = new Animator(pane_, shape_);
+			// With the painter, the animator repaints only the region of the hands.
+			animator_ = new Animator(pane_, painter);
+			((LayeredShapePainter) painter).setAnimatedIds(animator_.getAnimatedIds());
 
 			hour_.setShape(shape_, animator_);
 			minutes_.setShape(shape_, animator_);
@@ -356,10 +362,25 @@ public class SVGClock extends SVGAppBase
 		long usedKB = (Runtime.getRuntime()
 							  .totalMemory() - Runtime.getRuntime()
 													  .freeMemory()) / (1024 * 1204);
+		String cpu = "";
+		java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+		{
+			// Process cpu time since the last update, to compare the costs of animations.
+			final long cpuTime = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+			final long time = System.nanoTime();
+			if (lastCpuTime_ > 0)
+				cpu = String.format(", CPU %.1f%%", 100.0 * (cpuTime - lastCpuTime_) / (time - lastTime_));
+			lastCpuTime_ = cpuTime;
+			lastTime_ = time;
+		}
 		status.setText(usedKB + "MB of " + (Runtime.getRuntime()
-												   .totalMemory() / (1024 * 1204)) + "MB used");
+												   .totalMemory() / (1024 * 1204)) + "MB used" + cpu);
 	}
 
+	private long lastCpuTime_;
+	private long lastTime_;
+
 	RotationAnimationController hour_;
 	RotationAnimationController minutes_;
 	RotationAnimationController seconds_;
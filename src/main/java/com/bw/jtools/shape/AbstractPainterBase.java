@@ -6,10 +6,17 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Paint;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 
+/**
+ * Base of painters.<br>
+ * A painter keeps the state between paints (e.g. filter buffers) and shall be used by one thread at a time.
+ * The painted shapes are not modified, the same shapes can be painted by several painters in parallel.
+ */
 public abstract class AbstractPainterBase
 {
 	/**
@@ -36,6 +43,27 @@ public abstract class AbstractPainterBase
 	 */
 	protected boolean enableClipping_ = true;
 
+	/**
+	 * State kept between the paints of this painter.
+	 */
+	protected final RenderState renderState_ = new RenderState();
+
+	/**
+	 * Gets the state kept between paints, e.g. to control culling or to read the counters of the last paint.
+	 */
+	public RenderState getRenderState()
+	{
+		return renderState_;
+	}
+
+	/**
+	 * Reduces the level of detail, e.g. for thumbnails. See {@link RenderState#setLevelOfDetail(double, boolean, double)}.
+	 */
+	public void setLevelOfDetail(double minimalSize, boolean drawDots, double tolerance)
+	{
+		renderState_.setLevelOfDetail(minimalSize, drawDots, tolerance);
+	}
+
 	/**
 	 * Enable paint time measurement.
 	 *
@@ -217,6 +245,48 @@ public abstract class AbstractPainterBase
 		this.enableClipping_ = enabled;
 	}
 
+	/**
+	 * Gets the transform from the coordinate system of the shape to the coordinate system of the graphics
+	 * given to {@link #paint(Graphics, Paint, Paint, boolean)}.
+	 *
+	 * @return The transform or null if the shape is not painted by one transform.
+	 */
+	public AffineTransform getShapeTransform()
+	{
+		if (getShape() == null)
+			return null;
+		ensureArea();
+		// Same as used by the painters.
+		AffineTransform aft = AffineTransform.getScaleInstance(scaleX_, scaleY_);
+		aft.translate(-area_.x, -area_.y);
+		final AffineTransform rotation = getRotation();
+		if (rotation != null)
+			aft.concatenate(rotation);
+		return aft;
+	}
+
+	/**
+	 * Finds the top-most shape at a point of the painted output, e.g. for hit-testing by mouse.
+	 *
+	 * @param p The point in the coordinate system of the graphics given to {@link #paint(Graphics, Paint, Paint, boolean)}.
+	 * @return The shape or null.
+	 */
+	public AbstractShape findShapeAt(Point2D p)
+	{
+		final AbstractShape shape = getShape();
+		final AffineTransform aft = getShapeTransform();
+		if (shape == null || aft == null)
+			return null;
+		try
+		{
+			return shape.findShapeAt(aft.inverseTransform(p, null));
+		}
+		catch (NoninvertibleTransformException e)
+		{
+			return null;
+		}
+	}
+
 	/**
 	 * Draw the shapes to a buffered image with foreground black and background white.<br>
 	 * If no shapes are loaded, nothing is drawn and if dst is null, a one pixel wide image is created.
@@ -296,6 +366,8 @@ public abstract class AbstractPainterBase
 	{
 		final long ms = (measureTime_) ? System.currentTimeMillis() : 0;
 		Context ctx = new Context(g);
+		ctx.renderState_ = renderState_;
+		renderState_.resetCounters();
 		try
 		{
 			if (area_ == null)
@@ -1,10 +1,13 @@
 package com.bw.jtools.shape;
 
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 /**
- * A abstract base for shapes.
+ * A abstract base for shapes.<br>
+ * Shapes don't keep any state of painting (see {@link Context} and {@link RenderState}),
+ * so the same tree can be painted by several threads in parallel, as long as the shapes are not modified.
  */
 public abstract class AbstractShape
 {
@@ -23,9 +26,6 @@ public abstract class AbstractShape
 	 */
 	public AffineTransform aft_;
 
-	protected AffineTransform aftTemp_ = new AffineTransform();
-
-
 	/**
 	 * Constructor to initialize,
 	 */
@@ -46,6 +46,46 @@ public abstract class AbstractShape
 	 */
 	public abstract Rectangle2D getTransformedBounds();
 
+	/**
+	 * Gets bounds that contain everything painted by this shape, in the coordinate system of the parent.
+	 * Used to skip shapes outside the visible area.<br>
+	 * The bounds are cached, see {@link #invalidateBounds()}.
+	 *
+	 * @return The bounds or null if unknown, such shapes are always painted.
+	 */
+	public Rectangle2D getPaintBounds()
+	{
+		return null;
+	}
+
+	/**
+	 * Finds the top-most shape (no group) that paints at a point.
+	 *
+	 * @param p The point in the coordinate system of the parent.
+	 * @return The shape or null.
+	 */
+	public AbstractShape findShapeAt(Point2D p)
+	{
+		return null;
+	}
+
+	/**
+	 * Drops cached bounds of this shape and all children.
+	 * Needed after modification of transforms, e.g. by animations.
+	 */
+	public void invalidateBounds()
+	{
+	}
+
+	/**
+	 * Drops cached bounds of this shape, but not of the children.
+	 * Needed for the parents of a modified shape, see {@link #invalidateBounds()}.
+	 */
+	public void invalidateOwnBounds()
+	{
+		invalidateBounds();
+	}
+
 	/**
 	 * Gives state of clipping.
 	 *
@@ -66,6 +106,16 @@ public abstract class AbstractShape
 		this.enableClipping_ = enableClipping;
 	}
 
+	/**
+	 * Checks if clipping is enabled for a paint.
+	 *
+	 * @param ctx The context of the paint, can override the state, see {@link Context#clippingShape_}.
+	 */
+	protected boolean isClippingEnabled(Context ctx)
+	{
+		return ctx.clippingShape_ == this ? ctx.clippingEnabled_ : enableClipping_;
+	}
+
 	public abstract AbstractShape getShapeById(String id);
 
 }
@@ -0,0 +1,376 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.svg.PathSink;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.IllegalPathStateException;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Immutable path with float coordinates in arrays of the exact size.<br>
+ * Needs about half of the memory of a {@link Path2D.Double}, which also keeps
+ * unused capacity from growing. Precision of float is more than enough for
+ * usual icon and drawing coordinates.<br>
+ * The path iterator doesn't allocate anything per segment.
+ * Create instances with {@link Builder} or {@link #of(Shape)}.
+ */
+public final class CompactPath implements Shape
+{
+	private static final byte[] NO_TYPES = new byte[0];
+	private static final float[] NO_COORDS = new float[0];
+
+	private final byte[] types_;
+	private final float[] coords_;
+	private final int windingRule_;
+
+	// Bounds of all points, including control points.
+	private final float minX_, minY_, maxX_, maxY_;
+
+	private CompactPath(byte[] types, float[] coords, int windingRule, float minX, float minY, float maxX, float maxY)
+	{
+		types_ = types;
+		coords_ = coords;
+		windingRule_ = windingRule;
+		minX_ = minX;
+		minY_ = minY;
+		maxX_ = maxX;
+		maxY_ = maxY;
+	}
+
+	/**
+	 * Creates a compact copy of any shape.
+	 */
+	public static CompactPath of(Shape shape)
+	{
+		if (shape instanceof CompactPath)
+			return (CompactPath) shape;
+		PathIterator pi = shape.getPathIterator(null);
+		Builder b = new Builder(pi.getWindingRule(), 16);
+		final float[] c = new float[6];
+		while (!pi.isDone())
+		{
+			switch (pi.currentSegment(c))
+			{
+				case PathIterator.SEG_MOVETO:
+					b.moveTo(c[0], c[1]);
+					break;
+				case PathIterator.SEG_LINETO:
+					b.lineTo(c[0], c[1]);
+					break;
+				case PathIterator.SEG_QUADTO:
+					b.quadTo(c[0], c[1], c[2], c[3]);
+					break;
+				case PathIterator.SEG_CUBICTO:
+					b.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+					break;
+				case PathIterator.SEG_CLOSE:
+					b.closePath();
+					break;
+			}
+			pi.next();
+		}
+		return b.build();
+	}
+
+	/**
+	 * Gets a path with the same geometry and the given winding rule.
+	 * The coordinates are shared.
+	 *
+	 * @param windingRule {@link PathIterator#WIND_EVEN_ODD} or {@link PathIterator#WIND_NON_ZERO}.
+	 */
+	public CompactPath withWindingRule(int windingRule)
+	{
+		if (windingRule == windingRule_)
+			return this;
+		return new CompactPath(types_, coords_, windingRule, minX_, minY_, maxX_, maxY_);
+	}
+
+	public int getWindingRule()
+	{
+		return windingRule_;
+	}
+
+	/**
+	 * Number of segments.
+	 */
+	public int getSegmentCount()
+	{
+		return types_.length;
+	}
+
+	/**
+	 * Estimated number of bytes retained by this instance.
+	 */
+	public long getFootprint()
+	{
+		// Object: header, 3 references/ints, 4 floats. Arrays: header and data, aligned to 8.
+		return 48 + align(16 + types_.length) + align(16 + 4L * coords_.length);
+	}
+
+	private static long align(long size)
+	{
+		return (size + 7) & ~7L;
+	}
+
+	@Override
+	public Rectangle getBounds()
+	{
+		return getBounds2D().getBounds();
+	}
+
+	@Override
+	public Rectangle2D getBounds2D()
+	{
+		if (minX_ > maxX_)
+			return new Rectangle2D.Float();
+		return new Rectangle2D.Float(minX_, minY_, maxX_ - minX_, maxY_ - minY_);
+	}
+
+	@Override
+	public boolean contains(double x, double y)
+	{
+		return Path2D.contains(getPathIterator(null), x, y);
+	}
+
+	@Override
+	public boolean contains(Point2D p)
+	{
+		return Path2D.contains(getPathIterator(null), p);
+	}
+
+	@Override
+	public boolean intersects(double x, double y, double w, double h)
+	{
+		return Path2D.intersects(getPathIterator(null), x, y, w, h);
+	}
+
+	@Override
+	public boolean intersects(Rectangle2D r)
+	{
+		return Path2D.intersects(getPathIterator(null), r);
+	}
+
+	@Override
+	public boolean contains(double x, double y, double w, double h)
+	{
+		return Path2D.contains(getPathIterator(null), x, y, w, h);
+	}
+
+	@Override
+	public boolean contains(Rectangle2D r)
+	{
+		return Path2D.contains(getPathIterator(null), r);
+	}
+
+	@Override
+	public PathIterator getPathIterator(AffineTransform at)
+	{
+		return new Iterator(at);
+	}
+
+	@Override
+	public PathIterator getPathIterator(AffineTransform at, double flatness)
+	{
+		return new FlatteningPathIterator(getPathIterator(at), flatness);
+	}
+
+	private final class Iterator implements PathIterator
+	{
+		private final AffineTransform at_;
+		private int typeIdx_;
+		private int coordIdx_;
+
+		Iterator(AffineTransform at)
+		{
+			at_ = (at == null || at.isIdentity()) ? null : at;
+		}
+
+		@Override
+		public int getWindingRule()
+		{
+			return windingRule_;
+		}
+
+		@Override
+		public boolean isDone()
+		{
+			return typeIdx_ >= types_.length;
+		}
+
+		@Override
+		public void next()
+		{
+			coordIdx_ += coordinateCount(types_[typeIdx_++]);
+		}
+
+		@Override
+		public int currentSegment(float[] coords)
+		{
+			final int type = types_[typeIdx_];
+			final int n = coordinateCount(type);
+			if (at_ == null)
+				System.arraycopy(coords_, coordIdx_, coords, 0, n);
+			else
+				at_.transform(coords_, coordIdx_, coords, 0, n / 2);
+			return type;
+		}
+
+		@Override
+		public int currentSegment(double[] coords)
+		{
+			final int type = types_[typeIdx_];
+			final int n = coordinateCount(type);
+			if (at_ == null)
+			{
+				for (int i = 0; i < n; ++i)
+					coords[i] = coords_[coordIdx_ + i];
+			}
+			else
+				at_.transform(coords_, coordIdx_, coords, 0, n / 2);
+			return type;
+		}
+	}
+
+	private static int coordinateCount(int type)
+	{
+		switch (type)
+		{
+			case PathIterator.SEG_MOVETO:
+			case PathIterator.SEG_LINETO:
+				return 2;
+			case PathIterator.SEG_QUADTO:
+				return 4;
+			case PathIterator.SEG_CUBICTO:
+				return 6;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Collects segments for a new {@link CompactPath}.<br>
+	 * As with {@link Path2D}, a path has to start with "moveTo".
+	 */
+	public static class Builder implements PathSink
+	{
+		private byte[] types_;
+		private float[] coords_;
+		private int typeCount_;
+		private int coordCount_;
+		private final int windingRule_;
+
+		private float minX_ = Float.POSITIVE_INFINITY;
+		private float minY_ = Float.POSITIVE_INFINITY;
+		private float maxX_ = Float.NEGATIVE_INFINITY;
+		private float maxY_ = Float.NEGATIVE_INFINITY;
+
+		/**
+		 * Creates a builder with winding rule "non-zero".
+		 *
+		 * @param segments Expected number of segments.
+		 */
+		public Builder(int segments)
+		{
+			this(PathIterator.WIND_NON_ZERO, segments);
+		}
+
+		/**
+		 * Creates a builder.
+		 *
+		 * @param windingRule The winding rule of the path.
+		 * @param segments    Expected number of segments.
+		 */
+		public Builder(int windingRule, int segments)
+		{
+			windingRule_ = windingRule;
+			segments = Math.max(1, segments);
+			types_ = new byte[segments];
+			coords_ = new float[segments * 2];
+		}
+
+		private void add(int type, int coords)
+		{
+			if (typeCount_ == 0 && type != PathIterator.SEG_MOVETO)
+				throw new IllegalPathStateException("missing initial moveto in path definition");
+			if (typeCount_ == types_.length)
+				types_ = Arrays.copyOf(types_, types_.length * 2);
+			if (coordCount_ + coords > coords_.length)
+				coords_ = Arrays.copyOf(coords_, Math.max(coords_.length * 2, coordCount_ + coords));
+			types_[typeCount_++] = (byte) type;
+		}
+
+		private void point(double x, double y)
+		{
+			final float fx = (float) x;
+			final float fy = (float) y;
+			coords_[coordCount_++] = fx;
+			coords_[coordCount_++] = fy;
+			if (fx < minX_) minX_ = fx;
+			if (fx > maxX_) maxX_ = fx;
+			if (fy < minY_) minY_ = fy;
+			if (fy > maxY_) maxY_ = fy;
+		}
+
+		@Override
+		public void moveTo(double x, double y)
+		{
+			if (typeCount_ > 0 && types_[typeCount_ - 1] == PathIterator.SEG_MOVETO)
+			{
+				// Replace last "moveTo" as Path2D does.
+				coordCount_ -= 2;
+				--typeCount_;
+			}
+			add(PathIterator.SEG_MOVETO, 2);
+			point(x, y);
+		}
+
+		@Override
+		public void lineTo(double x, double y)
+		{
+			add(PathIterator.SEG_LINETO, 2);
+			point(x, y);
+		}
+
+		@Override
+		public void quadTo(double x1, double y1, double x2, double y2)
+		{
+			add(PathIterator.SEG_QUADTO, 4);
+			point(x1, y1);
+			point(x2, y2);
+		}
+
+		@Override
+		public void curveTo(double x1, double y1, double x2, double y2, double x3, double y3)
+		{
+			add(PathIterator.SEG_CUBICTO, 6);
+			point(x1, y1);
+			point(x2, y2);
+			point(x3, y3);
+		}
+
+		@Override
+		public void closePath()
+		{
+			if (typeCount_ == 0 || types_[typeCount_ - 1] != PathIterator.SEG_CLOSE)
+				add(PathIterator.SEG_CLOSE, 0);
+		}
+
+		/**
+		 * Creates the path. The builder can be used further.
+		 */
+		public CompactPath build()
+		{
+			return new CompactPath(
+					typeCount_ == 0 ? NO_TYPES : Arrays.copyOf(types_, typeCount_),
+					coordCount_ == 0 ? NO_COORDS : Arrays.copyOf(coords_, coordCount_),
+					windingRule_, minX_, minY_, maxX_, maxY_);
+		}
+	}
+}
@@ -23,6 +23,22 @@ public class Context
 	private final boolean newContext_;
 	public boolean debug_ = false;
 
+	/**
+	 * State kept between paints. Can be null, see {@link #getRenderState()}.
+	 */
+	public RenderState renderState_;
+
+	/**
+	 * Shape for which {@link #clippingEnabled_} replaces its own clipping state.
+	 * Used by painters to control the clipping of the top-most shape without modifying it.
+	 */
+	public AbstractShape clippingShape_;
+
+	/**
+	 * Clipping state of {@link #clippingShape_}.
+	 */
+	public boolean clippingEnabled_ = true;
+
 	/**
 	 * Stroke for debug lines.
 	 */
@@ -98,6 +114,9 @@ public class Context
 		translateColor2GrayMin_ = ctx.translateColor2GrayMin_;
 		translateColor2GrayMax_ = ctx.translateColor2GrayMax_;
 		debug_ = ctx.debug_;
+		renderState_ = ctx.getRenderState();
+		clippingShape_ = ctx.clippingShape_;
+		clippingEnabled_ = ctx.clippingEnabled_;
 	}
 
 	/**
@@ -146,6 +165,9 @@ public class Context
 		translateColor2GrayMin_ = ctx.translateColor2GrayMin_;
 		translateColor2GrayMax_ = ctx.translateColor2GrayMax_;
 		debug_ = ctx.debug_;
+		renderState_ = ctx.getRenderState();
+		clippingShape_ = ctx.clippingShape_;
+		clippingEnabled_ = ctx.clippingEnabled_;
 	}
 
 	/**
@@ -157,6 +179,16 @@ public class Context
 	}
 
 
+	/**
+	 * Gets the render state, creates one if none was set.
+	 */
+	public RenderState getRenderState()
+	{
+		if (renderState_ == null)
+			renderState_ = new RenderState();
+		return renderState_;
+	}
+
 	/**
 	 * Translates special paints to values and handled gray-mode.
 	 */
@@ -0,0 +1,71 @@
+package com.bw.jtools.shape;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Splits a device transform into the integer part of the translation and the remaining transform.<br>
+ * Images that are rendered with the remaining transform can be drawn at any integer position
+ * without re-sampling, as done by the raster caches.
+ */
+public final class DeviceAlignment
+{
+	/**
+	 * The complete device transform.
+	 */
+	public final AffineTransform device_;
+
+	/**
+	 * The integer part of the translation.
+	 */
+	public final double x_;
+	public final double y_;
+
+	/**
+	 * The device transform without the integer part of the translation.
+	 */
+	public final AffineTransform local_;
+
+	/**
+	 * Splits the current transform of the graphics.
+	 */
+	public DeviceAlignment(Graphics2D g)
+	{
+		this(g.getTransform());
+	}
+
+	/**
+	 * Splits a device transform.
+	 */
+	public DeviceAlignment(AffineTransform device)
+	{
+		device_ = device;
+		x_ = Math.floor(device.getTranslateX());
+		y_ = Math.floor(device.getTranslateY());
+		local_ = new AffineTransform(device.getScaleX(), device.getShearY(), device.getShearX(), device.getScaleY(),
+				device.getTranslateX() - x_, device.getTranslateY() - y_);
+	}
+
+	/**
+	 * Draws an image that was rendered with the local transform, without re-sampling.
+	 * The transform of the graphics is restored afterwards.
+	 *
+	 * @param g     The graphics with the device transform.
+	 * @param image The image.
+	 * @param x     Position of the image in the local device space.
+	 * @param y     Position of the image in the local device space.
+	 */
+	public void drawImage(Graphics2D g, Image image, int x, int y)
+	{
+		g.setTransform(AffineTransform.getTranslateInstance(x_ + x, y_ + y));
+		try
+		{
+			g.drawImage(image, 0, 0, null);
+		}
+		finally
+		{
+			g.setTransform(device_);
+		}
+	}
+}
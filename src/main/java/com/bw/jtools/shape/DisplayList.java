@@ -0,0 +1,329 @@
+package com.bw.jtools.shape;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flat, immutable form of a shape tree.<br>
+ * The tree is compiled into a sequence of operations with transforms that are already
+ * concatenated up to the root. Painting is a single loop without recursion and without
+ * allocation of transforms per shape. The result is the same as painting the tree.<br>
+ * The list is a snapshot: changes of the tree (e.g. by animations) need a new compilation.
+ * Groups with filters are painted by the group itself.<br>
+ * Instances can be painted by several threads in parallel.
+ */
+public final class DisplayList
+{
+	/**
+	 * Fill and/or draw a shape.
+	 */
+	static final byte OP_SHAPE = 0;
+	/**
+	 * Intersect the clip, saves the current clip.
+	 */
+	static final byte OP_PUSH_CLIP = 1;
+	/**
+	 * Restore the clip saved by the matching push.
+	 */
+	static final byte OP_POP_CLIP = 2;
+	/**
+	 * Paint a group with filter.
+	 */
+	static final byte OP_GROUP = 3;
+
+	private final byte[] ops_;
+
+	/**
+	 * Transform relative to the root per operation. Null for identity.
+	 */
+	private final AffineTransform[] transforms_;
+	private final Shape[] shapes_;
+	private final Paint[] fills_;
+	private final Paint[] paints_;
+	private final Stroke[] strokes_;
+	private final AbstractShape[] groups_;
+
+	/**
+	 * Paint bounds relative to the root for shapes and groups. Null if unknown.
+	 */
+	private final Rectangle2D[] bounds_;
+
+	/**
+	 * Marks the clip of the root shape, which can be disabled on painting.
+	 */
+	private final int rootClip_;
+	private final int maxClipDepth_;
+
+	private DisplayList(Compiler c)
+	{
+		final int n = c.count_;
+		ops_ = Arrays.copyOf(c.ops_, n);
+		transforms_ = Arrays.copyOf(c.transforms_, n);
+		shapes_ = Arrays.copyOf(c.shapes_, n);
+		fills_ = Arrays.copyOf(c.fills_, n);
+		paints_ = Arrays.copyOf(c.paints_, n);
+		strokes_ = Arrays.copyOf(c.strokes_, n);
+		groups_ = Arrays.copyOf(c.groups_, n);
+		bounds_ = Arrays.copyOf(c.bounds_, n);
+		rootClip_ = c.rootClip_;
+		maxClipDepth_ = c.maxClipDepth_;
+	}
+
+	/**
+	 * Compiles a shape tree. The clipping state of the shapes is taken as it is,
+	 * except for the root, see {@link #paint(Context, boolean)}.
+	 *
+	 * @param root The root of the tree. Can be null.
+	 */
+	public static DisplayList compile(AbstractShape root)
+	{
+		Compiler c = new Compiler();
+		if (root != null)
+			c.add(root, null, 0, true);
+		return new DisplayList(c);
+	}
+
+	/**
+	 * Number of operations.
+	 */
+	public int size()
+	{
+		return ops_.length;
+	}
+
+	/**
+	 * Paints all operations.
+	 *
+	 * Shapes outside the clip are skipped, see {@link RenderState#setCullingEnabled(boolean)}.
+	 *
+	 * @param ctx          The context, transform and clip are restored after painting.
+	 * @param rootClipping If false, the clip path of the root shape is ignored.
+	 */
+	public void paint(Context ctx, boolean rootClipping)
+	{
+		final Graphics2D g2D = ctx.g2D_;
+		final AffineTransform base = g2D.getTransform();
+		final RenderState rs = ctx.getRenderState();
+		final Rectangle2D visible = rs.cullingEnabled_ ? ShapeGroup.getVisibleBounds(g2D) : null;
+		final AffineTransform aft = new AffineTransform();
+		final Shape[] clips = maxClipDepth_ == 0 ? null : new Shape[maxClipDepth_];
+		int clipDepth = 0;
+		// Depth of the skipped root clip or -1.
+		int skipped = -1;
+
+		// State of the graphics, changes are expensive as they need a new validation of the graphics pipeline.
+		Object lastTransform = this;
+		Paint lastPaint = null;
+		Stroke lastStroke = null;
+
+		final int n = ops_.length;
+		for (int i = 0; i < n; ++i)
+		{
+			final Rectangle2D b = bounds_[i];
+			if (visible != null && b != null && ShapeGroup.isOutside(b, visible))
+			{
+				++rs.culledShapes_;
+				continue;
+			}
+			final AffineTransform t = transforms_[i];
+			if (t != lastTransform)
+			{
+				lastTransform = t;
+				if (t == null)
+					g2D.setTransform(base);
+				else
+				{
+					aft.setTransform(base);
+					aft.concatenate(t);
+					g2D.setTransform(aft);
+				}
+			}
+			switch (ops_[i])
+			{
+				case OP_SHAPE:
+				{
+					final Shape shape = shapes_[i];
+					++rs.paintedShapes_;
+					Paint p = ctx.translatePaint(fills_[i]);
+					if (p != null)
+					{
+						if (p != lastPaint)
+							g2D.setPaint(lastPaint = p);
+						g2D.fill(shape);
+					}
+					if (strokes_[i] != null)
+					{
+						p = ctx.translatePaint(paints_[i]);
+						if (p != null)
+						{
+							if (p != lastPaint)
+								g2D.setPaint(lastPaint = p);
+							if (strokes_[i] != lastStroke)
+								g2D.setStroke(lastStroke = strokes_[i]);
+							g2D.draw(shape);
+						}
+					}
+					break;
+				}
+				case OP_PUSH_CLIP:
+					if (i == rootClip_ && !rootClipping)
+						skipped = clipDepth;
+					else
+					{
+						clips[clipDepth] = g2D.getClip();
+						g2D.clip(shapes_[i]);
+					}
+					++clipDepth;
+					break;
+				case OP_POP_CLIP:
+					if (--clipDepth == skipped)
+						skipped = -1;
+					else
+						g2D.setClip(clips[clipDepth]);
+					clips[clipDepth] = null;
+					break;
+				case OP_GROUP:
+					groups_[i].paint(ctx);
+					++rs.paintedShapes_;
+					// The group may leave any state.
+					lastTransform = this;
+					lastPaint = null;
+					lastStroke = null;
+					break;
+			}
+		}
+		g2D.setTransform(base);
+	}
+
+	/**
+	 * Collects the operations.
+	 */
+	private static final class Compiler
+	{
+		byte[] ops_ = new byte[64];
+		AffineTransform[] transforms_ = new AffineTransform[64];
+		Shape[] shapes_ = new Shape[64];
+		Paint[] fills_ = new Paint[64];
+		Paint[] paints_ = new Paint[64];
+		Stroke[] strokes_ = new Stroke[64];
+		AbstractShape[] groups_ = new AbstractShape[64];
+		Rectangle2D[] bounds_ = new Rectangle2D[64];
+		int count_;
+		int rootClip_ = -1;
+		int maxClipDepth_;
+
+		private int op(byte op, AffineTransform t)
+		{
+			if (count_ == ops_.length)
+			{
+				final int n = count_ * 2;
+				ops_ = Arrays.copyOf(ops_, n);
+				transforms_ = Arrays.copyOf(transforms_, n);
+				shapes_ = Arrays.copyOf(shapes_, n);
+				fills_ = Arrays.copyOf(fills_, n);
+				paints_ = Arrays.copyOf(paints_, n);
+				strokes_ = Arrays.copyOf(strokes_, n);
+				groups_ = Arrays.copyOf(groups_, n);
+				bounds_ = Arrays.copyOf(bounds_, n);
+			}
+			ops_[count_] = op;
+			transforms_[count_] = t;
+			return count_++;
+		}
+
+		private static Rectangle2D transform(AffineTransform t, Rectangle2D r)
+		{
+			if (r == null || t == null)
+				return r;
+			return t.createTransformedShape(r)
+					.getBounds2D();
+		}
+
+		private static AffineTransform concat(AffineTransform parent, AffineTransform aft)
+		{
+			if (aft == null || aft.isIdentity())
+				return parent;
+			if (parent == null)
+				return new AffineTransform(aft);
+			AffineTransform t = new AffineTransform(parent);
+			t.concatenate(aft);
+			return t;
+		}
+
+		private void pushClip(Shape clip, AffineTransform t, int clipDepth, boolean root)
+		{
+			final int i = op(OP_PUSH_CLIP, t);
+			shapes_[i] = clip;
+			if (root)
+				rootClip_ = i;
+			maxClipDepth_ = Math.max(maxClipDepth_, clipDepth + 1);
+		}
+
+		void add(AbstractShape shape, AffineTransform parent, int clipDepth, boolean root)
+		{
+			if (shape instanceof StyledShape)
+			{
+				final StyledShape s = (StyledShape) shape;
+				final boolean clip = s.clipping_ != null && (root || s.isClippingEnabled());
+				if (clip)
+					pushClip(s.clipping_, parent, clipDepth, root);
+
+				final boolean fill = s.fill_ != Context.NONE;
+				final boolean draw = s.stroke_ != null && s.paint_ != null && s.paint_ != Context.NONE;
+				if (fill || draw)
+				{
+					final AffineTransform t = concat(parent, s.aft_);
+					final int i = op(OP_SHAPE, t);
+					shapes_[i] = s.shape_;
+					bounds_[i] = transform(t, s.getShapePaintBounds());
+					// Null is painted black, see Context.translatePaint.
+					fills_[i] = fill ? s.fill_ : Context.NONE;
+					if (draw)
+					{
+						paints_[i] = s.paint_;
+						strokes_[i] = s.stroke_;
+					}
+				}
+				if (clip)
+					op(OP_POP_CLIP, parent);
+			}
+			else if (shape instanceof ShapeGroup)
+			{
+				final ShapeGroup g = (ShapeGroup) shape;
+				if (g.filter_ != null)
+				{
+					final int i = op(OP_GROUP, parent);
+					groups_[i] = g;
+					bounds_[i] = transform(parent, g.getPaintBounds());
+					return;
+				}
+				final Shape clipping = g.getClipping();
+				final boolean clip = clipping != null && (root || g.isClippingEnabled());
+				if (clip)
+					pushClip(clipping, parent, clipDepth, root);
+
+				final AffineTransform t = concat(parent, g.aft_);
+				final List<AbstractShape> shapes = g.shapes_;
+				for (AbstractShape child : shapes)
+					if (child != null)
+						add(child, t, clip ? clipDepth + 1 : clipDepth, false);
+
+				if (clip)
+					op(OP_POP_CLIP, parent);
+			}
+			else if (shape != null)
+			{
+				// Unknown implementation, let it paint itself.
+				final int i = op(OP_GROUP, parent);
+				groups_[i] = shape;
+				bounds_[i] = transform(parent, shape.getPaintBounds());
+			}
+		}
+	}
+}
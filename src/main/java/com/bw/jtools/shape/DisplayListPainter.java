@@ -0,0 +1,124 @@
+package com.bw.jtools.shape;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Paints a shape via a compiled {@link DisplayList}.<br>
+ * Same output as {@link ShapePainter} at about the same speed, as rasterization dominates the costs.
+ * The compiled list is an immutable snapshot that can be painted by several threads,
+ * and the graphics state is only changed if needed.<br>
+ * The list is compiled on {@link #setShape(AbstractShape)}, call {@link #recompile()} if the shapes were modified.
+ * The level of detail can't be reduced, use {@link ShapePainter} for this.
+ */
+public final class DisplayListPainter extends AbstractPainterBase
+{
+	private AbstractShape shape_;
+	private DisplayList list_;
+
+	public DisplayListPainter()
+	{
+	}
+
+	public DisplayListPainter(AbstractShape shape)
+	{
+		setShape(shape);
+	}
+
+	/**
+	 * Sets the shape to paint and compiles it.
+	 */
+	@Override
+	public void setShape(AbstractShape shape)
+	{
+		shape_ = shape;
+		list_ = DisplayList.compile(shape);
+		area_ = null;
+		renderState_.clear();
+	}
+
+	@Override
+	public AbstractShape getShape()
+	{
+		return shape_;
+	}
+
+	/**
+	 * Compiles the shape again, needed after modifications of the shape tree.
+	 */
+	public void recompile()
+	{
+		setShape(shape_);
+	}
+
+	/**
+	 * Gets the compiled list.
+	 */
+	public DisplayList getDisplayList()
+	{
+		return list_;
+	}
+
+	/**
+	 * Not supported, the compiled list always paints all details.
+	 *
+	 * @throws UnsupportedOperationException If the level of detail shall be reduced.
+	 */
+	@Override
+	public void setLevelOfDetail(double minimalSize, boolean drawDots, double tolerance)
+	{
+		if (minimalSize > 0 || tolerance > 0)
+			throw new UnsupportedOperationException("DisplayListPainter paints all details, use ShapePainter");
+	}
+
+	@Override
+	protected void calculateArea()
+	{
+		if (shape_ == null)
+		{
+			area_ = new Rectangle2D.Double(0, 0, 1, 1);
+		}
+		else
+		{
+			Rectangle2D transRect = shape_.getTransformedBounds();
+			area_ = new Rectangle2D.Double(transRect.getX(), transRect.getY(), transRect.getWidth(), transRect.getHeight());
+		}
+	}
+
+	/**
+	 * Paints the shapes.
+	 *
+	 * @param ctx       Graphic context, Graphics inside will NOT be restored.
+	 * @param clearArea If true the area of the shapes is cleared with the current color.
+	 */
+	@Override
+	protected void paint(Context ctx, boolean clearArea)
+	{
+		if (shape_ == null)
+			return;
+
+		Context lct = new Context(ctx, false);
+		final Graphics2D g2D = lct.g2D_;
+
+		g2D.scale(scaleX_, scaleY_);
+
+		g2D.translate(-area_.x, -area_.y);
+		if (clearArea)
+		{
+			g2D.setPaint(lct.currentBackground_);
+			g2D.fill(area_);
+		}
+
+		final AffineTransform rotation = getRotation();
+		if (rotation != null)
+		{
+			g2D.transform(rotation);
+		}
+
+		// A root with filter paints itself.
+		lct.clippingShape_ = shape_;
+		lct.clippingEnabled_ = enableClipping_;
+		list_.paint(lct, enableClipping_);
+	}
+}
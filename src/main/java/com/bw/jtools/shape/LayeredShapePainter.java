@@ -0,0 +1,339 @@
+package com.bw.jtools.shape;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Painter for shapes where only some parts are animated, e.g. the hands of a clock.<br>
+ * The shape is split in paint order into static layers and the animated sub-trees between them.
+ * Static layers are rendered once into images, each paint draws these images and paints only the
+ * animated sub-trees as vectors.<br>
+ * The images are rendered again if the device transform (size, scale, rotation), the colors
+ * or any static shape changed. Changes inside the geometry of a shape (e.g. a modified path) are not
+ * detected, call {@link #invalidateLayers()} in this case.
+ * Groups with filters are not split. If such a group contains an animated shape, the whole group is animated.
+ */
+public final class LayeredShapePainter extends AbstractPainterBase
+{
+	private AbstractShape shape_;
+
+	/**
+	 * The ids of the animated shapes, maybe a live view.
+	 */
+	private Set<String> animatedIds_ = Collections.emptySet();
+
+	/**
+	 * Copy of the ids the layers were built for.
+	 */
+	private Set<String> layerIds_;
+
+	private List<Layer> layers_;
+	private long fingerprint_;
+
+	/**
+	 * Device transform of the last paint, without integer translation.
+	 */
+	private AffineTransform layerTransform_;
+	private Paint layerForeground_;
+	private Paint layerBackground_;
+	private boolean layerGray_;
+	private boolean layerClipping_;
+
+	private static final class Layer
+	{
+		final AbstractShape shape_;
+		final boolean animated_;
+		BufferedImage image_;
+		int x_;
+		int y_;
+
+		Layer(AbstractShape shape, boolean animated)
+		{
+			shape_ = shape;
+			animated_ = animated;
+		}
+	}
+
+	public LayeredShapePainter()
+	{
+	}
+
+	public LayeredShapePainter(AbstractShape shape, Set<String> animatedIds)
+	{
+		setShape(shape);
+		setAnimatedIds(animatedIds);
+	}
+
+	/**
+	 * Sets the shape to paint.
+	 */
+	@Override
+	public void setShape(AbstractShape shape)
+	{
+		shape_ = shape;
+		area_ = null;
+		renderState_.clear();
+		layers_ = null;
+	}
+
+	@Override
+	public AbstractShape getShape()
+	{
+		return shape_;
+	}
+
+	/**
+	 * Sets the ids of the animated shapes.<br>
+	 * The set can be a live view, e.g. {@link com.bw.jtools.shape.animation.Animator#getAnimatedIds()}.
+	 * Changes are detected on the next paint.
+	 */
+	public void setAnimatedIds(Set<String> animatedIds)
+	{
+		animatedIds_ = animatedIds == null ? Collections.emptySet() : animatedIds;
+	}
+
+	/**
+	 * Drops the rendered layers.
+	 */
+	public void invalidateLayers()
+	{
+		layers_ = null;
+	}
+
+	@Override
+	public void setLevelOfDetail(double minimalSize, boolean drawDots, double tolerance)
+	{
+		super.setLevelOfDetail(minimalSize, drawDots, tolerance);
+		invalidateLayers();
+	}
+
+	@Override
+	protected void calculateArea()
+	{
+		if (shape_ == null)
+		{
+			area_ = new Rectangle2D.Double(0, 0, 1, 1);
+		}
+		else
+		{
+			Rectangle2D transRect = shape_.getTransformedBounds();
+			area_ = new Rectangle2D.Double(transRect.getX(), transRect.getY(), transRect.getWidth(), transRect.getHeight());
+		}
+	}
+
+	/**
+	 * Paints the shapes.
+	 *
+	 * @param ctx       Graphic context, Graphics inside will NOT be restored.
+	 * @param clearArea If true the area of the shapes is cleared with the current color.
+	 */
+	@Override
+	protected void paint(Context ctx, boolean clearArea)
+	{
+		if (shape_ == null)
+			return;
+
+		Context lct = new Context(ctx, false);
+		final Graphics2D g2D = lct.g2D_;
+
+		g2D.scale(scaleX_, scaleY_);
+
+		g2D.translate(-area_.x, -area_.y);
+		if (clearArea)
+		{
+			g2D.setPaint(lct.currentBackground_);
+			g2D.fill(area_);
+		}
+
+		final AffineTransform rotation = getRotation();
+		if (rotation != null)
+		{
+			g2D.transform(rotation);
+		}
+
+		final DeviceAlignment alignment = new DeviceAlignment(g2D);
+		updateLayers(alignment.local_, lct);
+
+		lct.clippingEnabled_ = enableClipping_;
+		for (Layer layer : layers_)
+		{
+			// If needed disable top-level-clipping, without modifying the shape.
+			lct.clippingShape_ = layer.shape_;
+			if (layer.animated_)
+			{
+				// Cached bounds of the copied groups don't know about the animation.
+				layer.shape_.invalidateBounds();
+				layer.shape_.paint(lct);
+			}
+			else
+			{
+				if (layer.image_ == null)
+					renderLayer(layer, alignment.local_, lct);
+				if (layer.image_ != null)
+					alignment.drawImage(g2D, layer.image_, layer.x_, layer.y_);
+			}
+		}
+	}
+
+	/**
+	 * Splits the shape again if needed and drops the images if the output would differ.
+	 */
+	private void updateLayers(AffineTransform local, Context ctx)
+	{
+		final long fingerprint = fingerprint(shape_, animatedIds_);
+		if (layers_ == null || fingerprint != fingerprint_ || !animatedIds_.equals(layerIds_))
+		{
+			layerIds_ = new HashSet<>(animatedIds_);
+			layers_ = split(shape_, layerIds_);
+			fingerprint_ = fingerprint;
+			layerTransform_ = null;
+		}
+		if (!(local.equals(layerTransform_) && Objects.equals(ctx.currentColor_, layerForeground_) &&
+				Objects.equals(ctx.currentBackground_, layerBackground_) && ctx.translateColor2Gray_ == layerGray_ &&
+				enableClipping_ == layerClipping_))
+		{
+			for (Layer layer : layers_)
+				layer.image_ = null;
+			layerTransform_ = local;
+			layerForeground_ = ctx.currentColor_;
+			layerBackground_ = ctx.currentBackground_;
+			layerGray_ = ctx.translateColor2Gray_;
+			layerClipping_ = enableClipping_;
+		}
+	}
+
+	/**
+	 * Renders a static layer into an image, in device space without integer translation.
+	 */
+	private void renderLayer(Layer layer, AffineTransform local, Context ctx)
+	{
+		Rectangle2D bounds = layer.shape_.getPaintBounds();
+		if (bounds == null)
+			bounds = area_;
+		final Rectangle r = local.createTransformedShape(bounds)
+								 .getBounds();
+		// Anti-aliasing can touch adjacent pixels.
+		r.grow(1, 1);
+		if (r.isEmpty())
+			return;
+		BufferedImage image = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB_PRE);
+		Context ictx = new Context(image, ctx);
+		try
+		{
+			ictx.g2D_.translate(-r.x, -r.y);
+			ictx.g2D_.transform(local);
+			ictx.clippingShape_ = layer.shape_;
+			ictx.clippingEnabled_ = enableClipping_;
+			layer.shape_.paint(ictx);
+		}
+		finally
+		{
+			ictx.dispose();
+		}
+		layer.image_ = image;
+		layer.x_ = r.x;
+		layer.y_ = r.y;
+	}
+
+	/**
+	 * Splits a shape in paint order into static and animated parts.
+	 * Parts of groups are copies with the same transform and clipping.
+	 */
+	private static List<Layer> split(AbstractShape shape, Set<String> animatedIds)
+	{
+		List<Layer> layers = new ArrayList<>();
+		if (animatedIds.contains(shape.id_))
+			layers.add(new Layer(shape, true));
+		else if (!containsAnimated(shape, animatedIds))
+			layers.add(new Layer(shape, false));
+		else if (!(shape instanceof ShapeGroup) || ((ShapeGroup) shape).filter_ != null)
+			layers.add(new Layer(shape, true));
+		else
+		{
+			final ShapeGroup group = (ShapeGroup) shape;
+			ShapeGroup current = null;
+			boolean currentAnimated = false;
+			for (AbstractShape child : group.shapes_)
+			{
+				for (Layer part : split(child, animatedIds))
+				{
+					if (current == null || currentAnimated != part.animated_)
+					{
+						if (current != null)
+							layers.add(new Layer(current, currentAnimated));
+						current = copy(group);
+						currentAnimated = part.animated_;
+					}
+					current.shapes_.add(part.shape_);
+				}
+			}
+			if (current != null)
+				layers.add(new Layer(current, currentAnimated));
+		}
+		return layers;
+	}
+
+	/**
+	 * Creates an empty group with the same properties, except the filter.
+	 */
+	private static ShapeGroup copy(ShapeGroup group)
+	{
+		ShapeGroup g = new ShapeGroup(group.id_, null, group.getClipping(), group.aft_);
+		g.units_ = group.units_;
+		g.enableClipping_ = group.enableClipping_;
+		return g;
+	}
+
+	private static boolean containsAnimated(AbstractShape shape, Set<String> animatedIds)
+	{
+		if (animatedIds.contains(shape.id_))
+			return true;
+		if (shape instanceof ShapeGroup)
+			for (AbstractShape c : ((ShapeGroup) shape).shapes_)
+				if (containsAnimated(c, animatedIds))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Hash over the properties of all static shapes, used to detect modifications.
+	 */
+	private static long fingerprint(AbstractShape shape, Set<String> animatedIds)
+	{
+		long h = System.identityHashCode(shape);
+		if (animatedIds.contains(shape.id_))
+			return h;
+		if (shape.aft_ != null)
+		{
+			h = h * 31 + System.identityHashCode(shape.aft_);
+			h = h * 31 + shape.aft_.hashCode();
+		}
+		if (shape instanceof ShapeGroup)
+		{
+			final ShapeGroup g = (ShapeGroup) shape;
+			h = h * 31 + System.identityHashCode(g.filter_);
+			h = h * 31 + g.shapes_.size();
+			for (AbstractShape c : g.shapes_)
+				h = h * 31 + fingerprint(c, animatedIds);
+		}
+		else if (shape instanceof StyledShape)
+		{
+			final StyledShape s = (StyledShape) shape;
+			h = h * 31 + System.identityHashCode(s.shape_);
+			h = h * 31 + System.identityHashCode(s.stroke_);
+			h = h * 31 + System.identityHashCode(s.paint_);
+			h = h * 31 + System.identityHashCode(s.fill_);
+		}
+		return h;
+	}
+}
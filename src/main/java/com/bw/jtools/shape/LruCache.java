@@ -0,0 +1,134 @@
+package com.bw.jtools.shape;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Map with bounded memory, used by the raster caches.<br>
+ * Entries are kept in access order, if the memory exceeds the limit the least recently used entries are dropped first.
+ * Subclasses can keep entries, see {@link #isRemovable(Object, Object)}, and get informed about dropped entries,
+ * see {@link #removed(Object, Object)}.<br>
+ * The map is not thread safe, the owner needs to synchronize.
+ */
+public class LruCache<K, V>
+{
+	private final LinkedHashMap<K, V> entries_ = new LinkedHashMap<>(16, 0.75f, true);
+	private final ToLongFunction<V> sizer_;
+	private long maxBytes_;
+	private long bytes_;
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxBytes Maximal memory of the entries.
+	 * @param sizer    Calculates the memory of a value.
+	 */
+	public LruCache(long maxBytes, ToLongFunction<V> sizer)
+	{
+		maxBytes_ = maxBytes;
+		sizer_ = sizer;
+	}
+
+	/**
+	 * Gets a value and marks it as recently used.
+	 */
+	public V get(K key)
+	{
+		return entries_.get(key);
+	}
+
+	/**
+	 * Adds or replaces a value. Entries are dropped if needed, maybe also the new one.
+	 */
+	public void put(K key, V value)
+	{
+		V old = entries_.put(key, value);
+		if (old != null)
+			bytes_ -= sizer_.applyAsLong(old);
+		bytes_ += sizer_.applyAsLong(value);
+		trim();
+	}
+
+	/**
+	 * Removes a value without calling {@link #removed(Object, Object)}.
+	 */
+	public V remove(K key)
+	{
+		V value = entries_.remove(key);
+		if (value != null)
+			bytes_ -= sizer_.applyAsLong(value);
+		return value;
+	}
+
+	/**
+	 * Drops the least recently used entries until the memory is below the limit.
+	 */
+	public void trim()
+	{
+		Iterator<Map.Entry<K, V>> it = entries_.entrySet()
+											   .iterator();
+		while (bytes_ > maxBytes_ && it.hasNext())
+		{
+			Map.Entry<K, V> e = it.next();
+			if (isRemovable(e.getKey(), e.getValue()))
+			{
+				it.remove();
+				bytes_ -= sizer_.applyAsLong(e.getValue());
+				removed(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Checks if an entry can be dropped because of the memory limit. Default is true.
+	 */
+	protected boolean isRemovable(K key, V value)
+	{
+		return true;
+	}
+
+	/**
+	 * Called after an entry was dropped because of the memory limit.
+	 */
+	protected void removed(K key, V value)
+	{
+	}
+
+	/**
+	 * Sets the memory limit. Entries are dropped if needed.
+	 */
+	public void setMaxBytes(long maxBytes)
+	{
+		maxBytes_ = maxBytes;
+		trim();
+	}
+
+	public long getMaxBytes()
+	{
+		return maxBytes_;
+	}
+
+	/**
+	 * Memory of all entries.
+	 */
+	public long getBytes()
+	{
+		return bytes_;
+	}
+
+	public int size()
+	{
+		return entries_.size();
+	}
+
+	/**
+	 * Removes all entries without calling {@link #removed(Object, Object)}.
+	 */
+	public void clear()
+	{
+		entries_.clear();
+		bytes_ = 0;
+	}
+}
@@ -272,6 +272,17 @@ public final class PaintAlongShapePainter extends AbstractPainterBase
 		return null;
 	}
 
+	/**
+	 * Not supported, the shape is painted multiple times.
+	 *
+	 * @return Always null.
+	 */
+	@Override
+	public AffineTransform getShapeTransform()
+	{
+		return null;
+	}
+
 	@Override
 	protected void calculateArea()
 	{
@@ -0,0 +1,174 @@
+package com.bw.jtools.shape;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Creates simplified variants of shapes for painting at small scales.<br>
+ * Curves are flattened and the resulting poly-lines are reduced by the Douglas-Peucker algorithm.
+ * The result deviates from the original outline by at most the tolerance.
+ */
+public final class PathSimplifier
+{
+	private PathSimplifier()
+	{
+	}
+
+	/**
+	 * Simplifies a shape.
+	 *
+	 * @param shape     The shape.
+	 * @param tolerance Maximal deviation from the original outline, in coordinates of the shape.
+	 * @return The simplified path or null if the result would not have fewer segments than the original.
+	 */
+	public static CompactPath simplify(Shape shape, double tolerance)
+	{
+		int originalSegments = 0;
+		for (PathIterator pi = shape.getPathIterator(null); !pi.isDone(); pi.next())
+			++originalSegments;
+
+		// Half of the error is used by flattening, the other half by the reduction.
+		final double half = tolerance / 2;
+		final PathIterator pi = shape.getPathIterator(null, half);
+		final Polyline line = new Polyline(new CompactPath.Builder(pi.getWindingRule(), 16), half);
+		final double[] c = new double[6];
+		double startX = 0, startY = 0;
+		while (!pi.isDone())
+		{
+			switch (pi.currentSegment(c))
+			{
+				case PathIterator.SEG_MOVETO:
+					line.flush(false);
+					startX = c[0];
+					startY = c[1];
+					line.add(startX, startY);
+					break;
+				case PathIterator.SEG_LINETO:
+					// After "close" lines start at the start of the last sub-path.
+					if (line.n_ == 0)
+						line.add(startX, startY);
+					line.add(c[0], c[1]);
+					break;
+				case PathIterator.SEG_CLOSE:
+					line.flush(true);
+					break;
+			}
+			pi.next();
+		}
+		line.flush(false);
+		if (line.segments_ >= originalSegments)
+			return null;
+		return line.builder_.build();
+	}
+
+	/**
+	 * Collects the points of one sub-path.
+	 */
+	private static final class Polyline
+	{
+		final CompactPath.Builder builder_;
+		final double tolerance_;
+		double[] points_ = new double[64];
+		boolean[] keep_ = new boolean[32];
+		int[] stack_ = new int[64];
+		int n_;
+		int segments_;
+
+		Polyline(CompactPath.Builder builder, double tolerance)
+		{
+			builder_ = builder;
+			tolerance_ = tolerance;
+		}
+
+		void add(double x, double y)
+		{
+			if (2 * n_ + 2 > points_.length)
+				points_ = Arrays.copyOf(points_, points_.length * 2);
+			points_[2 * n_] = x;
+			points_[2 * n_ + 1] = y;
+			++n_;
+		}
+
+		void flush(boolean close)
+		{
+			if (n_ == 0)
+				return;
+			if (n_ > keep_.length)
+				keep_ = new boolean[Math.max(n_, keep_.length * 2)];
+			if (2 * n_ > stack_.length)
+				stack_ = new int[2 * n_];
+			reduce(points_, n_, tolerance_, keep_, stack_);
+			builder_.moveTo(points_[0], points_[1]);
+			++segments_;
+			for (int i = 1; i < n_; ++i)
+				if (keep_[i])
+				{
+					builder_.lineTo(points_[2 * i], points_[2 * i + 1]);
+					++segments_;
+				}
+			if (close)
+			{
+				builder_.closePath();
+				++segments_;
+			}
+			n_ = 0;
+		}
+	}
+
+	/**
+	 * Marks the points to keep by the Douglas-Peucker algorithm. First and last points are kept.
+	 */
+	private static void reduce(double[] p, int n, double tolerance, boolean[] keep, int[] stack)
+	{
+		Arrays.fill(keep, 0, n, false);
+		keep[0] = true;
+		keep[n - 1] = true;
+		final double tol2 = tolerance * tolerance;
+		int sp = 0;
+		stack[sp++] = 0;
+		stack[sp++] = n - 1;
+		while (sp > 0)
+		{
+			final int to = stack[--sp];
+			final int from = stack[--sp];
+			double max = -1;
+			int idx = -1;
+			for (int i = from + 1; i < to; ++i)
+			{
+				final double d = distanceSq(p, i, from, to);
+				if (d > max)
+				{
+					max = d;
+					idx = i;
+				}
+			}
+			if (idx >= 0 && max > tol2)
+			{
+				keep[idx] = true;
+				stack[sp++] = from;
+				stack[sp++] = idx;
+				stack[sp++] = idx;
+				stack[sp++] = to;
+			}
+		}
+	}
+
+	/**
+	 * Squared distance of point i to the segment from a to b.
+	 */
+	private static double distanceSq(double[] p, int i, int a, int b)
+	{
+		final double ax = p[2 * a], ay = p[2 * a + 1];
+		final double dx = p[2 * b] - ax, dy = p[2 * b + 1] - ay;
+		final double px = p[2 * i] - ax, py = p[2 * i + 1] - ay;
+		final double len2 = dx * dx + dy * dy;
+		double t = len2 == 0 ? 0 : (px * dx + py * dy) / len2;
+		if (t < 0)
+			t = 0;
+		else if (t > 1)
+			t = 1;
+		final double ex = px - t * dx, ey = py - t * dy;
+		return ex * ex + ey * ey;
+	}
+}
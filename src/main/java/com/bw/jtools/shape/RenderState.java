@@ -0,0 +1,172 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.FilteredImage;
+import com.bw.jtools.shape.filter.ImageBufferPool;
+import com.bw.jtools.shape.filter.PainterBuffers;
+
+import java.awt.geom.AffineTransform;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Paint state that is kept between paints, e.g. the buffers of groups with filters.<br>
+ * Shapes don't store any paint state, so a shape tree can be shared and painted by any number
+ * of threads, as long as each thread uses its own render state (e.g. its own painter).
+ * A render state itself is not thread safe.
+ */
+public final class RenderState
+{
+	/**
+	 * Buffers of one group with filter.
+	 */
+	static final class GroupBuffers
+	{
+		PainterBuffers buffers_;
+
+		/**
+		 * The transformation used to paint into the buffers, see {@link ShapeGroup#draw2Buffer(Context)}.
+		 */
+		AffineTransform bufferAft_;
+
+		/**
+		 * Output of the filter, valid as long as the buffers are not painted again.
+		 */
+		FilteredImage filtered_;
+		FilterChain filteredChain_;
+		double filteredUnitX_;
+		double filteredUnitY_;
+	}
+
+	/**
+	 * If true, shapes outside the clip are not painted.
+	 */
+	boolean cullingEnabled_ = true;
+
+	/**
+	 * Level of detail: shapes with a device size below are not painted in detail. 0 to disable.
+	 */
+	double minimalShapeSize_;
+	boolean drawDots_;
+
+	/**
+	 * Level of detail: maximal deviation in device pixels of simplified shapes. 0 to disable.
+	 */
+	double simplificationTolerance_;
+
+	long paintedShapes_;
+	long culledShapes_;
+
+	/**
+	 * Pool for the buffers of groups with filters.
+	 */
+	private ImageBufferPool bufferPool_ = ImageBufferPool.getShared();
+
+	// Weak, so that the state of shapes that are no longer painted doesn't stay.
+	private final Map<ShapeGroup, GroupBuffers> groups_ = new WeakHashMap<>();
+
+	/**
+	 * Gets the buffers of a group, created on first access.
+	 */
+	GroupBuffers getGroupBuffers(ShapeGroup group)
+	{
+		return groups_.computeIfAbsent(group, g -> new GroupBuffers());
+	}
+
+	/**
+	 * Gets the buffers of a group if the group was already painted.
+	 */
+	GroupBuffers findGroupBuffers(ShapeGroup group)
+	{
+		return groups_.get(group);
+	}
+
+	/**
+	 * Enables culling: shapes with paint bounds outside the clip are skipped.
+	 * Enabled by default.
+	 */
+	public void setCullingEnabled(boolean enabled)
+	{
+		cullingEnabled_ = enabled;
+	}
+
+	public boolean isCullingEnabled()
+	{
+		return cullingEnabled_;
+	}
+
+	/**
+	 * Sets the level of detail.<br>
+	 * Shapes smaller than "minimalSize" (in device pixels) are skipped or painted as dot.
+	 * Larger shapes are painted with a simplified geometry if the scale is below one.
+	 * Simplified variants are created once per scale bucket (power of two) and kept by the shapes.<br>
+	 * By default the level of detail is not reduced.
+	 * Only painting of the shape tree (e.g. by {@link ShapePainter}) supports this, a {@link DisplayList} paints all details.
+	 *
+	 * @param minimalSize Minimal size of shapes in device pixels, 0 to paint all shapes.
+	 * @param drawDots    If true, small shapes are painted as dot with the size of their bounds.
+	 * @param tolerance   Maximal deviation of simplified geometry in device pixels, 0 to disable simplification.
+	 */
+	public void setLevelOfDetail(double minimalSize, boolean drawDots, double tolerance)
+	{
+		minimalShapeSize_ = minimalSize;
+		drawDots_ = drawDots;
+		simplificationTolerance_ = tolerance;
+	}
+
+	/**
+	 * Checks if the level of detail is reduced, see {@link #setLevelOfDetail(double, boolean, double)}.
+	 */
+	public boolean isLevelOfDetailReduced()
+	{
+		return minimalShapeSize_ > 0 || simplificationTolerance_ > 0;
+	}
+
+	/**
+	 * Number of shapes painted since the last {@link #resetCounters()}.
+	 * Only children of groups are counted, painted groups and their children count each.
+	 */
+	public long getPaintedShapes()
+	{
+		return paintedShapes_;
+	}
+
+	/**
+	 * Number of shapes skipped since the last {@link #resetCounters()}. A skipped group counts as one.
+	 */
+	public long getCulledShapes()
+	{
+		return culledShapes_;
+	}
+
+	/**
+	 * Sets the pool for the buffers of groups with filters. Used for groups that are painted the first time.
+	 */
+	public void setBufferPool(ImageBufferPool pool)
+	{
+		bufferPool_ = pool;
+	}
+
+	public ImageBufferPool getBufferPool()
+	{
+		return bufferPool_;
+	}
+
+	public void resetCounters()
+	{
+		paintedShapes_ = 0;
+		culledShapes_ = 0;
+	}
+
+	/**
+	 * Releases all buffers, they are given back to the pool.
+	 * Needed if the state is no longer used, e.g. by painters that paint only once.
+	 */
+	public void clear()
+	{
+		for (GroupBuffers gb : groups_.values())
+			if (gb.buffers_ != null)
+				gb.buffers_.clear();
+		groups_.clear();
+	}
+}
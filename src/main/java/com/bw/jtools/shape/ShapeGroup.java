@@ -8,6 +8,7 @@ import com.bw.jtools.shape.filter.PainterBuffers;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
@@ -29,8 +30,18 @@ public final class ShapeGroup extends AbstractShape
 
 	public Point2D.Double units_;
 
-	private PainterBuffers buffers_;
-	private Rectangle2D transformedBounds_;
+	private volatile Rectangle2D transformedBounds_;
+	private volatile Rectangle2D paintBounds_;
+
+	// Marks unknown paint bounds in the cache.
+	private static final Rectangle2D UNKNOWN_BOUNDS = new Rectangle2D.Double();
+
+	/**
+	 * Minimal number of children to use a spatial index.
+	 */
+	static final int SPATIAL_INDEX_THRESHOLD = 64;
+
+	private volatile SpatialIndex index_;
 
 	/**
 	 * Clipping shape. Applied after aft
@@ -49,17 +60,10 @@ public final class ShapeGroup extends AbstractShape
 		this.aft_ = aft;
 	}
 
-	/**
-	 * The transformation of this group that leads to the buffer-raster.
-	 * Combination of
-	 * the transformation on the graphics at start
-	 * the final transformation on the group itself.
-	 * translate-transform to move the group to the Null-point of the buffer.
-	 */
-	AffineTransform bufferAft_;
-
 	/**
 	 * Draws to buffer. The resulting image will be based on the transformed bounds.
+	 * The buffers are kept in the render state of the context and are only painted again if the transformation changed.
+	 * In this case the cached output of the filter is dropped.
 	 * To get the correct target point use {@link #getBasePoint(AffineTransform, Point2D)}
 	 */
 	public void draw2Buffer(Context ctx)
@@ -71,27 +75,37 @@ public final class ShapeGroup extends AbstractShape
 		r = aft.createTransformedShape(r)
 			   .getBounds2D();
 
+		// The transformation of this group that leads to the buffer-raster.
+		// Combination of
+		// the transformation on the graphics at start
+		// the final transformation on the group itself.
+		// translate-transform to move the group to the Null-point of the buffer.
 		AffineTransform bAft = new AffineTransform(aft);
 		AffineTransform tr = AffineTransform.getTranslateInstance(-r.getX(), -r.getY());
 		bAft.preConcatenate(tr);
 
-		if (buffers_ == null || bufferAft_ == null || 0.001 < transformDifference(bAft, bufferAft_))
+		RenderState.GroupBuffers gb = ctx.getRenderState()
+										 .getGroupBuffers(this);
+		if (gb.buffers_ == null || gb.bufferAft_ == null || 0.001 < transformDifference(bAft, gb.bufferAft_))
 		{
-			if (buffers_ == null)
+			if (gb.buffers_ == null)
 			{
-				buffers_ = new PainterBuffers();
-				buffers_.setConfiguration(ctx.g2D_.getDeviceConfiguration());
+				gb.buffers_ = new PainterBuffers();
+				gb.buffers_.setConfiguration(ctx.g2D_.getDeviceConfiguration());
+				gb.buffers_.setPool(ctx.getRenderState()
+									   .getBufferPool());
 			}
 			else
 			{
-				buffers_.clear();
+				gb.buffers_.clear();
 			}
 
-			BufferedImage source = buffers_.getTargetBuffer(FilterBase.SOURCE, r.getWidth(), r.getHeight());
+			BufferedImage source = gb.buffers_.getTargetBuffer(FilterBase.SOURCE, r.getWidth(), r.getHeight());
 			Context bctx = new Context(source, ctx);
 			try
 			{
-				bufferAft_ = bAft;
+				gb.bufferAft_ = bAft;
+				gb.filtered_ = null;
 				paintInternal(bctx);
 			}
 			finally
@@ -111,18 +125,31 @@ public final class ShapeGroup extends AbstractShape
 		else
 		{
 			draw2Buffer(ctx);
-			PainterBuffers buffers = getBuffers();
+			RenderState.GroupBuffers gb = ctx.getRenderState()
+											 .findGroupBuffers(this);
+			PainterBuffers buffers = gb == null ? null : gb.buffers_;
 			if (buffers != null)
 			{
 				Point2D targetPoint = new Point2D.Double(0, 0);
 
+				AffineTransform orgAft = ctx.g2D_.getTransform();
 				ctx.g2D_.setTransform(ident_);
 				AffineTransform aft = ctx.g2D_.getTransform();
 				getBasePoint(aft, targetPoint);
 				Point2D.Double units = FilterBase.getUnits(aft);
+				final double unitX = units_.x * units.x;
+				final double unitY = units_.y * units.y;
 
-				FilteredImage image = filter_.render(buffers,
-						units_.x * units.x, units_.y * units.y);
+				// The source is unchanged, so is the output, if the filter and units are the same.
+				FilteredImage image = gb.filtered_;
+				if (image == null || gb.filteredChain_ != filter_ || gb.filteredUnitX_ != unitX || gb.filteredUnitY_ != unitY)
+				{
+					image = filter_.render(buffers, unitX, unitY);
+					gb.filtered_ = image;
+					gb.filteredChain_ = filter_;
+					gb.filteredUnitX_ = unitX;
+					gb.filteredUnitY_ = unitY;
+				}
 
 				ctx.g2D_.drawImage(image.image_,
 						(int) (0.5 + targetPoint.getX() + image.offset_.getX()),
@@ -136,6 +163,8 @@ public final class ShapeGroup extends AbstractShape
 							(int) (0.5 + targetPoint.getY() + image.offset_.getY()),
 							image.image_.getWidth(), image.image_.getHeight());
 				}
+				// Following siblings need the original transformation.
+				ctx.g2D_.setTransform(orgAft);
 			}
 		}
 	}
@@ -145,27 +174,86 @@ public final class ShapeGroup extends AbstractShape
 		final Graphics2D g2D = ctx.g2D_;
 
 		Shape orgClip = null;
-		if (clipping_ != null && enableClipping_)
+		final boolean clip = clipping_ != null && isClippingEnabled(ctx);
+		if (clip)
 		{
 			orgClip = g2D.getClip();
-				g2D.clip(clipping_);
+			g2D.clip(clipping_);
 		}
 
 		AffineTransform orgAft = g2D.getTransform();
-		aftTemp_.setTransform(orgAft);
 		if (aft_ != null)
-			aftTemp_.concatenate(aft_);
-
-		g2D.setTransform(aftTemp_);
+			g2D.transform(aft_);
 
-		for (AbstractShape shape : shapes_)
-			shape.paint(ctx);
+		final RenderState rs = ctx.getRenderState();
+		final Rectangle2D visible = rs.cullingEnabled_ ? getVisibleBounds(g2D) : null;
+		if (visible == null)
+		{
+			for (AbstractShape shape : shapes_)
+				shape.paint(ctx);
+			rs.paintedShapes_ += shapes_.size();
+		}
+		else
+		{
+			final SpatialIndex index = getSpatialIndex();
+			if (index != null)
+			{
+				final int[] hits = index.query(visible, null);
+				final int n = hits[0];
+				for (int i = 1; i <= n; ++i)
+					shapes_.get(hits[i])
+						   .paint(ctx);
+				rs.paintedShapes_ += n;
+				rs.culledShapes_ += shapes_.size() - n;
+			}
+			else for (AbstractShape shape : shapes_)
+			{
+				Rectangle2D b = shape.getPaintBounds();
+				if (b == null || !isOutside(b, visible))
+				{
+					shape.paint(ctx);
+					++rs.paintedShapes_;
+				}
+				else
+					++rs.culledShapes_;
+			}
+		}
 
 		g2D.setTransform(orgAft);
-		if (orgClip != null)
+		// Restore also if there was no clip before.
+		if (clip)
 			ctx.g2D_.setClip(orgClip);
 	}
 
+	/**
+	 * Checks if bounds are completely outside the visible area. Unlike {@link Rectangle2D#intersects(Rectangle2D)}
+	 * bounds without width or height (e.g. of hairlines) are not outside.
+	 */
+	static boolean isOutside(Rectangle2D b, Rectangle2D visible)
+	{
+		return b.getMaxX() < visible.getMinX() || b.getMinX() > visible.getMaxX() ||
+				b.getMaxY() < visible.getMinY() || b.getMinY() > visible.getMaxY();
+	}
+
+	/**
+	 * Gets the bounds of the clip in user space, enlarged by one device pixel for anti-aliasing and stroke normalization.
+	 *
+	 * @return The bounds or null if the graphics has no clip.
+	 */
+	static Rectangle2D getVisibleBounds(Graphics2D g2D)
+	{
+		Rectangle r = g2D.getClipBounds();
+		if (r == null)
+			return null;
+		AffineTransform aft = g2D.getTransform();
+		final double det = Math.abs(aft.getDeterminant());
+		if (det < 1e-12)
+			return null;
+		// Length of one device pixel in user space, columns of the inverse transform.
+		final double m = Math.max(Math.hypot(aft.getScaleY(), aft.getShearY()), Math.hypot(aft.getShearX(), aft.getScaleX())) / det;
+		return new Rectangle2D.Double(r.x - m, r.y - m, r.width + 2 * m, r.height + 2 * m);
+	}
+
 	/**
 	 * Calculate the difference between the matrices of two transformations.
 	 */
@@ -181,9 +269,26 @@ public final class ShapeGroup extends AbstractShape
 		return d;
 	}
 
-	public PainterBuffers getBuffers()
+	/**
+	 * Gets the buffers of the last paint with this render state.
+	 *
+	 * @return The buffers or null if the group was not yet painted by the context.
+	 */
+	public PainterBuffers getBuffers(Context ctx)
+	{
+		RenderState.GroupBuffers gb = ctx.getRenderState()
+										 .findGroupBuffers(this);
+		return gb == null ? null : gb.buffers_;
+	}
+
+	/**
+	 * Gets the clipping shape.
+	 *
+	 * @return The clip shape or null.
+	 */
+	public Shape getClipping()
 	{
-		return buffers_;
+		return clipping_;
 	}
 
 	/**
@@ -192,11 +297,13 @@ public final class ShapeGroup extends AbstractShape
 	@Override
 	public Rectangle2D getTransformedBounds()
 	{
-		if (transformedBounds_ == null)
+		Rectangle2D transformedBounds = transformedBounds_;
+		if (transformedBounds == null)
 		{
+			// Calculated locally, other threads shall only see the final result.
 			if (clipping_ != null)
 			{
-				transformedBounds_ = clipping_.getBounds2D();
+				transformedBounds = clipping_.getBounds2D();
 			}
 			else
 			{
@@ -204,16 +311,178 @@ public final class ShapeGroup extends AbstractShape
 				for (AbstractShape shape : shapes_)
 				{
 					Rectangle2D r = shape.getTransformedBounds();
-					if (transformedBounds_ == null)
-						transformedBounds_ = r.getBounds2D();
+					if (transformedBounds == null)
+						transformedBounds = r.getBounds2D();
 					else
-						transformedBounds_.add(r);
+						transformedBounds.add(r);
 				}
-				if (transformedBounds_ == null)
-					transformedBounds_ = new Rectangle2D.Double(0, 0, 0, 0);
+				if (transformedBounds == null)
+					transformedBounds = new Rectangle2D.Double(0, 0, 0, 0);
 			}
+			transformedBounds_ = transformedBounds;
 		}
-		return transformedBounds_;
+		return transformedBounds;
+	}
+
+	@Override
+	public Rectangle2D getPaintBounds()
+	{
+		// Filters can paint outside the shapes.
+		if (filter_ != null)
+			return null;
+		Rectangle2D paintBounds = paintBounds_;
+		if (paintBounds == null)
+		{
+			for (AbstractShape shape : shapes_)
+			{
+				Rectangle2D r = shape.getPaintBounds();
+				if (r == null)
+				{
+					paintBounds = UNKNOWN_BOUNDS;
+					break;
+				}
+				if (paintBounds == null)
+					paintBounds = r.getBounds2D();
+				else
+					paintBounds.add(r);
+			}
+			if (paintBounds == null)
+				paintBounds = new Rectangle2D.Double(0, 0, 0, 0);
+			else if (aft_ != null && paintBounds != UNKNOWN_BOUNDS)
+				paintBounds = aft_.createTransformedShape(paintBounds)
+								  .getBounds2D();
+			paintBounds_ = paintBounds;
+		}
+		return paintBounds == UNKNOWN_BOUNDS ? null : paintBounds;
+	}
+
+	/**
+	 * Gets the spatial index over the paint bounds of the children.
+	 * The index is built on first use and only for groups with many children.
+	 * It is dropped by {@link #invalidateBounds()} and rebuilt if the number of children changed.
+	 *
+	 * @return The index or null if the group has not enough children.
+	 */
+	SpatialIndex getSpatialIndex()
+	{
+		final int size = shapes_.size();
+		if (size < SPATIAL_INDEX_THRESHOLD)
+			return null;
+		SpatialIndex index = index_;
+		if (index == null || index.size_ != size)
+			index_ = index = new SpatialIndex(shapes_);
+		return index;
+	}
+
+	/**
+	 * Finds all shapes (no groups) with paint bounds that touch an area.
+	 * Clip paths of groups are respected by their bounds.
+	 *
+	 * @param area The area in the coordinate system of the parent of this group.
+	 * @return The shapes in paint order.
+	 */
+	public List<AbstractShape> findShapesIn(Rectangle2D area)
+	{
+		List<AbstractShape> result = new ArrayList<>();
+		findShapesIn(area, result);
+		return result;
+	}
+
+	private void findShapesIn(Rectangle2D area, List<AbstractShape> result)
+	{
+		if (clipping_ != null && enableClipping_ && isOutside(clipping_.getBounds2D(), area))
+			return;
+		try
+		{
+			if (aft_ != null)
+				area = aft_.createInverse()
+						   .createTransformedShape(area)
+						   .getBounds2D();
+		}
+		catch (NoninvertibleTransformException e)
+		{
+			return;
+		}
+		final SpatialIndex index = getSpatialIndex();
+		if (index != null)
+		{
+			final int[] hits = index.query(area, null);
+			for (int i = 1; i <= hits[0]; ++i)
+				addShapesIn(shapes_.get(hits[i]), area, result);
+		}
+		else
+		{
+			for (AbstractShape shape : shapes_)
+			{
+				Rectangle2D b = shape == null ? null : shape.getPaintBounds();
+				if (shape != null && (b == null || !isOutside(b, area)))
+					addShapesIn(shape, area, result);
+			}
+		}
+	}
+
+	private static void addShapesIn(AbstractShape shape, Rectangle2D area, List<AbstractShape> result)
+	{
+		if (shape instanceof ShapeGroup)
+			((ShapeGroup) shape).findShapesIn(area, result);
+		else
+			result.add(shape);
+	}
+
+	@Override
+	public AbstractShape findShapeAt(Point2D p)
+	{
+		if (clipping_ != null && enableClipping_ && !clipping_.contains(p))
+			return null;
+		try
+		{
+			if (aft_ != null)
+				p = aft_.inverseTransform(p, null);
+		}
+		catch (NoninvertibleTransformException e)
+		{
+			return null;
+		}
+		// Top-most first, in reverse paint order.
+		final SpatialIndex index = getSpatialIndex();
+		if (index != null)
+		{
+			final int[] hits = index.query(p, null);
+			for (int i = hits[0]; i > 0; --i)
+			{
+				AbstractShape found = shapes_.get(hits[i])
+											 .findShapeAt(p);
+				if (found != null)
+					return found;
+			}
+		}
+		else
+		{
+			for (int i = shapes_.size() - 1; i >= 0; --i)
+			{
+				AbstractShape shape = shapes_.get(i);
+				AbstractShape found = shape == null ? null : shape.findShapeAt(p);
+				if (found != null)
+					return found;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void invalidateBounds()
+	{
+		invalidateOwnBounds();
+		for (AbstractShape shape : shapes_)
+			shape.invalidateBounds();
+	}
+
+	@Override
+	public void invalidateOwnBounds()
+	{
+		index_ = null;
+		transformedBounds_ = null;
+		paintBounds_ = null;
 	}
 
 	/**
@@ -32,6 +32,7 @@ public final class ShapePainter extends AbstractPainterBase
 	{
 		shape_ = shape;
 		area_ = null;
+		renderState_.clear();
 	}
 
 	@Override
@@ -86,8 +87,9 @@ public final class ShapePainter extends AbstractPainterBase
 			g2D.transform(rotation);
 		}
 
-		// If needed disable top-level-clipping.
-		shape_.setClippingEnabled(enableClipping_);
+		// If needed disable top-level-clipping, without modifying the shape.
+		lct.clippingShape_ = shape_;
+		lct.clippingEnabled_ = enableClipping_;
 		shape_.paint(lct);
 	}
 
@@ -0,0 +1,252 @@
+package com.bw.jtools.shape;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed R-tree over the children of a group, built once by "Sort-Tile-Recursive".<br>
+ * Entries are the indices of the children, queries return them in ascending order, so in paint order.
+ * Children without paint bounds are returned by every query.
+ * The index is immutable and can be used by several threads.
+ */
+final class SpatialIndex
+{
+	/**
+	 * Maximal number of entries per node.
+	 */
+	static final int NODE_CAPACITY = 16;
+
+	/**
+	 * Bounds of all nodes, 4 values per node (min x, min y, max x, max y).
+	 * Leaves first, root last.
+	 */
+	private final double[] nodeBounds_;
+
+	/**
+	 * Start of the children of a node. For leaves in {@link #entries_}, for other nodes the index of the first child node.
+	 */
+	private final int[] nodeFirst_;
+	private final int[] nodeCount_;
+	private final int leafCount_;
+
+	/**
+	 * Indices of the children in leaf order.
+	 */
+	private final int[] entries_;
+	private final double[] entryBounds_;
+
+	/**
+	 * Indices of children without bounds.
+	 */
+	private final int[] unbounded_;
+
+	/**
+	 * Number of children at build time.
+	 */
+	final int size_;
+
+	SpatialIndex(List<AbstractShape> shapes)
+	{
+		size_ = shapes.size();
+
+		int[] unbounded = new int[0];
+		int n = 0;
+		double[] bounds = new double[size_ * 4];
+		Integer[] order = new Integer[size_];
+		for (int i = 0; i < size_; ++i)
+		{
+			AbstractShape s = shapes.get(i);
+			Rectangle2D r = s == null ? null : s.getPaintBounds();
+			if (r == null)
+			{
+				if (s != null)
+				{
+					unbounded = Arrays.copyOf(unbounded, unbounded.length + 1);
+					unbounded[unbounded.length - 1] = i;
+				}
+			}
+			else
+			{
+				bounds[i * 4] = r.getMinX();
+				bounds[i * 4 + 1] = r.getMinY();
+				bounds[i * 4 + 2] = r.getMaxX();
+				bounds[i * 4 + 3] = r.getMaxY();
+				order[n++] = i;
+			}
+		}
+		unbounded_ = unbounded;
+
+		// Leaves
+		sortTiles(order, n, bounds);
+		entries_ = new int[n];
+		entryBounds_ = new double[n * 4];
+		for (int i = 0; i < n; ++i)
+		{
+			entries_[i] = order[i];
+			System.arraycopy(bounds, order[i] * 4, entryBounds_, i * 4, 4);
+		}
+		leafCount_ = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+
+		// Count all nodes.
+		int nodes = 0;
+		for (int c = leafCount_; ; c = (c + NODE_CAPACITY - 1) / NODE_CAPACITY)
+		{
+			nodes += c;
+			if (c <= 1)
+				break;
+		}
+		nodeBounds_ = new double[nodes * 4];
+		nodeFirst_ = new int[nodes];
+		nodeCount_ = new int[nodes];
+
+		for (int i = 0; i < leafCount_; ++i)
+		{
+			final int first = i * NODE_CAPACITY;
+			setNode(i, first, Math.min(NODE_CAPACITY, n - first), entryBounds_, first);
+		}
+
+		// Upper levels, the nodes of one level are packed in tile order and referenced as ranges.
+		int levelStart = 0;
+		int levelCount = leafCount_;
+		int next = leafCount_;
+		while (levelCount > 1)
+		{
+			Integer[] levelOrder = new Integer[levelCount];
+			for (int i = 0; i < levelCount; ++i)
+				levelOrder[i] = levelStart + i;
+			sortTiles(levelOrder, levelCount, nodeBounds_);
+
+			// Re-arrange the level in tile order, children of a parent need to be contiguous.
+			double[] b = new double[levelCount * 4];
+			int[] first = new int[levelCount];
+			int[] count = new int[levelCount];
+			for (int i = 0; i < levelCount; ++i)
+			{
+				final int o = levelOrder[i];
+				System.arraycopy(nodeBounds_, o * 4, b, i * 4, 4);
+				first[i] = nodeFirst_[o];
+				count[i] = nodeCount_[o];
+			}
+			System.arraycopy(b, 0, nodeBounds_, levelStart * 4, levelCount * 4);
+			System.arraycopy(first, 0, nodeFirst_, levelStart, levelCount);
+			System.arraycopy(count, 0, nodeCount_, levelStart, levelCount);
+
+			final int parents = (levelCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			for (int i = 0; i < parents; ++i)
+			{
+				final int firstChild = levelStart + i * NODE_CAPACITY;
+				setNode(next + i, firstChild, Math.min(NODE_CAPACITY, levelStart + levelCount - firstChild), nodeBounds_, firstChild);
+			}
+			levelStart = next;
+			levelCount = parents;
+			next += parents;
+		}
+	}
+
+	private void setNode(int node, int first, int count, double[] bounds, int boundsIndex)
+	{
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = boundsIndex * 4, e = (boundsIndex + count) * 4; i < e; i += 4)
+		{
+			minX = Math.min(minX, bounds[i]);
+			minY = Math.min(minY, bounds[i + 1]);
+			maxX = Math.max(maxX, bounds[i + 2]);
+			maxY = Math.max(maxY, bounds[i + 3]);
+		}
+		final int b = node * 4;
+		nodeBounds_[b] = minX;
+		nodeBounds_[b + 1] = minY;
+		nodeBounds_[b + 2] = maxX;
+		nodeBounds_[b + 3] = maxY;
+		nodeFirst_[node] = first;
+		nodeCount_[node] = count;
+	}
+
+	/**
+	 * Sorts items into vertical slices by x-center, each slice by y-center.
+	 */
+	private static void sortTiles(Integer[] items, int n, double[] bounds)
+	{
+		if (n <= NODE_CAPACITY)
+			return;
+		Arrays.sort(items, 0, n, (a, b) -> Double.compare(bounds[a * 4] + bounds[a * 4 + 2], bounds[b * 4] + bounds[b * 4 + 2]));
+		final int nodes = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		final int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * NODE_CAPACITY;
+		for (int s = 0; s < n; s += sliceSize)
+			Arrays.sort(items, s, Math.min(n, s + sliceSize),
+					(a, b) -> Double.compare(bounds[a * 4 + 1] + bounds[a * 4 + 3], bounds[b * 4 + 1] + bounds[b * 4 + 3]));
+	}
+
+	/**
+	 * Gets the indices of all children with bounds that touch the area.
+	 *
+	 * @param area   The area, in the coordinate system of the children.
+	 * @param result Buffer for the result, can be null.
+	 * @return The buffer with the indices in ascending order, the number of indices is stored at position 0.
+	 */
+	int[] query(Rectangle2D area, int[] result)
+	{
+		return query(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), result);
+	}
+
+	/**
+	 * Same as {@link #query(Rectangle2D, int[])} for a point.
+	 */
+	int[] query(Point2D p, int[] result)
+	{
+		return query(p.getX(), p.getY(), p.getX(), p.getY(), result);
+	}
+
+	private int[] query(double minX, double minY, double maxX, double maxY, int[] result)
+	{
+		if (result == null || result.length < 1 + unbounded_.length)
+			result = new int[Math.max(1 + unbounded_.length, 16)];
+		System.arraycopy(unbounded_, 0, result, 1, unbounded_.length);
+		int count = unbounded_.length;
+
+		if (entries_.length > 0)
+		{
+			int[] stack = new int[32];
+			int sp = 0;
+			stack[sp++] = nodeFirst_.length - 1;
+			while (sp > 0)
+			{
+				final int node = stack[--sp];
+				if (outside(nodeBounds_, node * 4, minX, minY, maxX, maxY))
+					continue;
+				final int first = nodeFirst_[node];
+				final int end = first + nodeCount_[node];
+				if (node < leafCount_)
+				{
+					for (int e = first; e < end; ++e)
+					{
+						if (!outside(entryBounds_, e * 4, minX, minY, maxX, maxY))
+						{
+							if (count + 1 >= result.length)
+								result = Arrays.copyOf(result, result.length * 2);
+							result[++count] = entries_[e];
+						}
+					}
+				}
+				else
+				{
+					if (sp + NODE_CAPACITY > stack.length)
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					for (int c = first; c < end; ++c)
+						stack[sp++] = c;
+				}
+			}
+		}
+		Arrays.sort(result, 1, count + 1);
+		result[0] = count;
+		return result;
+	}
+
+	private static boolean outside(double[] b, int i, double minX, double minY, double maxX, double maxY)
+	{
+		return b[i + 2] < minX || b[i] > maxX || b[i + 3] < minY || b[i + 1] > maxY;
+	}
+}
@@ -6,6 +6,8 @@ import java.awt.Paint;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Objects;
 
@@ -40,7 +42,34 @@ public final class StyledShape extends AbstractShape
 
 	public final Shape clipping_;
 
-	private Rectangle2D transformedBounds_;
+	private volatile Rectangle2D transformedBounds_;
+	private volatile Rectangle2D paintBounds_;
+	private volatile Rectangle2D shapePaintBounds_;
+
+	/**
+	 * Simplified variants per scale bucket, see {@link #getSimplifiedShape(double, double)}.
+	 */
+	private volatile Simplified simplified_;
+
+	/**
+	 * Number of scale buckets for simplified variants, the smallest scale is 2^-MAX_SCALE_BUCKETS.
+	 */
+	private static final int MAX_SCALE_BUCKETS = 16;
+
+	private static final class Simplified
+	{
+		final double tolerance_;
+
+		/**
+		 * Shapes per bucket. Entries are the original shape if simplification doesn't help.
+		 */
+		final Shape[] shapes_ = new Shape[MAX_SCALE_BUCKETS + 1];
+
+		Simplified(double tolerance)
+		{
+			tolerance_ = tolerance;
+		}
+	}
 
 
 	/**
@@ -64,15 +93,133 @@ public final class StyledShape extends AbstractShape
 	@Override
 	public Rectangle2D getTransformedBounds()
 	{
-		if (transformedBounds_ == null)
+		Rectangle2D transformedBounds = transformedBounds_;
+		if (transformedBounds == null)
 		{
 			final double lw = ((stroke_ instanceof BasicStroke) ? (BasicStroke) stroke_ : DEFAULT_STROKE).getLineWidth();
 			Rectangle2D r = shape_.getBounds2D();
 			r = new Rectangle2D.Double(r.getX() - lw, r.getY() - lw, r.getWidth() + 2 * lw, r.getHeight() + 2 * lw);
-			transformedBounds_ = aft_.createTransformedShape(r)
-									 .getBounds2D();
+			transformedBounds_ = transformedBounds = aft_.createTransformedShape(r)
+														 .getBounds2D();
 		}
-		return transformedBounds_;
+		return transformedBounds;
+	}
+
+	@Override
+	public Rectangle2D getPaintBounds()
+	{
+		Rectangle2D paintBounds = paintBounds_;
+		if (paintBounds == null)
+		{
+			paintBounds_ = paintBounds = aft_.createTransformedShape(getShapePaintBounds())
+											 .getBounds2D();
+		}
+		return paintBounds;
+	}
+
+	/**
+	 * Gets the bounds of the shape including the outline, without transform.
+	 */
+	Rectangle2D getShapePaintBounds()
+	{
+		Rectangle2D r = shapePaintBounds_;
+		if (r == null)
+			shapePaintBounds_ = r = calculateShapePaintBounds();
+		return r;
+	}
+
+	private Rectangle2D calculateShapePaintBounds()
+	{
+		Rectangle2D r = shape_.getBounds2D();
+		if (stroke_ != null && paint_ != null)
+		{
+			if (stroke_ instanceof BasicStroke)
+			{
+				final BasicStroke bs = (BasicStroke) stroke_;
+				// Miter joins and square caps reach beyond half of the line width.
+				double ext = bs.getEndCap() == BasicStroke.CAP_SQUARE ? Math.sqrt(2) : 1;
+				if (bs.getLineJoin() == BasicStroke.JOIN_MITER)
+					ext = Math.max(ext, bs.getMiterLimit());
+				ext *= bs.getLineWidth() / 2;
+				r = new Rectangle2D.Double(r.getX() - ext, r.getY() - ext, r.getWidth() + 2 * ext, r.getHeight() + 2 * ext);
+			}
+			else
+				r = stroke_.createStrokedShape(shape_)
+						   .getBounds2D();
+		}
+		return r;
+	}
+
+	/**
+	 * Paints a shape below the minimal size as dot. Uses the fill or, if not filled, the outline paint.
+	 */
+	private void paintDot(Context ctx, Rectangle2D bounds)
+	{
+		Paint p = ctx.translatePaint(fill_);
+		if (p == null && stroke_ != null && paint_ != null)
+			p = ctx.translatePaint(paint_);
+		if (p != null)
+		{
+			ctx.g2D_.setPaint(p);
+			ctx.g2D_.fill(bounds);
+		}
+	}
+
+	@Override
+	public AbstractShape findShapeAt(Point2D p)
+	{
+		if (clipping_ != null && enableClipping_ && !clipping_.contains(p))
+			return null;
+		try
+		{
+			p = aft_.inverseTransform(p, null);
+		}
+		catch (NoninvertibleTransformException e)
+		{
+			return null;
+		}
+		if (fill_ != Context.NONE && shape_.contains(p))
+			return this;
+		if (stroke_ != null && paint_ != null && paint_ != Context.NONE && stroke_.createStrokedShape(shape_)
+																					.contains(p))
+			return this;
+		return null;
+	}
+
+	@Override
+	public void invalidateBounds()
+	{
+		transformedBounds_ = null;
+		paintBounds_ = null;
+		shapePaintBounds_ = null;
+	}
+
+	/**
+	 * Gets the geometry to paint at some scale.
+	 *
+	 * @param scale     The scale from shape to device coordinates.
+	 * @param tolerance The maximal deviation in device pixels.
+	 * @return The original or a simplified shape.
+	 */
+	Shape getSimplifiedShape(double scale, double tolerance)
+	{
+		if (scale >= 1 || scale <= 0)
+			return shape_;
+		// Bucket b covers scales in [2^-b, 2^-(b-1)), the tolerance is calculated for the largest scale of the bucket.
+		final int bucket = Math.min(MAX_SCALE_BUCKETS, (int) Math.ceil(-Math.log(scale) / Math.log(2)));
+		Simplified simplified = simplified_;
+		if (simplified == null || simplified.tolerance_ != tolerance)
+			simplified_ = simplified = new Simplified(tolerance);
+		Shape s = simplified.shapes_[bucket];
+		if (s == null)
+		{
+			// Immutable results, concurrent calculation is harmless.
+			s = PathSimplifier.simplify(shape_, tolerance * Math.pow(2, bucket - 1));
+			if (s == null)
+				s = shape_;
+			simplified.shapes_[bucket] = s;
+		}
+		return s;
 	}
 
 	@Override
@@ -83,34 +230,53 @@ public final class StyledShape extends AbstractShape
 		final Graphics2D g3D = ctx.g2D_;
 
 		AffineTransform aold = g3D.getTransform();
-		aftTemp_.setTransform(aold);
-		aftTemp_.concatenate(aft_);
-		if (clipping_ != null && enableClipping_)
+		final boolean clip = clipping_ != null && isClippingEnabled(ctx);
+		if (clip)
 		{
 			orgClip = g3D.getClip();
 			g3D.clip(clipping_);
 		}
-		g3D.setTransform(aftTemp_);
+		g3D.transform(aft_);
 
-		Paint p = ctx.translatePaint(fill_);
-		if (p != null)
+		Shape shape = shape_;
+		final RenderState rs = ctx.renderState_;
+		if (rs != null && rs.isLevelOfDetailReduced())
 		{
-			g3D.setPaint(p);
-			g3D.fill(shape_);
+			final double scale = Math.sqrt(Math.abs(aold.getDeterminant() * aft_.getDeterminant()));
+			final Rectangle2D b = getShapePaintBounds();
+			if (Math.max(b.getWidth(), b.getHeight()) * scale < rs.minimalShapeSize_)
+			{
+				if (rs.drawDots_)
+					paintDot(ctx, b);
+				shape = null;
+			}
+			else if (rs.simplificationTolerance_ > 0)
+				shape = getSimplifiedShape(scale, rs.simplificationTolerance_);
 		}
 
-		if (stroke_ != null && paint_ != null)
+		if (shape != null)
 		{
-			p = ctx.translatePaint(paint_);
+			Paint p = ctx.translatePaint(fill_);
 			if (p != null)
 			{
 				g3D.setPaint(p);
-				g3D.setStroke(stroke_);
-				g3D.draw(shape_);
+				g3D.fill(shape);
+			}
+
+			if (stroke_ != null && paint_ != null)
+			{
+				p = ctx.translatePaint(paint_);
+				if (p != null)
+				{
+					g3D.setPaint(p);
+					g3D.setStroke(stroke_);
+					g3D.draw(shape);
+				}
 			}
 		}
+
 		g3D.setTransform(aold);
-		if (clipping_ != null && enableClipping_)
+		if (clip)
 		{
 			g3D.setClip(orgClip);
 		}
@@ -1,20 +1,28 @@
 package com.bw.jtools.shape.animation;
 
+import com.bw.jtools.shape.AbstractPainterBase;
 import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.ShapeGroup;
 
 import javax.swing.JComponent;
 import javax.swing.SwingUtilities;
 import java.awt.Component;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Animation manager.<br>
- * Manages several animations on one shape-hierarchy.
+ * Manages several animations on one shape-hierarchy.<br>
+ * If the painter of the component is known, only the region of the animated shapes is repainted.
+ * Frames that are calculated while the last repaint is still pending are merged into this repaint.
  */
 public class Animator
 {
@@ -29,6 +37,11 @@ public class Animator
 	 */
 	protected final Component component_;
 
+	/**
+	 * The painter that paints the shapes to the component or null if unknown.
+	 */
+	protected final AbstractPainterBase painter_;
+
 	/**
 	 * Timer to create animation-frames.
 	 */
@@ -47,17 +60,52 @@ public class Animator
 	 */
 	protected final Map<String, AnimationItem> animations_ = new HashMap<>();
 
+	/**
+	 * Region to repaint, in coordinates of the shape-root. Guarded by "this".
+	 */
+	private Rectangle2D dirty_;
+	private boolean dirtyUnknown_;
+	private boolean repaintPending_;
+
 	private static class AnimationItem
 	{
 		public List<Animation> animation_ = new ArrayList<>();
 		public final AbstractShape shape_;
 		public final AffineTransform orgAft_;
 
-		public AnimationItem(AbstractShape shape)
+		/**
+		 * The groups from the root down to the parent of the shape.
+		 */
+		public final List<AbstractShape> parents_;
+
+		public AnimationItem(AbstractShape shape, List<AbstractShape> parents)
 		{
 			shape_ = shape;
+			parents_ = parents;
 			orgAft_ = (shape_.aft_ == null) ? new AffineTransform() : new AffineTransform(shape_.aft_);
 		}
+
+		/**
+		 * Gets the painted area of the shape in coordinates of the root.
+		 *
+		 * @return The bounds or null if unknown.
+		 */
+		public Rectangle2D getBounds()
+		{
+			// Only the transform of the shape was modified.
+			shape_.invalidateOwnBounds();
+			if (parents_ == null)
+				return null;
+			Rectangle2D r = shape_.getPaintBounds();
+			for (int i = parents_.size() - 1; r != null && i >= 0; --i)
+			{
+				AffineTransform aft = parents_.get(i).aft_;
+				if (aft != null)
+					r = aft.createTransformedShape(r)
+						   .getBounds2D();
+			}
+			return r;
+		}
 	}
 
 	/**
@@ -70,6 +118,55 @@ public class Animator
 	{
 		shape_ = shape;
 		component_ = comp;
+		painter_ = null;
+	}
+
+	/**
+	 * Creates a new animation that repaints only the animated region of the component.
+	 *
+	 * @param comp    The component that displays the shape.
+	 * @param painter The painter that paints the shape to the component, without additional transform.
+	 */
+	public Animator(Component comp, AbstractPainterBase painter)
+	{
+		shape_ = painter.getShape();
+		component_ = comp;
+		painter_ = painter;
+	}
+
+	/**
+	 * Drops the cached bounds of an animated shape and its parents, other shapes keep their bounds.
+	 */
+	private void invalidateBounds(AnimationItem item)
+	{
+		if (item.parents_ == null)
+			shape_.invalidateBounds();
+		else
+		{
+			item.shape_.invalidateOwnBounds();
+			for (AbstractShape parent : item.parents_)
+				parent.invalidateOwnBounds();
+		}
+	}
+
+	/**
+	 * Collects the groups from root to the parent of the shape.
+	 *
+	 * @return true if the shape was found.
+	 */
+	private static boolean findParents(AbstractShape root, AbstractShape shape, List<AbstractShape> parents)
+	{
+		if (root == shape)
+			return true;
+		if (root instanceof ShapeGroup)
+		{
+			parents.add(root);
+			for (AbstractShape c : ((ShapeGroup) root).shapes_)
+				if (findParents(c, shape, parents))
+					return true;
+			parents.remove(parents.size() - 1);
+		}
+		return false;
 	}
 
 	/**
@@ -83,11 +180,25 @@ public class Animator
 		AbstractShape toAnimate = shape_.getShapeById(id);
 		if (toAnimate != null)
 		{
-			AnimationItem item = animations_.computeIfAbsent(id, i -> new AnimationItem(toAnimate));
+			AnimationItem item = animations_.computeIfAbsent(id, i ->
+			{
+				List<AbstractShape> parents = new ArrayList<>();
+				return new AnimationItem(toAnimate, findParents(shape_, toAnimate, parents) ? parents : null);
+			});
 			item.animation_.add(animation);
 		}
 	}
 
+	/**
+	 * Gets the ids of the animated shapes.
+	 *
+	 * @return An unmodifiable live view of the ids.
+	 */
+	public Set<String> getAnimatedIds()
+	{
+		return Collections.unmodifiableSet(animations_.keySet());
+	}
+
 	/**
 	 * Remove an animation and resets the shape to original state.
 	 *
@@ -135,43 +246,9 @@ public class Animator
 		{
 			while (animatorId == animationThreadId_)
 			{
-				long nextTick;
-				boolean repaint = false;
 				long tick = System.currentTimeMillis();
-				for (Map.Entry<String, AnimationItem> i : animations_.entrySet())
-				{
-					AnimationItem s = i.getValue();
-					for (Animation a : s.animation_)
-					{
-						if (a.tick(tick))
-						{
-							repaint = true;
-						}
-					}
-					if (repaint)
-					{
-						if (s.shape_.aft_ == null)
-							s.shape_.aft_ = new AffineTransform(s.orgAft_);
-						else
-							s.shape_.aft_.setTransform(s.orgAft_);
-						s.animation_.forEach(a -> a.apply(s.shape_));
-					}
-				}
-				if (repaint)
-				{
-					SwingUtilities.invokeLater(() ->
-					{
-						if (component_ instanceof JComponent)
-						{
-							((JComponent) component_).paintImmediately(0, 0, component_.getWidth(), component_.getHeight());
-							Toolkit.getDefaultToolkit()
-								   .sync();
-						}
-						else
-							component_.repaint();
-					});
-				}
-				nextTick = timerTick_ - (System.currentTimeMillis() - tick);
+				tick(tick);
+				long nextTick = timerTick_ - (System.currentTimeMillis() - tick);
 				if (nextTick <= 0)
 					nextTick = 1;
 				try
@@ -187,6 +264,133 @@ public class Animator
 		animationThread.start();
 	}
 
+	/**
+	 * Calculates the frame for the time and adds the changed region for repaint.
+	 * Called by the animation thread.
+	 *
+	 * @param time The time of the frame in milliseconds.
+	 */
+	void tick(long time)
+	{
+		boolean repaint = false;
+		Rectangle2D dirty = null;
+		boolean dirtyUnknown = painter_ == null;
+		for (Map.Entry<String, AnimationItem> i : animations_.entrySet())
+		{
+			AnimationItem s = i.getValue();
+			boolean changed = false;
+			for (Animation a : s.animation_)
+			{
+				if (a.tick(time))
+				{
+					changed = true;
+				}
+			}
+			if (changed)
+			{
+				repaint = true;
+				// Old and new area of the shape.
+				Rectangle2D before = dirtyUnknown ? null : s.getBounds();
+				if (s.shape_.aft_ == null)
+					s.shape_.aft_ = new AffineTransform(s.orgAft_);
+				else
+					s.shape_.aft_.setTransform(s.orgAft_);
+				s.animation_.forEach(a -> a.apply(s.shape_));
+				invalidateBounds(s);
+				if (!dirtyUnknown)
+				{
+					Rectangle2D after = s.getBounds();
+					if (before == null || after == null)
+						dirtyUnknown = true;
+					else
+					{
+						if (dirty == null)
+							dirty = before.getBounds2D();
+						else
+							dirty.add(before);
+						dirty.add(after);
+					}
+				}
+			}
+		}
+		if (repaint)
+		{
+			addDirtyRegion(dirty, dirtyUnknown);
+		}
+	}
+
+	/**
+	 * Adds a region to repaint and triggers the repaint if none is pending.
+	 */
+	private synchronized void addDirtyRegion(Rectangle2D dirty, boolean unknown)
+	{
+		if (unknown)
+			dirtyUnknown_ = true;
+		else if (dirty != null)
+		{
+			if (dirty_ == null)
+				dirty_ = dirty;
+			else
+				dirty_.add(dirty);
+		}
+		if (!repaintPending_)
+		{
+			repaintPending_ = true;
+			SwingUtilities.invokeLater(this::repaintDirtyRegion);
+		}
+	}
+
+	/**
+	 * Repaints the collected region. Called in the event dispatch thread.
+	 */
+	private void repaintDirtyRegion()
+	{
+		Rectangle2D dirty;
+		boolean unknown;
+		synchronized (this)
+		{
+			dirty = dirty_;
+			unknown = dirtyUnknown_;
+			dirty_ = null;
+			dirtyUnknown_ = false;
+			repaintPending_ = false;
+		}
+		Rectangle r = null;
+		if (!unknown)
+		{
+			if (dirty == null)
+				return;
+			AffineTransform aft = painter_.getShapeTransform();
+			if (aft != null)
+			{
+				r = aft.createTransformedShape(dirty)
+					   .getBounds();
+				// Anti-aliasing can touch adjacent pixels.
+				r.grow(2, 2);
+			}
+		}
+		if (r == null)
+			r = new Rectangle(0, 0, component_.getWidth(), component_.getHeight());
+		if (component_ instanceof JComponent)
+		{
+			((JComponent) component_).paintImmediately(r);
+			Toolkit.getDefaultToolkit()
+				   .sync();
+		}
+		else
+			component_.repaint(r.x, r.y, r.width, r.height);
+	}
+
+	/**
+	 * Returns the region that waits for repaint, in coordinates of the shape-root.
+	 *
+	 * @return The region or null if nothing is pending or the region is unknown.
+	 */
+	public synchronized Rectangle2D getDirtyRegion()
+	{
+		return dirtyUnknown_ || dirty_ == null ? null : dirty_.getBounds2D();
+	}
+
 	/**
 	 * Check if the animation is still running.
 	 *
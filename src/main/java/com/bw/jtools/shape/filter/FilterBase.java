@@ -5,6 +5,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -60,6 +61,24 @@ public abstract class FilterBase
 	 */
 	protected final String target_;
 
+	/**
+	 * Gets the names of the source buffers.
+	 *
+	 * @return Unmodifiable list of names.
+	 */
+	public List<String> getSources()
+	{
+		return Collections.unmodifiableList(source_);
+	}
+
+	/**
+	 * Gets the name of the target buffer.
+	 */
+	public String getTarget()
+	{
+		return target_;
+	}
+
 	/**
 	 * Predefined source buffer name for the base source buffer.
 	 */
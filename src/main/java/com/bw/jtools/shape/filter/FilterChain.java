@@ -4,6 +4,7 @@ import java.awt.Dimension;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -38,9 +39,24 @@ public class FilterChain
 				f.render(buffers, f.target_, src, result.image_, scaleX, scaleY);
 			}
 		}
+		// Intermediate results are not needed anymore, the source stays for the next rendering.
+		buffers.release(FilterBase.SOURCE_ALPHA);
+		for (FilterBase f : filters_)
+			if (f.target_ != null && !FilterBase.SOURCE.equals(f.target_) && (result.image_ == null || buffers.getSourceBuffer(f.target_) != result.image_))
+				buffers.release(f.target_);
 		return result;
 	}
 
+	/**
+	 * Gets the filters of this chain.
+	 *
+	 * @return Unmodifiable list of filters.
+	 */
+	public List<FilterBase> getFilters()
+	{
+		return Collections.unmodifiableList(filters_);
+	}
+
 	/**
 	 * Create a chain of filters.
 	 *
@@ -9,6 +9,7 @@ import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ConvolveOp;
 import java.awt.image.Kernel;
+import java.util.Arrays;
 
 /**
  * Gaussian blur filter.
@@ -18,6 +19,12 @@ public class GaussianBlur extends FilterBaseSingleSource
 	double stdDeviationX_;
 	double stdDeviationY_;
 
+	/**
+	 * From this deviation (in pixel) on, the blur is approximated by three box blurs,
+	 * as suggested by the SVG specification. Below the exact kernel is used.
+	 */
+	static final double BOX_BLUR_MIN_DEVIATION = 2;
+
 	@Override
 	protected Dimension getTargetDimension(int srcWidth, int srcHeight, double scaleX, double scaleY)
 	{
@@ -35,12 +42,20 @@ public class GaussianBlur extends FilterBaseSingleSource
 	@Override
 	protected void render(PainterBuffers buffers, String targetName, BufferedImage src, BufferedImage target, double scaleX, double scaleY)
 	{
+		render(buffers, src, target, scaleX, scaleY, BOX_BLUR_MIN_DEVIATION, Pixels.MIN_BAND_PIXELS);
+	}
 
-		int kernelWidth = (int) (.5 + stdDeviationX_ * scaleX * 2);
-		int kernelHeight = (int) (.5 + stdDeviationY_ * scaleY * 2);
-
-		if (kernelWidth < 1) kernelWidth = 1;
-		if (kernelHeight < 1) kernelHeight = 1;
+	/**
+	 * Renders with other thresholds, e.g. to force one implementation.
+	 *
+	 * @param boxBlurMinDeviation Deviation from which on the box blur is used.
+	 * @param minBandPixels       Minimal number of pixels per band, see {@link Pixels}.
+	 */
+	void render(PainterBuffers buffers, BufferedImage src, BufferedImage target, double scaleX, double scaleY, double boxBlurMinDeviation,
+				int minBandPixels)
+	{
+		final double deviationX = stdDeviationX_ * scaleX;
+		final double deviationY = stdDeviationY_ * scaleY;
 
 		int targetWidth = target.getWidth();
 		int targetHeight = target.getHeight();
@@ -48,11 +63,15 @@ public class GaussianBlur extends FilterBaseSingleSource
 		int xOff = (targetWidth - src.getWidth()) / 2;
 		int yOff = (targetHeight - src.getHeight()) / 2;
 
-		float[] kernelX = new float[kernelWidth];
-		float[] kernelY = new float[kernelHeight];
+		// Large images use the raster path also for small deviations, as it runs in parallel.
+		if (deviationX >= boxBlurMinDeviation || deviationY >= boxBlurMinDeviation || Pixels.isParallel(targetWidth, targetHeight, minBandPixels))
+		{
+			renderOnRaster(src, target, xOff, yOff, deviationX, deviationY, boxBlurMinDeviation, minBandPixels);
+			return;
+		}
 
-		initKernel(kernelX, scaleX * stdDeviationX_);
-		initKernel(kernelY, scaleY * stdDeviationY_);
+		float[] kernelX = createKernel(deviationX);
+		float[] kernelY = createKernel(deviationY);
 
 		// A full kernel would be much too slow for higher derivation.
 		// Gaussian blur can be implemented by two small kernels.
@@ -60,8 +79,8 @@ public class GaussianBlur extends FilterBaseSingleSource
 		BufferedImage buffer1 = buffers.getTemporaryBuffer(0, targetWidth, targetHeight);
 		BufferedImage buffer2 = buffers.getTemporaryBuffer(1, targetWidth, targetHeight);
 
-		ConvolveOp hBlur = new ConvolveOp(new Kernel(kernelWidth, 1, kernelX), ConvolveOp.EDGE_NO_OP, null);
-		ConvolveOp vBlur = new ConvolveOp(new Kernel(1, kernelHeight, kernelY), ConvolveOp.EDGE_NO_OP, null);
+		ConvolveOp hBlur = new ConvolveOp(new Kernel(kernelX.length, 1, kernelX), ConvolveOp.EDGE_NO_OP, null);
+		ConvolveOp vBlur = new ConvolveOp(new Kernel(1, kernelY.length, kernelY), ConvolveOp.EDGE_NO_OP, null);
 
 		Graphics2D g2d = buffer1.createGraphics();
 		Context.initGraphics(g2d);
@@ -77,8 +96,315 @@ public class GaussianBlur extends FilterBaseSingleSource
 		{
 			g2d.dispose();
 		}
-		hBlur.filter(buffer1, buffer2);
-		vBlur.filter(buffer2, target);
+		try
+		{
+			hBlur.filter(buffer1, buffer2);
+			vBlur.filter(buffer2, target);
+		}
+		finally
+		{
+			buffers.releaseTemporaryBuffers();
+		}
+	}
+
+	/**
+	 * Creates a kernel with a width of about 2 times the deviation.
+	 * The width is odd, so the kernel is centered on the pixel.
+	 */
+	private float[] createKernel(double stdDeviation)
+	{
+		float[] kernel = new float[(int) (.5 + stdDeviation * 2) | 1];
+		if (kernel.length == 1)
+			kernel[0] = 1;
+		else
+			initKernel(kernel, stdDeviation);
+		return kernel;
+	}
+
+	/**
+	 * Blurs on premultiplied pixels in an int-array.
+	 * Axes with higher deviations use three box blurs with running sums, the costs don't depend on the deviation.
+	 * Axes with small deviations use the exact kernel.
+	 * Horizontal passes are split into bands of rows, vertical passes into bands of columns, see {@link Pixels}.
+	 */
+	private void renderOnRaster(BufferedImage src, BufferedImage target, int xOff, int yOff, double deviationX, double deviationY,
+								double boxBlurMinDeviation, int minBandPixels)
+	{
+		final int width = target.getWidth();
+		final int height = target.getHeight();
+
+		int[] a = new int[width * height];
+		int[] b = new int[a.length];
+
+		final int srcWidth = Math.min(src.getWidth(), width - xOff);
+		final int srcHeight = Math.min(src.getHeight(), height - yOff);
+		final int[] srcPixels = Pixels.getPixels(src);
+		if (srcPixels != null)
+		{
+			final boolean premultiplied = src.isAlphaPremultiplied();
+			final int srcScan = Pixels.getStride(src);
+			final int[] dst = a;
+			Pixels.forEachBand(0, srcHeight, srcWidth, minBandPixels, (y0, y1) ->
+			{
+				for (int y = y0; y < y1; ++y)
+					for (int i = y * srcScan, o = (y + yOff) * width + xOff, end = i + srcWidth; i < end; ++i, ++o)
+						dst[o] = premultiplied ? srcPixels[i] : Pixels.premultiply(srcPixels[i]);
+			});
+		}
+		else
+		{
+			src.getRGB(0, 0, srcWidth, srcHeight, a, yOff * width + xOff, width);
+			for (int i = yOff * width, end = (yOff + srcHeight) * width; i < end; ++i)
+				a[i] = Pixels.premultiply(a[i]);
+		}
+
+		// Horizontal passes only for the rows of the source, the other rows are transparent.
+		if (blur(a, b, width, height, yOff, yOff + srcHeight, deviationX, boxBlurMinDeviation, minBandPixels))
+		{
+			int[] t = a;
+			a = b;
+			b = t;
+		}
+		if (blur(a, b, width, height, -1, -1, deviationY, boxBlurMinDeviation, minBandPixels))
+			a = b;
+
+		final int[] result = a;
+		final int[] targetPixels = Pixels.getPixels(target);
+		if (targetPixels != null)
+		{
+			final boolean premultiplied = target.isAlphaPremultiplied();
+			final int targetScan = Pixels.getStride(target);
+			Pixels.forEachBand(0, height, width, minBandPixels, (y0, y1) ->
+			{
+				for (int y = y0; y < y1; ++y)
+					if (premultiplied)
+						System.arraycopy(result, y * width, targetPixels, y * targetScan, width);
+					else
+						for (int i = y * width, o = y * targetScan, end = i + width; i < end; ++i, ++o)
+							targetPixels[o] = Pixels.unpremultiply(result[i]);
+			});
+		}
+		else
+		{
+			for (int i = 0; i < result.length; ++i)
+				result[i] = Pixels.unpremultiply(result[i]);
+			target.setRGB(0, 0, width, height, result, 0, width);
+		}
+	}
+
+	/**
+	 * Blurs in one direction.
+	 *
+	 * @param y0        First row for horizontal blur, -1 for vertical blur.
+	 * @param y1        Row after the last row for horizontal blur.
+	 * @param deviation The deviation in pixel.
+	 * @return True if the result is in "b", false if in "a".
+	 */
+	private boolean blur(int[] a, int[] b, int width, int height, int y0, int y1, double deviation, double boxBlurMinDeviation,
+						 int minBandPixels)
+	{
+		final boolean horizontal = y0 >= 0;
+		if (deviation >= boxBlurMinDeviation)
+		{
+			// Box size as given by the SVG specification.
+			final int d = (int) Math.floor(deviation * 3 * Math.sqrt(2 * Math.PI) / 4 + 0.5);
+			// For odd sizes three centered boxes.
+			// For even sizes two boxes centered between pixels, to the left and to the right, then one box of size+1 centered on the pixel.
+			final int even = 1 - (d & 1);
+			// The passes of a band don't need other bands, all three run in the same task.
+			if (horizontal)
+				Pixels.forEachBand(y0, y1, width, minBandPixels, (r0, r1) ->
+				{
+					boxBlurH(a, b, width, r0, r1, d, d / 2);
+					boxBlurH(b, a, width, r0, r1, d, d / 2 - even);
+					boxBlurH(a, b, width, r0, r1, d + even, d / 2);
+				});
+			else
+				Pixels.forEachBand(0, width, height, minBandPixels, (x0, x1) ->
+				{
+					boxBlurV(a, b, width, height, x0, x1, d, d / 2);
+					boxBlurV(b, a, width, height, x0, x1, d, d / 2 - even);
+					boxBlurV(a, b, width, height, x0, x1, d + even, d / 2);
+				});
+			return true;
+		}
+		final float[] kernel = createKernel(deviation);
+		if (kernel.length == 1)
+			return false;
+		if (horizontal)
+			Pixels.forEachBand(y0, y1, width, minBandPixels, (r0, r1) -> convolveH(a, b, width, r0, r1, kernel));
+		else
+			Pixels.forEachBand(0, width, height, minBandPixels, (x0, x1) -> convolveV(a, b, width, height, x0, x1, kernel));
+		return true;
+	}
+
+	private static int pack(float a, float r, float g, float b)
+	{
+		return (Math.min(255, (int) (a + 0.5f)) << 24) | (Math.min(255, (int) (r + 0.5f)) << 16) |
+				(Math.min(255, (int) (g + 0.5f)) << 8) | Math.min(255, (int) (b + 0.5f));
+	}
+
+	/**
+	 * Divides the channel sums of a box by the box size.
+	 *
+	 * @param mul 65536 / size, rounded down. So the result can't overflow.
+	 */
+	private static int average(int sa, int sr, int sg, int sb, int mul)
+	{
+		return (((sa * mul + 0x8000) >>> 16) << 24) | (((sr * mul + 0x8000) >>> 16) << 16) | (((sg * mul + 0x8000) >>> 16) << 8) |
+				((sb * mul + 0x8000) >>> 16);
+	}
+
+	/**
+	 * One horizontal box blur for a band of rows, with a running sum per channel. Pixels outside are transparent.
+	 *
+	 * @param size   Size of the box.
+	 * @param offset Number of pixels of the box before the output pixel.
+	 */
+	private static void boxBlurH(int[] src, int[] dst, int width, int y0, int y1, int size, int offset)
+	{
+		final int mul = 65536 / size;
+		for (int start = y0 * width, end = y1 * width; start < end; start += width)
+		{
+			int sa = 0, sr = 0, sg = 0, sb = 0;
+			for (int x = Math.max(0, -offset), xe = Math.min(width, size - offset); x < xe; ++x)
+			{
+				final int p = src[start + x];
+				sa += p >>> 24;
+				sr += (p >> 16) & 0xFF;
+				sg += (p >> 8) & 0xFF;
+				sb += p & 0xFF;
+			}
+			for (int x = 0; x < width; ++x)
+			{
+				dst[start + x] = average(sa, sr, sg, sb, mul);
+				final int in = x - offset + size;
+				if (in < width)
+				{
+					final int p = src[start + in];
+					sa += p >>> 24;
+					sr += (p >> 16) & 0xFF;
+					sg += (p >> 8) & 0xFF;
+					sb += p & 0xFF;
+				}
+				final int out = x - offset;
+				if (out >= 0)
+				{
+					final int p = src[start + out];
+					sa -= p >>> 24;
+					sr -= (p >> 16) & 0xFF;
+					sg -= (p >> 8) & 0xFF;
+					sb -= p & 0xFF;
+				}
+			}
+		}
+	}
+
+	/**
+	 * One vertical box blur for a band of columns, same as {@link #boxBlurH(int[], int[], int, int, int, int, int)}.
+	 * The running sums of all columns are updated row by row, to access the pixels in memory order.
+	 */
+	private static void boxBlurV(int[] src, int[] dst, int width, int height, int x0, int x1, int size, int offset)
+	{
+		final int mul = 65536 / size;
+		final int[] sums = new int[4 * (x1 - x0)];
+		for (int y = Math.max(0, -offset), ye = Math.min(height, size - offset); y < ye; ++y)
+			addRow(src, y * width + x0, sums, 1);
+		for (int y = 0; y < height; ++y)
+		{
+			final int start = y * width;
+			for (int x = x0, s = 0; x < x1; ++x, s += 4)
+				dst[start + x] = average(sums[s], sums[s + 1], sums[s + 2], sums[s + 3], mul);
+			final int in = y - offset + size;
+			final int out = y - offset;
+			if (in < height && out >= 0)
+				slideRow(src, in * width + x0, out * width + x0, sums);
+			else if (in < height)
+				addRow(src, in * width + x0, sums, 1);
+			else if (out >= 0)
+				addRow(src, out * width + x0, sums, -1);
+		}
+	}
+
+	/**
+	 * Adds one row and subtracts another one.
+	 */
+	private static void slideRow(int[] src, int in, int out, int[] sums)
+	{
+		for (int s = 0; s < sums.length; s += 4)
+		{
+			final int p = src[in++];
+			final int q = src[out++];
+			sums[s] += (p >>> 24) - (q >>> 24);
+			sums[s + 1] += ((p >> 16) & 0xFF) - ((q >> 16) & 0xFF);
+			sums[s + 2] += ((p >> 8) & 0xFF) - ((q >> 8) & 0xFF);
+			sums[s + 3] += (p & 0xFF) - (q & 0xFF);
+		}
+	}
+
+	private static void addRow(int[] src, int start, int[] sums, int sign)
+	{
+		for (int s = 0; s < sums.length; s += 4)
+		{
+			final int p = src[start++];
+			sums[s] += sign * (p >>> 24);
+			sums[s + 1] += sign * ((p >> 16) & 0xFF);
+			sums[s + 2] += sign * ((p >> 8) & 0xFF);
+			sums[s + 3] += sign * (p & 0xFF);
+		}
+	}
+
+	/**
+	 * Horizontal convolution for a band of rows. Pixels outside are transparent.
+	 * The origin of the kernel is the same as for {@link ConvolveOp}.
+	 */
+	private static void convolveH(int[] src, int[] dst, int width, int y0, int y1, float[] kernel)
+	{
+		final int radius = (kernel.length - 1) / 2;
+		for (int start = y0 * width, end = y1 * width; start < end; start += width)
+		{
+			for (int x = 0; x < width; ++x)
+			{
+				float sa = 0, sr = 0, sg = 0, sb = 0;
+				for (int k = Math.max(0, radius - x), ke = Math.min(kernel.length, width - x + radius); k < ke; ++k)
+				{
+					final int p = src[start + x + k - radius];
+					final float f = kernel[k];
+					sa += (p >>> 24) * f;
+					sr += ((p >> 16) & 0xFF) * f;
+					sg += ((p >> 8) & 0xFF) * f;
+					sb += (p & 0xFF) * f;
+				}
+				dst[start + x] = pack(sa, sr, sg, sb);
+			}
+		}
+	}
+
+	/**
+	 * Vertical convolution for a band of columns, same as {@link #convolveH(int[], int[], int, int, int, float[])}, row by row.
+	 */
+	private static void convolveV(int[] src, int[] dst, int width, int height, int x0, int x1, float[] kernel)
+	{
+		final int radius = (kernel.length - 1) / 2;
+		final float[] sums = new float[4 * (x1 - x0)];
+		for (int y = 0; y < height; ++y)
+		{
+			Arrays.fill(sums, 0);
+			for (int k = Math.max(0, radius - y), ke = Math.min(kernel.length, height - y + radius); k < ke; ++k)
+			{
+				final float f = kernel[k];
+				for (int s = 0, i = (y + k - radius) * width + x0; s < sums.length; s += 4, ++i)
+				{
+					final int p = src[i];
+					sums[s] += (p >>> 24) * f;
+					sums[s + 1] += ((p >> 16) & 0xFF) * f;
+					sums[s + 2] += ((p >> 8) & 0xFF) * f;
+					sums[s + 3] += (p & 0xFF) * f;
+				}
+			}
+			for (int x = x0, s = 0, i = y * width; x < x1; ++x, s += 4)
+				dst[i + x] = pack(sums[s], sums[s + 1], sums[s + 2], sums[s + 3]);
+		}
 	}
 
 	private void initKernel(float[] kernel, double stdDeviation)
@@ -101,6 +427,22 @@ public class GaussianBlur extends FilterBaseSingleSource
 	}
 
 
+	/**
+	 * Gets the standard deviation in X-direction.
+	 */
+	public double getStdDeviationX()
+	{
+		return stdDeviationX_;
+	}
+
+	/**
+	 * Gets the standard deviation in Y-direction.
+	 */
+	public double getStdDeviationY()
+	{
+		return stdDeviationY_;
+	}
+
 	/**
 	 * Create a new Gaussian Blur filter.
 	 * stdDeviation_ sigma = standard deviation ^2
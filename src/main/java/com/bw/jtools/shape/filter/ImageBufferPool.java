@@ -0,0 +1,268 @@
+package com.bw.jtools.shape.filter;
+
+import com.bw.jtools.shape.LruCache;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide pool of images for filters.<br>
+ * Images are bucketed by rounded size and by color model. Borrowed images are owned by the borrower
+ * until they are returned. Returned images are kept for the next borrower, the memory of these idle images is bounded,
+ * the least recently returned images are dropped first.<br>
+ * The pool is thread safe.
+ */
+public final class ImageBufferPool
+{
+	private static final ImageBufferPool shared_ = new ImageBufferPool(64L * 1024 * 1024);
+
+	private long created_;
+	private long reused_;
+	private long dropped_;
+
+	/**
+	 * Idle images per bucket, the last returned image at the end.
+	 */
+	private final Map<Bucket, ArrayDeque<BufferedImage>> idle_ = new HashMap<>();
+
+	/**
+	 * All idle images, in the order they were returned.
+	 */
+	private final LruCache<BufferedImage, Bucket> lru_;
+
+	/**
+	 * Borrowed images. Weak, so that images that are never given back don't count forever.
+	 */
+	private final WeakHashMap<BufferedImage, Bucket> borrowed_ = new WeakHashMap<>();
+
+	private static final class Bucket
+	{
+		final ColorModel colorModel_;
+		final int width_;
+		final int height_;
+
+		Bucket(ColorModel colorModel, int width, int height)
+		{
+			colorModel_ = colorModel;
+			width_ = width;
+			height_ = height;
+		}
+
+		long getBytes()
+		{
+			return 4L * width_ * height_;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof Bucket))
+				return false;
+			Bucket b = (Bucket) o;
+			return width_ == b.width_ && height_ == b.height_ && colorModel_.equals(b.colorModel_);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(colorModel_, width_, height_);
+		}
+	}
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param maxBytes Maximal memory of the idle images.
+	 */
+	public ImageBufferPool(long maxBytes)
+	{
+		lru_ = new LruCache<BufferedImage, Bucket>(maxBytes, Bucket::getBytes)
+		{
+			@Override
+			protected void removed(BufferedImage image, Bucket bucket)
+			{
+				// The oldest image of all is also the oldest of its bucket.
+				ArrayDeque<BufferedImage> images = idle_.get(bucket);
+				images.pollFirst();
+				if (images.isEmpty())
+					idle_.remove(bucket);
+				image.flush();
+				++dropped_;
+			}
+		};
+	}
+
+	/**
+	 * Gets the pool that is used by all painters.
+	 */
+	public static ImageBufferPool getShared()
+	{
+		return shared_;
+	}
+
+	/**
+	 * Rounds a size up to the size of its bucket.
+	 */
+	static int bucketSize(int size)
+	{
+		final int step = size <= 64 ? 16 : (size <= 512 ? 64 : 256);
+		return Math.max(step, (size + step - 1) / step * step);
+	}
+
+	private static long getBytes(BufferedImage image)
+	{
+		return 4L * image.getWidth() * image.getHeight();
+	}
+
+	/**
+	 * Borrows a translucent image that is compatible to the configuration.
+	 * The image has the size of the bucket, which can be larger than requested. The content is undefined.
+	 *
+	 * @param cfg    The configuration to create images.
+	 * @param width  The minimal width.
+	 * @param height The minimal height.
+	 * @return The image, never null. Give it back by {@link #giveBack(BufferedImage)}.
+	 */
+	public BufferedImage borrow(GraphicsConfiguration cfg, int width, int height)
+	{
+		final ColorModel cm = cfg.getColorModel(Transparency.TRANSLUCENT);
+		final Bucket bucket = new Bucket(cm, bucketSize(Math.max(1, width)), bucketSize(Math.max(1, height)));
+		synchronized (this)
+		{
+			ArrayDeque<BufferedImage> images = idle_.get(bucket);
+			if (images != null && !images.isEmpty())
+			{
+				BufferedImage image = images.pollLast();
+				lru_.remove(image);
+				borrowed_.put(image, bucket);
+				++reused_;
+				return image;
+			}
+			++created_;
+		}
+		BufferedImage image = cfg.createCompatibleImage(bucket.width_, bucket.height_, Transparency.TRANSLUCENT);
+		synchronized (this)
+		{
+			borrowed_.put(image, bucket);
+		}
+		return image;
+	}
+
+	/**
+	 * Returns a borrowed image to the pool. The image must not be used afterwards.
+	 */
+	public synchronized void giveBack(BufferedImage image)
+	{
+		final long bytes = getBytes(image);
+		borrowed_.remove(image);
+		if (bytes > lru_.getMaxBytes())
+		{
+			++dropped_;
+			image.flush();
+			return;
+		}
+		final Bucket bucket = new Bucket(image.getColorModel(), image.getWidth(), image.getHeight());
+		idle_.computeIfAbsent(bucket, b -> new ArrayDeque<>())
+			 .addLast(image);
+		lru_.put(image, bucket);
+	}
+
+	/**
+	 * Sets the memory limit for idle images. Images are dropped if needed.
+	 */
+	public synchronized void setMaxBytes(long maxBytes)
+	{
+		lru_.setMaxBytes(maxBytes);
+	}
+
+	/**
+	 * Gets the memory limit for idle images.
+	 */
+	public synchronized long getMaxBytes()
+	{
+		return lru_.getMaxBytes();
+	}
+
+	/**
+	 * Memory of the idle images in the pool.
+	 */
+	public synchronized long getIdleBytes()
+	{
+		return lru_.getBytes();
+	}
+
+	/**
+	 * Memory of the images that are currently borrowed.
+	 * Images that are never given back count until they are garbage collected.
+	 */
+	public synchronized long getBorrowedBytes()
+	{
+		long bytes = 0;
+		for (Bucket b : borrowed_.values())
+			bytes += b.getBytes();
+		return bytes;
+	}
+
+	/**
+	 * Number of idle images in the pool.
+	 */
+	public synchronized int getIdleCount()
+	{
+		return lru_.size();
+	}
+
+	/**
+	 * Number of images created because no idle image was available.
+	 */
+	public synchronized long getCreated()
+	{
+		return created_;
+	}
+
+	/**
+	 * Number of borrowed images that were taken from the idle images.
+	 */
+	public synchronized long getReused()
+	{
+		return reused_;
+	}
+
+	/**
+	 * Number of images dropped because of the memory limit.
+	 */
+	public synchronized long getDropped()
+	{
+		return dropped_;
+	}
+
+	/**
+	 * Resets created, reused and dropped.
+	 */
+	public synchronized void resetStatistics()
+	{
+		created_ = 0;
+		reused_ = 0;
+		dropped_ = 0;
+	}
+
+	/**
+	 * Drops all idle images.
+	 */
+	public synchronized void clear()
+	{
+		for (ArrayDeque<BufferedImage> images : idle_.values())
+			for (BufferedImage image : images)
+				image.flush();
+		lru_.clear();
+		idle_.clear();
+	}
+}
@@ -28,7 +28,8 @@ public class Offset extends FilterBaseSingleSource
 	@Override
 	protected void render(PainterBuffers buffers, String targetName, BufferedImage src, BufferedImage target, double scaleX, double scaleY)
 	{
-		src.copyData(target.getRaster());
+		if (!Pixels.copy(src, 0, 0, target))
+			src.copyData(target.getRaster());
 	}
 
 	/**
@@ -1,28 +1,46 @@
 package com.bw.jtools.shape.filter;
 
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
-import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.awt.image.RescaleOp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Internal buffer-system to chain filters.<br>
- * Very memory consuming, ugly and slow. One reason against usage of filter at all.
+ * The images are borrowed from an {@link ImageBufferPool} and given back by {@link #clear()}.
+ * The buffers have exactly the requested size, they are views on the pooled images, which have the size of the bucket.
  */
 public class PainterBuffers
 {
-	private final Map<String, BufferedImage> buffers_ = new HashMap<>();
-	private final Map<String, BufferedImage> tempBuffers_ = new HashMap<>();
-	private GraphicsConfiguration cfg_;
-
 	/**
-	 * Debugging counter.
+	 * A buffer and the pooled image it is part of.
 	 */
-	public static long buffersCreated_;
+	private static final class Buffer
+	{
+		/**
+		 * The image from the pool, null if the buffer was added from outside.
+		 */
+		final BufferedImage pooled_;
+		final BufferedImage view_;
+
+		Buffer(BufferedImage pooled, BufferedImage view)
+		{
+			pooled_ = pooled;
+			view_ = view;
+		}
+	}
+
+	private final Map<String, Buffer> buffers_ = new HashMap<>();
+	private final List<Buffer> tempBuffers_ = new ArrayList<>();
+	private GraphicsConfiguration cfg_;
+	private ImageBufferPool pool_ = ImageBufferPool.getShared();
 
 	/**
 	 * Initialize a new instance.
@@ -42,19 +60,48 @@ public class PainterBuffers
 	}
 
 	/**
-	 * Clears all buffers.
+	 * Sets the pool for the images. Call before any buffer is created.
+	 */
+	public void setPool(ImageBufferPool pool)
+	{
+		pool_ = pool;
+	}
+
+	/**
+	 * Gives all buffers back to the pool.
 	 */
 	public void clear()
 	{
-		clearBuffers(buffers_);
-		clearBuffers(tempBuffers_);
+		for (Buffer b : buffers_.values())
+			giveBack(b);
+		buffers_.clear();
+		releaseTemporaryBuffers();
+	}
+
+	/**
+	 * Gives a buffer back to the pool.
+	 *
+	 * @param name The name of the buffer.
+	 */
+	public void release(String name)
+	{
+		giveBack(buffers_.remove(name));
+	}
+
+	/**
+	 * Gives all temporary buffers back to the pool.
+	 */
+	public void releaseTemporaryBuffers()
+	{
+		for (Buffer b : tempBuffers_)
+			giveBack(b);
+		tempBuffers_.clear();
 	}
 
-	private static <T> void clearBuffers(Map<T, BufferedImage> buffers)
+	private void giveBack(Buffer b)
 	{
-		for (BufferedImage i : buffers.values())
-			i.flush();
-		buffers.clear();
+		if (b != null && b.pooled_ != null)
+			pool_.giveBack(b.pooled_);
 	}
 
 	/**
@@ -65,7 +112,7 @@ public class PainterBuffers
 	 */
 	public void addBuffer(String name, BufferedImage img)
 	{
-		buffers_.put(name, img);
+		giveBack(buffers_.put(name, new Buffer(null, img)));
 	}
 
 	/**
@@ -76,7 +123,8 @@ public class PainterBuffers
 	 */
 	public BufferedImage getSourceBuffer(String name)
 	{
-		return buffers_.get(name);
+		Buffer b = buffers_.get(name);
+		return b == null ? null : b.view_;
 	}
 
 	/**
@@ -88,27 +136,30 @@ public class PainterBuffers
 	public BufferedImage getSourceAlphaBuffer(String name)
 	{
 		final String alphaName = name + "Alpha".intern();
-		BufferedImage i = buffers_.get(alphaName);
+		BufferedImage i = getSourceBuffer(alphaName);
 		if (i == null)
 		{
 			i = getSourceBuffer(name);
 			if (i != null)
 			{
-				Raster in = i.getData();
-				++buffersCreated_;
-				BufferedImage alpha = cfg_.createCompatibleImage(i.getWidth(), i.getHeight(), i.getTransparency());
-
-				int N = in.getNumBands();
-				final float[] scaleFactors = new float[N];
-				final float[] offsets = new float[N];
-				Arrays.fill(scaleFactors, 0);
-				scaleFactors[N - 1] = 1f;
-				Arrays.fill(offsets, 0);
-
-				RescaleOp extractAlpha = new RescaleOp(scaleFactors, offsets, null);
-				extractAlpha.filter(in, alpha.getRaster());
-
-				buffers_.put(alphaName, alpha);
+				Buffer b = borrow(i.getWidth(), i.getHeight());
+				BufferedImage alpha = b.view_;
+
+				if (!Pixels.extractAlpha(i, alpha))
+				{
+					// The raster is only read, no need for a copy.
+					Raster in = i.getRaster();
+					int N = in.getNumBands();
+					final float[] scaleFactors = new float[N];
+					final float[] offsets = new float[N];
+					Arrays.fill(scaleFactors, 0);
+					scaleFactors[N - 1] = 1f;
+					Arrays.fill(offsets, 0);
+
+					RescaleOp extractAlpha = new RescaleOp(scaleFactors, offsets, null);
+					extractAlpha.filter(in, alpha.getRaster());
+				}
+				buffers_.put(alphaName, b);
 				i = alpha;
 			}
 		}
@@ -121,14 +172,15 @@ public class PainterBuffers
 	 * @param idx    The index of the buffer. Each index gets it own buffer.
 	 * @param width  The width of the buffer.
 	 * @param height The height of the buffer.
-	 * @return The buffer, never null.
+	 * @return The buffer, never null. Valid until {@link #releaseTemporaryBuffers()}.
 	 */
 	public BufferedImage getTemporaryBuffer(int idx, double width, double height)
 	{
-		String key = idx + ":"
-				+ ((int) Math.ceil(width / 100) * 100) + ":"
-				+ ((int) Math.ceil(height / 100) * 100);
-		return getBuffer(key, tempBuffers_, width, height);
+		while (tempBuffers_.size() <= idx)
+			tempBuffers_.add(null);
+		Buffer b = getBuffer(tempBuffers_.get(idx), width, height);
+		tempBuffers_.set(idx, b);
+		return b.view_;
 	}
 
 	/**
@@ -141,24 +193,53 @@ public class PainterBuffers
 	 */
 	public BufferedImage getTargetBuffer(String name, double width, double height)
 	{
-		return getBuffer(name, buffers_, width, height);
+		Buffer b = getBuffer(buffers_.get(name), width, height);
+		buffers_.put(name, b);
+		return b.view_;
 	}
 
-	private <T> BufferedImage getBuffer(
-			T key, Map<T, BufferedImage> buffer, double width, double height)
+	/**
+	 * Gets a buffer with the size. The current buffer is kept with its content if the size is the same.
+	 * If the pooled image is large enough, a new view on it is used. Otherwise, the buffer is given back and a new one
+	 * is borrowed.
+	 */
+	private Buffer getBuffer(Buffer current, double width, double height)
 	{
-		BufferedImage i = buffer.get(key);
-		if (i == null || i.getWidth() < width || i.getHeight() < height)
+		final int w = Math.max(1, (int) width);
+		final int h = Math.max(1, (int) height);
+		if (current != null)
 		{
-			if (width <= 0.5) width = 1;
-			if (height <= 0.5) height = 1;
-			++buffersCreated_;
-			i = cfg_.createCompatibleImage((int) width, (int) height, Transparency.TRANSLUCENT);
-			buffer.put(key, i);
+			if (current.view_.getWidth() == w && current.view_.getHeight() == h)
+				return current;
+			if (current.pooled_ != null && current.pooled_.getWidth() >= w && current.pooled_.getHeight() >= h)
+				return view(current.pooled_, w, h);
+			giveBack(current);
 		}
+		return borrow(w, h);
+	}
 
-
-		return i;
+	private Buffer borrow(int width, int height)
+	{
+		return view(pool_.borrow(cfg_, width, height), width, height);
 	}
 
+	/**
+	 * Creates a cleared view on a pooled image.
+	 * Cleared by graphics, access to the int-array would stop the acceleration of the image by Java2D.
+	 */
+	private static Buffer view(BufferedImage pooled, int width, int height)
+	{
+		BufferedImage view = pooled.getWidth() == width && pooled.getHeight() == height ? pooled : pooled.getSubimage(0, 0, width, height);
+		Graphics2D g = view.createGraphics();
+		try
+		{
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, width, height);
+		}
+		finally
+		{
+			g.dispose();
+		}
+		return new Buffer(pooled, view);
+	}
 }
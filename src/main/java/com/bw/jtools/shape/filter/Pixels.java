@@ -0,0 +1,245 @@
+package com.bw.jtools.shape.filter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helpers for pixel loops on int-rasters.<br>
+ * Loops over rows or columns are split into bands that run in parallel on a fork/join pool.
+ * Bands are not smaller than {@link #MIN_BAND_PIXELS}, so small images are processed in the calling thread.
+ */
+final class Pixels
+{
+	/**
+	 * Minimal number of pixels per band. Smaller work is not worth the overhead of a task.
+	 */
+	static final int MIN_BAND_PIXELS = 1 << 16;
+
+	/**
+	 * Work on a range of rows or columns.
+	 */
+	interface Band
+	{
+		/**
+		 * @param from First row or column.
+		 * @param to   Row or column after the last one.
+		 */
+		void run(int from, int to);
+	}
+
+	private static final class BandTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Band band_;
+		private final int from_;
+		private final int to_;
+		private final int minLines_;
+
+		BandTask(Band band, int from, int to, int minLines)
+		{
+			band_ = band;
+			from_ = from;
+			to_ = to;
+			minLines_ = minLines;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to_ - from_ < 2 * minLines_)
+				band_.run(from_, to_);
+			else
+			{
+				final int mid = (from_ + to_) >>> 1;
+				invokeAll(new BandTask(band_, from_, mid, minLines_), new BandTask(band_, mid, to_, minLines_));
+			}
+		}
+	}
+
+	private Pixels()
+	{
+	}
+
+	/**
+	 * Runs the band for all lines, in parallel if worth it.
+	 *
+	 * @param from          First row or column.
+	 * @param to            Row or column after the last one.
+	 * @param pixelsPerLine Number of pixels in one row or column.
+	 */
+	static void forEachBand(int from, int to, int pixelsPerLine, Band band)
+	{
+		forEachBand(from, to, pixelsPerLine, MIN_BAND_PIXELS, band);
+	}
+
+	/**
+	 * Runs the band for all lines, with an other minimal band size.
+	 *
+	 * @param minBandPixels Minimal number of pixels per band.
+	 */
+	static void forEachBand(int from, int to, int pixelsPerLine, int minBandPixels, Band band)
+	{
+		final int minLines = Math.max(1, minBandPixels / Math.max(1, pixelsPerLine));
+		if (to - from < 2 * minLines)
+			band.run(from, to);
+		else
+			ForkJoinPool.commonPool()
+						.invoke(new BandTask(band, from, to, minLines));
+	}
+
+	/**
+	 * Checks if an image of this size is processed by more than one band.
+	 */
+	static boolean isParallel(int width, int height)
+	{
+		return isParallel(width, height, MIN_BAND_PIXELS);
+	}
+
+	/**
+	 * Checks if an image of this size is processed by more than one band, with an other minimal band size.
+	 */
+	static boolean isParallel(int width, int height, int minBandPixels)
+	{
+		return ForkJoinPool.getCommonPoolParallelism() > 1 && (long) width * height >= 2L * minBandPixels;
+	}
+
+	/**
+	 * Gets the backing array of an image with one int per pixel, in ARGB order.
+	 * The first pixel is at index 0, rows are {@link #getStride(BufferedImage)} apart.
+	 *
+	 * @return The array or null if the image has a different layout.
+	 */
+	static int[] getPixels(BufferedImage image)
+	{
+		final int type = image.getType();
+		if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE)
+			return null;
+		final WritableRaster raster = image.getRaster();
+		final DataBuffer db = raster.getDataBuffer();
+		if (!(db instanceof DataBufferInt) || db.getOffset() != 0 || raster.getSampleModelTranslateX() != 0 ||
+				raster.getSampleModelTranslateY() != 0 || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel))
+			return null;
+		return ((DataBufferInt) db).getData();
+	}
+
+	/**
+	 * Gets the distance of rows in the array of {@link #getPixels(BufferedImage)}.
+	 * Larger than the width for views on larger images.
+	 */
+	static int getStride(BufferedImage image)
+	{
+		return ((SinglePixelPackedSampleModel) image.getRaster()
+													.getSampleModel()).getScanlineStride();
+	}
+
+	/**
+	 * Copies pixels on the int-arrays of the images, in bands of rows.
+	 *
+	 * @param src    The source image.
+	 * @param x      X-position of the area in the source, copied to 0,0 of the target.
+	 * @param y      Y-position of the area in the source.
+	 * @param target The target image.
+	 * @return false if an image has no int-array or the formats differ.
+	 */
+	static boolean copy(BufferedImage src, int x, int y, BufferedImage target)
+	{
+		final int[] srcPixels = getPixels(src);
+		final int[] targetPixels = getPixels(target);
+		if (srcPixels == null || targetPixels == null || src.isAlphaPremultiplied() != target.isAlphaPremultiplied())
+			return false;
+		final int srcStride = getStride(src);
+		final int targetStride = getStride(target);
+		final int width = Math.min(src.getWidth() - x, target.getWidth());
+		if (width > 0)
+			forEachBand(0, Math.min(src.getHeight() - y, target.getHeight()), width, (y0, y1) ->
+			{
+				for (int r = y0; r < y1; ++r)
+					System.arraycopy(srcPixels, (r + y) * srcStride + x, targetPixels, r * targetStride, width);
+			});
+		return true;
+	}
+
+	/**
+	 * Copies only the alpha of the pixels, color is black.
+	 * Black has the same value with and without premultiplied alpha, so the formats may differ.
+	 *
+	 * @param src    The source image.
+	 * @param target The target image, not smaller than the source.
+	 * @return false if an image has no int-array.
+	 */
+	static boolean extractAlpha(BufferedImage src, BufferedImage target)
+	{
+		final int[] srcPixels = getPixels(src);
+		final int[] targetPixels = getPixels(target);
+		if (srcPixels == null || targetPixels == null)
+			return false;
+		final int srcStride = getStride(src);
+		final int targetStride = getStride(target);
+		final int width = Math.min(src.getWidth(), target.getWidth());
+		forEachBand(0, Math.min(src.getHeight(), target.getHeight()), width, (y0, y1) ->
+		{
+			for (int y = y0; y < y1; ++y)
+				for (int si = y * srcStride, o = y * targetStride, end = o + width; o < end; ++si, ++o)
+					targetPixels[o] = srcPixels[si] & 0xFF000000;
+		});
+		return true;
+	}
+
+	/**
+	 * 255 / alpha as 16.16 fixed point value.
+	 */
+	private static final int[] UNPREMULTIPLY = new int[256];
+
+	static
+	{
+		for (int a = 1; a < 256; ++a)
+			UNPREMULTIPLY[a] = ((255 << 16) + a / 2) / a;
+	}
+
+	static int premultiply(int argb)
+	{
+		final int a = argb >>> 24;
+		if (a == 255)
+			return argb;
+		if (a == 0)
+			return 0;
+		// (c * a + 128) * 257 >> 16 is c * a / 255, rounded.
+		return (a << 24) | (((((argb >> 16) & 0xFF) * a + 128) * 257 >>> 16) << 16) |
+				(((((argb >> 8) & 0xFF) * a + 128) * 257 >>> 16) << 8) | (((argb & 0xFF) * a + 128) * 257 >>> 16);
+	}
+
+	static int unpremultiply(int argb)
+	{
+		final int a = argb >>> 24;
+		if (a == 255)
+			return argb;
+		if (a == 0)
+			return 0;
+		final int f = UNPREMULTIPLY[a];
+		return (a << 24) | (Math.min(255, (((argb >> 16) & 0xFF) * f + 0x8000) >>> 16) << 16) |
+				(Math.min(255, (((argb >> 8) & 0xFF) * f + 0x8000) >>> 16) << 8) | Math.min(255, ((argb & 0xFF) * f + 0x8000) >>> 16);
+	}
+
+	/**
+	 * Composes a premultiplied pixel over another one.
+	 */
+	static int srcOver(int src, int dst)
+	{
+		final int sa = src >>> 24;
+		if (sa == 255 || dst == 0)
+			return src;
+		if (sa == 0)
+			return dst;
+		final int f = 255 - sa;
+		return ((sa + (((dst >>> 24) * f + 128) * 257 >>> 16)) << 24) |
+				((((src >> 16) & 0xFF) + ((((dst >> 16) & 0xFF) * f + 128) * 257 >>> 16)) << 16) |
+				((((src >> 8) & 0xFF) + ((((dst >> 8) & 0xFF) * f + 128) * 257 >>> 16)) << 8) |
+				((src & 0xFF) + (((dst & 0xFF) * f + 128) * 257 >>> 16));
+	}
+}
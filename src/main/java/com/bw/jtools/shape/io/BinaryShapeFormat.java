@@ -0,0 +1,68 @@
+package com.bw.jtools.shape.io;
+
+/**
+ * Constants of the binary shape format, used by {@link ShapeWriter} and {@link ShapeReader}.<br>
+ * <pre>
+ * file      := MAGIC VERSION shape
+ * shape     := SHAPE_GROUP id flags transform units clip filterChain childCount shape*
+ *            | SHAPE_STYLED id flags transform geometry stroke paint paint clip
+ * geometry  := GEOMETRY_NONE | GEOMETRY_RECT 4*double | GEOMETRY_ROUND_RECT 6*double
+ *            | GEOMETRY_ELLIPSE 4*double | GEOMETRY_LINE 4*double
+ *            | (GEOMETRY_PATH_DOUBLE | GEOMETRY_PATH_FLOAT) windingRule segmentCount segmentTypes coordinateCount coordinates
+ * </pre>
+ * All numbers are big-endian. Coordinate arrays are written as raw blocks.
+ * The coordinate count has to match the segment types.<br>
+ * Paths are read back as {@link java.awt.geom.Path2D}, a {@link com.bw.jtools.shape.CompactPath} is written
+ * as GEOMETRY_PATH_FLOAT and read back as {@link java.awt.geom.Path2D.Float}.
+ */
+final class BinaryShapeFormat
+{
+	static final int MAGIC = 0x4A535647; // "JSVG"
+
+	/**
+	 * Current version. Readers accept all versions up to this one.
+	 */
+	static final short VERSION = 1;
+
+	static final byte SHAPE_NONE = 0;
+	static final byte SHAPE_GROUP = 1;
+	static final byte SHAPE_STYLED = 2;
+
+	static final byte GEOMETRY_NONE = 0;
+	static final byte GEOMETRY_PATH_DOUBLE = 1;
+	static final byte GEOMETRY_PATH_FLOAT = 2;
+	static final byte GEOMETRY_RECT = 3;
+	static final byte GEOMETRY_ROUND_RECT = 4;
+	static final byte GEOMETRY_ELLIPSE = 5;
+	static final byte GEOMETRY_LINE = 6;
+
+	static final byte TRANSFORM_NONE = 0;
+	static final byte TRANSFORM_IDENTITY = 1;
+	static final byte TRANSFORM_MATRIX = 2;
+
+	static final byte STROKE_NONE = 0;
+	static final byte STROKE_BASIC = 1;
+
+	static final byte PAINT_NONE = 0;
+	static final byte PAINT_COLOR = 1;
+	static final byte PAINT_CURRENT_COLOR = 2;
+	static final byte PAINT_CURRENT_BACKGROUND = 3;
+	static final byte PAINT_INHERIT = 4;
+	static final byte PAINT_TRANSPARENT = 5;
+	static final byte PAINT_LINEAR_GRADIENT = 6;
+	static final byte PAINT_RADIAL_GRADIENT = 7;
+
+	static final byte FILTER_GAUSSIAN_BLUR = 1;
+	static final byte FILTER_OFFSET = 2;
+	static final byte FILTER_MERGE = 3;
+	static final byte FILTER_NOP = 4;
+
+	/**
+	 * Flag: Clipping is enabled.
+	 */
+	static final byte FLAG_CLIPPING_ENABLED = 1;
+
+	private BinaryShapeFormat()
+	{
+	}
+}
@@ -0,0 +1,433 @@
+package com.bw.jtools.shape.io;
+
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.StyledShape;
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.Merge;
+import com.bw.jtools.shape.filter.Nop;
+import com.bw.jtools.shape.filter.Offset;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.bw.jtools.shape.io.BinaryShapeFormat.*;
+
+/**
+ * Reads shape trees written by {@link ShapeWriter}.
+ */
+public final class ShapeReader
+{
+	/**
+	 * Maximal number of elements that are allocated before they are read.
+	 * Arrays for larger counts grow while reading, so a corrupt count fails at the end of the data
+	 * instead of allocating the memory for the count.
+	 */
+	private static final int CHUNK = 4096;
+
+	private final DataInputStream in_;
+
+	private byte[] buffer_ = new byte[1024];
+
+	/**
+	 * Creates a reader.
+	 *
+	 * @param in The stream to read from. Will not be closed.
+	 */
+	public ShapeReader(InputStream in)
+	{
+		in_ = new DataInputStream(in);
+	}
+
+	/**
+	 * Convenience method to read a shape tree from a byte array.
+	 */
+	public static AbstractShape fromBytes(byte[] data) throws IOException
+	{
+		return new ShapeReader(new ByteArrayInputStream(data)).read();
+	}
+
+	/**
+	 * Reads header and the shape tree.
+	 *
+	 * @return The root shape. Can be null if null was written.
+	 * @throws IOException On read errors, unknown versions or corrupt data.
+	 */
+	public AbstractShape read() throws IOException
+	{
+		if (in_.readInt() != MAGIC)
+			throw new IOException("Not a binary shape file");
+		final short version = in_.readShort();
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported binary shape version " + version);
+		return readShape();
+	}
+
+	private AbstractShape readShape() throws IOException
+	{
+		final byte type = in_.readByte();
+		switch (type)
+		{
+			case SHAPE_NONE:
+				return null;
+			case SHAPE_GROUP:
+			{
+				String id = readString();
+				byte flags = in_.readByte();
+				AffineTransform aft = readTransform();
+				Point2D.Double units = readPoint();
+				Shape clip = readGeometry();
+				FilterChain filter = readFilterChain();
+
+				ShapeGroup g = new ShapeGroup(id, filter, clip, aft);
+				g.units_ = units;
+				g.setClippingEnabled((flags & FLAG_CLIPPING_ENABLED) != 0);
+				final int n = readCount();
+				for (int i = 0; i < n; ++i)
+					g.shapes_.add(readShape());
+				return g;
+			}
+			case SHAPE_STYLED:
+			{
+				String id = readString();
+				byte flags = in_.readByte();
+				AffineTransform aft = readTransform();
+				Shape shape = readGeometry();
+				Stroke stroke = readStroke();
+				Paint paint = readPaint();
+				Paint fill = readPaint();
+				Shape clip = readGeometry();
+
+				StyledShape s = new StyledShape(id, shape, stroke, paint, fill, clip, aft);
+				s.setClippingEnabled((flags & FLAG_CLIPPING_ENABLED) != 0);
+				return s;
+			}
+			default:
+				throw new IOException("Unknown shape type " + type);
+		}
+	}
+
+	private int readCount() throws IOException
+	{
+		final int n = in_.readInt();
+		if (n < 0)
+			throw new IOException("Corrupt data, negative count " + n);
+		return n;
+	}
+
+	/**
+	 * Gets the new capacity of a growing array.
+	 *
+	 * @param length Current length.
+	 * @param n      The final length.
+	 */
+	private static int grow(int length, int n)
+	{
+		return (int) Math.min(n, Math.max(CHUNK, 2L * length));
+	}
+
+	/**
+	 * Reads bytes into an array that grows while reading.
+	 *
+	 * @param buffer Array to use if large enough.
+	 * @param n      Number of bytes to read.
+	 * @return The buffer or a larger array.
+	 */
+	private byte[] readBytes(byte[] buffer, int n) throws IOException
+	{
+		int read = 0;
+		while (read < n)
+		{
+			if (read == buffer.length)
+				buffer = Arrays.copyOf(buffer, grow(read, n));
+			final int len = Math.min(buffer.length, n) - read;
+			in_.readFully(buffer, read, len);
+			read += len;
+		}
+		return buffer;
+	}
+
+	private String readString() throws IOException
+	{
+		return in_.readBoolean() ? in_.readUTF() : null;
+	}
+
+	private Point2D.Double readPoint() throws IOException
+	{
+		if (in_.readBoolean())
+		{
+			double x = in_.readDouble();
+			return new Point2D.Double(x, in_.readDouble());
+		}
+		return null;
+	}
+
+	private AffineTransform readTransform() throws IOException
+	{
+		final byte type = in_.readByte();
+		switch (type)
+		{
+			case TRANSFORM_NONE:
+				return null;
+			case TRANSFORM_IDENTITY:
+				return new AffineTransform();
+			case TRANSFORM_MATRIX:
+				double[] m = new double[6];
+				for (int i = 0; i < 6; ++i)
+					m[i] = in_.readDouble();
+				return new AffineTransform(m);
+			default:
+				throw new IOException("Unknown transform type " + type);
+		}
+	}
+
+	private Shape readGeometry() throws IOException
+	{
+		final byte type = in_.readByte();
+		switch (type)
+		{
+			case GEOMETRY_NONE:
+				return null;
+			case GEOMETRY_RECT:
+				return new Rectangle2D.Double(in_.readDouble(), in_.readDouble(), in_.readDouble(), in_.readDouble());
+			case GEOMETRY_ROUND_RECT:
+				return new RoundRectangle2D.Double(in_.readDouble(), in_.readDouble(), in_.readDouble(), in_.readDouble(),
+						in_.readDouble(), in_.readDouble());
+			case GEOMETRY_ELLIPSE:
+				return new Ellipse2D.Double(in_.readDouble(), in_.readDouble(), in_.readDouble(), in_.readDouble());
+			case GEOMETRY_LINE:
+				return new Line2D.Double(in_.readDouble(), in_.readDouble(), in_.readDouble(), in_.readDouble());
+			case GEOMETRY_PATH_DOUBLE:
+			case GEOMETRY_PATH_FLOAT:
+				return readPath(type == GEOMETRY_PATH_FLOAT);
+			default:
+				throw new IOException("Unknown geometry type " + type);
+		}
+	}
+
+	private Shape readPath(boolean isFloat) throws IOException
+	{
+		final int windingRule = in_.readByte();
+		final int segments = readCount();
+		final byte[] types = readBytes(new byte[Math.min(segments, CHUNK)], segments);
+
+		long expected = 0;
+		for (int i = 0; i < segments; ++i)
+			expected += ShapeWriter.coordinateCount(types[i]);
+		final int coords = readCount();
+		if (coords != expected || coords > Integer.MAX_VALUE / 8)
+			throw new IOException("Corrupt data, " + coords + " coordinates for " + expected);
+		final int bytes = coords * (isFloat ? 4 : 8);
+		buffer_ = readBytes(buffer_, bytes);
+		ByteBuffer bb = ByteBuffer.wrap(buffer_, 0, bytes);
+
+		Path2D path = isFloat ? new Path2D.Float(windingRule, segments) : new Path2D.Double(windingRule, segments);
+		final double[] c = new double[6];
+		for (int i = 0; i < segments; ++i)
+		{
+			final int n = ShapeWriter.coordinateCount(types[i]);
+			for (int k = 0; k < n; ++k)
+				c[k] = isFloat ? bb.getFloat() : bb.getDouble();
+			switch (types[i])
+			{
+				case PathIterator.SEG_MOVETO:
+					path.moveTo(c[0], c[1]);
+					break;
+				case PathIterator.SEG_LINETO:
+					path.lineTo(c[0], c[1]);
+					break;
+				case PathIterator.SEG_QUADTO:
+					path.quadTo(c[0], c[1], c[2], c[3]);
+					break;
+				case PathIterator.SEG_CUBICTO:
+					path.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+					break;
+				case PathIterator.SEG_CLOSE:
+					path.closePath();
+					break;
+			}
+		}
+		return path;
+	}
+
+	private Stroke readStroke() throws IOException
+	{
+		final byte type = in_.readByte();
+		switch (type)
+		{
+			case STROKE_NONE:
+				return null;
+			case STROKE_BASIC:
+			{
+				float width = in_.readFloat();
+				int cap = in_.readByte();
+				int join = in_.readByte();
+				float miterLimit = in_.readFloat();
+				int dashLength = in_.readInt();
+				float[] dash = null;
+				if (dashLength >= 0)
+				{
+					dash = new float[Math.min(dashLength, CHUNK)];
+					for (int i = 0; i < dashLength; ++i)
+					{
+						if (i == dash.length)
+							dash = Arrays.copyOf(dash, grow(i, dashLength));
+						dash[i] = in_.readFloat();
+					}
+				}
+				return new BasicStroke(width, cap, join, miterLimit, dash, in_.readFloat());
+			}
+			default:
+				throw new IOException("Unknown stroke type " + type);
+		}
+	}
+
+	private Paint readPaint() throws IOException
+	{
+		final byte type = in_.readByte();
+		switch (type)
+		{
+			case PAINT_NONE:
+				return null;
+			case PAINT_CURRENT_COLOR:
+				return Context.CURRENT_COLOR;
+			case PAINT_CURRENT_BACKGROUND:
+				return Context.CURRENT_BACKGROUND;
+			case PAINT_INHERIT:
+				return Context.INHERIT;
+			case PAINT_TRANSPARENT:
+				return Context.NONE;
+			case PAINT_COLOR:
+				return new Color(in_.readInt(), true);
+			case PAINT_LINEAR_GRADIENT:
+			{
+				Point2D start = readPoint();
+				Point2D end = readPoint();
+				GradientData gd = readGradient();
+				return new LinearGradientPaint(start, end, gd.fractions_, gd.colors_, gd.cycleMethod_, gd.colorSpace_, gd.aft_);
+			}
+			case PAINT_RADIAL_GRADIENT:
+			{
+				Point2D center = readPoint();
+				float radius = in_.readFloat();
+				Point2D focus = readPoint();
+				GradientData gd = readGradient();
+				return new RadialGradientPaint(center, radius, focus, gd.fractions_, gd.colors_, gd.cycleMethod_, gd.colorSpace_, gd.aft_);
+			}
+			default:
+				throw new IOException("Unknown paint type " + type);
+		}
+	}
+
+	private static final class GradientData
+	{
+		float[] fractions_;
+		Color[] colors_;
+		MultipleGradientPaint.CycleMethod cycleMethod_;
+		MultipleGradientPaint.ColorSpaceType colorSpace_;
+		AffineTransform aft_;
+	}
+
+	private GradientData readGradient() throws IOException
+	{
+		GradientData gd = new GradientData();
+		final int n = readCount();
+		gd.fractions_ = new float[Math.min(n, CHUNK)];
+		gd.colors_ = new Color[gd.fractions_.length];
+		for (int i = 0; i < n; ++i)
+		{
+			if (i == gd.fractions_.length)
+			{
+				gd.fractions_ = Arrays.copyOf(gd.fractions_, grow(i, n));
+				gd.colors_ = Arrays.copyOf(gd.colors_, gd.fractions_.length);
+			}
+			gd.fractions_[i] = in_.readFloat();
+			gd.colors_[i] = new Color(in_.readInt(), true);
+		}
+		gd.cycleMethod_ = readEnum(MultipleGradientPaint.CycleMethod.values());
+		gd.colorSpace_ = readEnum(MultipleGradientPaint.ColorSpaceType.values());
+		gd.aft_ = readTransform();
+		if (gd.aft_ == null)
+			gd.aft_ = new AffineTransform();
+		return gd;
+	}
+
+	private <T> T readEnum(T[] values) throws IOException
+	{
+		final int ordinal = in_.readByte();
+		if (ordinal < 0 || ordinal >= values.length)
+			throw new IOException("Corrupt data, illegal value " + ordinal);
+		return values[ordinal];
+	}
+
+	private FilterChain readFilterChain() throws IOException
+	{
+		final int n = in_.readInt();
+		if (n < 0)
+			return null;
+		List<FilterBase> filters = new ArrayList<>(Math.min(n, CHUNK));
+		for (int i = 0; i < n; ++i)
+			filters.add(readFilter());
+		return new FilterChain(filters);
+	}
+
+	private FilterBase readFilter() throws IOException
+	{
+		final byte type = in_.readByte();
+		final String target = readString();
+		final int sourceCount = readCount();
+		String[] sources = new String[Math.min(sourceCount, CHUNK)];
+		for (int i = 0; i < sourceCount; ++i)
+		{
+			if (i == sources.length)
+				sources = Arrays.copyOf(sources, grow(i, sourceCount));
+			sources[i] = readString();
+		}
+		final String source = sourceCount > 0 ? sources[0] : null;
+
+		switch (type)
+		{
+			case FILTER_GAUSSIAN_BLUR:
+			{
+				double stdDeviationX = in_.readDouble();
+				return new GaussianBlur(source, target, stdDeviationX, in_.readDouble());
+			}
+			case FILTER_OFFSET:
+			{
+				double dx = in_.readDouble();
+				return new Offset(source, target, dx, in_.readDouble());
+			}
+			case FILTER_MERGE:
+				return new Merge(target, sources);
+			case FILTER_NOP:
+				return new Nop(source, target);
+			default:
+				throw new IOException("Unknown filter type " + type);
+		}
+	}
+}
@@ -0,0 +1,410 @@
+package com.bw.jtools.shape.io;
+
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.CompactPath;
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.StyledShape;
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.Merge;
+import com.bw.jtools.shape.filter.Nop;
+import com.bw.jtools.shape.filter.Offset;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.bw.jtools.shape.io.BinaryShapeFormat.*;
+
+/**
+ * Writes shape trees in a compact binary format that can be loaded by {@link ShapeReader}
+ * without any svg parsing.<br>
+ * Supported are {@link ShapeGroup} and {@link StyledShape} with the filters
+ * {@link GaussianBlur}, {@link Offset}, {@link Merge} and {@link Nop},
+ * {@link BasicStroke}, colors and linear or radial gradients.
+ */
+public final class ShapeWriter
+{
+	private final DataOutputStream out_;
+
+	private byte[] segmentTypes_ = new byte[64];
+	private double[] coordinates_ = new double[384];
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param out The stream to write to. Will not be closed.
+	 */
+	public ShapeWriter(OutputStream out)
+	{
+		out_ = new DataOutputStream(out);
+	}
+
+	/**
+	 * Convenience method to write a shape tree to a byte array.
+	 */
+	public static byte[] toBytes(AbstractShape shape) throws IOException
+	{
+		ByteArrayOutputStream os = new ByteArrayOutputStream(4096);
+		new ShapeWriter(os).write(shape);
+		return os.toByteArray();
+	}
+
+	/**
+	 * Writes header and the shape tree.
+	 *
+	 * @param shape The root shape. Can be null.
+	 * @throws IOException On write errors or if the tree contains unsupported elements.
+	 */
+	public void write(AbstractShape shape) throws IOException
+	{
+		out_.writeInt(MAGIC);
+		out_.writeShort(VERSION);
+		writeShape(shape);
+		out_.flush();
+	}
+
+	private void writeShape(AbstractShape shape) throws IOException
+	{
+		if (shape == null)
+			out_.writeByte(SHAPE_NONE);
+		else if (shape instanceof ShapeGroup)
+		{
+			ShapeGroup g = (ShapeGroup) shape;
+			out_.writeByte(SHAPE_GROUP);
+			writeCommon(g);
+			writePoint(g.units_);
+			writeGeometry(g.getClipping());
+			writeFilterChain(g.filter_);
+			out_.writeInt(g.shapes_.size());
+			for (AbstractShape s : g.shapes_)
+				writeShape(s);
+		}
+		else if (shape instanceof StyledShape)
+		{
+			StyledShape s = (StyledShape) shape;
+			out_.writeByte(SHAPE_STYLED);
+			writeCommon(s);
+			writeGeometry(s.shape_);
+			writeStroke(s.stroke_);
+			writePaint(s.paint_);
+			writePaint(s.fill_);
+			writeGeometry(s.clipping_);
+		}
+		else
+			throw new IOException("Unsupported shape type " + shape.getClass()
+																   .getName());
+	}
+
+	private void writeCommon(AbstractShape shape) throws IOException
+	{
+		writeString(shape.id_);
+		out_.writeByte(shape.isClippingEnabled() ? FLAG_CLIPPING_ENABLED : 0);
+		writeTransform(shape.aft_);
+	}
+
+	private void writeString(String s) throws IOException
+	{
+		out_.writeBoolean(s != null);
+		if (s != null)
+			out_.writeUTF(s);
+	}
+
+	private void writePoint(Point2D p) throws IOException
+	{
+		out_.writeBoolean(p != null);
+		if (p != null)
+		{
+			out_.writeDouble(p.getX());
+			out_.writeDouble(p.getY());
+		}
+	}
+
+	private void writeTransform(AffineTransform aft) throws IOException
+	{
+		if (aft == null)
+			out_.writeByte(TRANSFORM_NONE);
+		else if (aft.isIdentity())
+			out_.writeByte(TRANSFORM_IDENTITY);
+		else
+		{
+			out_.writeByte(TRANSFORM_MATRIX);
+			out_.writeDouble(aft.getScaleX());
+			out_.writeDouble(aft.getShearY());
+			out_.writeDouble(aft.getShearX());
+			out_.writeDouble(aft.getScaleY());
+			out_.writeDouble(aft.getTranslateX());
+			out_.writeDouble(aft.getTranslateY());
+		}
+	}
+
+	private void writeGeometry(Shape shape) throws IOException
+	{
+		if (shape == null)
+			out_.writeByte(GEOMETRY_NONE);
+		else if (shape instanceof Rectangle2D)
+		{
+			Rectangle2D r = (Rectangle2D) shape;
+			out_.writeByte(GEOMETRY_RECT);
+			out_.writeDouble(r.getX());
+			out_.writeDouble(r.getY());
+			out_.writeDouble(r.getWidth());
+			out_.writeDouble(r.getHeight());
+		}
+		else if (shape instanceof RoundRectangle2D)
+		{
+			RoundRectangle2D r = (RoundRectangle2D) shape;
+			out_.writeByte(GEOMETRY_ROUND_RECT);
+			out_.writeDouble(r.getX());
+			out_.writeDouble(r.getY());
+			out_.writeDouble(r.getWidth());
+			out_.writeDouble(r.getHeight());
+			out_.writeDouble(r.getArcWidth());
+			out_.writeDouble(r.getArcHeight());
+		}
+		else if (shape instanceof Ellipse2D)
+		{
+			Ellipse2D e = (Ellipse2D) shape;
+			out_.writeByte(GEOMETRY_ELLIPSE);
+			out_.writeDouble(e.getX());
+			out_.writeDouble(e.getY());
+			out_.writeDouble(e.getWidth());
+			out_.writeDouble(e.getHeight());
+		}
+		else if (shape instanceof Line2D)
+		{
+			Line2D l = (Line2D) shape;
+			out_.writeByte(GEOMETRY_LINE);
+			out_.writeDouble(l.getX1());
+			out_.writeDouble(l.getY1());
+			out_.writeDouble(l.getX2());
+			out_.writeDouble(l.getY2());
+		}
+		else
+			writePath(shape);
+	}
+
+	/**
+	 * Writes any other shape as raw path.
+	 */
+	private void writePath(Shape shape) throws IOException
+	{
+		final boolean isFloat = shape instanceof Path2D.Float || shape instanceof CompactPath;
+		PathIterator pi = shape.getPathIterator(null);
+		final double[] seg = new double[6];
+		int segments = 0;
+		int coords = 0;
+		while (!pi.isDone())
+		{
+			final int type = pi.currentSegment(seg);
+			final int n = coordinateCount(type);
+			if (segments == segmentTypes_.length)
+				segmentTypes_ = Arrays.copyOf(segmentTypes_, segments * 2);
+			if (coords + n > coordinates_.length)
+				coordinates_ = Arrays.copyOf(coordinates_, Math.max(coords + n, coordinates_.length * 2));
+			segmentTypes_[segments++] = (byte) type;
+			System.arraycopy(seg, 0, coordinates_, coords, n);
+			coords += n;
+			pi.next();
+		}
+		out_.writeByte(isFloat ? GEOMETRY_PATH_FLOAT : GEOMETRY_PATH_DOUBLE);
+		out_.writeByte(pi.getWindingRule());
+		out_.writeInt(segments);
+		out_.write(segmentTypes_, 0, segments);
+		out_.writeInt(coords);
+		ByteBuffer bb;
+		if (isFloat)
+		{
+			bb = ByteBuffer.allocate(coords * 4);
+			for (int i = 0; i < coords; ++i)
+				bb.putFloat((float) coordinates_[i]);
+		}
+		else
+		{
+			bb = ByteBuffer.allocate(coords * 8);
+			bb.asDoubleBuffer()
+			  .put(coordinates_, 0, coords);
+		}
+		out_.write(bb.array());
+	}
+
+	static int coordinateCount(int segmentType) throws IOException
+	{
+		switch (segmentType)
+		{
+			case PathIterator.SEG_MOVETO:
+			case PathIterator.SEG_LINETO:
+				return 2;
+			case PathIterator.SEG_QUADTO:
+				return 4;
+			case PathIterator.SEG_CUBICTO:
+				return 6;
+			case PathIterator.SEG_CLOSE:
+				return 0;
+			default:
+				throw new IOException("Unknown segment type " + segmentType);
+		}
+	}
+
+	private void writeStroke(Stroke stroke) throws IOException
+	{
+		if (stroke == null)
+			out_.writeByte(STROKE_NONE);
+		else if (stroke instanceof BasicStroke)
+		{
+			BasicStroke bs = (BasicStroke) stroke;
+			out_.writeByte(STROKE_BASIC);
+			out_.writeFloat(bs.getLineWidth());
+			out_.writeByte(bs.getEndCap());
+			out_.writeByte(bs.getLineJoin());
+			out_.writeFloat(bs.getMiterLimit());
+			float[] dash = bs.getDashArray();
+			if (dash == null)
+				out_.writeInt(-1);
+			else
+			{
+				out_.writeInt(dash.length);
+				for (float d : dash)
+					out_.writeFloat(d);
+			}
+			out_.writeFloat(bs.getDashPhase());
+		}
+		else
+			throw new IOException("Unsupported stroke type " + stroke.getClass()
+																	 .getName());
+	}
+
+	private void writePaint(Paint paint) throws IOException
+	{
+		// Placeholders are identified by instance, not by value.
+		if (paint == null)
+			out_.writeByte(PAINT_NONE);
+		else if (paint == Context.CURRENT_COLOR)
+			out_.writeByte(PAINT_CURRENT_COLOR);
+		else if (paint == Context.CURRENT_BACKGROUND)
+			out_.writeByte(PAINT_CURRENT_BACKGROUND);
+		else if (paint == Context.INHERIT)
+			out_.writeByte(PAINT_INHERIT);
+		else if (paint == Context.NONE)
+			out_.writeByte(PAINT_TRANSPARENT);
+		else if (paint instanceof Color)
+		{
+			out_.writeByte(PAINT_COLOR);
+			out_.writeInt(((Color) paint).getRGB());
+		}
+		else if (paint instanceof LinearGradientPaint)
+		{
+			LinearGradientPaint lp = (LinearGradientPaint) paint;
+			out_.writeByte(PAINT_LINEAR_GRADIENT);
+			writePoint(lp.getStartPoint());
+			writePoint(lp.getEndPoint());
+			writeGradient(lp);
+		}
+		else if (paint instanceof RadialGradientPaint)
+		{
+			RadialGradientPaint rp = (RadialGradientPaint) paint;
+			out_.writeByte(PAINT_RADIAL_GRADIENT);
+			writePoint(rp.getCenterPoint());
+			out_.writeFloat(rp.getRadius());
+			writePoint(rp.getFocusPoint());
+			writeGradient(rp);
+		}
+		else
+			throw new IOException("Unsupported paint type " + paint.getClass()
+																   .getName());
+	}
+
+	private void writeGradient(MultipleGradientPaint gp) throws IOException
+	{
+		float[] fractions = gp.getFractions();
+		Color[] colors = gp.getColors();
+		out_.writeInt(fractions.length);
+		for (int i = 0; i < fractions.length; ++i)
+		{
+			out_.writeFloat(fractions[i]);
+			out_.writeInt(colors[i].getRGB());
+		}
+		out_.writeByte(gp.getCycleMethod()
+						 .ordinal());
+		out_.writeByte(gp.getColorSpace()
+						 .ordinal());
+		writeTransform(gp.getTransform());
+	}
+
+	private void writeFilterChain(FilterChain chain) throws IOException
+	{
+		if (chain == null)
+			out_.writeInt(-1);
+		else
+		{
+			List<FilterBase> filters = chain.getFilters();
+			out_.writeInt(filters.size());
+			for (FilterBase f : filters)
+				writeFilter(f);
+		}
+	}
+
+	private void writeFilter(FilterBase f) throws IOException
+	{
+		if (f instanceof GaussianBlur)
+		{
+			GaussianBlur gb = (GaussianBlur) f;
+			out_.writeByte(FILTER_GAUSSIAN_BLUR);
+			writeFilterBuffers(f);
+			out_.writeDouble(gb.getStdDeviationX());
+			out_.writeDouble(gb.getStdDeviationY());
+		}
+		else if (f instanceof Offset)
+		{
+			Offset o = (Offset) f;
+			out_.writeByte(FILTER_OFFSET);
+			writeFilterBuffers(f);
+			out_.writeDouble(o.dx_);
+			out_.writeDouble(o.dy_);
+		}
+		else if (f instanceof Merge)
+		{
+			out_.writeByte(FILTER_MERGE);
+			writeFilterBuffers(f);
+		}
+		else if (f instanceof Nop)
+		{
+			out_.writeByte(FILTER_NOP);
+			writeFilterBuffers(f);
+		}
+		else
+			throw new IOException("Unsupported filter type " + f.getClass()
+																.getName());
+	}
+
+	private void writeFilterBuffers(FilterBase f) throws IOException
+	{
+		writeString(f.getTarget());
+		List<String> sources = f.getSources();
+		out_.writeInt(sources.size());
+		for (String s : sources)
+			writeString(s);
+	}
+}
@@ -104,6 +104,21 @@ public enum Attribute
 			attributes_.put(t.xmlName(), t);
 	}
 
+	// Open addressing table for look-ups without substrings, see valueFrom(CharSequence,int,int).
+	private final static int TABLE_MASK = 255;
+	private final static Attribute[] table_ = new Attribute[TABLE_MASK + 1];
+
+	static
+	{
+		for (Attribute t : values())
+		{
+			int i = t.xmlName_.hashCode() & TABLE_MASK;
+			while (table_[i] != null)
+				i = (i + 1) & TABLE_MASK;
+			table_[i] = t;
+		}
+	}
+
 	private final String xmlName_;
 
 	Attribute(String xmlName)
@@ -116,6 +131,35 @@ public enum Attribute
 		return attributes_.get(attributeName);
 	}
 
+	/**
+	 * Same as {@link #valueFrom(String)} for a range of characters, without creating a string.
+	 *
+	 * @param chars The characters.
+	 * @param start Start of the name, inclusive.
+	 * @param end   End of the name, exclusive.
+	 */
+	public static Attribute valueFrom(CharSequence chars, int start, int end)
+	{
+		int h = 0;
+		for (int k = start; k < end; ++k)
+			h = 31 * h + chars.charAt(k);
+		final int len = end - start;
+		for (int i = h & TABLE_MASK; ; i = (i + 1) & TABLE_MASK)
+		{
+			Attribute t = table_[i];
+			if (t == null)
+				return null;
+			if (t.xmlName_.length() == len && t.xmlName_.hashCode() == h)
+			{
+				int k = 0;
+				while (k < len && t.xmlName_.charAt(k) == chars.charAt(start + k))
+					++k;
+				if (k == len)
+					return t;
+			}
+		}
+	}
+
 	public String xmlName()
 	{
 		return xmlName_;
@@ -0,0 +1,47 @@
+package com.bw.jtools.svg;
+
+import com.bw.jtools.shape.AbstractShape;
+
+/**
+ * Result of one document of a batch conversion, see {@link SVGConverterEngine#convertAll(java.util.Collection, java.util.concurrent.Executor)}.
+ *
+ * @param <S> The type of the sources.
+ */
+public final class ConversionResult<S>
+{
+	/**
+	 * The source of the document.
+	 */
+	public final S source_;
+
+	/**
+	 * The converted shapes. Null on errors.
+	 */
+	public final AbstractShape shape_;
+
+	/**
+	 * The error or null if the conversion succeeded.
+	 */
+	public final SVGException error_;
+
+	ConversionResult(S source, AbstractShape shape, SVGException error)
+	{
+		source_ = source;
+		shape_ = shape;
+		error_ = error;
+	}
+
+	/**
+	 * Returns true if the conversion succeeded.
+	 */
+	public boolean isOk()
+	{
+		return error_ == null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return source_ + (error_ == null ? ": ok" : ": " + error_.getMessage());
+	}
+}
@@ -3,38 +3,58 @@ package com.bw.jtools.svg;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Stack;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+/**
+ * Cache of element wrappers for one document.<br>
+ * Wrappers are kept by node identity, elements with a real id are also indexed by id.
+ * The document is not modified, except that duplicate ids are removed.
+ */
 public class ElementCache
 {
+	private final IdentityHashMap<Node, ElementWrapper> wrapperByNode_ = new IdentityHashMap<>();
 	private final HashMap<String, ElementWrapper> wrapperById_ = new HashMap<>();
-	private static AtomicLong idGenerator_ = new AtomicLong(9999);
 	private final HashMap<String, Marker> markerById_ = new HashMap<>();
 
 	private final boolean namespaceAware_;
 
-
-	private String generateId()
+	public ElementCache(boolean namespaceAware)
 	{
-		return "_#" + idGenerator_.incrementAndGet() + "Generated__";
+		namespaceAware_ = namespaceAware;
 	}
 
-	public ElementCache(boolean namespaceAware)
+	public void scanForIds(Node root)
 	{
-		namespaceAware_ = namespaceAware;
+		scanForIds(root, null);
 	}
 
-	public static boolean isGenerated(String id)
+	/**
+	 * Collects the ids and the style sheets in one walk.
+	 *
+	 * @return The content of all "style" elements in document order.
+	 */
+	public List<String> scanForIdsAndStyles(Node root)
 	{
-		return id != null && id.startsWith("_#") && id.endsWith("Generated__");
+		List<Element> styleElements = new ArrayList<>();
+		scanForIds(root, styleElements);
+		// The walk visits siblings backwards. Style elements don't contain each other,
+		// so the reversed order is the document order.
+		Collections.reverse(styleElements);
+		List<String> styles = new ArrayList<>(styleElements.size());
+		for (Element e : styleElements)
+			styles.add(e.getTextContent());
+		return styles;
 	}
 
-	public void scanForIds(Node root)
+	private void scanForIds(Node root, List<Element> styleElements)
 	{
 		Stack<Node> todos = new Stack<>();
 		todos.push(root);
@@ -43,18 +63,21 @@ public class ElementCache
 			Node next = todos.pop();
 			if (next.getNodeType() == Node.ELEMENT_NODE)
 			{
+				if (styleElements != null && SvgTagType.style.name()
+															 .equals(((Element) next).getTagName()))
+					styleElements.add((Element) next);
 				String id = ((Element) next).getAttribute("id");
 				if (ElementWrapper.isNotEmpty(id))
 				{
 					if (wrapperById_.containsKey(id))
 					{
 						// Duplicate ids are no hard error, as svg seems to allow it.
-						// As we handle the element-wrapper via id, we need to remove the id.
+						// The id is removed, so that only the registered element is referenced.
 						SVGConverter.warn("SVG: Duplicate %s", id);
 						((Element) next).removeAttribute("id");
 					}
 					else
-						wrapperById_.put(id, new ElementWrapper(this, (Element) next, false));
+						wrapperById_.put(id, getElementWrapper(next));
 				}
 			}
 			Node c = next.getFirstChild();
@@ -66,21 +89,22 @@ public class ElementCache
 		}
 	}
 
+	/**
+	 * Gets the wrapper of an element, the wrapper is created on first access.
+	 *
+	 * @return The wrapper or null if the node is no element.
+	 */
 	public ElementWrapper getElementWrapper(Node node)
 	{
 		if (node instanceof Element)
 		{
-			Element element = (Element) node;
-			String id = element.getAttribute("id");
-			if (ElementWrapper.isNotEmpty(id))
-				return wrapperById_.get(id);
-			else
+			ElementWrapper ew = wrapperByNode_.get(node);
+			if (ew == null)
 			{
-				element.setAttribute("id", id = generateId());
-				ElementWrapper ew = new ElementWrapper(this, element, false);
-				wrapperById_.put(id, ew);
-				return ew;
+				ew = new ElementWrapper(this, (Element) node, false);
+				wrapperByNode_.put(node, ew);
 			}
+			return ew;
 		}
 		else
 			return null;
@@ -119,6 +143,30 @@ public class ElementCache
 		}
 	}
 
+	/**
+	 * Computes the cascade of all elements in the sub-tree, parents before children.
+	 * See {@link ElementWrapper#computeCascade()}.
+	 */
+	public void computeCascade(Node root)
+	{
+		Stack<Node> todos = new Stack<>();
+		todos.push(root);
+		while (!todos.empty())
+		{
+			Node next = todos.pop();
+			if (next.getNodeType() == Node.ELEMENT_NODE)
+			{
+				getElementWrapper(next).computeCascade();
+				Node c = next.getLastChild();
+				while (c != null)
+				{
+					todos.push(c);
+					c = c.getPreviousSibling();
+				}
+			}
+		}
+	}
+
 	public Marker getMarkerById(String id)
 	{
 		return markerById_.get(id);
@@ -11,6 +11,10 @@ public abstract class ElementInfo
 	 * Id to identify the shape in the some document.
 	 */
 	public String id_;
+	/**
+	 * Wrapper of the source element. Can be null.
+	 */
+	public ElementWrapper wrapper_;
 	public AffineTransform aft_;
 
 
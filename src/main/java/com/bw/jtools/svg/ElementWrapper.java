@@ -21,7 +21,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
@@ -72,6 +71,16 @@ public final class ElementWrapper
 	private Double opacity_;
 	private Double effectiveOpacity_;
 
+	/**
+	 * Values of the cascade, indexed by {@link Attribute#ordinal()}. See {@link #computeCascade()}.<br>
+	 * local_ contains the values specified by this element (style or attribute), null if there are none.
+	 * computed_ contains the local or inherited values. Shared with the parent if there are no local values.
+	 */
+	private String[] local_;
+	private String[] computed_;
+
+	private static final Attribute[] ATTRIBUTES = Attribute.values();
+
 	private static final double SQRT2 = Math.sqrt(2d);
 
 	private static final Pattern unitRegExp_ = Pattern.compile("(\\s*[+-]?[\\d\\.]+(?:e[+-]?\\d+)?)\\s*(rem|pt|px|em|%|in|cm|mm|m|ex|pc)", Pattern.CASE_INSENSITIVE);
@@ -238,13 +247,27 @@ public final class ElementWrapper
 	{
 		if (classes_ == null)
 		{
-			classes_ = new HashSet<>();
 			String clazz = attr(Attribute.Class, false);
-			if (clazz != null)
+			if (isEmpty(clazz))
+				classes_ = Collections.emptySet();
+			else
 			{
-				Scanner s = new Scanner(clazz);
-				while (s.hasNext())
-					classes_.add(s.next());
+				classes_ = new HashSet<>();
+				final int n = clazz.length();
+				int start = -1;
+				for (int i = 0; i <= n; ++i)
+				{
+					if (i == n || Character.isWhitespace(clazz.charAt(i)))
+					{
+						if (start >= 0)
+						{
+							classes_.add(clazz.substring(start, i));
+							start = -1;
+						}
+					}
+					else if (start < 0)
+						start = i;
+				}
 			}
 		}
 		return classes_;
@@ -716,7 +739,30 @@ public final class ElementWrapper
 	}
 
 
-	private static Map<String, String> systemFontFamilies_;
+	/**
+	 * Lower-case index of all system font families.
+	 * Created once on first use and shared read-only by all documents and threads.
+	 */
+	private static final class SystemFontFamilies
+	{
+		static final Map<String, String> families_ = create();
+
+		private static Map<String, String> create()
+		{
+			Map<String, String> families = new HashMap<>();
+			try
+			{
+				String sysfams[] = GraphicsEnvironment.getLocalGraphicsEnvironment()
+													  .getAvailableFontFamilyNames();
+				for (String sysFam : sysfams)
+					families.put(sysFam.toLowerCase(), sysFam);
+			}
+			catch (Exception e)
+			{
+			}
+			return Collections.unmodifiableMap(families);
+		}
+	}
 
 	/**
 	 * Handles font related attributes and returns the calculated font.
@@ -732,31 +778,15 @@ public final class ElementWrapper
 			fontFamily = defaultFont.getFamily();
 		else
 		{
-			synchronized (ElementWrapper.class)
-			{
-				if (systemFontFamilies_ == null)
-				{
-					systemFontFamilies_ = new HashMap<>();
-					try
-					{
-						String sysfams[] = GraphicsEnvironment.getLocalGraphicsEnvironment()
-															  .getAvailableFontFamilyNames();
-						for (String sysFam : sysfams)
-							systemFontFamilies_.put(sysFam.toLowerCase(), sysFam);
-					}
-					catch (Exception e)
-					{
-					}
-				}
-			}
+			final Map<String, String> systemFontFamilies = SystemFontFamilies.families_;
 			final String[] fams = fontFamily.split(",");
 			if (fams.length > 0)
 			{
 				String sysFF = null;
 				for (String fam : fams)
 				{
-					sysFF = systemFontFamilies_.get(fam.trim()
-													   .toLowerCase());
+					sysFF = systemFontFamilies.get(fam.trim()
+													  .toLowerCase());
 					if (sysFF != null)
 						break;
 				}
@@ -991,6 +1021,13 @@ public final class ElementWrapper
 	 */
 	public String attr(Attribute attribute, boolean inherited)
 	{
+		if (computed_ != null)
+		{
+			if (inherited)
+				return computed_[attribute.ordinal()];
+			final String v = (local_ == null) ? null : local_[attribute.ordinal()];
+			return v == null ? "" : v;
+		}
 		String r = getOverride(attribute);
 		if (isEmpty(r))
 			r = attrWithoutOverrides(attribute, inherited);
@@ -1046,13 +1083,11 @@ public final class ElementWrapper
 	{
 		if (attributes_ == null)
 		{
-			Map<Attribute, String> attrs = CSSParser.parseStyle(node_.getAttribute(Attribute.Style.xmlName()));
-			attributes_ = new HashMap<>();
-			for (Map.Entry<Attribute, String> e : attrs.entrySet())
-			{
-				//@TODO: Handle "!important"
-				attributes_.put(e.getKey(), new StyleValue(e.getValue(), Specificity.MAX));
-			}
+			final Map<Attribute, StyleValue> attrs = new HashMap<>();
+			//@TODO: Handle "!important"
+			CSSParser.parseStyle(node_.getAttribute(Attribute.Style.xmlName()),
+					(attr, value) -> attrs.put(attr, new StyleValue(value, Specificity.MAX)));
+			attributes_ = attrs;
 		}
 		return attributes_;
 	}
@@ -1102,6 +1137,61 @@ public final class ElementWrapper
 		}
 	}
 
+	/**
+	 * Computes the values of all attributes from the style attributes, the xml attributes and
+	 * the computed values of the parent. Afterwards {@link #attr(Attribute, boolean)} is a simple array access.<br>
+	 * Has to be called top-down after style sheets are applied, see {@link ElementCache#computeCascade(Node)}.
+	 * Not used for shadows, as these get overrides and other parents during conversion.
+	 */
+	void computeCascade()
+	{
+		if (isShadow_)
+			return;
+		String[] local = null;
+		for (Map.Entry<Attribute, StyleValue> e : getStyleAttributes().entrySet())
+		{
+			final StyleValue sv = e.getValue();
+			// Values with minimal specificity are cached inherited values.
+			if (sv.specificity_ != Specificity.MIN && isNotEmpty(sv.value_))
+			{
+				if (local == null)
+					local = new String[ATTRIBUTES.length];
+				local[e.getKey()
+					   .ordinal()] = sv.value_;
+			}
+		}
+		NamedNodeMap attributes = node_.getAttributes();
+		final int nAttr = attributes.getLength();
+		for (int iAttr = 0; iAttr < nAttr; ++iAttr)
+		{
+			Node attrNode = attributes.item(iAttr);
+			Attribute attr = Attribute.valueFrom(attrNode.getNodeName());
+			if (attr != null)
+			{
+				final String v = attrNode.getNodeValue();
+				if (isNotEmpty(v))
+				{
+					if (local == null)
+						local = new String[ATTRIBUTES.length];
+					if (local[attr.ordinal()] == null)
+						local[attr.ordinal()] = v;
+				}
+			}
+		}
+
+		final String[] inherited = (parent_ == null || parent_.computed_ == null) ? null : parent_.computed_;
+		if (local == null)
+			computed_ = (inherited == null) ? new String[ATTRIBUTES.length] : inherited;
+		else
+		{
+			computed_ = (inherited == null) ? new String[ATTRIBUTES.length] : inherited.clone();
+			for (int i = 0; i < local.length; ++i)
+				if (local[i] != null)
+					computed_[i] = local[i];
+		}
+		local_ = local;
+	}
+
 	/**
 	 * Gets an attribute from parents.
 	 */
@@ -1146,7 +1236,7 @@ public final class ElementWrapper
 		StringBuilder sb = new StringBuilder();
 		sb.append(type_.name());
 		final String id = id();
-		if (!ElementCache.isGenerated(id))
+		if (isNotEmpty(id))
 			sb.append(' ')
 			  .append(id);
 		return sb.toString();
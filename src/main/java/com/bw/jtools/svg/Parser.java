@@ -86,48 +86,135 @@ public class Parser
 			return false;
 	}
 
+	/**
+	 * Maximal number of significant digits that fit into a long.
+	 */
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
+	/**
+	 * Powers of ten that are exact as double.
+	 */
+	private static final double[] EXACT_POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	/**
+	 * Get next double value.<br>
+	 * The digits are collected in a long and scaled by one exact power of ten, which
+	 * gives the correctly rounded result for all common numbers (up to 15 significant digits
+	 * and a decimal exponent up to 22). Other numbers are handed to {@link Double#parseDouble(String)}.
+	 * An exponent is only consumed if digits follow, so units like "em" or "ex" are kept.
+	 *
+	 * @param defaultVal Value to return if there is no number.
+	 */
 	protected double nextDouble(double defaultVal)
 	{
-		double r = nextNumber(defaultVal);
-		boolean negative = isNegative(r);
-		char c = nextChar();
-		if (c == '.')
+		consumeSeparators();
+		final int start = idx_;
+		int i = idx_;
+		char c = charAt(i);
+		boolean negative = false;
+		boolean signOrDot = false;
+		if (c == '-' || c == '+')
+		{
+			negative = c == '-';
+			signOrDot = true;
+			c = charAt(++i);
+		}
+
+		long mantissa = 0;
+		int significant = 0;
+		int exp10 = 0;
+		boolean digits = false;
+		while (isDigit(c))
 		{
-			if (r != r)
-				r = 0;
-			int oid = idx_;
-			long fract = 0;
-			while (isDigit(c = nextChar()))
+			digits = true;
+			if (significant < MAX_MANTISSA_DIGITS)
 			{
-				fract = (fract * 10) + (c - '0');
+				mantissa = mantissa * 10 + (c - '0');
+				if (mantissa != 0)
+					++significant;
 			}
-			--idx_;
-			if (negative)
-				r -= fract / Math.pow(10, idx_ - oid);
 			else
-				r += fract / Math.pow(10, idx_ - oid);
+			{
+				// Only the magnitude is needed here, the exact value is parsed below.
+				++exp10;
+				++significant;
+			}
+			c = charAt(++i);
 		}
-		else
-			--idx_;
-		if (c == 'E' || c == 'e')
+		if (c == '.')
 		{
-			++idx_;
-			double exp = 0;
-			char sign = nextChar();
-			if (sign != '-' && sign != '+')
+			signOrDot = true;
+			c = charAt(++i);
+			while (isDigit(c))
 			{
-				sign = '+';
-				--idx_;
+				digits = true;
+				if (significant < MAX_MANTISSA_DIGITS)
+				{
+					mantissa = mantissa * 10 + (c - '0');
+					--exp10;
+					if (mantissa != 0)
+						++significant;
+				}
+				else
+					++significant;
+				c = charAt(++i);
+			}
+		}
+		if (!digits)
+		{
+			if (!signOrDot)
+				return defaultVal;
+			// A lonely sign or dot.
+			idx_ = i;
+			return negative ? -0d : 0d;
+		}
+		if (c == 'e' || c == 'E')
+		{
+			int ei = i + 1;
+			char ec = charAt(ei);
+			boolean expNegative = false;
+			if (ec == '-' || ec == '+')
+			{
+				expNegative = ec == '-';
+				ec = charAt(++ei);
+			}
+			if (isDigit(ec))
+			{
+				int exp = 0;
+				do
+				{
+					if (exp < 100000)
+						exp = exp * 10 + (ec - '0');
+					ec = charAt(++ei);
+				}
+				while (isDigit(ec));
+				exp10 += expNegative ? -exp : exp;
+				i = ei;
 			}
-			while (isDigit(c = nextChar()))
-				exp = (exp * 10) + (c - '0');
-			if (sign == '-')
-				exp = -exp;
-			r = r * Math.pow(10, exp);
-			--idx_;
 		}
+		idx_ = i;
 
-		return r;
+		double r;
+		if (mantissa == 0)
+			r = 0;
+		else if (significant <= 15 && exp10 >= -22 && exp10 <= 22)
+			// Both operands are exact, so the single operation is correctly rounded.
+			r = exp10 < 0 ? mantissa / EXACT_POWERS_OF_TEN[-exp10] : mantissa * EXACT_POWERS_OF_TEN[exp10];
+		else
+			return Double.parseDouble(content_.substring(start, i));
+		return negative ? -r : r;
+	}
+
+	/**
+	 * Gets the character at the position without moving the current position.
+	 *
+	 * @return The character or 0 if the position is outside the content.
+	 */
+	protected final char charAt(int idx)
+	{
+		return idx < length_ ? content_.charAt(idx) : 0;
 	}
 
 	protected boolean isDigit(char c)
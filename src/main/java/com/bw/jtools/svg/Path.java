@@ -1,7 +1,5 @@
 package com.bw.jtools.svg;
 
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Arc2D;
 import java.awt.geom.Path2D;
 
 /**
@@ -13,18 +11,85 @@ public final class Path extends Parser
 	private double lastXCtrl, lastYCtrl;
 	private double cx, cy;
 
-	private Path2D.Double path_;
+	private final Path2D.Double path_;
+	private final PathSink sink_;
 
+	/**
+	 * Gets the resulting path.
+	 *
+	 * @return The path or null if a custom sink was used.
+	 */
 	public Path2D getPath()
 	{
 		return path_;
 	}
 
+	/**
+	 * Parses the path into a {@link Path2D.Double} that is sized in advance.
+	 */
 	public Path(String content)
 	{
 		super(content);
+		path_ = new Path2D.Double(Path2D.WIND_NON_ZERO, estimateSegments(content));
+		sink_ = new Path2DSink(path_);
+		parse();
+	}
+
+	/**
+	 * Parses the path into a custom sink.
+	 */
+	public Path(String content, PathSink sink)
+	{
+		super(content);
+		path_ = null;
+		sink_ = sink;
+		parse();
+	}
+
+	/**
+	 * Estimates the number of segments by counting commands and numbers.
+	 * Implicit repetitions of commands are covered by the number count.
+	 * The result is also a good estimation for the number of coordinate pairs.
+	 */
+	public static int estimateSegments(String content)
+	{
+		if (content == null)
+			return 1;
+		int commands = 0;
+		int numbers = 0;
+		boolean inNumber = false;
+		final int n = content.length();
+		for (int i = 0; i < n; ++i)
+		{
+			final char c = content.charAt(i);
+			if ((c >= '0' && c <= '9') || c == '.')
+			{
+				if (!inNumber)
+				{
+					inNumber = true;
+					++numbers;
+				}
+			}
+			else if (c == '-' || c == '+')
+			{
+				if (i == 0 || (content.charAt(i - 1) | 0x20) != 'e')
+				{
+					inNumber = true;
+					++numbers;
+				}
+			}
+			else if (c != 'e' && c != 'E')
+			{
+				inNumber = false;
+				if (c > ' ' && c != ',')
+					++commands;
+			}
+		}
+		return Math.max(1, Math.max(commands, numbers / 2));
+	}
 
-		path_ = new Path2D.Double();
+	private void parse()
+	{
 		char cmd = 0;
 		double x, y;
 		double lastMx = 0, lastMy = 0;
@@ -46,42 +111,42 @@ public final class Path extends Parser
 			switch (cmd)
 			{
 				case 'M':
-					path_.moveTo(nextXOrdinate(), nextYOrdinate());
+					sink_.moveTo(nextXOrdinate(), nextYOrdinate());
 					lastMx = cx;
 					lastMy = cy;
 					break;
 				case 'm':
-					path_.moveTo(nextXRelative(), nextYRelative());
+					sink_.moveTo(nextXRelative(), nextYRelative());
 					lastMx = cx;
 					lastMy = cy;
 					break;
 				case 'L':
-					path_.lineTo(nextXOrdinate(), nextYOrdinate());
+					sink_.lineTo(nextXOrdinate(), nextYOrdinate());
 					break;
 				case 'l':
-					path_.lineTo(nextXRelative(), nextYRelative());
+					sink_.lineTo(nextXRelative(), nextYRelative());
 					break;
 
 				case 'H':
-					path_.lineTo(nextXOrdinate(), cy);
+					sink_.lineTo(nextXOrdinate(), cy);
 					break;
 				case 'h':
-					path_.lineTo(nextXRelative(), cy);
+					sink_.lineTo(nextXRelative(), cy);
 					break;
 				case 'V':
-					path_.lineTo(cx, nextYOrdinate());
+					sink_.lineTo(cx, nextYOrdinate());
 					break;
 				case 'v':
-					path_.lineTo(cx, nextYRelative());
+					sink_.lineTo(cx, nextYRelative());
 					break;
 
 				case 'C':
-					path_.curveTo(nextXCtrl(), nextYCtrl(), nextXCtrl(), nextYCtrl(),
+					sink_.curveTo(nextXCtrl(), nextYCtrl(), nextXCtrl(), nextYCtrl(),
 							nextXOrdinate(), nextYOrdinate());
 					resetCtrl = false;
 					break;
 				case 'c':
-					path_.curveTo(nextXCtrlRelativeStay(), nextYCtrlRelativeStay(),
+					sink_.curveTo(nextXCtrlRelativeStay(), nextYCtrlRelativeStay(),
 							nextXCtrlRelativeStay(), nextYCtrlRelativeStay(),
 							nextXRelative(), nextYRelative());
 					resetCtrl = false;
@@ -89,32 +154,32 @@ public final class Path extends Parser
 
 				case 'S':
 					// project last ctrl point across last end point (cx,cy)
-					path_.curveTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXCtrl(), nextYCtrl(), nextXOrdinate(), nextYOrdinate());
+					sink_.curveTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXCtrl(), nextYCtrl(), nextXOrdinate(), nextYOrdinate());
 					resetCtrl = false;
 					break;
 				case 's':
 					// project last ctrl point across last end point (cx,cy)
-					path_.curveTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXCtrlRelativeStay(), nextYCtrlRelativeStay(), nextXRelative(), nextYRelative());
+					sink_.curveTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXCtrlRelativeStay(), nextYCtrlRelativeStay(), nextXRelative(), nextYRelative());
 					resetCtrl = false;
 					break;
 
 				case 'Q':
-					path_.quadTo(nextXCtrl(), nextYCtrl(), nextXOrdinate(), nextYOrdinate());
+					sink_.quadTo(nextXCtrl(), nextYCtrl(), nextXOrdinate(), nextYOrdinate());
 					resetCtrl = false;
 					break;
 				case 'q':
-					path_.quadTo(nextXCtrlRelativeStay(), nextYCtrlRelativeStay(), nextXRelative(), nextYRelative());
+					sink_.quadTo(nextXCtrlRelativeStay(), nextYCtrlRelativeStay(), nextXRelative(), nextYRelative());
 					resetCtrl = false;
 					break;
 
 				case 'T':
 					// project last ctrl point across last end point (cx,cy)
-					path_.quadTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXOrdinate(), nextYOrdinate());
+					sink_.quadTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXOrdinate(), nextYOrdinate());
 					resetCtrl = false;
 					break;
 				case 't':
 					// project last ctrl point across last end point (cx,cy)
-					path_.quadTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXRelative(), nextYRelative());
+					sink_.quadTo(nextXSymmetricCtrl(), nextYSymmetricCtrl(), nextXRelative(), nextYRelative());
 					resetCtrl = false;
 					break;
 
@@ -134,7 +199,7 @@ public final class Path extends Parser
 
 				case 'Z':
 				case 'z':
-					path_.closePath();
+					sink_.closePath();
 					cx = lastMx;
 					cy = lastMy;
 					break;
@@ -152,8 +217,8 @@ public final class Path extends Parser
 	}
 
 	/**
-	 * As Path2D has no "arc" function and Arc2D works much differently,
-	 * we need to calculate an arc, rotate it and append it to the path manually.<br>
+	 * As Path2D has no "arc" function, we need to calculate the arc and append it
+	 * as cubic segments of at most 90 degree.<br>
 	 * Used as reference:
 	 * <ol>
 	 * <li>Implementation notes for "arc" in https://www.w3.org/TR/SVG11/implnote.html#PathElementImplementationNotes.</li>
@@ -170,12 +235,11 @@ public final class Path extends Parser
 					double x1, double y1)
 	{
 		if (rx == 0 || ry == 0)
-			path_.lineTo(x1, y1);
+			sink_.lineTo(x1, y1);
 		else
 		{
 			if (x0 != x1 || y0 != y1)
 			{
-				Arc2D.Double arc = new Arc2D.Double();
 				angle = Math.toRadians(angle % 360.0);
 
 				double dx2 = (x0 - x1) / 2.0;
@@ -207,35 +271,109 @@ public final class Path extends Parser
 				double cx1 = coef * ((rx * y11) / ry);
 				double cy1 = coef * -((ry * x11) / rx);
 
-				arc.x = ((x0 + x1) / 2.0) + (cosAngle * cx1 - sinAngle * cy1) - rx;
-				arc.y = ((y0 + y1) / 2.0) + (sinAngle * cx1 + cosAngle * cy1) - ry;
-				arc.width = rx * 2.0;
-				arc.height = ry * 2.0;
+				final double centerX = ((x0 + x1) / 2.0) + (cosAngle * cx1 - sinAngle * cy1);
+				final double centerY = ((y0 + y1) / 2.0) + (sinAngle * cx1 + cosAngle * cy1);
 
 				final double ux = (x11 - cx1) / rx;
 				final double uy = (y11 - cy1) / ry;
 				final double vx = (-x11 - cx1) / rx;
 				final double vy = (-y11 - cy1) / ry;
 
-				arc.start = -(Math.toDegrees(((uy < 0) ? -1.0 : 1.0) * Math.acos(ux / Math.sqrt((ux * ux) + (uy * uy)))) % 360f);
-
+				final double start = Math.atan2(uy, ux);
 				final double n = Math.sqrt((ux * ux + uy * uy) * (vx * vx + vy * vy));
 				final double p = ux * vx + uy * vy;
-				double extend = Math.toDegrees(((ux * vy - uy * vx < 0) ? -1.0 : 1.0) * Math.acos(p / n));
-				if (!sweepFlag && extend > 0)
-					extend -= 360f;
-				else if (sweepFlag && extend < 0)
-					extend += 360f;
-				extend %= 360f;
-
-				arc.extent = -extend;
-
-				AffineTransform t = AffineTransform.getRotateInstance(angle, arc.x + rx, arc.y + ry);
-				path_.append(t.createTransformedShape(arc), true);
+				double extent = ((ux * vy - uy * vx < 0) ? -1.0 : 1.0) * Math.acos(Math.max(-1.0, Math.min(1.0, p / n)));
+				if (!sweepFlag && extent > 0)
+					extent -= 2 * Math.PI;
+				else if (sweepFlag && extent < 0)
+					extent += 2 * Math.PI;
+
+				// Same segmentation as Arc2D.
+				final int segments = Math.max(1, (int) Math.ceil(Math.abs(extent) / (Math.PI / 2) - 1e-10));
+				final double delta = extent / segments;
+				final double k = 4.0 / 3.0 * Math.tan(delta / 4);
+
+				// Point and tangent of the current angle in the rotated ellipse.
+				double cosT = Math.cos(start);
+				double sinT = Math.sin(start);
+				double ex = rx * cosT;
+				double ey = ry * sinT;
+				double tx = -rx * sinT;
+				double ty = ry * cosT;
+				double px = x0;
+				double py = y0;
+				for (int i = 1; i <= segments; ++i)
+				{
+					final double c1x = px + k * (cosAngle * tx - sinAngle * ty);
+					final double c1y = py + k * (sinAngle * tx + cosAngle * ty);
+
+					final double t = start + delta * i;
+					cosT = Math.cos(t);
+					sinT = Math.sin(t);
+					ex = rx * cosT;
+					ey = ry * sinT;
+					tx = -rx * sinT;
+					ty = ry * cosT;
+					if (i == segments)
+					{
+						px = x1;
+						py = y1;
+					}
+					else
+					{
+						px = centerX + cosAngle * ex - sinAngle * ey;
+						py = centerY + sinAngle * ex + cosAngle * ey;
+					}
+					sink_.curveTo(c1x, c1y,
+							px - k * (cosAngle * tx - sinAngle * ty), py - k * (sinAngle * tx + cosAngle * ty),
+							px, py);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Sink that appends to a Path2D.
+	 */
+	private static final class Path2DSink implements PathSink
+	{
+		private final Path2D path_;
+
+		Path2DSink(Path2D path)
+		{
+			path_ = path;
+		}
+
+		@Override
+		public void moveTo(double x, double y)
+		{
+			path_.moveTo(x, y);
+		}
+
+		@Override
+		public void lineTo(double x, double y)
+		{
+			path_.lineTo(x, y);
+		}
+
+		@Override
+		public void quadTo(double x1, double y1, double x2, double y2)
+		{
+			path_.quadTo(x1, y1, x2, y2);
+		}
+
+		@Override
+		public void curveTo(double x1, double y1, double x2, double y2, double x3, double y3)
+		{
+			path_.curveTo(x1, y1, x2, y2, x3, y3);
+		}
+
+		@Override
+		public void closePath()
+		{
+			path_.closePath();
+		}
+	}
 
 	/**
 	 * Get next control point x ordinate from arguments.
@@ -0,0 +1,18 @@
+package com.bw.jtools.svg;
+
+/**
+ * Receives the segments of a parsed path.<br>
+ * Used by {@link Path} to write coordinates directly into the target geometry.
+ */
+public interface PathSink
+{
+	void moveTo(double x, double y);
+
+	void lineTo(double x, double y);
+
+	void quadTo(double x1, double y1, double x2, double y2);
+
+	void curveTo(double x1, double y1, double x2, double y2, double x3, double y3);
+
+	void closePath();
+}
@@ -7,8 +7,9 @@ public class Polyline extends Parser
 	public Polyline(String points)
 	{
 		super(points);
+		path_ = new Path2D.Double(Path2D.WIND_NON_ZERO, Path.estimateSegments(points));
 
-		Double x, y;
+		double x, y;
 		boolean first = true;
 		do
 		{
@@ -26,7 +27,7 @@ public class Polyline extends Parser
 		} while (true);
 	}
 
-	Path2D.Double path_ = new Path2D.Double();
+	final Path2D.Double path_;
 
 	public Path2D getPath()
 	{
@@ -2,6 +2,7 @@ package com.bw.jtools.svg;
 
 import com.bw.jtools.examples.SVGViewer;
 import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.CompactPath;
 import com.bw.jtools.shape.Context;
 import com.bw.jtools.shape.ShapeGroup;
 import com.bw.jtools.shape.ShapePainter;
@@ -21,8 +22,8 @@ import org.w3c.dom.NodeList;
 
 import javax.swing.text.View;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import java.awt.Font;
 import java.awt.MultipleGradientPaint;
 import java.awt.Shape;
@@ -44,6 +45,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,6 +54,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static com.bw.jtools.svg.ElementWrapper.isNotEmpty;
@@ -93,9 +97,8 @@ public class SVGConverter implements SVGConverterFlags {
      * Can be used by other classes.
      */
     public static void warn(String s, Object... params) {
-        System.out.print("SVG Warning: ");
-        System.out.printf(s, params);
-        System.out.println();
+        // One call, so that warnings of parallel conversions don't interleave.
+        System.out.println("SVG Warning: " + String.format(s, params));
     }
 
     /**
@@ -128,21 +131,24 @@ public class SVGConverter implements SVGConverterFlags {
      * Can be used by other classes.
      */
     public static void error(String s, Object... params) {
-        System.err.print("SVG Error: ");
-        System.err.printf(s, params);
-        System.err.println();
+        System.err.println("SVG Error: " + String.format(s, params));
     }
 
     private ShapeGroup finalShape_;
     private Map<String, SvgPaint> paintServer_ = new HashMap<>();
     private Map<String, PaintWrapper> paints_ = new HashMap<>();
-    private Font defaultFont_ = Font.decode("Arial-PLAIN-12");
+    private static final Font defaultFont_ = Font.decode("Arial-PLAIN-12");
     private final ElementCache elementCache_ = new ElementCache(namespaceAware_);
 
     private final String userLanguage_;
 
+    /**
+     * If true, paths are created as {@link CompactPath}.
+     */
+    private final boolean compactGeometry_;
+
     private static final Set<String> features_;
-    private static Set<String> extensions_;
+    private static final Set<String> extensions_;
 
     static {
         // @TODO: any? At least add some API to set it.
@@ -218,100 +224,129 @@ public class SVGConverter implements SVGConverterFlags {
      * @param in Input-Stream to the svg document.
      */
     public SVGConverter(final InputStream in) throws SVGException {
+        this(null, in);
+    }
+
+    /**
+     * Parse an SVG document and creates shapes.
+     *
+     * @param engine The engine that provides pooled parsers or null.
+     * @param in     Input-Stream to the svg document.
+     */
+    SVGConverter(final SVGConverterEngine engine, final InputStream in) throws SVGException {
+        compactGeometry_ = engine != null && engine.isCompactGeometry();
         try {
             userLanguage_ = Locale.getDefault()
                     .getLanguage();
 
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setValidating(false);
-            dbf.setIgnoringComments(true);
-            dbf.setNamespaceAware(namespaceAware_);
-            dbf.setIgnoringElementContentWhitespace(true);
-
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-
-            // Loading a DTD/Schema will slow down processing by several seconds (if schema is specified).
-            // Suppress loading of references dtd/schema. This will also deactivate validation and
-            // id processing (see scanForIDs call below).
-            dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-            dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            Document doc = (engine == null) ? createDocumentBuilderFactory().newDocumentBuilder()
+                    .parse(in) : engine.parse(in);
 
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.parse(in);
-
-            // Without schema processing (see above), "id" attributes will not be detected as key
+            // Without schema processing (see createDocumentBuilderFactory), "id" attributes will not be detected as key
             // and "getElementById" will not work. So we have to collect the Ids manually.
-            elementCache_.scanForIds(doc);
-
-            // Parse styles and apply them
-            NodeList styles = doc.getElementsByTagName(SvgTagType.style.name());
-            if (styles.getLength() > 0) {
-                CSSParser cssParser = new CSSParser();
-                CssStyleSelector cssStyleSelector = new CssStyleSelector();
-                for (int i = 0; i < styles.getLength(); ++i) {
-                    cssParser.parse(styles.item(i)
-                            .getTextContent(), null, cssStyleSelector);
-                }
-                cssStyleSelector.apply(doc.getDocumentElement(), elementCache_);
-            }
+            // The style sheets are collected in the same walk.
+            applyStyles(doc, elementCache_.scanForIdsAndStyles(doc));
 
-            // @TODO patterns
-            // NodeList patterns = doc.getElementsByTagName("pattern");
-
-            ElementWrapper svg = getCache().getElementWrapper((namespaceAware_ ? doc.getElementsByTagNameNS(SVG_NAME_SPACE, "svg") : doc.getElementsByTagName("svg")).item(0));
+            convertRoot((Element) (namespaceAware_ ? doc.getElementsByTagNameNS(SVG_NAME_SPACE, "svg") : doc.getElementsByTagName("svg")).item(0));
+        } catch (Exception e) {
+            throw new SVGException("Failed to parse SVG", e);
+        }
+    }
 
-            List<ElementInfo> shapes = new ArrayList<>();
-            parseChildren(shapes, svg);
+    /**
+     * Creates the factory for the DOM parser.
+     */
+    static DocumentBuilderFactory createDocumentBuilderFactory() throws ParserConfigurationException {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setValidating(false);
+        dbf.setIgnoringComments(true);
+        dbf.setNamespaceAware(namespaceAware_);
+        dbf.setIgnoringElementContentWhitespace(true);
+
+        dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+
+        // Loading a DTD/Schema will slow down processing by several seconds (if schema is specified).
+        // Suppress loading of references dtd/schema. This will also deactivate validation and
+        // id processing.
+        dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
+        dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        return dbf;
+    }
 
-            // Create an enclosing group and set the viewBox as clip-path.
-            // "Height" and "Width" is currently not supported.
+    /**
+     * Parses the style sheets and applies them to the document.
+     */
+    private void applyStyles(Document doc, List<String> styles) {
+        if (!styles.isEmpty()) {
+            CSSParser cssParser = new CSSParser();
+            CssStyleSelector cssStyleSelector = new CssStyleSelector();
+            for (String style : styles) {
+                cssParser.parse(style, null, cssStyleSelector);
+            }
+            cssStyleSelector.apply(doc.getDocumentElement(), elementCache_);
+        }
+    }
 
-            Shape clipPath = null;
-            String viewBox = svg.attr(Attribute.ViewBox);
-            AffineTransform boxAft = null;
-            if (viewBox == null) {
-                Length width = svg.toLength(Attribute.Width, false);
-                Length height = svg.toLength(Attribute.Height, false);
-                if (width != null && height != null) {
-                    clipPath = new Rectangle2D.Double(0, 0, width.toPixel(null), height.toPixel(null));
-                }
-            } else {
-                Viewbox vb = new Viewbox(viewBox);
-                Rectangle2D.Double vrt = vb.getShape();
+    /**
+     * Converts the svg root element and all children.
+     */
+    private void convertRoot(Element root) {
+        // @TODO patterns
+        // NodeList patterns = doc.getElementsByTagName("pattern");
+
+        // Resolve styles and inheritance once for the whole document.
+        elementCache_.computeCascade(root.getOwnerDocument()
+                .getDocumentElement());
+        ElementWrapper svg = getCache().getElementWrapper(root);
+
+        List<ElementInfo> shapes = new ArrayList<>();
+        parseChildren(shapes, svg);
+
+        // Create an enclosing group and set the viewBox as clip-path.
+        // "Height" and "Width" is currently not supported.
+
+        Shape clipPath = null;
+        String viewBox = svg.attr(Attribute.ViewBox);
+        AffineTransform boxAft = null;
+        if (viewBox == null) {
+            Length width = svg.toLength(Attribute.Width, false);
+            Length height = svg.toLength(Attribute.Height, false);
+            if (width != null && height != null) {
+                clipPath = new Rectangle2D.Double(0, 0, width.toPixel(null), height.toPixel(null));
+            }
+        } else {
+            Viewbox vb = new Viewbox(viewBox);
+            Rectangle2D.Double vrt = vb.getShape();
 
-                Length width = svg.toLength(Attribute.Width, false);
-                Length height = svg.toLength(Attribute.Height, false);
+            Length width = svg.toLength(Attribute.Width, false);
+            Length height = svg.toLength(Attribute.Height, false);
 
-                if (width != null && height != null) {
+            if (width != null && height != null) {
 
-                    double w = width.toPixel(null);
-                    double h = height.toPixel(null);
+                double w = width.toPixel(null);
+                double h = height.toPixel(null);
 
-                    // Scale to fit the box into the view
-                    double scale = Math.min(w / vrt.width, h / vrt.height);
+                // Scale to fit the box into the view
+                double scale = Math.min(w / vrt.width, h / vrt.height);
 
-                    // Align the box to the middle and scale the origin.
-                    clipPath = new Rectangle2D.Double(
-                            (vrt.x + (vrt.width - (w / scale)) / 2) * scale,
-                            (vrt.y + (vrt.height - (h / scale)) / 2) * scale,
-                            w, h);
+                // Align the box to the middle and scale the origin.
+                clipPath = new Rectangle2D.Double(
+                        (vrt.x + (vrt.width - (w / scale)) / 2) * scale,
+                        (vrt.y + (vrt.height - (h / scale)) / 2) * scale,
+                        w, h);
 
-                    boxAft = AffineTransform.getScaleInstance(scale, scale);
+                boxAft = AffineTransform.getScaleInstance(scale, scale);
 
-                } else {
-                    clipPath = vrt;
-                }
+            } else {
+                clipPath = vrt;
             }
+        }
 
-            finalShape_ = new ShapeGroup(svg.id(), null, clipPath, boxAft);
-
-            for (ElementInfo s : shapes)
-                finalShape_.shapes_.add(finish(s));
-            shapes.clear();
+        finalShape_ = new ShapeGroup(svg.id(), null, clipPath, boxAft);
 
-        } catch (Exception e) {
-            throw new SVGException("Failed to parse SVG", e);
-        }
+        for (ElementInfo s : shapes)
+            finalShape_.shapes_.add(finish(s));
+        shapes.clear();
     }
 
     /**
@@ -336,6 +371,18 @@ public class SVGConverter implements SVGConverterFlags {
         return new SVGConverter(xml).getShape();
     }
 
+    /**
+     * Converts documents in parallel with a new {@link SVGConverterEngine}.
+     *
+     * @param sources  The documents, see {@link SVGConverterEngine#convertAll(Collection, Executor)}.
+     * @param executor The executor to run the conversions on.
+     * @return The futures of the results in order of the sources.
+     * @throws SVGException If the parsers could not be configured.
+     */
+    public static <S> List<CompletableFuture<ConversionResult<S>>> convertAll(Collection<S> sources, Executor executor) throws SVGException {
+        return new SVGConverterEngine().convertAll(sources, executor);
+    }
+
 
     private void parseChildren(List<ElementInfo> shapes, ElementWrapper parent) {
         for (ElementWrapper child : parent.getChildren()) {
@@ -368,7 +415,7 @@ public class SVGConverter implements SVGConverterFlags {
             break;
             case path: {
                 if (w.getShape() == null)
-                    w.setShape(new Path(w.attr(Attribute.D, false)).getPath());
+                    w.setShape(createPath(w.attr(Attribute.D, false)));
                 shapes.add(createShapeInfo(w));
 
                 // Debugging feature
@@ -479,12 +526,12 @@ public class SVGConverter implements SVGConverterFlags {
             break;
             case polyline: {
                 // @TODO
-                w.setShape(new Polyline(w.attr(Attribute.Points)).getPath());
+                w.setShape(compact(new Polyline(w.attr(Attribute.Points)).getPath()));
                 shapes.add(createShapeInfo(w));
             }
             break;
             case polygon: {
-                w.setShape(new Polyline(w.attr(Attribute.Points)).toPolygon());
+                w.setShape(compact(new Polyline(w.attr(Attribute.Points)).toPolygon()));
                 shapes.add(createShapeInfo(w));
             }
             break;
@@ -527,13 +574,16 @@ public class SVGConverter implements SVGConverterFlags {
      * Finally create shapes from the elements.
      */
     private AbstractShape finish(ElementInfo si) {
-        ElementWrapper w = elementCache_.getElementWrapperById(si.id_);
+        ElementWrapper w = si.wrapper_;
 
         if (si instanceof StyledShapeInfo) {
             StyledShapeInfo s = (StyledShapeInfo) si;
+            int windingRule = s.fillRule_ == FillRule.evenodd ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO;
             if (s.shape_ instanceof Path2D) {
-                int windingRule = s.fillRule_ == FillRule.evenodd ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO;
                 ((Path2D) s.shape_).setWindingRule(windingRule);
+            } else if (s.shape_ instanceof CompactPath) {
+                // Immutable, the coordinates are shared.
+                s.shape_ = ((CompactPath) s.shape_).withWindingRule(windingRule);
             }
 
             StyledShape sws = new StyledShape(
@@ -557,6 +607,25 @@ public class SVGConverter implements SVGConverterFlags {
         }
     }
 
+    /**
+     * Parses path data. Depending on the engine option the path is written directly into a {@link CompactPath}.
+     */
+    private Shape createPath(String d) {
+        if (compactGeometry_) {
+            CompactPath.Builder builder = new CompactPath.Builder(Path.estimateSegments(d));
+            new Path(d, builder);
+            return builder.build();
+        }
+        return new Path(d).getPath();
+    }
+
+    /**
+     * Converts a shape to a {@link CompactPath} if the engine option is set.
+     */
+    private Shape compact(Shape shape) {
+        return compactGeometry_ ? CompactPath.of(shape) : shape;
+    }
+
     protected String mapSvgBufferName(String svgBufferName) {
         if (StandardFilterSource.SourceGraphic.name()
                 .equals(svgBufferName))
@@ -744,7 +813,7 @@ public class SVGConverter implements SVGConverterFlags {
                         }
                     }
                     g.clear();
-                    w.setShape(clipPath);
+                    w.setShape(compact(clipPath));
                     shape = w.getShape();
                 }
                 return shape.getShape();
@@ -991,6 +1060,8 @@ public class SVGConverter implements SVGConverterFlags {
 
         ElementInfo sinfo = styledShapeInfo;
         sinfo.id_ = w.id();
+        // Shadows of "use" share the node, paints are created with the wrapper of the original element.
+        sinfo.wrapper_ = elementCache_.getElementWrapper(w.getNode());
         transform(styledShapeInfo, w);
 
         GroupInfo g = null;
@@ -0,0 +1,256 @@
+package com.bw.jtools.svg;
+
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.CompactPath;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-living conversion engine for a large number of documents.<br>
+ * The parser factories are configured once and the parsers are pooled, lookup tables
+ * (color names, features, system fonts) are shared anyway.
+ * The per document state (ids, styles, paints) is still created for each conversion,
+ * so the results are the same as with {@link SVGConverter#convert(InputStream)}.<br>
+ * All methods are thread safe, one engine can be used by any number of threads.
+ */
+public final class SVGConverterEngine
+{
+	private final DocumentBuilderFactory documentBuilderFactory_;
+
+	private final ConcurrentLinkedQueue<DocumentBuilder> builders_ = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooledBuilders_ = new AtomicInteger();
+	private final int maxPooledBuilders_;
+
+	private volatile boolean compactGeometry_;
+
+	/**
+	 * Creates an engine that pools up to one parser per available processor.
+	 */
+	public SVGConverterEngine() throws SVGException
+	{
+		this(Runtime.getRuntime()
+					.availableProcessors());
+	}
+
+	/**
+	 * Creates an engine.
+	 *
+	 * @param maxPooledBuilders Maximal number of idle parsers to keep.
+	 */
+	public SVGConverterEngine(int maxPooledBuilders) throws SVGException
+	{
+		maxPooledBuilders_ = maxPooledBuilders;
+		try
+		{
+			documentBuilderFactory_ = SVGConverter.createDocumentBuilderFactory();
+		}
+		catch (ParserConfigurationException e)
+		{
+			throw new SVGException("Failed to configure parser", e);
+		}
+	}
+
+	/**
+	 * Sets if paths, polygons and clip paths are created as {@link CompactPath} instead of {@link java.awt.geom.Path2D.Double}.
+	 * This reduces the memory of resident shapes, coordinates are stored as float.
+	 */
+	public void setCompactGeometry(boolean compactGeometry)
+	{
+		compactGeometry_ = compactGeometry;
+	}
+
+	/**
+	 * Returns true if paths are created as {@link CompactPath}.
+	 */
+	public boolean isCompactGeometry()
+	{
+		return compactGeometry_;
+	}
+
+	/**
+	 * Parses an SVG document and creates shapes.
+	 *
+	 * @param in Input-Stream to the svg document.
+	 * @return The converter with the resulting shapes and the element cache.
+	 * @throws SVGException In case of any error.
+	 */
+	public SVGConverter createConverter(InputStream in) throws SVGException
+	{
+		return new SVGConverter(this, in);
+	}
+
+	/**
+	 * Replacement for {@link SVGConverter#convert(InputStream)}.
+	 *
+	 * @param in The svg document.
+	 * @return The converted shapes.
+	 * @throws SVGException In case of any error.
+	 */
+	public AbstractShape convert(InputStream in) throws SVGException
+	{
+		return createConverter(in).getShape();
+	}
+
+	/**
+	 * Replacement for {@link SVGConverter#convert(String)}.
+	 *
+	 * @param xml The svg document.
+	 * @return The converted shapes.
+	 * @throws SVGException In case of any error.
+	 */
+	public AbstractShape convert(String xml) throws SVGException
+	{
+		return convert(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Converts documents in parallel.<br>
+	 * Each document is converted by its own converter, only the pooled parsers are shared.
+	 * Errors are reported in the result of the document, the other documents are not affected.
+	 *
+	 * @param sources  The documents. Supported are {@link Path}, {@link File}, {@link URL}, byte[] and String (svg source).
+	 * @param executor The executor to run the conversions on, e.g. {@link ForkJoinPool#commonPool()} or
+	 *                 {@link #newBatchExecutor()}.
+	 * @param <S>      The type of the sources.
+	 * @return The futures of the results in order of the sources.
+	 */
+	public <S> List<CompletableFuture<ConversionResult<S>>> convertAll(Collection<S> sources, Executor executor)
+	{
+		List<CompletableFuture<ConversionResult<S>>> results = new ArrayList<>(sources.size());
+		for (S source : sources)
+			results.add(CompletableFuture.supplyAsync(() -> convertSource(source), executor));
+		return results;
+	}
+
+	/**
+	 * Same as {@link #convertAll(Collection, Executor)} on the common fork/join pool.
+	 */
+	public <S> List<CompletableFuture<ConversionResult<S>>> convertAll(Collection<S> sources)
+	{
+		return convertAll(sources, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates an executor for batch conversions.
+	 * On JDK 21 and later the executor starts a virtual thread for each task,
+	 * on older versions a fork/join pool with one thread per processor is used.
+	 * The caller has to shut down the executor.
+	 */
+	public static ExecutorService newBatchExecutor()
+	{
+		try
+		{
+			// Virtual threads are not available at compile time.
+			return (ExecutorService) java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+																		 .invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return new ForkJoinPool(Runtime.getRuntime()
+										   .availableProcessors());
+		}
+	}
+
+	private <S> ConversionResult<S> convertSource(S source)
+	{
+		try
+		{
+			AbstractShape shape;
+			if (source instanceof String)
+				shape = convert((String) source);
+			else
+			{
+				try (InputStream in = open(source))
+				{
+					shape = convert(in);
+				}
+			}
+			return new ConversionResult<>(source, shape, null);
+		}
+		catch (SVGException e)
+		{
+			return new ConversionResult<>(source, null, e);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			return new ConversionResult<>(source, null, new SVGException("Failed to convert " + source, e));
+		}
+	}
+
+	private static InputStream open(Object source) throws IOException
+	{
+		if (source instanceof Path)
+			return Files.newInputStream((Path) source);
+		if (source instanceof File)
+			return Files.newInputStream(((File) source).toPath());
+		if (source instanceof URL)
+			return ((URL) source).openStream();
+		if (source instanceof byte[])
+			return new ByteArrayInputStream((byte[]) source);
+		throw new IllegalArgumentException("Unsupported source type " + (source == null ? null : source.getClass()
+																										 .getName()));
+	}
+
+	/**
+	 * Parses a document with a pooled DOM parser.
+	 */
+	Document parse(InputStream in) throws ParserConfigurationException, IOException, SAXException
+	{
+		DocumentBuilder db = borrowBuilder();
+		try
+		{
+			return db.parse(in);
+		}
+		finally
+		{
+			returnBuilder(db);
+		}
+	}
+
+	private DocumentBuilder borrowBuilder() throws ParserConfigurationException
+	{
+		DocumentBuilder db = builders_.poll();
+		if (db != null)
+		{
+			pooledBuilders_.decrementAndGet();
+			return db;
+		}
+		// DocumentBuilderFactory is not thread safe.
+		synchronized (documentBuilderFactory_)
+		{
+			return documentBuilderFactory_.newDocumentBuilder();
+		}
+	}
+
+	private void returnBuilder(DocumentBuilder db)
+	{
+		if (pooledBuilders_.incrementAndGet() <= maxPooledBuilders_)
+		{
+			db.reset();
+			builders_.add(db);
+		}
+		else
+			pooledBuilders_.decrementAndGet();
+	}
+}
@@ -2,12 +2,11 @@ package com.bw.jtools.svg.css;
 
 import com.bw.jtools.svg.Attribute;
 
-import java.io.StringReader;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.function.BiConsumer;
 
 /**
  * Simple CSS Parser.<br>
@@ -40,13 +39,12 @@ public class CSSParser
 	public void parse(String style, String type, CssStyleSelector styleSelector)
 	{
 		//@TODO: any other then "text/css"?
-		parse(new Lexer(new StringReader(style), true), styleSelector);
+		parse(new Lexer(style, true), styleSelector);
 	}
 
 	private StringBuilder id;
 	private StringBuilder declaration;
 	private StringBuilder attribute;
-	private static final Pattern styleSplitRegExp_ = Pattern.compile(";");
 
 	private static class RuleStub
 	{
@@ -84,7 +82,7 @@ public class CSSParser
 			switch (symbol.type_)
 			{
 				case SEPARATOR:
-					char c = symbol.value_.charAt(0);
+					char c = symbol.charAt(0);
 					if (attribute != null)
 					{
 						if (c == ']')
@@ -152,19 +150,19 @@ public class CSSParser
 					{
 						if (lastLexType != LexerSymbolType.SEPARATOR)
 							attribute.append(' ');
-						attribute.append(symbol.value_);
+						symbol.appendTo(attribute);
 
 					}
 					else if (declaration != null)
 					{
 						if (lastLexType != LexerSymbolType.SEPARATOR)
 							declaration.append(' ');
-						declaration.append(symbol.value_);
+						symbol.appendTo(declaration);
 					}
 					else
 					{
 						id = new StringBuilder();
-						id.append(symbol.value_);
+						symbol.appendTo(id);
 						handleId();
 					}
 					chain = CombinatorType.DESCENDANT;
@@ -246,23 +244,43 @@ public class CSSParser
 	public static Map<Attribute, String> parseStyle(String style)
 	{
 		Map<Attribute, String> attrs = new HashMap<>();
-		if (style != null && !style.isEmpty())
+		parseStyle(style, attrs::put);
+		return attrs;
+	}
+
+	/**
+	 * Parses a style definition, e.g. "width:10px;height30px" and reports all known attributes in order of declaration.<br>
+	 * The declaration is scanned directly, only the values are copied.
+	 * As with {@link #parseStyle(String)} names are trimmed, values are not.
+	 *
+	 * @param style    The style declaration.
+	 * @param consumer Called for each attribute and the associated value.
+	 */
+	public static void parseStyle(String style, BiConsumer<Attribute, String> consumer)
+	{
+		if (style == null)
+			return;
+		final int length = style.length();
+		int start = 0;
+		while (start < length)
 		{
-			String[] stylesAr = styleSplitRegExp_.split(style);
-			for (String s : stylesAr)
+			int end = style.indexOf(';', start);
+			if (end < 0)
+				end = length;
+			final int colon = style.indexOf(':', start);
+			if (colon > start && colon < end)
 			{
-				final int i = s.indexOf(':');
-				if (i > 0)
-				{
-					Attribute attr = Attribute.valueFrom(s.substring(0, i)
-														  .trim());
-					if (attr != null)
-						attrs.put(attr, s.substring(i + 1));
-				}
+				int nameStart = start;
+				int nameEnd = colon;
+				while (nameStart < nameEnd && style.charAt(nameStart) <= ' ')
+					++nameStart;
+				while (nameEnd > nameStart && style.charAt(nameEnd - 1) <= ' ')
+					--nameEnd;
+				Attribute attr = Attribute.valueFrom(style, nameStart, nameEnd);
+				if (attr != null)
+					consumer.accept(attr, style.substring(colon + 1, end));
 			}
+			start = end + 1;
 		}
-		return attrs;
 	}
-
-
 }
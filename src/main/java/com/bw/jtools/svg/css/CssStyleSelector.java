@@ -4,12 +4,12 @@ package com.bw.jtools.svg.css;
 import com.bw.jtools.svg.Attribute;
 import com.bw.jtools.svg.ElementCache;
 import com.bw.jtools.svg.ElementWrapper;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,106 +24,245 @@ public final class CssStyleSelector
 	public List<SelectorRule> rules_ = new ArrayList<>();
 
 	/**
-	 * A "pair" like helper class to bind a rule and a selector.
+	 * A selector of a rule, prepared for matching.
 	 */
-	private static class SelectorEntry
+	private static final class SelectorEntry
 	{
-		SelectorRule rule_;
-		Selector selector_;
+		final SelectorRule rule_;
 
-		public SelectorEntry(Selector s, SelectorRule rule)
+		/**
+		 * The chain of the selector, left to right.
+		 */
+		final Selector[] chain_;
+
+		/**
+		 * Specificity of the complete chain.
+		 */
+		final Specificity specificity_;
+
+		/**
+		 * Position in the style sheet, later entries win on equal specificity.
+		 */
+		final int order_;
+
+		SelectorEntry(SelectorRule rule, Selector s, int order)
 		{
-			selector_ = s;
 			rule_ = rule;
+			order_ = order;
+			specificity_ = new Specificity();
+			List<Selector> chain = new ArrayList<>();
+			for (Selector c = s; c != null; c = c.combinate_)
+			{
+				chain.add(c);
+				switch (c.type_)
+				{
+					case ID:
+						specificity_.addIdMatch();
+						break;
+					case CLASS:
+						specificity_.addClassMatch();
+						break;
+					case TAG:
+						specificity_.addTagMatch();
+						break;
+				}
+			}
+			chain_ = chain.toArray(new Selector[0]);
+		}
+
+		Selector rightmost()
+		{
+			return chain_[chain_.length - 1];
 		}
 	}
 
 	/**
-	 * Applies the rules to the SVG elements.
+	 * Selectors, bucketed by type and value of their rightmost part.
+	 */
+	private static final class SelectorIndex
+	{
+		final Map<String, List<SelectorEntry>> byId_ = new HashMap<>();
+		final Map<String, List<SelectorEntry>> byClass_ = new HashMap<>();
+		final Map<String, List<SelectorEntry>> byTag_ = new HashMap<>();
+		final List<SelectorEntry> universal_ = new ArrayList<>();
+
+		SelectorIndex(List<SelectorRule> rules)
+		{
+			int order = 0;
+			for (SelectorRule rule : rules)
+			{
+				for (Selector s : rule.selectors_)
+				{
+					SelectorEntry e = new SelectorEntry(rule, s, order++);
+					Selector r = e.rightmost();
+					if (r.id_ == null)
+						continue;
+					switch (r.type_)
+					{
+						case ID:
+							byId_.computeIfAbsent(r.id_, k -> new ArrayList<>())
+								 .add(e);
+							break;
+						case CLASS:
+							byClass_.computeIfAbsent(r.id_, k -> new ArrayList<>())
+									.add(e);
+							break;
+						case TAG:
+							if ("*".equals(r.id_))
+								universal_.add(e);
+							else
+								byTag_.computeIfAbsent(r.id_, k -> new ArrayList<>())
+									  .add(e);
+							break;
+					}
+				}
+			}
+		}
+
+		boolean isEmpty()
+		{
+			return byId_.isEmpty() && byClass_.isEmpty() && byTag_.isEmpty() && universal_.isEmpty();
+		}
+	}
+
+	/**
+	 * Applies the rules to the SVG elements.<br>
+	 * The selectors are indexed by their rightmost part, so the document is traversed only once
+	 * and each element is only checked against selectors that can match.
+	 * The remaining parts of a selector are matched against the ancestors of the element.
+	 * The scope of the parts is the same as with a stepwise evaluation from the root:
+	 * tag selectors match strict descendants of the previous match (or the root),
+	 * id and class selectors match also the previous element itself.
 	 *
 	 * @param root  The root element.
 	 * @param cache The wrapper cache where the resulting styles are bounded to the elements.
 	 */
 	public void apply(Node root, ElementCache cache)
 	{
-		// As css is not used in svg very often, this is not implemented in an optimized way.
-		for (SelectorRule rule : rules_)
+		final SelectorIndex index = new SelectorIndex(rules_);
+		if (index.isEmpty())
+			return;
+
+		final boolean rootIsElement = root instanceof Element;
+		final List<SelectorEntry> candidates = new ArrayList<>();
+		ElementWrapper[] path = new ElementWrapper[32];
+		// Depth of the current node, counted in elements from the root.
+		int depth = 0;
+		Node n = rootIsElement ? root : root.getFirstChild();
+		while (n != null)
 		{
-			for (Selector s : rule.selectors_)
+			if (n.getNodeType() == Node.ELEMENT_NODE)
+			{
+				ElementWrapper w = cache.getElementWrapper(n);
+				if (depth == path.length)
+					path = Arrays.copyOf(path, depth * 2);
+				path[depth] = w;
+
+				collectCandidates(index, w, candidates);
+				for (SelectorEntry e : candidates)
+				{
+					if (matchesAncestors(e, path, depth, rootIsElement))
+						setStyles(e.rule_, w, e.specificity_);
+				}
+				candidates.clear();
+
+				Node child = n.getFirstChild();
+				if (child != null)
+				{
+					++depth;
+					n = child;
+					continue;
+				}
+			}
+			// Next node in document order, but not outside the root.
+			while (true)
 			{
-				apply(rule, s, root, cache, new Specificity());
+				if (n == root)
+				{
+					n = null;
+					break;
+				}
+				Node sibling = n.getNextSibling();
+				if (sibling != null)
+				{
+					n = sibling;
+					break;
+				}
+				n = n.getParentNode();
+				--depth;
 			}
-			//....
 		}
 	}
 
 	/**
-	 * Applies one selector-rule to a node.
-	 *
-	 * @param rule  The rule to apply
-	 * @param s     Addition selector to verify.
-	 * @param n     The node to apply to.
-	 * @param cache Wrapper-Element cache.
-	 * @param spec  Current specificity.
+	 * Collects all selectors where the rightmost part matches the element, in style sheet order.
 	 */
-	protected void apply(SelectorRule rule, Selector s, Node n, ElementCache cache, Specificity spec)
+	private static void collectCandidates(SelectorIndex index, ElementWrapper w, List<SelectorEntry> candidates)
 	{
-		if (s == null)
+		if (!index.byId_.isEmpty())
 		{
-			// No further condition.
-			setStyles(rule, cache.getElementWrapper(n), spec);
+			final String id = w.id();
+			if (id != null && !id.isEmpty())
+				addAll(index.byId_.get(id), candidates);
 		}
-		else
+		if (!index.byClass_.isEmpty())
 		{
-			Specificity specificity = new Specificity(spec);
-			switch (s.type_)
-			{
-				case ID:
-					ElementWrapper w = cache.getElementWrapperById(s.id_);
-					if (w != null && isAnchestor(n, w.getNode()))
-					{
-						specificity.addIdMatch();
-						apply(rule, s.combinate_, w.getNode(), cache, specificity);
-					}
-					break;
-				case CLASS:
-					specificity.addClassMatch();
-					cache.forSubTree(n, elementWrapper ->
-					{
-						if (elementWrapper.hasClass(s.id_))
-							apply(rule, s.combinate_, elementWrapper.getNode(), cache, specificity);
-					});
-					break;
-				case TAG:
-					while (n != null && !(n instanceof Element || n instanceof Document))
-					{
-						if (n.getNextSibling() == null)
-							n = n.getFirstChild();
-						else
-							n = n.getNextSibling();
-					}
-					if (n != null)
-					{
-						specificity.addTagMatch();
-						NodeList nodes = (n instanceof Element) ? ((Element) n).getElementsByTagName(s.id_) : ((Document) n).getElementsByTagName(s.id_);
-						for (int i = 0; i < nodes.getLength(); ++i)
-						{
-							Node node = nodes.item(i);
-							apply(rule, s.combinate_, node, cache, specificity);
-						}
-					}
-					break;
-			}
+			for (String clazz : w.getClasses())
+				addAll(index.byClass_.get(clazz), candidates);
+		}
+		addAll(index.byTag_.get(w.getTagName()), candidates);
+		addAll(index.universal_, candidates);
+		if (candidates.size() > 1)
+			candidates.sort((e1, e2) -> Integer.compare(e1.order_, e2.order_));
+	}
+
+	private static void addAll(List<SelectorEntry> entries, List<SelectorEntry> candidates)
+	{
+		if (entries != null)
+			candidates.addAll(entries);
+	}
+
+	/**
+	 * Matches the remaining parts of the selector from right to left.
+	 * The nearest matching ancestor is always the best choice, as it leaves the most ancestors for the other parts.
+	 *
+	 * @param path          Wrappers from the root (index 0) to the element.
+	 * @param depth         Index of the element in path.
+	 * @param rootIsElement If true, path[0] is the root of the evaluation, otherwise the root is the document.
+	 */
+	private static boolean matchesAncestors(SelectorEntry e, ElementWrapper[] path, int depth, boolean rootIsElement)
+	{
+		final Selector[] chain = e.chain_;
+		int pos = depth;
+		for (int i = chain.length - 1; i > 0; --i)
+		{
+			int j = (chain[i].type_ == SelectorType.TAG) ? pos - 1 : pos;
+			final Selector s = chain[i - 1];
+			while (j >= 0 && !matches(s, path[j]))
+				--j;
+			if (j < 0)
+				return false;
+			pos = j;
 		}
+		// Tag selectors don't match the root element itself.
+		return !(rootIsElement && chain[0].type_ == SelectorType.TAG && pos == 0);
 	}
 
-	private boolean isAnchestor(Node anchestor, Node descendant)
+	private static boolean matches(Selector s, ElementWrapper w)
 	{
-		while (descendant != null && !descendant.isSameNode(anchestor))
+		if (s.id_ == null)
+			return false;
+		switch (s.type_)
 		{
-			descendant = descendant.getParentNode();
+			case ID:
+				return s.id_.equals(w.id());
+			case CLASS:
+				return w.hasClass(s.id_);
+			case TAG:
+				return "*".equals(s.id_) || s.id_.equals(w.getTagName());
+			default:
+				return false;
 		}
-		return descendant != null;
 	}
 
 	/**
@@ -9,11 +9,19 @@ import java.util.Arrays;
  * The lexer doesn't know about data-types like numbers. It simply tokenizes the input-stream by stop-characters.
  * E.g. a floating-point-number "-123.3e22 will be split into a sequence of "-", "123", ".", "3", "e", "22".<br>
  * Identifiers bound by a " or ' quote are returned as one token (also including stop characters and white-spaces).<br>
- * E.g. 'abc,123.2 ' will be returned as one token "abc,123.2 " (without the quotes).
+ * E.g. 'abc,123.2 ' will be returned as one token "abc,123.2 " (without the quotes).<br>
+ * The lexer works on offsets in the input string, symbols only reference the range of the token.
  */
 public class Lexer
 {
-	private Reader reader_;
+	private final String content_;
+	private final int length_;
+	private int pos_;
+
+	/**
+	 * If true, {@link LexerSymbol#value_} is set for each symbol.
+	 */
+	private final boolean setValues_;
 
 	private static final int[] separators_;
 
@@ -24,99 +32,127 @@ public class Lexer
 		Arrays.sort(separators_);
 	}
 
+	/**
+	 * Stop characters below 128 as bit mask.
+	 */
+	private static final long[] stopMask_ = new long[2];
+
+	static
+	{
+		for (int c : separators_)
+			if (c >= 0 && c < 128)
+				stopMask_[c >> 6] |= 1L << (c & 63);
+	}
+
 	private LexerSymbol reused_;
 	private int stringDelimiter = -100;
 
 	/**
-	 * Create a lexer on top of a reader.
+	 * Create a lexer on top of a reader.<br>
+	 * The complete input is read first. For compatibility the symbols get
+	 * their {@link LexerSymbol#value_} set.
 	 *
 	 * @param reader      The reader to use as input.
 	 * @param reUseSymbol If true the lexer re-use the same instance as result symbol.
 	 */
 	public Lexer(Reader reader, boolean reUseSymbol)
 	{
-		reader_ = reader;
-		if (reUseSymbol)
-			reused_ = new LexerSymbol();
+		this(readAll(reader), reUseSymbol, true);
 	}
 
-	private StringBuilder buffer = new StringBuilder();
-
 	/**
-	 * Return the next symbol.
+	 * Create a lexer on a string.<br>
+	 * The symbols only reference the range in the input, use {@link LexerSymbol#value()} to get the text.
 	 *
-	 * @return The next symbol.
+	 * @param content     The input.
+	 * @param reUseSymbol If true the lexer re-use the same instance as result symbol.
 	 */
-	public LexerSymbol nextSymbol()
+	public Lexer(String content, boolean reUseSymbol)
 	{
-		LexerSymbol result = reused_ == null ? new LexerSymbol() : reused_;
+		this(content, reUseSymbol, false);
+	}
 
-		// at start of new symbol, eat all spaces
-		eatSpace();
-		int c;
-		while (true)
+	private Lexer(String content, boolean reUseSymbol, boolean setValues)
+	{
+		content_ = content == null ? "" : content;
+		length_ = content_.length();
+		setValues_ = setValues;
+		if (reUseSymbol)
+			reused_ = new LexerSymbol();
+	}
+
+	private static String readAll(Reader reader)
+	{
+		StringBuilder sb = new StringBuilder();
+		if (reader != null)
 		{
-			if (isStop(c = nextChar()))
+			char[] buffer = new char[1024];
+			try
 			{
-				if (c > 0)
-				{
-					// If not an EOF
-					if (buffer.length() == 0)
-						// if empty, return the current stop as symbol
-						buffer.append((char) c);
-					else if (!isStringDelimiter(c))
-						// otherwise handle it next call
-						pushBack(c);
-				}
-				break;
+				int n;
+				while ((n = reader.read(buffer)) >= 0)
+					sb.append(buffer, 0, n);
+			}
+			catch (IOException e)
+			{
+				// Same as end of input.
 			}
-			// append until stop is found.
-			buffer.append((char) c);
 		}
-
-		// Return current buffer
-		result.value_ = buffer.toString();
-		buffer.setLength(0);
-
-		if (result.value_.isEmpty())
-			result.type_ = LexerSymbolType.EOF;
-		else if (result.value_.length() > 1)
-			result.type_ = LexerSymbolType.IDENTIFIER;
-		else
-			result.type_ = isStopChar(result.value_.charAt(0)) ? LexerSymbolType.SEPARATOR : LexerSymbolType.IDENTIFIER;
-		return result;
+		return sb.toString();
 	}
 
 	/**
-	 * Check if the character is a stop in current state.
+	 * Return the next symbol.
 	 *
-	 * @param c The character to check.
-	 * @return true if c is a stop.
+	 * @return The next symbol.
 	 */
-	protected boolean isStop(int c)
+	public LexerSymbol nextSymbol()
 	{
-		if (c < 0)
-			return true;
+		LexerSymbol result = reused_ == null ? new LexerSymbol() : reused_;
 
+		// at start of new symbol, eat all spaces
+		eatSpace();
+		int start = pos_;
+		int end;
 		if (stringDelimiter > 0)
 		{
-			if (c == stringDelimiter)
+			int q = content_.indexOf(stringDelimiter, pos_);
+			if (q < 0)
 			{
-				stringDelimiter = -100;
-				return true;
+				end = pos_ = length_;
 			}
 			else
-				// EOF is in any case a stop
-				return c < 0;
+			{
+				stringDelimiter = -100;
+				pos_ = q + 1;
+				if (q == start)
+					// if empty, return the delimiter as symbol
+					end = pos_;
+				else
+					end = q;
+			}
 		}
-		else if (isStopChar(c))
+		else
 		{
-			if (isStringDelimiter(c))
-				stringDelimiter = c;
-			return true;
+			// append until stop is found.
+			while (pos_ < length_ && !isStopChar(content_.charAt(pos_)))
+				++pos_;
+			end = pos_;
+			if (end == start && pos_ < length_)
+				// if empty, return the current stop as symbol
+				end = ++pos_;
 		}
+
+		result.set(content_, start, end);
+		if (start == end)
+			result.type_ = LexerSymbolType.EOF;
+		else if (end - start > 1)
+			result.type_ = LexerSymbolType.IDENTIFIER;
 		else
-			return false;
+			result.type_ = isStopChar(content_.charAt(start)) ? LexerSymbolType.SEPARATOR : LexerSymbolType.IDENTIFIER;
+		if (setValues_)
+			result.value();
+		return result;
 	}
 
 	/**
@@ -127,23 +163,9 @@ public class Lexer
 	 */
 	protected boolean isStopChar(int c)
 	{
-		// Binary search
-		int startIndex = 0;
-		int endIndex = separators_.length - 1;
-		int midIndex;
-
-		while (startIndex <= endIndex)
-		{
-			midIndex = (startIndex + endIndex) >>> 1;
-			int midVal = separators_[midIndex];
-			if (midVal > c)
-				endIndex = midIndex - 1;
-			else if (midVal < c)
-				startIndex = midIndex + 1;
-			else
-				return true;
-		}
-		return false;
+		if (c >= 0 && c < 128)
+			return (stopMask_[c >> 6] & (1L << (c & 63))) != 0;
+		return c == -1;
 	}
 
 	/**
@@ -158,39 +180,29 @@ public class Lexer
 	}
 
 	/**
-	 * Eats all consecutive spaces starting from the current position.
+	 * Eats all consecutive spaces and comments starting from the current position.
+	 * If a string starts, the delimiter is consumed.
 	 */
 	protected void eatSpace()
 	{
 		if (stringDelimiter < 0)
 		{
-			int c;
 			do
 			{
-				while (Character.isWhitespace(c = nextChar())) ;
+				while (pos_ < length_ && Character.isWhitespace(content_.charAt(pos_)))
+					++pos_;
 
-				if (c == '/')
+				if (pos_ + 1 < length_ && content_.charAt(pos_) == '/' && content_.charAt(pos_ + 1) == '*')
 				{
-					int nc = nextChar();
-					if (nc == '*')
-					{
-						// A "/*..*/" Commend
-						eatUntilCommentEnd();
-						continue;
-					}
-					else
-					{
-						pushBack(nc);
-					}
+					// A "/*..*/" Commend
+					pos_ += 2;
+					eatUntilCommentEnd();
+					continue;
 				}
 				break;
 			} while (true);
-			if (isStringDelimiter(c))
-				stringDelimiter = c;
-			else if (c > 0)
-			{
-				pushBack(c);
-			}
+			if (pos_ < length_ && isStringDelimiter(content_.charAt(pos_)))
+				stringDelimiter = content_.charAt(pos_++);
 		}
 	}
 
@@ -199,53 +211,7 @@ public class Lexer
 	 */
 	protected void eatUntilCommentEnd()
 	{
-		int lastC = 0;
-		do
-		{
-			int c = nextChar();
-			if (c == '/')
-			{
-				if (lastC == '*')
-					break;
-			}
-			lastC = c;
-		} while (lastC > 0);
-	}
-
-
-	/**
-	 * Push back stack.
-	 * Currently only 1 char is needed.
-	 */
-	private int[] pushback_ = new int[10];
-	private int pushbackPos_ = -1;
-
-	private void pushBack(int c)
-	{
-		pushback_[++pushbackPos_] = c;
-	}
-
-	private int nextChar()
-	{
-		if (pushbackPos_ < 0)
-		{
-			if (reader_ == null)
-				return -1;
-			try
-			{
-				return reader_.read();
-			}
-			catch (IOException e)
-			{
-				exception_ = e;
-				reader_ = null;
-				return -1;
-			}
-		}
-		else
-			return pushback_[pushbackPos_--];
+		int end = content_.indexOf("*/", pos_);
+		pos_ = (end < 0) ? length_ : end + 2;
 	}
-
-	private Exception exception_;
-
 }
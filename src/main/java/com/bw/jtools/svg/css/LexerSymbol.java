@@ -1,12 +1,13 @@
 package com.bw.jtools.svg.css;
 
 /**
- * A Lexer symbol
+ * A Lexer symbol.<br>
+ * References a range of the lexer input, the text is only created on demand.
  */
 public final class LexerSymbol
 {
 	/**
-	 * The value.
+	 * The value. Only set by lexers on a {@link java.io.Reader} or after {@link #value()} was called.
 	 */
 	public String value_;
 	/**
@@ -14,9 +15,55 @@ public final class LexerSymbol
 	 */
 	public LexerSymbolType type_;
 
+	private String source_;
+	private int start_;
+	private int end_;
+
+	void set(String source, int start, int end)
+	{
+		source_ = source;
+		start_ = start;
+		end_ = end;
+		value_ = null;
+	}
+
+	/**
+	 * Gets the text of the symbol.
+	 */
+	public String value()
+	{
+		if (value_ == null)
+			value_ = (source_ == null) ? "" : source_.substring(start_, end_);
+		return value_;
+	}
+
+	/**
+	 * Number of characters.
+	 */
+	public int length()
+	{
+		return end_ - start_;
+	}
+
+	/**
+	 * Gets a character of the symbol.
+	 */
+	public char charAt(int index)
+	{
+		return source_.charAt(start_ + index);
+	}
+
+	/**
+	 * Appends the text of the symbol without creating a string.
+	 */
+	public void appendTo(StringBuilder sb)
+	{
+		sb.append(source_, start_, end_);
+	}
+
 	@Override
 	public String toString()
 	{
-		return type_.name() + ": " + value_;
+		return type_.name() + ": " + value();
 	}
 }
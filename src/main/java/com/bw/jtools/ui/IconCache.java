@@ -0,0 +1,299 @@
+package com.bw.jtools.ui;
+
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.DeviceAlignment;
+import com.bw.jtools.shape.LruCache;
+import com.bw.jtools.shape.ShapePainter;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Raster cache for icons, e.g. for {@link ShapeIcon} in lists, tables and trees.<br>
+ * Entries are keyed by the shape, the settings of the painter, the device transform (e.g. for HiDPI screens)
+ * and the colors and gray mode. The memory is bounded, the least recently used entries are dropped first.<br>
+ * The shapes are referenced weakly, the cache doesn't keep them alive. Entries of collected shapes are dropped
+ * on the next access of the cache.<br>
+ * The cache assumes that the shapes are not modified. Call {@link #clear()} after modifications.
+ */
+public final class IconCache
+{
+	private static final IconCache shared_ = new IconCache(16L * 1024 * 1024);
+
+	private long hits_;
+	private long misses_;
+	private long evictions_;
+
+	/**
+	 * Cached images in access order.
+	 */
+	private final LruCache<Key, Entry> entries_;
+
+	/**
+	 * Keys of collected shapes.
+	 */
+	private final ReferenceQueue<AbstractShape> collected_ = new ReferenceQueue<>();
+
+	/**
+	 * All that influences the rendered image. The shape is the referent.
+	 */
+	private static final class Key extends WeakReference<AbstractShape>
+	{
+		/**
+		 * Scale, rotation and clipping of the painter, the device transform without integer translation.
+		 */
+		final double[] values_;
+		final Paint foreground_;
+		final Paint background_;
+		final boolean clearArea_;
+		final boolean gray_;
+		final int hash_;
+
+		Key(ShapePainter painter, AffineTransform local, Paint foreground, Paint background, boolean clearArea, boolean gray,
+			ReferenceQueue<AbstractShape> queue)
+		{
+			super(painter.getShape(), queue);
+			values_ = new double[]{painter.getXScale(), painter.getYScale(), painter.getRotationAngleDegree(),
+					painter.isClippingEnabled() ? 1 : 0, local.getScaleX(), local.getShearY(), local.getShearX(),
+					local.getScaleY(), local.getTranslateX(), local.getTranslateY()};
+			foreground_ = foreground;
+			background_ = background;
+			clearArea_ = clearArea;
+			gray_ = gray;
+			hash_ = Objects.hash(System.identityHashCode(painter.getShape()), Arrays.hashCode(values_), foreground_, background_, clearArea_, gray_);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			// Keys of collected shapes are only equal to themselves.
+			final AbstractShape shape = get();
+			return shape != null && shape == k.get() && clearArea_ == k.clearArea_ && gray_ == k.gray_ && Arrays.equals(values_, k.values_) &&
+					Objects.equals(foreground_, k.foreground_) && Objects.equals(background_, k.background_);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash_;
+		}
+	}
+
+	private static final class Entry
+	{
+		final BufferedImage image_;
+		final int x_;
+		final int y_;
+
+		Entry(BufferedImage image, int x, int y)
+		{
+			image_ = image;
+			x_ = x;
+			y_ = y;
+		}
+
+		long getBytes()
+		{
+			return 4L * image_.getWidth() * image_.getHeight();
+		}
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxBytes Maximal memory of the cached images.
+	 */
+	public IconCache(long maxBytes)
+	{
+		entries_ = new LruCache<Key, Entry>(maxBytes, Entry::getBytes)
+		{
+			@Override
+			protected void removed(Key key, Entry value)
+			{
+				++evictions_;
+			}
+		};
+	}
+
+	/**
+	 * Gets the cache that is shared by all icons that don't use an own cache.
+	 * It lives as long as the process, but holds only the images, not the shapes.
+	 */
+	public static IconCache getShared()
+	{
+		return shared_;
+	}
+
+	/**
+	 * Paints the shape of the painter from the cache, same as
+	 * {@link com.bw.jtools.shape.AbstractPainterBase#paint(java.awt.Graphics, Paint, Paint, boolean, boolean)}.
+	 * Missing images are rendered in the calling thread.
+	 *
+	 * @param g       The graphics.
+	 * @param painter The painter with the shape, scale and rotation to paint.
+	 */
+	public void paint(Graphics2D g, ShapePainter painter, Paint foreground, Paint background, boolean clearArea, boolean gray)
+	{
+		if (painter.getShape() == null)
+			return;
+		final DeviceAlignment alignment = new DeviceAlignment(g);
+		final Key key = new Key(painter, alignment.local_, foreground, background, clearArea, gray, collected_);
+
+		Entry entry;
+		synchronized (this)
+		{
+			expunge();
+			entry = entries_.get(key);
+			if (entry != null)
+				++hits_;
+			else
+				++misses_;
+		}
+		if (entry == null)
+		{
+			entry = render(painter, alignment.local_, foreground, background, clearArea, gray);
+			synchronized (this)
+			{
+				if (entry.getBytes() <= entries_.getMaxBytes())
+					entries_.put(key, entry);
+			}
+		}
+		alignment.drawImage(g, entry.image_, entry.x_, entry.y_);
+	}
+
+	/**
+	 * Drops the entries of collected shapes.
+	 */
+	private void expunge()
+	{
+		Reference<? extends AbstractShape> key;
+		while ((key = collected_.poll()) != null)
+			entries_.remove((Key) key);
+	}
+
+	/**
+	 * Renders the painter in device space, without integer translation.
+	 */
+	private static Entry render(ShapePainter painter, AffineTransform local, Paint foreground, Paint background, boolean clearArea, boolean gray)
+	{
+		final Rectangle r = local.createTransformedShape(painter.getArea())
+								 .getBounds();
+		// Anti-aliasing can touch adjacent pixels.
+		r.grow(1, 1);
+		BufferedImage image = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		try
+		{
+			Context.initGraphics(g);
+			g.translate(-r.x, -r.y);
+			g.transform(local);
+			painter.paint(g, foreground, background, clearArea, gray);
+		}
+		finally
+		{
+			g.dispose();
+		}
+		return new Entry(image, r.x, r.y);
+	}
+
+	/**
+	 * Sets the memory limit. Entries are dropped if needed.
+	 */
+	public synchronized void setMaxBytes(long maxBytes)
+	{
+		entries_.setMaxBytes(maxBytes);
+	}
+
+	/**
+	 * Gets the memory limit.
+	 */
+	public synchronized long getMaxBytes()
+	{
+		return entries_.getMaxBytes();
+	}
+
+	/**
+	 * Memory used by the cached images.
+	 */
+	public synchronized long getMemoryUsage()
+	{
+		expunge();
+		return entries_.getBytes();
+	}
+
+	/**
+	 * Number of cached images.
+	 */
+	public synchronized int size()
+	{
+		expunge();
+		return entries_.size();
+	}
+
+	/**
+	 * Number of paints that used a cached image.
+	 */
+	public synchronized long getHits()
+	{
+		return hits_;
+	}
+
+	/**
+	 * Number of paints that needed to render the image.
+	 */
+	public synchronized long getMisses()
+	{
+		return misses_;
+	}
+
+	/**
+	 * Number of images dropped because of the memory limit.
+	 */
+	public synchronized long getEvictions()
+	{
+		return evictions_;
+	}
+
+	/**
+	 * Gets the ratio of hits to all paints.
+	 *
+	 * @return The hit rate between 0 and 1, 0 if nothing was painted.
+	 */
+	public synchronized double getHitRate()
+	{
+		final long total = hits_ + misses_;
+		return total == 0 ? 0 : (double) hits_ / total;
+	}
+
+	/**
+	 * Resets hits, misses and evictions.
+	 */
+	public synchronized void resetStatistics()
+	{
+		hits_ = 0;
+		misses_ = 0;
+		evictions_ = 0;
+	}
+
+	/**
+	 * Drops all images. Needed after modification of the shapes.
+	 */
+	public synchronized void clear()
+	{
+		entries_.clear();
+	}
+}
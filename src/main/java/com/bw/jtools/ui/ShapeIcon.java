@@ -21,6 +21,7 @@ public class ShapeIcon implements Icon, Accessible
 	private boolean drawFrame_ = false;
 	private Paint framePaint_ = Color.BLACK;
 	private final ShapePainter painter_;
+	private IconCache cache_;
 
 	protected String description_;
 
@@ -62,6 +63,27 @@ public class ShapeIcon implements Icon, Accessible
 		painter_.setShape(shape);
 	}
 
+	/**
+	 * Sets a raster cache for the icon, e.g. for usage in lists, tables and trees.<br>
+	 * The shape shall not be modified as long as a cache is used, see {@link IconCache}.
+	 *
+	 * @param cache The cache, e.g. {@link IconCache#getShared()}, or null to paint without cache.
+	 */
+	public void setRasterCache(IconCache cache)
+	{
+		cache_ = cache;
+	}
+
+	/**
+	 * Gets the raster cache of the icon.
+	 *
+	 * @return The cache or null.
+	 */
+	public IconCache getRasterCache()
+	{
+		return cache_;
+	}
+
 	/**
 	 * Draws a border inside the icon with the default stroke.
 	 */
@@ -135,7 +157,14 @@ public class ShapeIcon implements Icon, Accessible
 				g2d.setPaint(framePaint_);
 				g2d.draw(painter_.getArea());
 			}
-			if (c == null)
+			if (cache_ != null)
+			{
+				if (c == null)
+					cache_.paint(g2d, painter_, Color.BLACK, Color.WHITE, false, false);
+				else
+					cache_.paint(g2d, painter_, c.getForeground(), c.getBackground(), c.isOpaque(), !c.isEnabled());
+			}
+			else if (c == null)
 				painter_.paint(g2d, Color.BLACK, Color.WHITE, false, false);
 			else
 				painter_.paint(g2d, c.getForeground(), c.getBackground(), c.isOpaque(), !c.isEnabled());
@@ -1,6 +1,7 @@
 package com.bw.jtools.ui;
 
 import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.LruCache;
 import com.bw.jtools.shape.ShapePainter;
 
 import java.awt.Image;
@@ -8,30 +9,72 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.AbstractMultiResolutionImage;
 import java.awt.image.BufferedImage;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.WeakHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * See {@link java.awt.image.MultiResolutionImage} for details about the concept.<br>
  * This implementation is indented to be used as frame-icons. See {@link javax.swing.JFrame#setIconImage(Image)}.
  * Such images are used os-dependent in different sizes for the frame-icon, the task-bar e.t.c.<br>
  * This implementation creates the requested sizes from the SVG-shapes on the fly.<br>
- * The images are cached in a weak-hash-map.
+ * The images are cached per pixel size, the memory is bounded and the least recently used images are dropped first.
+ * Concurrent requests for the same size render the image only once.
  */
 public class ShapeMultiResolutionImage extends AbstractMultiResolutionImage
 {
 	protected final ShapePainter painter_;
+
+	/**
+	 * The image with the scale of the painter. Guarded by "this".
+	 */
 	protected BufferedImage defaultImage_;
-	protected final WeakHashMap<String, BufferedImage> images_ = new WeakHashMap<>();
 	protected boolean keepAspectRatio = true;
 
-	protected synchronized BufferedImage getDefaultImage()
+	/**
+	 * Cached images in access order, keyed by {@link #key(int, int)}. Guarded by "this".
+	 */
+	private final LruCache<Long, BufferedImage> images_ = new LruCache<Long, BufferedImage>(4L * 1024 * 1024,
+			ShapeMultiResolutionImage::getBytes)
 	{
-		if (defaultImage_ == null)
+		/**
+		 * The last image is kept.
+		 */
+		@Override
+		protected boolean isRemovable(Long key, BufferedImage value)
 		{
-			defaultImage_ = painter_.paintShapeToBufferTransparent(null, false);
+			return size() > 1;
 		}
-		return defaultImage_;
+	};
+
+	/**
+	 * Images that are currently rendered. Guarded by "this".
+	 */
+	private final Map<Long, CompletableFuture<BufferedImage>> pending_ = new HashMap<>();
+
+	/**
+	 * Key of the default image in {@link #pending_}, sizes have positive keys.
+	 */
+	private static final Long DEFAULT_KEY = -1L;
+
+	/**
+	 * Gets the image with the scale of the painter. Rendered once, without lock as the other sizes.
+	 */
+	protected BufferedImage getDefaultImage()
+	{
+		return getImage(DEFAULT_KEY, this::renderDefault);
+	}
+
+	/**
+	 * Renders the image with the scale of the painter. Called without lock, with an own painter.
+	 */
+	protected BufferedImage renderDefault()
+	{
+		ShapePainter painter = createPainter();
+		painter.setScale(painter_.getXScale(), painter_.getYScale());
+		return paint(painter);
 	}
 
 	/**
@@ -50,36 +93,142 @@ public class ShapeMultiResolutionImage extends AbstractMultiResolutionImage
 		this.painter_ = new ShapePainter(shape);
 	}
 
+	/**
+	 * Sets the memory limit for the cached images.
+	 */
+	public synchronized void setMaxBytes(long maxBytes)
+	{
+		images_.setMaxBytes(maxBytes);
+	}
+
+	/**
+	 * Memory used by the cached images.
+	 */
+	public synchronized long getMemoryUsage()
+	{
+		return images_.getBytes();
+	}
+
+	private static long key(int width, int height)
+	{
+		return ((long) width << 32) | (height & 0xFFFFFFFFL);
+	}
+
 	@Override
 	public Image getResolutionVariant(double destImageWidth, double destImageHeight)
 	{
-		BufferedImage img;
+		// Images have whole pixels, near sizes share the image.
+		final int width = Math.max(1, (int) Math.ceil(destImageWidth - 0.001));
+		final int height = Math.max(1, (int) Math.ceil(destImageHeight - 0.001));
+		return getImage(key(width, height), () -> render(width, height));
+	}
+
+	/**
+	 * Gets a cached image or renders it. Concurrent calls for the same key render only once, without lock.
+	 */
+	private BufferedImage getImage(Long key, Supplier<BufferedImage> renderer)
+	{
+		CompletableFuture<BufferedImage> future;
+		boolean render = false;
 		synchronized (this)
 		{
-			String key = String.format("%.3fx%.3f", destImageWidth, destImageHeight);
-			img = images_.get(key);
-			if (img == null)
+			BufferedImage img = DEFAULT_KEY.equals(key) ? defaultImage_ : images_.get(key);
+			if (img != null)
+				return img;
+			future = pending_.get(key);
+			if (future == null)
+			{
+				future = new CompletableFuture<>();
+				pending_.put(key, future);
+				render = true;
+			}
+		}
+		if (!render)
+			return future.join();
+
+		BufferedImage img = null;
+		try
+		{
+			img = renderer.get();
+		}
+		finally
+		{
+			synchronized (this)
 			{
-				painter_.setScale(1, 1);
-				Rectangle2D area = painter_.getArea();
-				double scaleX = destImageWidth / area.getWidth();
-				double scaleY = destImageHeight / area.getHeight();
-				if (keepAspectRatio)
-				{
-					double scale = Math.min(scaleX, scaleY);
-					painter_.setScale(scale, scale);
-				}
-				else
-				{
-					painter_.setScale(scaleX, scaleY);
-				}
-				img = painter_.paintShapeToBufferTransparent(null, false);
-				images_.put(key, img);
+				pending_.remove(key);
+				if (img != null && DEFAULT_KEY.equals(key))
+					defaultImage_ = img;
+				else if (img != null)
+					images_.put(key, img);
 			}
+			if (img != null)
+				future.complete(img);
+			else
+				future.completeExceptionally(new IllegalStateException("Rendering failed"));
 		}
 		return img;
 	}
 
+	/**
+	 * Renders the image for a size. Called without lock, with an own painter.
+	 *
+	 * @param width  The requested width in pixel.
+	 * @param height The requested height in pixel.
+	 */
+	protected BufferedImage render(int width, int height)
+	{
+		ShapePainter painter = createPainter();
+		Rectangle2D area = painter.getArea();
+		double scaleX = width / area.getWidth();
+		double scaleY = height / area.getHeight();
+		if (keepAspectRatio)
+		{
+			double scale = Math.min(scaleX, scaleY);
+			painter.setScale(scale, scale);
+		}
+		else
+		{
+			painter.setScale(scaleX, scaleY);
+		}
+		return paint(painter);
+	}
+
+	/**
+	 * Paints with a painter that is used only once. The buffers of the painter are given back afterwards.
+	 */
+	private static BufferedImage paint(ShapePainter painter)
+	{
+		try
+		{
+			return painter.paintShapeToBufferTransparent(null, false);
+		}
+		finally
+		{
+			painter.getRenderState()
+				   .clear();
+		}
+	}
+
+	/**
+	 * Creates a painter with the shape and settings of the painter of this image, but with scale 1.
+	 * The painter of this image is not modified, as other threads may use it.
+	 */
+	private ShapePainter createPainter()
+	{
+		ShapePainter painter = new ShapePainter(painter_.getShape());
+		painter.setRotationAngleDegree(painter_.getRotationAngleDegree());
+		painter.setClippingEnabled(painter_.isClippingEnabled());
+		painter.getRenderState()
+			   .setBufferPool(painter_.getRenderState()
+									  .getBufferPool());
+		return painter;
+	}
+
+	private static long getBytes(BufferedImage img)
+	{
+		return 4L * img.getWidth() * img.getHeight();
+	}
+
 	@Override
 	public List<Image> getResolutionVariants()
 	{
@@ -24,6 +24,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelListener;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 /**
@@ -45,6 +46,8 @@ public class ShapePane extends JComponent
 	private boolean mouseDragEnabled_ = false;
 	private boolean mouseRotateEnabled_ = false;
 
+	private TileCache tileCache_;
+
 	private double initialScaleX_ = 1;
 	private double initialScaleY_ = 1;
 
@@ -175,6 +178,8 @@ public class ShapePane extends JComponent
 	public void setPainter(AbstractPainterBase painter)
 	{
 		painter_ = painter;
+		if (tileCache_ != null)
+			tileCache_.invalidate();
 		refresh();
 	}
 
@@ -191,6 +196,8 @@ public class ShapePane extends JComponent
 	public void setShape(AbstractShape shape)
 	{
 		painter_.setShape(shape);
+		if (tileCache_ != null)
+			tileCache_.invalidate();
 		refresh();
 	}
 
@@ -199,6 +206,17 @@ public class ShapePane extends JComponent
 		return painter_.getShape();
 	}
 
+	/**
+	 * Finds the top-most shape at a point, e.g. for tool-tips or selection.
+	 *
+	 * @param p The point in coordinates of this component.
+	 * @return The shape or null.
+	 */
+	public AbstractShape getShapeAt(Point2D p)
+	{
+		return painter_ == null ? null : painter_.findShapeAt(p);
+	}
+
 
 	/**
 	 * Gets X-Scale factor.
@@ -268,7 +286,43 @@ public class ShapePane extends JComponent
 				g2d.draw(painter_.getArea());
 				g2d.setPaint(p);
 			}
-			painter_.paint(g2d, getForeground(), getBackground(), isOpaque(), renderGrayIfDisabled_ && !isEnabled());
+			if (tileCache_ != null && TileCache.isSupported(painter_))
+				tileCache_.paint(g2d, painter_, getForeground(), getBackground(), isOpaque(), renderGrayIfDisabled_ && !isEnabled(), this);
+			else
+				painter_.paint(g2d, getForeground(), getBackground(), isOpaque(), renderGrayIfDisabled_ && !isEnabled());
+		}
+	}
+
+	/**
+	 * Enables a raster cache for fast repaints during pan and zoom.<br>
+	 * The shape is painted in tiles by background threads, see {@link TileCache}.
+	 * If the shape is modified (e.g. by animations), {@link #invalidateTileCache()} needs to be called.
+	 *
+	 * @param maxBytes Memory limit of the cache, 0 to disable the cache.
+	 */
+	public void setTileCache(long maxBytes)
+	{
+		tileCache_ = maxBytes > 0 ? new TileCache(maxBytes) : null;
+		repaint();
+	}
+
+	/**
+	 * Returns true if the tile cache is enabled.
+	 */
+	public boolean isTileCacheEnabled()
+	{
+		return tileCache_ != null;
+	}
+
+	/**
+	 * Drops all cached tiles.
+	 */
+	public void invalidateTileCache()
+	{
+		if (tileCache_ != null)
+		{
+			tileCache_.invalidate();
+			repaint();
 		}
 	}
 
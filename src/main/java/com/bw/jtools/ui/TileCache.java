@@ -0,0 +1,440 @@
+package com.bw.jtools.ui;
+
+import com.bw.jtools.shape.AbstractPainterBase;
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.DeviceAlignment;
+import com.bw.jtools.shape.DisplayListPainter;
+import com.bw.jtools.shape.LruCache;
+import com.bw.jtools.shape.ShapePainter;
+
+import javax.swing.SwingUtilities;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Raster cache of painted shapes, split into tiles.<br>
+ * Tiles are keyed by the zoom level (scale, rotation and colors) and the tile position.
+ * Tiles are painted in device resolution, so the scale of the graphics (e.g. on HiDPI screens) is part of the zoom level.
+ * Missing tiles are painted asynchronously by a pool of worker threads, meanwhile the tiles
+ * of the previous zoom level are shown scaled as placeholders. The memory of the cached tiles is bounded,
+ * the least recently used tiles are dropped first.
+ * The visible tiles of the current zoom level are never dropped, even if they need more memory than the limit.<br>
+ * The cache assumes that the shapes are not modified. Call {@link #invalidate()} after modifications.
+ * Only painters that paint the shape once (see {@link ShapePainter}, {@link DisplayListPainter}) are supported.
+ */
+public final class TileCache
+{
+	/**
+	 * Width and height of tiles in pixel.
+	 */
+	public static final int TILE_SIZE = 256;
+
+	private static final long TILE_BYTES = 4L * TILE_SIZE * TILE_SIZE;
+
+	private static ExecutorService workers_;
+
+	/**
+	 * Cached tiles in access order.
+	 */
+	private final LruCache<TileKey, BufferedImage> tiles_;
+	private final Set<TileKey> pending_ = new HashSet<>();
+
+	/**
+	 * Idle painters of the workers. Shapes can be painted in parallel, painters can't.
+	 * The painters belong to the cache and don't keep shapes alive after the cache or an invalidation.
+	 */
+	private final Deque<ShapePainter> painters_ = new ArrayDeque<>();
+
+	private Level current_;
+	private boolean currentHasTiles_;
+
+	/**
+	 * The visible tiles of the current level, in tile coordinates.
+	 */
+	private Rectangle visibleTiles_;
+
+	/**
+	 * The last level with tiles, used for placeholders.
+	 */
+	private Level previous_;
+	private int generation_;
+
+	/**
+	 * All that influences the content of tiles.
+	 */
+	private static final class Level
+	{
+		final int generation_;
+		final AbstractShape shape_;
+		/**
+		 * Scale of the painter and the device.
+		 */
+		final double scaleX_;
+		final double scaleY_;
+		final double deviceScaleX_;
+		final double deviceScaleY_;
+		final double rotation_;
+		final boolean clipping_;
+		final Paint foreground_;
+		final Paint background_;
+		final boolean clearArea_;
+		final boolean gray_;
+
+		Level(int generation, AbstractPainterBase painter, double deviceScaleX, double deviceScaleY,
+			  Paint foreground, Paint background, boolean clearArea, boolean gray)
+		{
+			generation_ = generation;
+			shape_ = painter.getShape();
+			deviceScaleX_ = deviceScaleX;
+			deviceScaleY_ = deviceScaleY;
+			scaleX_ = painter.getXScale() * deviceScaleX;
+			scaleY_ = painter.getYScale() * deviceScaleY;
+			rotation_ = painter.getRotationAngleDegree();
+			clipping_ = painter.isClippingEnabled();
+			foreground_ = foreground;
+			background_ = background;
+			clearArea_ = clearArea;
+			gray_ = gray;
+		}
+
+		/**
+		 * Checks if the tiles of the other level show the same content, maybe with a different scale.
+		 */
+		boolean isScaleOf(Level o)
+		{
+			return o != null && generation_ == o.generation_ && shape_ == o.shape_ && rotation_ == o.rotation_ &&
+					clipping_ == o.clipping_ && gray_ == o.gray_ && clearArea_ == o.clearArea_ &&
+					Objects.equals(foreground_, o.foreground_) && Objects.equals(background_, o.background_);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof Level))
+				return false;
+			Level l = (Level) o;
+			return scaleX_ == l.scaleX_ && scaleY_ == l.scaleY_ && isScaleOf(l);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(generation_, scaleX_, scaleY_, rotation_);
+		}
+	}
+
+	private static final class TileKey
+	{
+		final Level level_;
+		final int x_;
+		final int y_;
+
+		TileKey(Level level, int x, int y)
+		{
+			level_ = level;
+			x_ = x;
+			y_ = y;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof TileKey))
+				return false;
+			TileKey k = (TileKey) o;
+			return x_ == k.x_ && y_ == k.y_ && level_.equals(k.level_);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (level_.hashCode() * 31 + x_) * 31 + y_;
+		}
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxBytes Maximal memory of the cached tiles.
+	 */
+	public TileCache(long maxBytes)
+	{
+		tiles_ = new LruCache<TileKey, BufferedImage>(maxBytes, tile -> TILE_BYTES)
+		{
+			/**
+			 * Visible tiles of the current level are kept, otherwise they would be painted again and again.
+			 */
+			@Override
+			protected boolean isRemovable(TileKey key, BufferedImage tile)
+			{
+				return !isVisible(key);
+			}
+		};
+	}
+
+	/**
+	 * Checks if a painter is supported.
+	 */
+	public static boolean isSupported(AbstractPainterBase painter)
+	{
+		return painter instanceof ShapePainter || painter instanceof DisplayListPainter;
+	}
+
+	private static synchronized ExecutorService getWorkers()
+	{
+		if (workers_ == null)
+		{
+			workers_ = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime()
+																	   .availableProcessors() - 1), r ->
+			{
+				Thread t = new Thread(r, "TileCache");
+				t.setDaemon(true);
+				t.setPriority(Thread.NORM_PRIORITY - 1);
+				return t;
+			});
+		}
+		return workers_;
+	}
+
+	/**
+	 * Paints the shape of the painter from the cached tiles, same as
+	 * {@link AbstractPainterBase#paint(java.awt.Graphics, Paint, Paint, boolean, boolean)}.
+	 * Only the tiles inside the clip of the graphics are painted.
+	 * If the graphics is scaled, the tiles are painted in device resolution at the integer part of the device translation.
+	 *
+	 * @param g       The graphics.
+	 * @param painter The painter with the shape, scale and rotation to paint.
+	 * @param target  Component to repaint if missing tiles are available, can be null.
+	 */
+	public void paint(Graphics2D g, AbstractPainterBase painter, Paint foreground, Paint background, boolean clearArea, boolean gray, Component target)
+	{
+		// Only a positive scale can be painted in device resolution, rotated or mirrored graphics get scaled tiles.
+		final AffineTransform device = g.getTransform();
+		final boolean deviceScaled = device.getShearX() == 0 && device.getShearY() == 0 &&
+				device.getScaleX() > 0 && device.getScaleY() > 0;
+		final double dsx = deviceScaled ? device.getScaleX() : 1;
+		final double dsy = deviceScaled ? device.getScaleY() : 1;
+		final AffineTransform deviceScale = AffineTransform.getScaleInstance(dsx, dsy);
+
+		final Rectangle2D area = painter.getArea();
+		Rectangle visible = new Rectangle(0, 0, (int) Math.ceil(area.getWidth() * dsx), (int) Math.ceil(area.getHeight() * dsy));
+		Rectangle clip = g.getClipBounds();
+		if (clip != null)
+			visible = visible.intersection(deviceScale.createTransformedShape(clip)
+													  .getBounds());
+		if (visible.isEmpty())
+			return;
+
+		final int x0 = visible.x / TILE_SIZE, y0 = visible.y / TILE_SIZE;
+		final int x1 = (visible.x + visible.width - 1) / TILE_SIZE, y1 = (visible.y + visible.height - 1) / TILE_SIZE;
+
+		final Level level;
+		final Level previous;
+		synchronized (this)
+		{
+			Level l = new Level(generation_, painter, dsx, dsy, foreground, background, clearArea, gray);
+			if (!l.equals(current_))
+			{
+				// Intermediate levels without tiles are skipped.
+				if (currentHasTiles_)
+					previous_ = current_;
+				current_ = l;
+				currentHasTiles_ = false;
+			}
+			level = current_;
+			previous = level.isScaleOf(previous_) ? previous_ : null;
+			visibleTiles_ = new Rectangle(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+		}
+
+		Graphics2D gt = (Graphics2D) g.create();
+		try
+		{
+			if (deviceScaled)
+			{
+				final DeviceAlignment alignment = new DeviceAlignment(device);
+				gt.setTransform(AffineTransform.getTranslateInstance(alignment.x_, alignment.y_));
+			}
+			for (int ty = y0; ty <= y1; ++ty)
+				for (int tx = x0; tx <= x1; ++tx)
+				{
+					final TileKey key = new TileKey(level, tx, ty);
+					BufferedImage tile;
+					synchronized (this)
+					{
+						tile = tiles_.get(key);
+						if (tile == null && pending_.add(key))
+							getWorkers().execute(() -> renderTile(key, target));
+					}
+					if (tile != null)
+						gt.drawImage(tile, tx * TILE_SIZE, ty * TILE_SIZE, null);
+					else
+						paintPlaceholder(gt, level, previous, tx, ty);
+				}
+		}
+		finally
+		{
+			gt.dispose();
+		}
+	}
+
+	/**
+	 * Paints the scaled tiles of the previous level into the area of a missing tile.
+	 */
+	private void paintPlaceholder(Graphics2D g, Level level, Level previous, int tx, int ty)
+	{
+		final Rectangle r = new Rectangle(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+		Graphics2D gp = (Graphics2D) g.create();
+		try
+		{
+			gp.clip(r);
+			if (level.clearArea_ && level.background_ != null)
+			{
+				gp.setPaint(level.background_);
+				gp.fill(r);
+			}
+			if (previous == null)
+				return;
+			final double fx = previous.scaleX_ / level.scaleX_;
+			final double fy = previous.scaleY_ / level.scaleY_;
+			gp.scale(1 / fx, 1 / fy);
+			final int px0 = (int) Math.floor(r.x * fx / TILE_SIZE), py0 = (int) Math.floor(r.y * fy / TILE_SIZE);
+			final int px1 = (int) Math.floor((r.x + r.width) * fx / TILE_SIZE), py1 = (int) Math.floor((r.y + r.height) * fy / TILE_SIZE);
+			for (int py = py0; py <= py1; ++py)
+				for (int px = px0; px <= px1; ++px)
+				{
+					BufferedImage tile;
+					synchronized (this)
+					{
+						tile = tiles_.get(new TileKey(previous, px, py));
+					}
+					if (tile != null)
+						gp.drawImage(tile, px * TILE_SIZE, py * TILE_SIZE, null);
+				}
+		}
+		finally
+		{
+			gp.dispose();
+		}
+	}
+
+	private void renderTile(TileKey key, Component target)
+	{
+		final Level level = key.level_;
+		synchronized (this)
+		{
+			// Skip tiles of outdated levels, e.g. from intermediate zoom steps.
+			if (!level.equals(current_))
+			{
+				pending_.remove(key);
+				return;
+			}
+		}
+		ShapePainter painter;
+		synchronized (this)
+		{
+			painter = painters_.poll();
+		}
+		if (painter == null)
+			painter = new ShapePainter();
+		BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		try
+		{
+			if (painter.getShape() != level.shape_)
+				painter.setShape(level.shape_);
+			painter.setScale(level.scaleX_, level.scaleY_);
+			painter.setRotationAngleDegree(level.rotation_);
+			painter.setClippingEnabled(level.clipping_);
+
+			Graphics2D g = tile.createGraphics();
+			try
+			{
+				Context.initGraphics(g);
+				g.translate(-key.x_ * TILE_SIZE, -key.y_ * TILE_SIZE);
+				g.setClip(key.x_ * TILE_SIZE, key.y_ * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+				painter.paint(g, level.foreground_, level.background_, level.clearArea_, level.gray_);
+			}
+			finally
+			{
+				g.dispose();
+			}
+		}
+		finally
+		{
+			// Buffers of filters are painted again for each tile, they don't need to stay with the thread.
+			painter.getRenderState()
+				   .clear();
+			synchronized (this)
+			{
+				pending_.remove(key);
+				if (level.generation_ == generation_)
+				{
+					tiles_.put(key, tile);
+					if (level.equals(current_))
+						currentHasTiles_ = true;
+					painters_.push(painter);
+				}
+			}
+		}
+		if (target != null)
+		{
+			// Tile area in component coordinates, widened by one pixel for the rounded device translation.
+			final int x = (int) Math.floor(key.x_ * TILE_SIZE / level.deviceScaleX_) - 1;
+			final int y = (int) Math.floor(key.y_ * TILE_SIZE / level.deviceScaleY_) - 1;
+			final int w = (int) Math.ceil(TILE_SIZE / level.deviceScaleX_) + 3;
+			final int h = (int) Math.ceil(TILE_SIZE / level.deviceScaleY_) + 3;
+			SwingUtilities.invokeLater(() -> target.repaint(x, y, w, h));
+		}
+	}
+
+	private boolean isVisible(TileKey key)
+	{
+		return visibleTiles_ != null && key.level_.equals(current_) && visibleTiles_.contains(key.x_, key.y_);
+	}
+
+	/**
+	 * Drops all tiles. Needed after modification of the shapes.
+	 */
+	public synchronized void invalidate()
+	{
+		++generation_;
+		tiles_.clear();
+		painters_.clear();
+		current_ = null;
+		currentHasTiles_ = false;
+		visibleTiles_ = null;
+		previous_ = null;
+	}
+
+	/**
+	 * Memory used by the cached tiles.
+	 */
+	public synchronized long getMemoryUsage()
+	{
+		return tiles_.getBytes();
+	}
+
+	/**
+	 * Returns true if tiles are painted in the background.
+	 */
+	public synchronized boolean hasPendingTiles()
+	{
+		return !pending_.isEmpty();
+	}
+}
@@ -0,0 +1,78 @@
+package com.bw.jtools;
+
+import com.bw.jtools.shape.AbstractPainterBase;
+import com.bw.jtools.shape.Context;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Helpers to compare painted images.
+ */
+public final class PixelAssertions
+{
+	private PixelAssertions()
+	{
+	}
+
+	/**
+	 * Gets all pixels of an image as ARGB.
+	 */
+	public static int[] pixels(BufferedImage image)
+	{
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+
+	/**
+	 * Paints the shape of the painter with magenta on white and gets the pixels.
+	 */
+	public static int[] pixels(AbstractPainterBase painter, boolean gray)
+	{
+		return pixels(painter.paintShapeToBuffer(null, Color.MAGENTA, Color.WHITE, gray));
+	}
+
+	/**
+	 * Paints the shape of the painter with magenta on white into the clip of a new image and gets the pixels.
+	 */
+	public static int[] pixels(AbstractPainterBase painter, int width, int height, Rectangle clip)
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		Context.initGraphics(g);
+		g.setClip(clip);
+		painter.paint(g, Color.MAGENTA, Color.WHITE, true);
+		g.dispose();
+		return pixels(image);
+	}
+
+	/**
+	 * Checks that all channels of all pixels differ at most by maxDifference.
+	 */
+	public static void assertSimilar(int[] expected, int[] actual, int maxDifference)
+	{
+		assertSimilar(expected, actual, maxDifference, expected.length);
+	}
+
+	/**
+	 * Checks that all channels of all pixels differ at most by maxDifference
+	 * and that at most maxDifferentPixels pixels differ at all.
+	 */
+	public static void assertSimilar(int[] expected, int[] actual, int maxDifference, int maxDifferentPixels)
+	{
+		assertEquals(expected.length, actual.length);
+		int differentPixels = 0;
+		for (int i = 0; i < expected.length; ++i)
+			if (expected[i] != actual[i])
+			{
+				++differentPixels;
+				for (int shift = 0; shift < 32; shift += 8)
+					assertTrue(Math.abs(((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF)) <= maxDifference, "pixel " + i);
+			}
+		assertTrue(differentPixels <= maxDifferentPixels, differentPixels + " different pixels");
+	}
+}
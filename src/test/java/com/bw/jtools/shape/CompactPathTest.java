@@ -0,0 +1,76 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.svg.Path;
+import com.bw.jtools.svg.SVGConverterEngine;
+import com.bw.jtools.svg.SVGException;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactPathTest
+{
+	static final String D = "M10 10 L 90 10 Q 95 50 90 90 C 60 95 40 85 10 90 A 20 20 0 0 1 10 10 Z M 30 30 h 40 v 40 h -40 z";
+
+	private static void assertSameSegments(PathIterator expected, PathIterator actual)
+	{
+		double[] e = new double[6];
+		double[] a = new double[6];
+		assertEquals(expected.getWindingRule(), actual.getWindingRule());
+		while (!expected.isDone())
+		{
+			assertTrue(!actual.isDone());
+			int type = expected.currentSegment(e);
+			assertEquals(type, actual.currentSegment(a));
+			for (int i = 0; i < 6; ++i)
+				assertEquals(e[i], a[i], 1e-4);
+			expected.next();
+			actual.next();
+		}
+		assertTrue(actual.isDone());
+	}
+
+	@Test
+	void sameGeometry()
+	{
+		Path2D path = new Path(D).getPath();
+		CompactPath.Builder builder = new CompactPath.Builder(Path.estimateSegments(D));
+		new Path(D, builder);
+		CompactPath compact = builder.build();
+
+		assertSameSegments(path.getPathIterator(null), compact.getPathIterator(null));
+		AffineTransform aft = AffineTransform.getRotateInstance(0.3, 50, 50);
+		aft.scale(2, 3);
+		assertSameSegments(path.getPathIterator(aft), compact.getPathIterator(aft));
+		assertSameSegments(path.getPathIterator(null), CompactPath.of(path)
+																  .getPathIterator(null));
+
+		assertEquals(path.getBounds2D()
+						 .getWidth(), compact.getBounds2D()
+											 .getWidth(), 1e-4);
+		assertTrue(compact.contains(20, 20));
+		// Inner rectangle is a hole with even-odd.
+		assertTrue(compact.contains(50, 50));
+		assertTrue(!compact.withWindingRule(PathIterator.WIND_EVEN_ODD)
+						   .contains(50, 50));
+	}
+
+	@Test
+	void engineOption() throws SVGException
+	{
+		String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 100 100\">" +
+				"<path fill-rule=\"evenodd\" d=\"" + D + "\"/><polygon points=\"0,0 5,0 5,5\"/></svg>";
+		SVGConverterEngine engine = new SVGConverterEngine();
+		engine.setCompactGeometry(true);
+		ShapeGroup root = (ShapeGroup) engine.convert(svg);
+
+		StyledShape path = (StyledShape) root.shapes_.get(0);
+		assertTrue(path.shape_ instanceof CompactPath);
+		assertEquals(PathIterator.WIND_EVEN_ODD, ((CompactPath) path.shape_).getWindingRule());
+		assertTrue(((StyledShape) root.shapes_.get(1)).shape_ instanceof CompactPath);
+	}
+}
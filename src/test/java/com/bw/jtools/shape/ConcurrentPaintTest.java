@@ -0,0 +1,83 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.Offset;
+import com.bw.jtools.svg.SVGConverter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentPaintTest
+{
+	static final String SVG =
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 100 100\">" +
+					"<defs><clipPath id=\"c\"><circle cx=\"50\" cy=\"50\" r=\"40\"/></clipPath></defs>" +
+					"<rect x=\"10\" y=\"10\" width=\"40\" height=\"30\" fill=\"red\"/>" +
+					"<g transform=\"rotate(15 50 50)\" clip-path=\"url(#c)\"><rect x=\"30\" y=\"30\" width=\"60\" height=\"60\" fill=\"blue\" stroke=\"black\"/></g>" +
+					"<circle cx=\"80\" cy=\"20\" r=\"10\" fill=\"currentColor\"/></svg>";
+
+	private static AbstractPainterBase painter(AbstractShape shape, int variant)
+	{
+		AbstractPainterBase painter = (variant & 1) == 0 ? new ShapePainter(shape) : new DisplayListPainter(shape);
+		painter.setScale(1.5, 1.5);
+		painter.setClippingEnabled((variant & 2) == 0);
+		return painter;
+	}
+
+	@Test
+	void paintSharedShape() throws Exception
+	{
+		final ShapeGroup shape = (ShapeGroup) SVGConverter.convert(SVG);
+
+		// Filters are experimental and not created by the converter, add a group with a blurred shadow.
+		ShapeGroup filtered = new ShapeGroup("f", new FilterChain(Arrays.asList(
+				new GaussianBlur(FilterBase.SOURCE, "blur", 2, 2),
+				new Offset("blur", "shadow", 3, 3))), null, null);
+		filtered.units_ = new Point2D.Double(1, 1);
+		filtered.shapes_.add(new StyledShape("s", new java.awt.Rectangle(20, 60, 30, 20), null, null, Color.GREEN, null, null));
+		shape.shapes_.add(filtered);
+
+		final int variants = 8;
+		final List<int[]> expected = new ArrayList<>();
+		for (int v = 0; v < variants; ++v)
+			expected.add(pixels(painter(shape, v), (v & 4) != 0));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 16; ++t)
+			{
+				final int variant = t % variants;
+				futures.add(executor.submit(() ->
+				{
+					AbstractPainterBase painter = painter(shape, variant);
+					for (int i = 0; i < 20; ++i)
+						assertArrayEquals(expected.get(variant), pixels(painter, (variant & 4) != 0));
+					return null;
+				}));
+			}
+			for (Future<?> f : futures)
+				f.get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		// Painters don't modify the shape.
+		assertTrue(shape.isClippingEnabled());
+	}
+}
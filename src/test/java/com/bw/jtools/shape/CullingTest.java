@@ -0,0 +1,104 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.svg.SVGConverter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CullingTest
+{
+	private static String svg()
+	{
+		StringBuilder sb = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 200 200\">");
+		for (int y = 0; y < 10; ++y)
+		{
+			sb.append("<g transform=\"translate(0 ")
+			  .append(y * 20)
+			  .append(")\">");
+			for (int x = 0; x < 10; ++x)
+			{
+				switch ((x + y) % 4)
+				{
+					case 0:
+						sb.append("<rect x=\"")
+						  .append(x * 20 + 2)
+						  .append("\" y=\"2\" width=\"16\" height=\"16\" fill=\"red\" stroke=\"black\" stroke-width=\"3\"/>");
+						break;
+					case 1:
+						// Sharp miter, the spike reaches far beyond the geometry.
+						sb.append("<path d=\"M")
+						  .append(x * 20 + 2)
+						  .append(" 18L")
+						  .append(x * 20 + 10)
+						  .append(" 17L")
+						  .append(x * 20 + 2)
+						  .append(" 16\" fill=\"none\" stroke=\"blue\" stroke-width=\"2\" stroke-miterlimit=\"10\"/>");
+						break;
+					case 2:
+						// Hairline without area.
+						sb.append("<line x1=\"")
+						  .append(x * 20)
+						  .append("\" y1=\"10\" x2=\"")
+						  .append(x * 20 + 20)
+						  .append("\" y2=\"10\" stroke=\"green\"/>");
+						break;
+					default:
+						sb.append("<ellipse cx=\"")
+						  .append(x * 20 + 10)
+						  .append("\" cy=\"10\" rx=\"12\" ry=\"5\" fill=\"currentColor\" transform=\"rotate(30 ")
+						  .append(x * 20 + 10)
+						  .append(" 10)\"/>");
+				}
+			}
+			sb.append("</g>");
+		}
+		return sb.append("</svg>")
+				 .toString();
+	}
+
+	private static int[] paint(AbstractPainterBase painter, boolean culling)
+	{
+		painter.setScale(3, 3);
+		painter.setRotationAngleDegree(7);
+		painter.getRenderState()
+			   .setCullingEnabled(culling);
+		return pixels(painter, 600, 600, new Rectangle(217, 131, 90, 70));
+	}
+
+	@Test
+	void sameAsWithoutCulling() throws Exception
+	{
+		AbstractShape shape = SVGConverter.convert(svg());
+		for (AbstractPainterBase painter : new AbstractPainterBase[]{new ShapePainter(shape), new DisplayListPainter(shape)})
+		{
+			int[] expected = paint(painter, false);
+			RenderState rs = painter.getRenderState();
+			assertEquals(0, rs.getCulledShapes());
+			final long all = rs.getPaintedShapes();
+
+			assertArrayEquals(expected, paint(painter, true));
+			assertTrue(rs.getCulledShapes() > 0);
+			assertTrue(rs.getPaintedShapes() < all);
+		}
+	}
+
+	@Test
+	void invalidateBounds()
+	{
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		StyledShape s = new StyledShape("s", new java.awt.Rectangle(0, 0, 10, 10), null, null, Color.RED, null, null);
+		g.shapes_.add(s);
+		assertEquals(10, g.getPaintBounds()
+						  .getMaxX(), 1e-6);
+		s.aft_.translate(5, 0);
+		g.invalidateBounds();
+		assertEquals(15, g.getPaintBounds()
+						  .getMaxX(), 1e-6);
+	}
+}
@@ -0,0 +1,69 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.PixelAssertions;
+import com.bw.jtools.svg.SVGConverter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DisplayListTest
+{
+	static final String SVG =
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" viewBox=\"0 0 100 100\">" +
+					"<defs><clipPath id=\"c\"><circle cx=\"40\" cy=\"40\" r=\"30\"/></clipPath>" +
+					"<linearGradient id=\"lg\"><stop offset=\"0\" stop-color=\"red\"/><stop offset=\"1\" stop-color=\"currentColor\"/></linearGradient></defs>" +
+					"<g transform=\"translate(5 5) rotate(10)\" clip-path=\"url(#c)\">" +
+					"<rect width=\"60\" height=\"60\" fill=\"url(#lg)\" stroke=\"blue\" stroke-width=\"3\"/>" +
+					"<g transform=\"scale(0.5)\"><circle cx=\"50\" cy=\"50\" r=\"20\" stroke=\"currentColor\" fill=\"none\"/>" +
+					"<path d=\"M0 0L80 20\" stroke=\"green\"/></g></g>" +
+					"<rect x=\"70\" y=\"70\" width=\"20\" height=\"20\" clip-path=\"url(#c)\"/>" +
+					"<ellipse cx=\"80\" cy=\"20\" rx=\"15\" ry=\"8\" fill=\"yellow\" transform=\"skewX(20)\"/></svg>";
+
+	private static int[] pixels(AbstractPainterBase painter, boolean gray)
+	{
+		painter.setScale(1.7, 1.7);
+		return PixelAssertions.pixels(painter, gray);
+	}
+
+	@Test
+	void sameAsTree() throws Exception
+	{
+		AbstractShape shape = SVGConverter.convert(SVG);
+		for (boolean gray : new boolean[]{false, true})
+			assertArrayEquals(pixels(new ShapePainter(shape), gray), pixels(new DisplayListPainter(shape), gray));
+
+		ShapePainter tree = new ShapePainter(shape);
+		DisplayListPainter list = new DisplayListPainter(shape);
+		tree.setClippingEnabled(false);
+		list.setClippingEnabled(false);
+		assertArrayEquals(pixels(tree, false), pixels(list, false));
+	}
+
+	@Test
+	void operations()
+	{
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		g.shapes_.add(new StyledShape("a", new java.awt.Rectangle(0, 0, 1, 1), null, null, Color.RED, null, null));
+		// Neither filled nor drawn.
+		g.shapes_.add(new StyledShape("b", new java.awt.Rectangle(0, 0, 1, 1), StyledShape.DEFAULT_STROKE, null, Context.NONE, null, null));
+		g.shapes_.add(new StyledShape("c", new java.awt.Rectangle(0, 0, 1, 1), null, null, Color.RED, new java.awt.Rectangle(0, 0, 1, 1), null));
+		// Shape, push clip, shape, pop clip.
+		assertEquals(4, DisplayList.compile(g)
+								   .size());
+		assertEquals(0, DisplayList.compile(null)
+								   .size());
+	}
+
+	@Test
+	void levelOfDetailRejected() throws Exception
+	{
+		DisplayListPainter painter = new DisplayListPainter(SVGConverter.convert(SVG));
+		painter.setLevelOfDetail(0, false, 0);
+		assertThrows(UnsupportedOperationException.class, () -> painter.setLevelOfDetail(3, true, 0));
+		assertThrows(UnsupportedOperationException.class, () -> painter.setLevelOfDetail(0, false, 0.5));
+	}
+}
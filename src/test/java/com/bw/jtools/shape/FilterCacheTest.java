@@ -0,0 +1,70 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.FilteredImage;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.Merge;
+import com.bw.jtools.shape.filter.Offset;
+import com.bw.jtools.shape.filter.PainterBuffers;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilterCacheTest
+{
+	private static final class CountingChain extends FilterChain
+	{
+		int renderings_;
+
+		CountingChain()
+		{
+			super(Arrays.asList(
+					new GaussianBlur(FilterBase.SOURCE, "blur", 2, 2),
+					new Offset("blur", "shadow", 3, 3),
+					new Merge("result", "shadow", FilterBase.SOURCE)));
+		}
+
+		@Override
+		public FilteredImage render(PainterBuffers buffers, double scaleX, double scaleY)
+		{
+			++renderings_;
+			return super.render(buffers, scaleX, scaleY);
+		}
+	}
+
+	@Test
+	void reuseOutput()
+	{
+		CountingChain chain = new CountingChain();
+		ShapeGroup root = new ShapeGroup("root", null, null, null);
+		root.shapes_.add(new StyledShape("bg", new Rectangle2D.Double(0, 0, 60, 60), null, null, Color.WHITE, null, null));
+		ShapeGroup filtered = new ShapeGroup("f", chain, null, null);
+		filtered.units_ = new Point2D.Double(1, 1);
+		filtered.shapes_.add(new StyledShape("s", new Rectangle2D.Double(10, 10, 30, 20), null, null, Color.BLUE, null, null));
+		root.shapes_.add(filtered);
+
+		ShapePainter painter = new ShapePainter(root);
+		int[] first = pixels(painter, false);
+		for (int i = 0; i < 3; ++i)
+			assertArrayEquals(first, pixels(painter, false));
+		assertEquals(1, chain.renderings_);
+
+		// The output is the same as with a new painter, that has to render the filter.
+		assertArrayEquals(first, pixels(new ShapePainter(root), false));
+		assertEquals(2, chain.renderings_);
+
+		// A new scale paints the source again and so the filter.
+		painter.setScale(2, 2);
+		pixels(painter, false);
+		pixels(painter, false);
+		assertEquals(3, chain.renderings_);
+	}
+}
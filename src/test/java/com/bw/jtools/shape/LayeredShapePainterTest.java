@@ -0,0 +1,92 @@
+package com.bw.jtools.shape;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static com.bw.jtools.PixelAssertions.assertSimilar;
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LayeredShapePainterTest
+{
+	/**
+	 * A dial with a clip, two hands in a translated group with a static cap between them and a static glass on top.
+	 */
+	private static ShapeGroup clock()
+	{
+		Random r = new Random(5);
+		ShapeGroup root = new ShapeGroup("root", null, new Ellipse2D.Double(0, 0, 200, 200), null);
+		for (int i = 0; i < 100; ++i)
+			root.shapes_.add(new StyledShape("dot" + i, new Ellipse2D.Double(r.nextDouble() * 190, r.nextDouble() * 190, 10, 10),
+					StyledShape.DEFAULT_STROKE, Color.BLACK, new Color(r.nextInt(0x1000000)), null, null));
+		ShapeGroup hands = new ShapeGroup("hands", null, null, AffineTransform.getTranslateInstance(50, 50));
+		hands.shapes_.add(new StyledShape("minutes", new Rectangle2D.Double(48, 5, 4, 50), null, null, Color.BLUE, null, new AffineTransform()));
+		hands.shapes_.add(new StyledShape("cap", new Ellipse2D.Double(40, 40, 20, 20), null, null, Color.GRAY, null, null));
+		hands.shapes_.add(new StyledShape("seconds", new Rectangle2D.Double(49, 0, 2, 50), null, null, Color.RED, null, new AffineTransform()));
+		root.shapes_.add(hands);
+		root.shapes_.add(new StyledShape("glass", new Ellipse2D.Double(20, 20, 100, 60), null, null, new Color(255, 255, 255, 80), null, null));
+		return root;
+	}
+
+	private static int[] paint(AbstractPainterBase painter, int x, int y)
+	{
+		BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		Context.initGraphics(g);
+		g.translate(x, y);
+		painter.paint(g, Color.BLACK, Color.WHITE, true);
+		g.dispose();
+		return pixels(image);
+	}
+
+	@Test
+	void sameAsShapePainter()
+	{
+		ShapeGroup clock = clock();
+		Set<String> ids = new HashSet<>();
+		ids.add("minutes");
+		ids.add("seconds");
+		ShapePainter reference = new ShapePainter(clock);
+		LayeredShapePainter layered = new LayeredShapePainter(clock, ids);
+		for (AbstractPainterBase p : new AbstractPainterBase[]{reference, layered})
+			p.setScale(1.2, 1.2);
+
+		for (int frame = 0; frame < 5; ++frame)
+		{
+			clock.getShapeById("seconds").aft_.setToRotation(frame * 0.7, 50, 50);
+			clock.getShapeById("minutes").aft_.setToRotation(frame * 0.1, 50, 50);
+			clock.invalidateBounds();
+			assertSimilar(paint(reference, 10, 20), paint(layered, 10, 20), 2);
+			// Only the hands are painted after the first frame, each inside copies of "root" and "hands".
+			if (frame > 0)
+				assertEquals(4, layered.getRenderState()
+									   .getPaintedShapes());
+		}
+
+		// Static shapes are detected.
+		clock.shapes_.remove(0);
+		assertSimilar(paint(reference, 10, 20), paint(layered, 10, 20), 2);
+
+		// New scale.
+		for (AbstractPainterBase p : new AbstractPainterBase[]{reference, layered})
+			p.setScale(0.7, 0.9);
+		assertSimilar(paint(reference, 3, 7), paint(layered, 3, 7), 2);
+
+		// Without animations all is static.
+		layered.setAnimatedIds(Collections.emptySet());
+		assertSimilar(paint(reference, 3, 7), paint(layered, 3, 7), 2);
+		assertSimilar(paint(reference, 3, 7), paint(layered, 3, 7), 2);
+		assertEquals(0, layered.getRenderState()
+							   .getPaintedShapes());
+	}
+}
@@ -0,0 +1,172 @@
+package com.bw.jtools.shape;
+
+import com.bw.jtools.PixelAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LevelOfDetailTest
+{
+	/**
+	 * A closed, densely sampled outline with lines and curves.
+	 */
+	private static Shape coastline(Random r, double cx, double cy, double radius, int points)
+	{
+		Path2D.Double p = new Path2D.Double();
+		for (int i = 0; i < points; ++i)
+		{
+			final double a = 2 * Math.PI * i / points;
+			final double d = radius * (1 + 0.1 * Math.sin(7 * a) + 0.002 * r.nextDouble());
+			final double x = cx + Math.cos(a) * d, y = cy + Math.sin(a) * d;
+			if (i == 0)
+				p.moveTo(x, y);
+			else if (i % 5 == 0)
+				p.quadTo(x + r.nextDouble() * 0.3, y + r.nextDouble() * 0.3, x, y);
+			else
+				p.lineTo(x, y);
+		}
+		p.closePath();
+		return p;
+	}
+
+	private static List<double[]> polylines(Shape s, double flatness)
+	{
+		List<double[]> lines = new ArrayList<>();
+		double[] c = new double[6];
+		List<Double> current = new ArrayList<>();
+		double sx = 0, sy = 0;
+		for (PathIterator pi = s.getPathIterator(null, flatness); ; pi.next())
+		{
+			final int type = pi.isDone() ? -1 : pi.currentSegment(c);
+			if (type != PathIterator.SEG_LINETO && !current.isEmpty())
+			{
+				if (type == PathIterator.SEG_CLOSE)
+				{
+					current.add(sx);
+					current.add(sy);
+				}
+				double[] l = new double[current.size()];
+				for (int i = 0; i < l.length; ++i)
+					l[i] = current.get(i);
+				lines.add(l);
+				current.clear();
+			}
+			if (type == -1)
+				break;
+			if (type == PathIterator.SEG_MOVETO)
+			{
+				sx = c[0];
+				sy = c[1];
+			}
+			if (type != PathIterator.SEG_CLOSE)
+			{
+				current.add(c[0]);
+				current.add(c[1]);
+			}
+		}
+		return lines;
+	}
+
+	private static double distance(double x, double y, List<double[]> lines)
+	{
+		double min = Double.MAX_VALUE;
+		for (double[] l : lines)
+			for (int i = 0; i + 3 < l.length; i += 2)
+			{
+				double dx = l[i + 2] - l[i], dy = l[i + 3] - l[i + 1];
+				double len2 = dx * dx + dy * dy;
+				double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((x - l[i]) * dx + (y - l[i + 1]) * dy) / len2));
+				min = Math.min(min, Math.hypot(x - l[i] - t * dx, y - l[i + 1] - t * dy));
+			}
+		return min;
+	}
+
+	@Test
+	void errorBound()
+	{
+		Random r = new Random(11);
+		for (double tolerance : new double[]{0.1, 1, 5})
+		{
+			Shape original = coastline(r, 100, 100, 80, 600);
+			CompactPath simplified = PathSimplifier.simplify(original, tolerance);
+			assertNotNull(simplified);
+
+			List<double[]> reference = polylines(original, tolerance / 100);
+			List<double[]> result = polylines(simplified, 0.01);
+			assertEquals(1, result.size());
+			assertTrue(result.get(0).length < reference.get(0).length);
+			// Both directions, the outlines are not further apart than the tolerance.
+			for (double[] l : reference)
+				for (int i = 0; i < l.length; i += 2)
+					assertTrue(distance(l[i], l[i + 1], result) <= tolerance * 1.001);
+			for (double[] l : result)
+				for (int i = 0; i < l.length; i += 2)
+					assertTrue(distance(l[i], l[i + 1], reference) <= tolerance * 1.001);
+		}
+		// Nothing to gain for a rectangle.
+		assertNull(PathSimplifier.simplify(new Rectangle2D.Double(0, 0, 10, 10), 1));
+	}
+
+	private static int[] thumbnail(ShapePainter painter)
+	{
+		return PixelAssertions.pixels(painter.paintShapeToBuffer(null, Color.BLACK, Color.WHITE, false));
+	}
+
+	@Test
+	void visualDifference()
+	{
+		Random r = new Random(13);
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		for (int i = 0; i < 40; ++i)
+			g.shapes_.add(new StyledShape("s" + i, coastline(r, r.nextDouble() * 2000, r.nextDouble() * 2000, 100 + r.nextDouble() * 200, 400),
+					StyledShape.DEFAULT_STROKE, Color.BLUE, new Color(r.nextInt(0x1000000)), null, null));
+
+		ShapePainter painter = new ShapePainter(g);
+		painter.setScale(0.1, 0.1);
+		int[] expected = thumbnail(painter);
+		painter.setLevelOfDetail(0, false, 0.5);
+		int[] simplified = thumbnail(painter);
+
+		// The outlines move by at most half a pixel, only edge pixels change and only partially.
+		long sum = 0;
+		int max = 0;
+		for (int i = 0; i < expected.length; ++i)
+			for (int shift = 0; shift < 24; shift += 8)
+			{
+				int d = Math.abs(((expected[i] >> shift) & 0xFF) - ((simplified[i] >> shift) & 0xFF));
+				sum += d;
+				max = Math.max(max, d);
+			}
+		assertTrue(sum / (3.0 * expected.length) < 2, "mean difference");
+		assertTrue(max < 160, "max difference");
+	}
+
+	@Test
+	void minimalSize()
+	{
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		g.shapes_.add(new StyledShape("big", new Rectangle2D.Double(0, 0, 100, 100), null, null, Color.WHITE, null, null));
+		g.shapes_.add(new StyledShape("small", new Rectangle2D.Double(50, 50, 4, 4), null, null, Color.RED, null, null));
+		ShapePainter painter = new ShapePainter(g);
+		painter.setScale(0.5, 0.5);
+
+		painter.setLevelOfDetail(3, false, 0);
+		assertEquals(0xFFFFFFFF, painter.paintShapeToBuffer(null, false)
+										.getRGB(26, 26));
+		painter.setLevelOfDetail(3, true, 0);
+		assertEquals(0xFFFF0000, painter.paintShapeToBuffer(null, false)
+										.getRGB(26, 26));
+	}
+}
@@ -0,0 +1,58 @@
+package com.bw.jtools.shape;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LruCacheTest
+{
+	@Test
+	void leastRecentlyUsedFirst()
+	{
+		final List<String> removed = new ArrayList<>();
+		LruCache<String, Integer> cache = new LruCache<String, Integer>(10, Integer::longValue)
+		{
+			@Override
+			protected boolean isRemovable(String key, Integer value)
+			{
+				return !"keep".equals(key);
+			}
+
+			@Override
+			protected void removed(String key, Integer value)
+			{
+				removed.add(key);
+			}
+		};
+		cache.put("keep", 3);
+		cache.put("a", 3);
+		cache.put("b", 3);
+		assertNotNull(cache.get("a"));
+		cache.put("c", 3);
+		// "keep" is older, but can't be removed.
+		assertNull(cache.get("b"));
+		assertEquals(9, cache.getBytes());
+
+		// Replaced values count once.
+		cache.put("c", 1);
+		assertEquals(7, cache.getBytes());
+		assertEquals(3, (int) cache.remove("a"));
+		assertEquals(4, cache.getBytes());
+
+		cache.setMaxBytes(0);
+		assertEquals(1, cache.size());
+		assertEquals(3, cache.getBytes());
+		assertEquals(2, removed.size());
+		assertEquals("b", removed.get(0));
+		assertEquals("c", removed.get(1));
+
+		cache.clear();
+		assertEquals(0, cache.getBytes());
+		assertEquals(2, removed.size());
+	}
+}
@@ -0,0 +1,117 @@
+package com.bw.jtools.shape;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SpatialIndexTest
+{
+	private static ShapeGroup group(int n, Random r)
+	{
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		for (int i = 0; i < n; ++i)
+		{
+			Rectangle2D.Double rect = new Rectangle2D.Double(r.nextDouble() * 1000, r.nextDouble() * 1000,
+					r.nextDouble() * 30, r.nextDouble() * 30);
+			AffineTransform aft = (i % 7 == 0) ? AffineTransform.getRotateInstance(0.3, rect.x, rect.y) : null;
+			g.shapes_.add(new StyledShape("s" + i, rect, null, null, Color.RED, null, aft));
+		}
+		return g;
+	}
+
+	private static List<Integer> linear(ShapeGroup g, Rectangle2D area)
+	{
+		List<Integer> result = new ArrayList<>();
+		for (int i = 0; i < g.shapes_.size(); ++i)
+			if (!ShapeGroup.isOutside(g.shapes_.get(i)
+											   .getPaintBounds(), area))
+				result.add(i);
+		return result;
+	}
+
+	@Test
+	void query()
+	{
+		Random r = new Random(3);
+		for (int n : new int[]{1, 15, 16, 17, 300, 5000})
+		{
+			ShapeGroup g = group(n, r);
+			SpatialIndex index = new SpatialIndex(g.shapes_);
+			int[] hits = null;
+			for (int q = 0; q < 200; ++q)
+			{
+				Rectangle2D area = new Rectangle2D.Double(r.nextDouble() * 1000, r.nextDouble() * 1000,
+						q % 10 == 0 ? 0 : r.nextDouble() * 200, r.nextDouble() * 200);
+				hits = index.query(area, hits);
+				List<Integer> result = new ArrayList<>();
+				for (int i = 1; i <= hits[0]; ++i)
+					result.add(hits[i]);
+				assertEquals(linear(g, area), result);
+			}
+		}
+	}
+
+	private static int[] paint(ShapePainter painter, boolean culling)
+	{
+		painter.getRenderState()
+			   .setCullingEnabled(culling);
+		return pixels(painter, 300, 300, new Rectangle(40, 70, 150, 120));
+	}
+
+	@Test
+	void paint()
+	{
+		ShapePainter painter = new ShapePainter(group(5000, new Random(9)));
+		painter.setScale(0.3, 0.3);
+		int[] expected = paint(painter, false);
+		assertArrayEquals(expected, paint(painter, true));
+		assertEquals(5000, painter.getRenderState()
+								  .getPaintedShapes() + painter.getRenderState()
+															   .getCulledShapes());
+	}
+
+	@Test
+	void findShapes()
+	{
+		ShapeGroup g = group(2000, new Random(5));
+		// Top-most shape at the center of some shapes.
+		for (int i = 0; i < 2000; i += 13)
+		{
+			StyledShape s = (StyledShape) g.shapes_.get(i);
+			Point2D p = s.aft_.transform(new Point2D.Double(s.shape_.getBounds2D()
+																	 .getCenterX(), s.shape_.getBounds2D()
+																							.getCenterY()), null);
+			AbstractShape expected = null;
+			for (AbstractShape c : g.shapes_)
+				if (c.findShapeAt(p) != null)
+					expected = c;
+			assertSame(expected, g.findShapeAt(p));
+		}
+		assertNull(g.findShapeAt(new Point2D.Double(-100, -100)));
+
+		Rectangle2D area = new Rectangle2D.Double(100, 100, 50, 70);
+		List<AbstractShape> expected = new ArrayList<>();
+		for (int i : linear(g, area))
+			expected.add(g.shapes_.get(i));
+		assertEquals(expected, g.findShapesIn(area));
+
+		// Index is dropped on invalidation.
+		g.aft_ = AffineTransform.getTranslateInstance(1000, 0);
+		g.invalidateBounds();
+		area.setRect(1100, 100, 50, 70);
+		assertEquals(expected, g.findShapesIn(area));
+	}
+}
@@ -0,0 +1,87 @@
+package com.bw.jtools.shape.animation;
+
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.ShapePainter;
+import com.bw.jtools.shape.StyledShape;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnimatorTest
+{
+	private static final class Component extends JComponent
+	{
+		final List<Rectangle> repainted_ = new ArrayList<>();
+
+		@Override
+		public void paintImmediately(Rectangle r)
+		{
+			repainted_.add(r);
+		}
+	}
+
+	@Test
+	void dirtyRegion() throws Exception
+	{
+		ShapeGroup root = new ShapeGroup("root", null, null, null);
+		root.shapes_.add(new StyledShape("dial", new Rectangle2D.Double(0, 0, 400, 400), null, null, Color.WHITE, null, null));
+		// The hand is nested in a translated group.
+		ShapeGroup hands = new ShapeGroup("hands", null, null, AffineTransform.getTranslateInstance(100, 100));
+		root.shapes_.add(hands);
+		StyledShape hand = new StyledShape("hand", new Rectangle2D.Double(98, 20, 4, 80), null, null, Color.RED, null, null);
+		hands.shapes_.add(hand);
+
+		ShapePainter painter = new ShapePainter(root);
+		painter.setScale(2, 2);
+		Component component = new Component();
+		component.setSize(800, 800);
+
+		final Rectangle2D dialBounds = root.getShapeById("dial")
+										   .getPaintBounds();
+		Animator animator = new Animator(component, painter);
+		Rotation rotation = new Rotation(AnimationType.Linear, 100, 100);
+		animator.addAnimation("hand", rotation);
+		rotation.setAnimation(300, Math.PI / 2, FillMode.Freeze);
+		// Frames of the animation thread, past the end of the animation.
+		final long start = System.currentTimeMillis();
+		for (long time = start; time <= start + 400; time += 20)
+			animator.tick(time);
+		assertFalse(animator.isRunning());
+		assertEquals(Math.PI / 2, rotation.getValue());
+		SwingUtilities.invokeAndWait(() ->
+		{
+		});
+
+		assertFalse(component.repainted_.isEmpty());
+		Rectangle all = null;
+		for (Rectangle r : component.repainted_)
+		{
+			// Only the quarter of the dial the hand moves through, in device space.
+			assertTrue(r.x >= 390 && r.y >= 190 && r.getMaxX() <= 610 && r.getMaxY() <= 410, r.toString());
+			all = all == null ? r : all.union(r);
+		}
+		// The final position is covered.
+		Rectangle2D last = painter.getShapeTransform()
+								  .createTransformedShape(root.getShapeById("hands").aft_.createTransformedShape(hand.getPaintBounds()))
+								  .getBounds2D();
+		assertTrue(all.contains(last), last.toString());
+		// Shapes that are not animated keep the cached bounds.
+		assertSame(dialBounds, root.getShapeById("dial")
+								   .getPaintBounds());
+		// The parents of the animated shape know the new bounds.
+		assertEquals(hands.aft_.createTransformedShape(hand.getPaintBounds())
+							   .getBounds2D(), hands.getPaintBounds());
+	}
+}
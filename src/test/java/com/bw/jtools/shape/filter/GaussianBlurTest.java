@@ -1,10 +1,20 @@
 package com.bw.jtools.shape.filter;
 
+import com.bw.jtools.PixelAssertions;
 import org.junit.jupiter.api.Test;
 
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 class GaussianBlurTest
 {
 	@Test
@@ -27,4 +37,127 @@ class GaussianBlurTest
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void kernelIsCentered() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException
+	{
+		Method createKernel = GaussianBlur.class.getDeclaredMethod("createKernel", double.class);
+		createKernel.setAccessible(true);
+		GaussianBlur gb = new GaussianBlur(FilterBase.SOURCE, "Target", 1, 1);
+
+		for (double deviation : new double[]{0, 0.4, 1, 1.5, 2, 3})
+		{
+			float[] kernel = (float[]) createKernel.invoke(gb, deviation);
+			assertEquals(1, kernel.length % 2, "Deviation " + deviation);
+			double sum = 0;
+			for (int i = 0; i < kernel.length; i++)
+			{
+				assertEquals(kernel[i], kernel[kernel.length - 1 - i]);
+				sum += kernel[i];
+			}
+			assertEquals(1, sum, 1e-5, "Deviation " + deviation);
+		}
+	}
+
+	/**
+	 * Filled areas, a thin line and a half transparent ellipse.
+	 */
+	private static PainterBuffers createSource()
+	{
+		BufferedImage src = new BufferedImage(120, 80, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = src.createGraphics();
+		PainterBuffers buffers = new PainterBuffers();
+		buffers.setConfiguration(g.getDeviceConfiguration());
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setColor(Color.RED);
+		g.fillRect(10, 10, 50, 40);
+		g.setColor(Color.BLUE);
+		g.drawLine(70, 5, 110, 75);
+		g.setColor(new Color(0, 200, 0, 128));
+		g.fill(new Ellipse2D.Double(30, 30, 60, 40));
+		g.dispose();
+		buffers.addBuffer(FilterBase.SOURCE, src);
+		return buffers;
+	}
+
+	private static int[] render(double deviationX, double deviationY, double boxBlurMinDeviation)
+	{
+		return render(createSource(), deviationX, deviationY, boxBlurMinDeviation);
+	}
+
+	private static int[] render(PainterBuffers buffers, double deviationX, double deviationY, double boxBlurMinDeviation)
+	{
+		return render(buffers, deviationX, deviationY, boxBlurMinDeviation, Pixels.MIN_BAND_PIXELS);
+	}
+
+	static int[] render(PainterBuffers buffers, double deviationX, double deviationY, double boxBlurMinDeviation, int minBandPixels)
+	{
+		GaussianBlur gb = new GaussianBlur(FilterBase.SOURCE, "blur", deviationX, deviationY);
+		BufferedImage src = buffers.getSourceBuffer(FilterBase.SOURCE);
+		Dimension d = gb.getTargetDimension(src.getWidth(), src.getHeight(), 1, 1);
+		BufferedImage image = buffers.getTargetBuffer("blur", d.width, d.height);
+		gb.render(buffers, src, image, 1, 1, boxBlurMinDeviation, minBandPixels);
+		return PixelAssertions.pixels(image);
+	}
+
+	/**
+	 * Checks that the alpha channels are similar.
+	 * The colors are not compared, the kernel blurs colors without premultiplied alpha.
+	 * The kernel is cut at the deviation, so single pixels differ more than the box blur from a real Gaussian curve.
+	 */
+	private static void assertSimilarAlpha(int[] expected, int[] actual, String message)
+	{
+		assertEquals(expected.length, actual.length);
+		long difference = 0;
+		long expectedSum = 0;
+		long actualSum = 0;
+		for (int i = 0; i < expected.length; ++i)
+		{
+			difference += Math.abs((expected[i] >>> 24) - (actual[i] >>> 24));
+			expectedSum += expected[i] >>> 24;
+			actualSum += actual[i] >>> 24;
+		}
+		final double mean = (double) difference / expected.length;
+		assertTrue(mean <= 8, message + ": mean difference " + mean);
+		// Both keep the coverage.
+		assertTrue(Math.abs(expectedSum - actualSum) <= expectedSum / 50, message + ": alpha " + expectedSum + " / " + actualSum);
+	}
+
+	@Test
+	public void boxBlurAccuracy()
+	{
+		for (double deviation : new double[]{2, 2.5, 3, 5, 8})
+		{
+			int[] kernel = render(deviation, deviation, Double.MAX_VALUE);
+			int[] box = render(deviation, deviation, GaussianBlur.BOX_BLUR_MIN_DEVIATION);
+			assertSimilarAlpha(kernel, box, "Deviation " + deviation);
+		}
+	}
+
+	@Test
+	public void mixedAxes()
+	{
+		// Small deviation in one axis uses the kernel on the raster.
+		int[] kernel = render(1, 4, Double.MAX_VALUE);
+		int[] mixed = render(1, 4, GaussianBlur.BOX_BLUR_MIN_DEVIATION);
+		assertSimilarAlpha(kernel, mixed, "Mixed");
+	}
+
+	@Test
+	public void boxBlurKeepsColor()
+	{
+		BufferedImage src = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = src.createGraphics();
+		PainterBuffers buffers = new PainterBuffers();
+		buffers.setConfiguration(g.getDeviceConfiguration());
+		g.setColor(Color.RED);
+		g.fillRect(10, 10, 20, 10);
+		g.dispose();
+		buffers.addBuffer(FilterBase.SOURCE, src);
+
+		// Blurred with premultiplied alpha, the edges don't get darker.
+		for (int argb : render(buffers, 4, 4, GaussianBlur.BOX_BLUR_MIN_DEVIATION))
+			if ((argb >>> 24) > 16)
+				assertEquals(0xFF0000, argb & 0xFFFFFF);
+	}
+}
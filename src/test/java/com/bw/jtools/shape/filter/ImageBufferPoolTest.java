@@ -0,0 +1,122 @@
+package com.bw.jtools.shape.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageBufferPoolTest
+{
+	private static GraphicsConfiguration getConfiguration()
+	{
+		Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+		try
+		{
+			return g.getDeviceConfiguration();
+		}
+		finally
+		{
+			g.dispose();
+		}
+	}
+
+	@Test
+	void bucketSize()
+	{
+		assertEquals(16, ImageBufferPool.bucketSize(1));
+		assertEquals(16, ImageBufferPool.bucketSize(16));
+		assertEquals(32, ImageBufferPool.bucketSize(17));
+		assertEquals(128, ImageBufferPool.bucketSize(100));
+		assertEquals(768, ImageBufferPool.bucketSize(600));
+	}
+
+	@Test
+	void reuse()
+	{
+		final GraphicsConfiguration cfg = getConfiguration();
+		ImageBufferPool pool = new ImageBufferPool(1024 * 1024);
+		BufferedImage a = pool.borrow(cfg, 30, 20);
+		assertEquals(32, a.getWidth());
+		assertEquals(32, a.getHeight());
+		pool.giveBack(a);
+		assertEquals(1, pool.getIdleCount());
+
+		// Same bucket
+		assertSame(a, pool.borrow(cfg, 25, 31));
+		// Other bucket
+		assertNotSame(a, pool.borrow(cfg, 50, 20));
+		assertEquals(2, pool.getCreated());
+		assertEquals(1, pool.getReused());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	void limit()
+	{
+		final GraphicsConfiguration cfg = getConfiguration();
+		// Space for two images of 64x64.
+		ImageBufferPool pool = new ImageBufferPool(2 * 4 * 64 * 64);
+		BufferedImage a = pool.borrow(cfg, 64, 64);
+		BufferedImage b = pool.borrow(cfg, 64, 64);
+		BufferedImage c = pool.borrow(cfg, 64, 64);
+		pool.giveBack(a);
+		pool.giveBack(b);
+		pool.giveBack(c);
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(1, pool.getDropped());
+		assertTrue(pool.getIdleBytes() <= pool.getMaxBytes());
+		assertEquals(0, pool.getBorrowedBytes());
+
+		// The oldest was dropped.
+		BufferedImage d = pool.borrow(cfg, 64, 64);
+		assertTrue(d == b || d == c);
+
+		pool.setMaxBytes(0);
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	void painterBuffers()
+	{
+		ImageBufferPool pool = new ImageBufferPool(1024 * 1024);
+		PainterBuffers buffers = new PainterBuffers();
+		buffers.setConfiguration(getConfiguration());
+		buffers.setPool(pool);
+
+		BufferedImage image = buffers.getTargetBuffer("a", 70, 30);
+		assertEquals(70, image.getWidth());
+		assertEquals(30, image.getHeight());
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, 70, 30);
+		g.dispose();
+
+		// Smaller buffer on the same image has to be cleared.
+		image = buffers.getTargetBuffer("a", 50, 20);
+		assertEquals(50, image.getWidth());
+		assertEquals(20, image.getHeight());
+		for (int y = 0; y < 20; ++y)
+			for (int x = 0; x < 50; ++x)
+				assertEquals(0, image.getRGB(x, y));
+		buffers.getTemporaryBuffer(0, 10, 10);
+		buffers.clear();
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedBytes());
+
+		// A second user gets the same images.
+		PainterBuffers buffers2 = new PainterBuffers();
+		buffers2.setConfiguration(getConfiguration());
+		buffers2.setPool(pool);
+		buffers2.getTargetBuffer("b", 70, 30);
+		buffers2.getTemporaryBuffer(0, 10, 10);
+		assertEquals(2, pool.getCreated());
+		assertEquals(2, pool.getReused());
+	}
+}
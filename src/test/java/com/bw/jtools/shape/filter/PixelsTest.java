@@ -0,0 +1,117 @@
+package com.bw.jtools.shape.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PixelsTest
+{
+	private static BufferedImage randomImage(Random r, int width, int height)
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		for (int i = 0; i < 30; ++i)
+		{
+			g.setColor(new Color(r.nextInt(), true));
+			g.fillOval(r.nextInt(width), r.nextInt(height), r.nextInt(width / 2), r.nextInt(height / 2));
+		}
+		g.dispose();
+		return image;
+	}
+
+	private static int[] blur(BufferedImage src, double deviationX, double deviationY, int minBandPixels)
+	{
+		PainterBuffers buffers = new PainterBuffers();
+		Graphics2D g = src.createGraphics();
+		buffers.setConfiguration(g.getDeviceConfiguration());
+		g.dispose();
+		buffers.addBuffer(FilterBase.SOURCE, src);
+		return GaussianBlurTest.render(buffers, deviationX, deviationY, GaussianBlur.BOX_BLUR_MIN_DEVIATION, minBandPixels);
+	}
+
+	@Test
+	void allLines()
+	{
+		AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+		Pixels.forEachBand(3, 997, 1, 10, (from, to) ->
+		{
+			for (int i = from; i < to; ++i)
+				counts.incrementAndGet(i);
+		});
+		for (int i = 0; i < counts.length(); ++i)
+			assertEquals(i >= 3 && i < 997 ? 1 : 0, counts.get(i));
+	}
+
+	@Test
+	void bandsBlurSameAsSerial()
+	{
+		BufferedImage src = randomImage(new Random(3), 150, 100);
+		for (double[] deviation : new double[][]{{3, 5}, {1, 4}, {6, 1.5}})
+		{
+			int[] serial = blur(src, deviation[0], deviation[1], Integer.MAX_VALUE);
+			assertArrayEquals(serial, blur(src, deviation[0], deviation[1], 100));
+		}
+	}
+
+	@Test
+	void mergeSameAsDrawImage()
+	{
+		Random r = new Random(7);
+		BufferedImage a = randomImage(r, 120, 90);
+		BufferedImage b = randomImage(r, 100, 110);
+
+		BufferedImage expected = new BufferedImage(130, 120, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = expected.createGraphics();
+		g.drawImage(a, 0, 0, null);
+		g.drawImage(b, 0, 0, null);
+		g.dispose();
+
+		BufferedImage target = new BufferedImage(130, 120, BufferedImage.TYPE_INT_ARGB);
+		assertTrue(Merge.mergeOnRaster(Arrays.asList(a, b), target));
+
+		for (int y = 0; y < target.getHeight(); ++y)
+			for (int x = 0; x < target.getWidth(); ++x)
+			{
+				final int e = expected.getRGB(x, y), t = target.getRGB(x, y);
+				final int ae = e >>> 24, at = t >>> 24;
+				assertTrue(Math.abs(ae - at) <= 1);
+				// Compare premultiplied, the color of almost transparent pixels is not exact.
+				for (int shift = 0; shift < 24; shift += 8)
+					assertTrue(Math.abs(((e >> shift) & 0xFF) * ae / 255 - ((t >> shift) & 0xFF) * at / 255) <= 2, x + "," + y);
+			}
+	}
+
+	@Test
+	void sourceAlpha()
+	{
+		BufferedImage src = randomImage(new Random(11), 70, 50);
+		BufferedImage other = new BufferedImage(70, 50, BufferedImage.TYPE_4BYTE_ABGR);
+		other.getRaster()
+			 .setRect(src.getRaster());
+		// Int-array of a view and the fallback for other formats.
+		for (BufferedImage image : new BufferedImage[]{src.getSubimage(0, 0, 60, 40), other})
+		{
+			PainterBuffers buffers = new PainterBuffers();
+			Graphics2D g = image.createGraphics();
+			buffers.setConfiguration(g.getDeviceConfiguration());
+			g.dispose();
+			buffers.addBuffer(FilterBase.SOURCE, image);
+			BufferedImage alpha = buffers.getSourceAlphaBuffer(FilterBase.SOURCE);
+			assertEquals(image.getWidth(), alpha.getWidth());
+			assertEquals(image.getHeight(), alpha.getHeight());
+			for (int y = 0; y < image.getHeight(); ++y)
+				for (int x = 0; x < image.getWidth(); ++x)
+					assertEquals(image.getRGB(x, y) & 0xFF000000, alpha.getRGB(x, y), x + "," + y);
+			buffers.clear();
+		}
+	}
+}
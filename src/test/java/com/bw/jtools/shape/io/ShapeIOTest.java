@@ -0,0 +1,181 @@
+package com.bw.jtools.shape.io;
+
+import com.bw.jtools.PixelAssertions;
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.ShapePainter;
+import com.bw.jtools.shape.StyledShape;
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.Merge;
+import com.bw.jtools.shape.filter.Offset;
+import com.bw.jtools.svg.SVGConverter;
+import com.bw.jtools.svg.SVGException;
+import org.junit.jupiter.api.Test;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.RadialGradientPaint;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShapeIOTest
+{
+	static final String SVG =
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"80\" viewBox=\"0 0 200 160\">\n" +
+					"  <rect x=\"10\" y=\"10\" width=\"50\" height=\"40\" rx=\"5\" fill=\"red\"/>\n" +
+					"  <circle cx=\"100\" cy=\"100\" r=\"40\" fill=\"url(#grad)\" stroke=\"blue\" stroke-dasharray=\"4 2\"/>\n" +
+					"  <path d=\"M10 150 L 190 150 Q 170 120 150 120 z\" fill=\"currentColor\" fill-rule=\"evenodd\"/>\n" +
+					"  <linearGradient id=\"grad\"><stop offset=\"0\" stop-color=\"yellow\"/><stop offset=\"1\" stop-color=\"black\"/></linearGradient>\n" +
+					"</svg>";
+
+	private static int[] render(AbstractShape shape)
+	{
+		return PixelAssertions.pixels(new ShapePainter(shape).paintShapeToBuffer(null, false));
+	}
+
+	@Test
+	void convertedShapes() throws SVGException, IOException
+	{
+		AbstractShape shape = SVGConverter.convert(SVG);
+		byte[] data = ShapeWriter.toBytes(shape);
+		AbstractShape loaded = ShapeReader.fromBytes(data);
+
+		assertArrayEquals(data, ShapeWriter.toBytes(loaded));
+		assertArrayEquals(render(shape), render(loaded));
+	}
+
+	@Test
+	void allElements() throws IOException
+	{
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_EVEN_ODD);
+		path.moveTo(0, 0);
+		path.curveTo(1, 2, 3, 4, 5, 6);
+		path.closePath();
+
+		LinearGradientPaint lp = new LinearGradientPaint(new Point2D.Double(0, 0), new Point2D.Double(10, 0),
+				new float[]{0f, 1f}, new Color[]{Color.RED, new Color(0x800000ff, true)},
+				MultipleGradientPaint.CycleMethod.REFLECT, MultipleGradientPaint.ColorSpaceType.LINEAR_RGB,
+				AffineTransform.getRotateInstance(0.5));
+		RadialGradientPaint rp = new RadialGradientPaint(new Point2D.Double(5, 5), 3f, new Point2D.Double(4, 4),
+				new float[]{0f, 0.5f, 1f}, new Color[]{Color.RED, Color.GREEN, Color.BLUE},
+				MultipleGradientPaint.CycleMethod.NO_CYCLE);
+
+		ShapeGroup root = new ShapeGroup("root", null, new Rectangle2D.Double(0, 0, 20, 20), null);
+		ShapeGroup filtered = new ShapeGroup("filtered", new FilterChain(Arrays.asList(
+				new GaussianBlur(FilterBase.SOURCE_ALPHA, "blur", 2, 3),
+				new Offset("blur", "offset", 1.5, 2.5),
+				new Merge("merged", "offset", FilterBase.SOURCE))), null, AffineTransform.getTranslateInstance(1, 2));
+		filtered.units_ = new Point2D.Double(1, 1);
+		root.shapes_.add(filtered);
+		filtered.shapes_.add(new StyledShape("a", path,
+				new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL, 4f, new float[]{1f, 2f}, 0.5f),
+				Context.CURRENT_COLOR, lp, new Ellipse2D.Double(0, 0, 5, 5), null));
+		StyledShape b = new StyledShape("b", new Rectangle2D.Float(1, 2, 3, 4), null, Context.NONE, rp, null,
+				AffineTransform.getScaleInstance(2, 2));
+		b.setClippingEnabled(false);
+		root.shapes_.add(b);
+
+		byte[] data = ShapeWriter.toBytes(root);
+		ShapeGroup loaded = (ShapeGroup) ShapeReader.fromBytes(data);
+		assertArrayEquals(data, ShapeWriter.toBytes(loaded));
+
+		StyledShape la = (StyledShape) loaded.getShapeById("a");
+		assertSame(Context.CURRENT_COLOR, la.paint_);
+		assertEquals(Path2D.WIND_EVEN_ODD, ((Path2D) la.shape_).getWindingRule());
+		assertEquals(3, ((ShapeGroup) loaded.getShapeById("filtered")).filter_.getFilters()
+																			  .size());
+		assertSame(Context.NONE, ((StyledShape) loaded.getShapeById("b")).paint_);
+		assertEquals(false, loaded.getShapeById("b")
+								  .isClippingEnabled());
+	}
+
+	@Test
+	void badHeader()
+	{
+		assertThrows(IOException.class, () -> ShapeReader.fromBytes(new byte[]{1, 2, 3, 4, 0, 1}));
+	}
+
+	@Test
+	void badCoordinateCount() throws IOException
+	{
+		Path2D.Float path = new Path2D.Float();
+		path.moveTo(1, 2);
+		final byte[] data = ShapeWriter.toBytes(new StyledShape("p", path, null, Context.CURRENT_COLOR, null, null, null));
+		// segment count 1, MOVETO, coordinate count 2
+		final byte[] pattern = {0, 0, 0, 1, 0, 0, 0, 0, 2};
+		int pos = -1;
+		for (int i = 0; pos < 0 && i + pattern.length <= data.length; ++i)
+			if (Arrays.equals(Arrays.copyOfRange(data, i, i + pattern.length), pattern))
+				pos = i + 5;
+		assertTrue(pos > 0);
+		for (int count : new int[]{3, 0x20000000, Integer.MAX_VALUE})
+		{
+			data[pos] = (byte) (count >>> 24);
+			data[pos + 1] = (byte) (count >>> 16);
+			data[pos + 2] = (byte) (count >>> 8);
+			data[pos + 3] = (byte) count;
+			assertThrows(IOException.class, () -> ShapeReader.fromBytes(data));
+		}
+	}
+
+	/**
+	 * Replaces the count at the offset to the pattern by a huge value, reading has to fail without allocating the memory.
+	 */
+	private static void assertHugeCountFails(byte[] data, byte[] pattern, int offset)
+	{
+		byte[] corrupt = data.clone();
+		int pos = -1;
+		for (int i = 0; pos < 0 && i + pattern.length <= corrupt.length; ++i)
+			if (Arrays.equals(Arrays.copyOfRange(corrupt, i, i + pattern.length), pattern))
+				pos = i + offset;
+		assertTrue(pos >= 0);
+		final int count = 0x7FFFFFF0;
+		corrupt[pos] = (byte) (count >>> 24);
+		corrupt[pos + 1] = (byte) (count >>> 16);
+		corrupt[pos + 2] = (byte) (count >>> 8);
+		corrupt[pos + 3] = (byte) count;
+		assertThrows(IOException.class, () -> ShapeReader.fromBytes(corrupt));
+	}
+
+	@Test
+	void hugeCounts() throws IOException
+	{
+		Path2D.Float path = new Path2D.Float();
+		path.moveTo(1, 2);
+		LinearGradientPaint lp = new LinearGradientPaint(new Point2D.Double(0, 0), new Point2D.Double(10, 0),
+				new float[]{0f, 1f}, new Color[]{Color.RED, Color.BLUE});
+		ShapeGroup g = new ShapeGroup("g", new FilterChain(Arrays.asList(new Merge("tgt", "a", "b"))), null, null);
+		g.units_ = new Point2D.Double(1, 1);
+		g.shapes_.add(new StyledShape("p", path, new BasicStroke(1f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 4f, new float[]{1f, 2f}, 0f),
+				Context.CURRENT_COLOR, lp, null, null));
+		final byte[] data = ShapeWriter.toBytes(g);
+		assertArrayEquals(data, ShapeWriter.toBytes(ShapeReader.fromBytes(data)));
+
+		// Path segments: count 1, MOVETO, 2 coordinates
+		assertHugeCountFails(data, new byte[]{0, 0, 0, 1, 0, 0, 0, 0, 2}, 0);
+		// Dash array: count 2, 1f
+		assertHugeCountFails(data, new byte[]{0, 0, 0, 2, 0x3F, (byte) 0x80, 0, 0}, 0);
+		// Gradient stops: count 2, 0f, red
+		assertHugeCountFails(data, new byte[]{0, 0, 0, 2, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, 0, 0}, 0);
+		// Filter chain: count 1, merge with target "tgt"
+		assertHugeCountFails(data, new byte[]{0, 0, 0, 1, BinaryShapeFormat.FILTER_MERGE, 1, 0, 3, 't', 'g', 't'}, 0);
+		// Filter sources: count 2 after the target
+		assertHugeCountFails(data, new byte[]{'t', 'g', 't', 0, 0, 0, 2}, 3);
+	}
+}
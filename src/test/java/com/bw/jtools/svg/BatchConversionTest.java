@@ -0,0 +1,82 @@
+package com.bw.jtools.svg;
+
+import com.bw.jtools.shape.io.ShapeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchConversionTest
+{
+	static final String GRADIENTS =
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" viewBox=\"0 0 100 100\">" +
+					"<defs><linearGradient id=\"lg\"><stop offset=\"0\" stop-color=\"red\"/><stop offset=\"1\" stop-color=\"blue\"/></linearGradient>" +
+					"<radialGradient id=\"rg\" xlink:href=\"#lg\"/><path id=\"p\" d=\"M10 10h20v20z\"/></defs>" +
+					"<rect width=\"50\" height=\"50\" fill=\"url(#lg)\"/><circle cx=\"70\" cy=\"70\" r=\"20\" fill=\"url(#rg)\" stroke=\"black\"/>" +
+					"<use xlink:href=\"#p\" x=\"40\" fill=\"green\"/><polygon points=\"0,0 10,0 5,8\"/></svg>";
+
+	@Test
+	void stress() throws Exception
+	{
+		List<Object> corpus = new ArrayList<>();
+		corpus.add(getClass().getResource("/com/bw/jtools/examples/SVGIcon.svg"));
+		corpus.add(CascadeTest.SVG.getBytes(StandardCharsets.UTF_8));
+		corpus.add(GRADIENTS);
+
+		SVGConverterEngine engine = new SVGConverterEngine();
+		List<byte[]> expected = new ArrayList<>();
+		for (CompletableFuture<ConversionResult<Object>> f : engine.convertAll(corpus, Runnable::run))
+			expected.add(ShapeWriter.toBytes(f.get().shape_));
+
+		List<Object> sources = new ArrayList<>();
+		for (int i = 0; i < 50; ++i)
+			sources.addAll(corpus);
+
+		ExecutorService executor = SVGConverterEngine.newBatchExecutor();
+		try
+		{
+			List<CompletableFuture<ConversionResult<Object>>> results = engine.convertAll(sources, executor);
+			assertEquals(sources.size(), results.size());
+			for (int i = 0; i < results.size(); ++i)
+			{
+				ConversionResult<Object> r = results.get(i)
+													.get();
+				assertTrue(r.isOk(), r.toString());
+				assertEquals(sources.get(i), r.source_);
+				assertArrayEquals(expected.get(i % corpus.size()), ShapeWriter.toBytes(r.shape_));
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void errors() throws Exception
+	{
+		List<CompletableFuture<ConversionResult<Object>>> results = SVGConverter.convertAll(
+				Arrays.asList(GRADIENTS, "<svg", 42), Runnable::run);
+
+		assertTrue(results.get(0)
+						  .get()
+						  .isOk());
+		ConversionResult<Object> broken = results.get(1)
+												 .get();
+		assertFalse(broken.isOk());
+		assertNotNull(broken.error_);
+		assertFalse(results.get(2)
+						   .get()
+						   .isOk());
+	}
+}
@@ -0,0 +1,41 @@
+package com.bw.jtools.svg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CascadeTest
+{
+	static final String SVG =
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 100 100\">" +
+					"<style>.blue { stroke: blue }</style>" +
+					"<g id=\"g1\" fill=\"red\" style=\"stroke-width:3\">" +
+					"<g id=\"g2\" class=\"blue\"><g id=\"g3\">" +
+					"<rect id=\"r\" width=\"10\" height=\"10\" fill=\"green\" style=\"fill:yellow\"/>" +
+					"<circle id=\"c\" r=\"5\"/>" +
+					"</g></g></g></svg>";
+
+	@Test
+	void cascade() throws SVGException
+	{
+		ElementCache cache = new SVGConverter(SVG).getCache();
+		ElementWrapper r = cache.getElementWrapperById("r");
+		ElementWrapper c = cache.getElementWrapperById("c");
+
+		// Style attribute before xml attribute.
+		assertEquals("yellow", r.attr(Attribute.Fill, true));
+		assertEquals("yellow", r.attr(Attribute.Fill, false));
+		assertEquals("10", r.attr(Attribute.Width, false));
+
+		// Inherited over several levels, from attributes, styles and style sheets.
+		assertEquals("red", c.attr(Attribute.Fill));
+		assertEquals("3", c.attr(Attribute.Stroke_Width));
+		assertEquals("blue", c.attr(Attribute.Stroke));
+		assertEquals("", c.attr(Attribute.Fill, false));
+
+		// Nothing specified.
+		assertNull(c.attr(Attribute.Opacity));
+		assertEquals("", c.attr(Attribute.Opacity, false));
+	}
+}
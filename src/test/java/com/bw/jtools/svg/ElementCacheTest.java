@@ -0,0 +1,72 @@
+package com.bw.jtools.svg;
+
+import com.bw.jtools.shape.AbstractShape;
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.StyledShape;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ElementCacheTest
+{
+	@Test
+	void noGeneratedIds() throws SVGException
+	{
+		String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><g fill=\"red\"><rect width=\"1\" height=\"1\"/></g><circle id=\"c\" r=\"1\"/></svg>";
+		SVGConverter converter = new SVGConverter(svg);
+		ElementCache cache = converter.getCache();
+
+		ElementWrapper c = cache.getElementWrapperById("c");
+		Node root = c.getNode()
+					 .getParentNode();
+		Element g = (Element) root.getFirstChild();
+		Element rect = (Element) g.getFirstChild();
+
+		// The document is not modified.
+		assertFalse(g.hasAttribute("id"));
+		assertFalse(rect.hasAttribute("id"));
+
+		// Same wrapper by identity.
+		assertSame(cache.getElementWrapper(rect), cache.getElementWrapper(rect));
+		assertSame(c, cache.getElementWrapper(c.getNode()));
+		assertEquals("rect", cache.getElementWrapper(rect)
+								  .nodeName());
+
+		ShapeGroup shape = (ShapeGroup) converter.getShape();
+		AbstractShape group = shape.shapes_.get(0);
+		assertEquals("", group.id_);
+	}
+
+	@Test
+	void idsAndStylesInOneWalk() throws Exception
+	{
+		// Style sheets before and after the elements, one nested.
+		String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><style>.a{fill:red}</style>" +
+				"<g id=\"g\"><style>.a{fill:green}</style><rect id=\"r\" class=\"a\" width=\"1\" height=\"1\"/></g>" +
+				"<style>.a{fill:blue}</style></svg>";
+		Document doc = SVGConverter.createDocumentBuilderFactory()
+								   .newDocumentBuilder()
+								   .parse(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+		ElementCache cache = new ElementCache(false);
+		assertEquals(Arrays.asList(".a{fill:red}", ".a{fill:green}", ".a{fill:blue}"), cache.scanForIdsAndStyles(doc));
+		assertEquals("g", cache.getElementWrapperById("g")
+							   .getTagName());
+		assertEquals("rect", cache.getElementWrapperById("r")
+								  .getTagName());
+
+		// The last rule wins.
+		ShapeGroup shape = (ShapeGroup) new SVGConverter(svg).getShape();
+		StyledShape rect = (StyledShape) shape.getShapeById("r");
+		assertEquals(Color.BLUE, rect.fill_);
+	}
+}
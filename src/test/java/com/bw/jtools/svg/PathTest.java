@@ -0,0 +1,77 @@
+package com.bw.jtools.svg;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.PathIterator;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathTest
+{
+	private static final class Numbers extends Parser
+	{
+		Numbers(String content)
+		{
+			super(content);
+		}
+	}
+
+	@Test
+	void exactNumbers()
+	{
+		String[] values = {"0", "-0", "1", "0.1", "0.3", "-.5", "+7.25", "1e5", "1E-7", "2.5e+3",
+				"3.14159265358979323846", "123456789012345678901", "0.000000000000000000001234",
+				"1e308", "4.9e-324", "9007199254740993", "1.7976931348623157e308"};
+		for (String v : values)
+			assertEquals(Double.parseDouble(v), new Numbers(v).nextDouble(), v);
+
+		Random r = new Random(4711);
+		for (int i = 0; i < 10000; ++i)
+		{
+			String v = String.format(Locale.ROOT, "%." + r.nextInt(17) + "f", (r.nextDouble() - 0.5) * Math.pow(10, r.nextInt(12)));
+			assertEquals(Double.parseDouble(v), new Numbers(v).nextDouble(), v);
+		}
+	}
+
+	@Test
+	void compactNumbers()
+	{
+		Numbers n = new Numbers("1.5.5-3e2,.25e-1 7");
+		assertEquals(1.5, n.nextDouble());
+		assertEquals(0.5, n.nextDouble());
+		assertEquals(-300, n.nextDouble());
+		assertEquals(0.025, n.nextDouble());
+		assertEquals(7, n.nextDouble());
+		assertTrue(Double.isNaN(n.nextDouble(Double.NaN)));
+
+		Length l = new Numbers("2em 3").nextLengthPercentage();
+		assertEquals(2, l.value_);
+		assertEquals(LengthUnit.em, l.unit_);
+	}
+
+	@Test
+	void arc()
+	{
+		// Three quarters of a circle from (0,0) to (10,10), center (10,0), radius 10.
+		Path p = new Path("M0 0A10 10 0 1 1 10 10");
+		PathIterator it = p.getPath()
+						   .getPathIterator(null);
+		double[] c = new double[6];
+		assertEquals(PathIterator.SEG_MOVETO, it.currentSegment(c));
+		it.next();
+		int segments = 0;
+		while (!it.isDone())
+		{
+			assertEquals(PathIterator.SEG_CUBICTO, it.currentSegment(c));
+			assertEquals(10, Math.hypot(c[4] - 10, c[5]), 1e-9);
+			++segments;
+			it.next();
+		}
+		assertEquals(3, segments);
+		assertEquals(10, c[4], 0d);
+		assertEquals(10, c[5], 0d);
+	}
+}
@@ -4,6 +4,7 @@ import com.bw.jtools.svg.Attribute;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -31,4 +32,13 @@ public class CSSParserTest
 		assertEquals(SelectorType.CLASS, selector.rules_.get(1).selectors_.get(0).type_, "Class selector was not detected");
 
 	}
-}
\ No newline at end of file
+
+	@Test
+	void parseStyle()
+	{
+		Map<Attribute, String> styles = CSSParser.parseStyle(" fill : red;;unknown:1;:x;stroke-width:2px; fill:blue");
+		assertEquals(2, styles.size());
+		assertEquals("blue", styles.get(Attribute.Fill).trim());
+		assertEquals("2px", styles.get(Attribute.Stroke_Width));
+	}
+}
@@ -83,4 +83,28 @@ public class CssStyleSelectorTest
 				"svg element shall get color from class-selector.");
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void applyDescendant() throws IOException, SAXException
+	{
+		CssStyleSelector cssStyleSelector = CSSParser.parse(
+				"svg rect { color:red } .svgc .rect-c1 { color:green } #s1 circle { color:blue } svg circle { color:yellow }", "text/css");
+
+		ByteArrayInputStream in = new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8));
+		Document doc = db.parse(in);
+		elementCache_.scanForIds(doc);
+
+		cssStyleSelector.apply(doc.getDocumentElement(), elementCache_);
+
+		assertEquals("green", elementCache_.getElementWrapperById("r1")
+										   .attr(Attribute.Color, false),
+				"Class selectors are more specific than tag selectors");
+
+		assertEquals("blue", elementCache_.getElementWrapperById("c1")
+										  .attr(Attribute.Color, false),
+				"Id selectors are more specific than later tag selectors");
+
+		assertEquals("", elementCache_.getElementWrapperById("s1")
+									  .attr(Attribute.Color, false),
+				"Root element is not a descendant of itself");
+	}
+}
@@ -61,4 +61,24 @@ public class LexerTest
 		assertEquals(LexerSymbolType.EOF, t.type_);
 		assertEquals("", t.value_);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void onString()
+	{
+		Lexer lx = new Lexer("a /* c */ 'b c'.x", false);
+
+		LexerSymbol t = lx.nextSymbol();
+		assertEquals("a", t.value());
+		t = lx.nextSymbol();
+		assertEquals(LexerSymbolType.IDENTIFIER, t.type_);
+		assertEquals(3, t.length());
+		StringBuilder sb = new StringBuilder();
+		t.appendTo(sb);
+		assertEquals("b c", sb.toString());
+		t = lx.nextSymbol();
+		assertEquals(LexerSymbolType.SEPARATOR, t.type_);
+		assertEquals('.', t.charAt(0));
+		assertEquals("x", lx.nextSymbol().value());
+		assertEquals(LexerSymbolType.EOF, lx.nextSymbol().type_);
+	}
+}
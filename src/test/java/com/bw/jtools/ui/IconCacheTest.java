@@ -0,0 +1,114 @@
+package com.bw.jtools.ui;
+
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.StyledShape;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JLabel;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import static com.bw.jtools.PixelAssertions.assertSimilar;
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IconCacheTest
+{
+	private static ShapeIcon icon()
+	{
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		g.shapes_.add(new StyledShape("a", new Rectangle2D.Double(1, 1, 20, 14), StyledShape.DEFAULT_STROKE, Color.BLACK, Color.ORANGE, null, null));
+		g.shapes_.add(new StyledShape("b", new Ellipse2D.Double(5, 3, 12, 12), null, null, new Color(0, 0, 255, 128), null, null));
+		return new ShapeIcon(g);
+	}
+
+	private static int[] paint(ShapeIcon icon, JLabel c, double deviceScale)
+	{
+		BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.scale(deviceScale, deviceScale);
+		for (int y = 0; y < 40; y += 20)
+			icon.paintIcon(c, g, 3, y);
+		g.dispose();
+		return pixels(image);
+	}
+
+	@Test
+	void sameAsUncached()
+	{
+		ShapeIcon icon = icon();
+		JLabel label = new JLabel();
+		label.setOpaque(true);
+		label.setBackground(Color.LIGHT_GRAY);
+		IconCache cache = new IconCache(1024 * 1024);
+		for (double deviceScale : new double[]{1, 2})
+			for (boolean enabled : new boolean[]{true, false})
+			{
+				label.setEnabled(enabled);
+				icon.setRasterCache(null);
+				int[] expected = paint(icon, label, deviceScale);
+				icon.setRasterCache(cache);
+				assertSimilar(expected, paint(icon, label, deviceScale), 1);
+			}
+		// One image per device scale and gray mode, all other paints are hits.
+		assertEquals(4, cache.size());
+		assertEquals(4, cache.getMisses());
+		assertEquals(4, cache.getHits());
+		assertEquals(0.5, cache.getHitRate());
+
+		// New colors need a new image.
+		label.setBackground(Color.WHITE);
+		paint(icon, label, 1);
+		assertEquals(5, cache.size());
+	}
+
+	@Test
+	void memoryBound()
+	{
+		ShapeIcon icon = icon();
+		final long oneIcon = 4L * (icon.getIconWidth() + 2) * (icon.getIconHeight() + 2);
+		IconCache cache = new IconCache(3 * oneIcon);
+		icon.setRasterCache(cache);
+		for (int i = 1; i <= 10; ++i)
+		{
+			icon.setScale(1, 1 + i * 0.01);
+			paint(icon, null, 1);
+			assertTrue(cache.getMemoryUsage() <= cache.getMaxBytes());
+		}
+		assertTrue(cache.getEvictions() > 0);
+		assertTrue(cache.size() <= 3);
+
+		cache.clear();
+		assertEquals(0, cache.getMemoryUsage());
+	}
+
+	/**
+	 * Paints an icon that is dropped afterwards.
+	 */
+	private static void paintAndDrop(IconCache cache)
+	{
+		ShapeIcon icon = icon();
+		icon.setRasterCache(cache);
+		paint(icon, null, 1);
+	}
+
+	@Test
+	void collectedShapesDropped() throws InterruptedException
+	{
+		IconCache cache = new IconCache(1024 * 1024);
+		paintAndDrop(cache);
+		assertEquals(1, cache.size());
+		for (int i = 0; i < 50 && cache.size() > 0; ++i)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMemoryUsage());
+		assertEquals(0, cache.getEvictions());
+	}
+}
@@ -0,0 +1,191 @@
+package com.bw.jtools.ui;
+
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.StyledShape;
+import com.bw.jtools.shape.filter.FilterBase;
+import com.bw.jtools.shape.filter.FilterChain;
+import com.bw.jtools.shape.filter.GaussianBlur;
+import com.bw.jtools.shape.filter.ImageBufferPool;
+import com.bw.jtools.shape.filter.Merge;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Image;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShapeMultiResolutionImageTest
+{
+	private static final class CountingImage extends ShapeMultiResolutionImage
+	{
+		final AtomicInteger renderings_ = new AtomicInteger();
+
+		CountingImage()
+		{
+			super(shape());
+		}
+
+		@Override
+		protected BufferedImage render(int width, int height)
+		{
+			renderings_.incrementAndGet();
+			try
+			{
+				// Gives other threads time to request the same size.
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread()
+					  .interrupt();
+			}
+			return super.render(width, height);
+		}
+	}
+
+	private static ShapeGroup shape()
+	{
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		g.shapes_.add(new StyledShape("r", new Rectangle2D.Double(0, 0, 32, 32), null, null, Color.RED, null, null));
+		return g;
+	}
+
+	@Test
+	void singleFlight() throws Exception
+	{
+		CountingImage image = new CountingImage();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Image>> results = new ArrayList<>();
+			for (int i = 0; i < 16; ++i)
+			{
+				// Sizes are quantized to pixels.
+				final double size = (i % 2 == 0) ? 64 : 63.9999;
+				results.add(executor.submit(() ->
+				{
+					start.await();
+					return image.getResolutionVariant(size, size);
+				}));
+			}
+			start.countDown();
+			Image first = results.get(0)
+								 .get();
+			for (Future<Image> f : results)
+				assertSame(first, f.get());
+			assertEquals(1, image.renderings_.get());
+			assertEquals(64, first.getWidth(null));
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		// Still cached after garbage collection.
+		Image img = image.getResolutionVariant(64, 64);
+		System.gc();
+		assertSame(img, image.getResolutionVariant(64, 64));
+		assertEquals(1, image.renderings_.get());
+		// The painter of the image is not modified.
+		assertEquals(1, image.painter_.getXScale());
+	}
+
+	@Test
+	void defaultImageWithoutLock() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger renderings = new AtomicInteger();
+		ShapeMultiResolutionImage image = new ShapeMultiResolutionImage(shape())
+		{
+			@Override
+			protected BufferedImage renderDefault()
+			{
+				renderings.incrementAndGet();
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread()
+						  .interrupt();
+				}
+				return super.renderDefault();
+			}
+		};
+		Image img16 = image.getResolutionVariant(16, 16);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try
+		{
+			Future<Image> base1 = executor.submit(() -> image.getResolutionVariants()
+															 .get(0));
+			Future<Image> base2 = executor.submit(() -> image.getResolutionVariants()
+															 .get(0));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			// Other sizes are not blocked while the default image is rendered.
+			assertSame(img16, executor.submit(() -> image.getResolutionVariant(16, 16))
+									  .get(5, TimeUnit.SECONDS));
+			release.countDown();
+			assertSame(base1.get(), base2.get());
+			assertEquals(1, renderings.get());
+		}
+		finally
+		{
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void bounded()
+	{
+		CountingImage image = new CountingImage();
+		image.setMaxBytes(4 * (64 * 64 + 48 * 48));
+		Image img64 = image.getResolutionVariant(64, 64);
+		for (int size = 16; size <= 48; size += 16)
+			image.getResolutionVariant(size, size);
+		assertTrue(image.getMemoryUsage() <= 4 * (64 * 64 + 48 * 48));
+		// The least recently used was dropped and is rendered again.
+		assertNotSame(img64, image.getResolutionVariant(64, 64));
+		assertEquals(5, image.renderings_.get());
+	}
+
+	@Test
+	void buffersGivenBack()
+	{
+		ShapeGroup filtered = new ShapeGroup("f", new FilterChain(Arrays.asList(
+				new GaussianBlur(FilterBase.SOURCE_ALPHA, "blur", 2, 2),
+				new Merge("result", "blur", FilterBase.SOURCE))), null, null);
+		filtered.units_ = new Point2D.Double(1, 1);
+		filtered.shapes_.add(shape());
+		ShapeMultiResolutionImage image = new ShapeMultiResolutionImage(filtered);
+		ImageBufferPool pool = new ImageBufferPool(1024 * 1024);
+		image.painter_.getRenderState()
+					  .setBufferPool(pool);
+
+		image.getResolutionVariant(64, 64);
+		image.getResolutionVariant(16, 16);
+		image.getResolutionVariants();
+		assertTrue(pool.getCreated() > 0);
+		assertEquals(0, pool.getBorrowedBytes());
+		assertTrue(pool.getIdleCount() > 0);
+	}
+}
@@ -0,0 +1,156 @@
+package com.bw.jtools.ui;
+
+import com.bw.jtools.shape.Context;
+import com.bw.jtools.shape.ShapeGroup;
+import com.bw.jtools.shape.ShapePainter;
+import com.bw.jtools.shape.StyledShape;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.Random;
+
+import static com.bw.jtools.PixelAssertions.assertSimilar;
+import static com.bw.jtools.PixelAssertions.pixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TileCacheTest
+{
+	private static ShapePainter painter()
+	{
+		Random r = new Random(7);
+		ShapeGroup g = new ShapeGroup("g", null, null, null);
+		for (int i = 0; i < 300; ++i)
+			g.shapes_.add(new StyledShape("s" + i, new Ellipse2D.Double(r.nextDouble() * 900, r.nextDouble() * 700, 5 + r.nextDouble() * 80, 5 + r.nextDouble() * 80),
+					StyledShape.DEFAULT_STROKE, Color.BLACK, new Color(r.nextInt(0x1000000)), null, null));
+		ShapePainter painter = new ShapePainter(g);
+		painter.setScale(1.3, 1.3);
+		return painter;
+	}
+
+	private static int[] paint(TileCache cache, ShapePainter painter, int x, int y) throws InterruptedException
+	{
+		return paint(cache, painter, 1, x, y);
+	}
+
+	/**
+	 * Paints with a device scale, like on HiDPI screens.
+	 */
+	private static int[] paint(TileCache cache, ShapePainter painter, double deviceScale, int x, int y) throws InterruptedException
+	{
+		BufferedImage image = new BufferedImage(500, 400, BufferedImage.TYPE_INT_ARGB);
+		for (int i = 0; i < 2; ++i)
+		{
+			Graphics2D g = image.createGraphics();
+			Context.initGraphics(g);
+			g.setClip(0, 0, image.getWidth(), image.getHeight());
+			g.scale(deviceScale, deviceScale);
+			g.translate(-x, -y);
+			if (cache == null)
+				painter.paint(g, Color.BLACK, Color.WHITE, true);
+			else
+				cache.paint(g, painter, Color.BLACK, Color.WHITE, true, false, null);
+			g.dispose();
+			if (cache == null)
+				break;
+			// Second round with all tiles available.
+			while (cache.hasPendingTiles())
+				Thread.sleep(5);
+		}
+		return pixels(image);
+	}
+
+	/**
+	 * The renderer clips paths to the tile, so anti-aliased edges can differ slightly, in up to 1% of the pixels.
+	 */
+	private static final int EDGE_PIXELS = 500 * 400 / 100;
+
+	@Test
+	void sameAsDirect() throws InterruptedException
+	{
+		ShapePainter painter = painter();
+		TileCache cache = new TileCache(64L * 1024 * 1024);
+		for (int[] offset : new int[][]{{0, 0}, {300, 170}, {700, 500}})
+			assertSimilar(paint(null, painter, offset[0], offset[1]), paint(cache, painter, offset[0], offset[1]), 47, EDGE_PIXELS);
+
+		// New zoom level, the tiles of the old level are not used.
+		painter.setScale(0.7, 0.7);
+		assertSimilar(paint(null, painter, 100, 0), paint(cache, painter, 100, 0), 47, EDGE_PIXELS);
+	}
+
+	@Test
+	void deviceResolution() throws InterruptedException
+	{
+		ShapePainter painter = painter();
+		TileCache cache = new TileCache(64L * 1024 * 1024);
+		// Scaled edges are longer, more pixels are anti-aliased. Scaled-up tiles differ in about 10% of the pixels.
+		for (double deviceScale : new double[]{2, 1.5})
+			assertSimilar(paint(null, painter, deviceScale, 200, 100), paint(cache, painter, deviceScale, 200, 100), 47, 500 * 400 / 30);
+	}
+
+	@Test
+	void memoryBound() throws InterruptedException
+	{
+		ShapePainter painter = painter();
+		final long tileBytes = 4L * TileCache.TILE_SIZE * TileCache.TILE_SIZE;
+		// Space for 4 tiles.
+		final long limit = 4 * tileBytes;
+		TileCache cache = new TileCache(limit);
+		for (int x = 0; x < 1000; x += 250)
+		{
+			paint(cache, painter, x, x / 2);
+			// The 500x400 view needs up to 3x3 tiles, they are kept.
+			assertTrue(cache.getMemoryUsage() <= 9 * tileBytes);
+		}
+		assertFalse(cache.hasPendingTiles());
+		cache.invalidate();
+		assertEquals(0, cache.getMemoryUsage());
+	}
+
+	@Test
+	void visibleTilesKept() throws InterruptedException
+	{
+		ShapePainter painter = painter();
+		// Space for one tile, less than the view.
+		TileCache cache = new TileCache(4L * TileCache.TILE_SIZE * TileCache.TILE_SIZE);
+		int[] expected = paint(null, painter, 100, 100);
+		assertSimilar(expected, paint(cache, painter, 100, 100), 47, EDGE_PIXELS);
+
+		// All tiles are still there, no tile is painted again.
+		Graphics2D g = new BufferedImage(500, 400, BufferedImage.TYPE_INT_ARGB).createGraphics();
+		g.setClip(0, 0, 500, 400);
+		g.translate(-100, -100);
+		cache.paint(g, painter, Color.BLACK, Color.WHITE, true, false, null);
+		g.dispose();
+		assertFalse(cache.hasPendingTiles());
+	}
+
+	/**
+	 * Paints with a cache that is dropped afterwards.
+	 */
+	private static WeakReference<Object> paintAndDrop() throws InterruptedException
+	{
+		ShapePainter painter = painter();
+		paint(new TileCache(64L * 1024 * 1024), painter, 0, 0);
+		return new WeakReference<>(painter.getShape());
+	}
+
+	@Test
+	void shapeReleased() throws InterruptedException
+	{
+		// The workers are shared by all caches, they must not keep the shapes.
+		WeakReference<Object> shape = paintAndDrop();
+		for (int i = 0; i < 50 && shape.get() != null; ++i)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(shape.get());
+	}
+}